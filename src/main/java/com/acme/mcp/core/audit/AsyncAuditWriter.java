@@ -0,0 +1,299 @@
+package com.acme.mcp.core.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves audit serialization and I/O off the caller's thread.
+ * Producers publish entries into a preallocated {@link AuditRingBuffer}; a single writer
+ * thread serializes them with a reused {@link AuditSerializer} and hands them to the {@link AuditSink} in batches of up to
+ * {@link #DEFAULT_BATCH_SIZE}. The sink is flushed whenever the writer runs out of work,
+ * so bursts are written together and a quiet system still sees entries promptly.
+ * An idle writer parks until signalled; the first producer to publish after it parked
+ * unparks it, so a quiet system costs no wakeups and a busy one no unpark calls.
+ */
+public class AsyncAuditWriter implements AutoCloseable {
+    
+    /**
+     * Default number of ring buffer slots.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+    
+    /**
+     * Maximum number of entries passed to the sink in one call.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncAuditWriter.class);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
+    private final AuditRingBuffer buffer;
+    private final AuditSink sink;
+    private final OverflowPolicy policy;
+    private final List<String> batch = new ArrayList<>(DEFAULT_BATCH_SIZE);
+    private final AuditSerializer serializer = new AuditSerializer();
+    private final AuditRingBuffer.EntryReader batchReader =
+        (event, timestamp) -> batch.add(serializer.serialize(event, timestamp));
+    private final ThreadLocal<AuditSerializer> directSerializers = ThreadLocal.withInitial(AuditSerializer::new);
+    private final Thread writerThread;
+    
+    private volatile boolean running = true;
+    private final AtomicBoolean writerParked = new AtomicBoolean();
+    private volatile long writtenPosition;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    
+    /**
+     * Create a writer with default capacity that blocks producers when full.
+     * @param sink destination of the serialized entries
+     */
+    public AsyncAuditWriter(AuditSink sink) {
+        this(sink, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+    
+    /**
+     * Create a writer with custom capacity and overflow policy.
+     * @param sink destination of the serialized entries
+     * @param capacity number of ring buffer slots, rounded up to a power of two
+     * @param policy what producers do when the buffer is full
+     */
+    public AsyncAuditWriter(AuditSink sink, int capacity, OverflowPolicy policy) {
+        if (sink == null || policy == null) {
+            throw new IllegalArgumentException("Sink and overflow policy cannot be null");
+        }
+        this.buffer = new AuditRingBuffer(capacity);
+        this.sink = sink;
+        this.policy = policy;
+        this.writerThread = new Thread(this::drainLoop, "audit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+    
+    /**
+     * Publish an untyped audit entry.
+     * @param event event type/name
+     * @param data event data, must not be modified afterwards
+     * @return false if the entry was dropped
+     */
+    public boolean publish(String event, Map<String, Object> data) {
+        return publish(new MapAuditEvent(event, data));
+    }
+    
+    /**
+     * Publish a typed audit event.
+     * @param event event to write, must not be modified afterwards
+     * @return false if the entry was dropped
+     */
+    public boolean publish(AuditEvent event) {
+        long timestamp = System.currentTimeMillis();
+        if (running && buffer.offer(event, timestamp)) {
+            wakeWriter();
+            return true;
+        }
+        if (!running) {
+            // The writer is gone; never lose entries published during shutdown
+            writeDirectly(event, timestamp);
+            return true;
+        }
+        switch (policy) {
+            case DROP:
+                dropped.incrementAndGet();
+                return false;
+            case SPILL:
+                spilled.incrementAndGet();
+                writeDirectly(event, timestamp);
+                return true;
+            default:
+                blocked.incrementAndGet();
+                while (running) {
+                    wakeWriter();
+                    LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+                    if (buffer.offer(event, timestamp)) {
+                        wakeWriter();
+                        return true;
+                    }
+                }
+                writeDirectly(event, timestamp);
+                return true;
+        }
+    }
+    
+    private void writeDirectly(AuditEvent event, long timestamp) {
+        try {
+            sink.write(List.of(directSerializers.get().serialize(event, timestamp)));
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to write audit entry: {}", e.getMessage());
+        }
+    }
+    
+    private void wakeWriter() {
+        // Only the producer that finds the writer parked pays for the unpark
+        if (writerParked.get() && writerParked.compareAndSet(true, false)) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+    
+    private void drainLoop() {
+        boolean dirty = false;
+        while (true) {
+            while (batch.size() < DEFAULT_BATCH_SIZE && buffer.poll(batchReader)) {
+                // Fill the batch
+            }
+            if (!batch.isEmpty()) {
+                writeBatch();
+                dirty = true;
+                continue;
+            }
+            if (dirty) {
+                flushSink();
+                dirty = false;
+            }
+            if (!running && buffer.size() == 0) {
+                return;
+            }
+            // Announce the park before the last emptiness check: a producer either sees the
+            // flag and unparks, or publishes before the check and the writer does not park
+            writerParked.set(true);
+            if (buffer.size() == 0 && running) {
+                LockSupport.park(this);
+            }
+            writerParked.set(false);
+        }
+    }
+    
+    private void writeBatch() {
+        try {
+            sink.write(batch);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to write {} audit entries: {}", batch.size(), e.getMessage());
+        }
+        batch.clear();
+        batches.incrementAndGet();
+        writtenPosition = buffer.consumed();
+    }
+    
+    private void flushSink() {
+        try {
+            sink.flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to flush audit sink: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Wait until every entry published before this call has been written.
+     * @param timeout maximum time to wait
+     * @param unit unit of the timeout
+     * @return true if all entries were written in time
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = buffer.published();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (writtenPosition < target) {
+            if (!writerThread.isAlive() || System.nanoTime() - deadline >= 0) {
+                return writtenPosition >= target;
+            }
+            wakeWriter();
+            LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+        }
+        return true;
+    }
+    
+    /**
+     * Stop the writer after draining all buffered entries and close the sink if it is
+     * {@link AutoCloseable}. Entries published afterwards are written on the caller's thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (sink instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) sink).close();
+            } catch (Exception e) {
+                LOGGER.error("Failed to close audit sink: {}", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Register a JVM shutdown hook that drains the buffer before exit.
+     */
+    public void registerShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "audit-shutdown-flush"));
+    }
+    
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+    
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+    
+    /**
+     * @return number of entries published but not yet taken by the writer
+     */
+    public long getPendingCount() {
+        return buffer.size();
+    }
+    
+    /**
+     * Approximate age of the oldest entry not yet taken by the writer.
+     * @return lag in milliseconds, 0 if the buffer is empty
+     */
+    public long getLagMillis() {
+        long oldest = buffer.oldestTimestamp();
+        return oldest < 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+    }
+    
+    /**
+     * @return number of entries written by the writer thread
+     */
+    public long getWrittenCount() {
+        return writtenPosition;
+    }
+    
+    /**
+     * @return number of batches passed to the sink
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+    
+    /**
+     * @return number of entries discarded under {@link OverflowPolicy#DROP}
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    /**
+     * @return number of entries written on the producer thread under {@link OverflowPolicy#SPILL}
+     */
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+    
+    /**
+     * @return number of publications that had to wait under {@link OverflowPolicy#BLOCK}
+     */
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+}
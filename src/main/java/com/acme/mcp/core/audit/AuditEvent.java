@@ -0,0 +1,26 @@
+package com.acme.mcp.core.audit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Typed audit event.
+ * Events write their own fields straight to a JSON generator on the audit writer thread,
+ * so no intermediate maps or JSON trees are built. Events must be immutable once published.
+ */
+public interface AuditEvent {
+    
+    /**
+     * @return event type/name, written as the {@code event} field
+     */
+    String getEvent();
+    
+    /**
+     * Write the event fields. The enclosing object, {@code event} and {@code timestamp}
+     * are written by the caller.
+     * @param generator generator positioned inside the entry object
+     * @throws IOException if writing fails
+     */
+    void writeFields(JsonGenerator generator) throws IOException;
+}
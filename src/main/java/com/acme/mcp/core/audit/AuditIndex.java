@@ -0,0 +1,434 @@
+package com.acme.mcp.core.audit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index over a {@link SegmentAuditStore}.
+ * Every record gets a long ordinal in append order. The index keeps, per ordinal, the record's
+ * segment, offset and timestamp; a sparse time index with the timestamp range of every block
+ * of {@value #TIME_BLOCK} records; and posting lists of ordinals per value of
+ * {@code correlationId}, {@code assetId}, {@code userId}, {@code tool} and {@code event}.
+ * The index is built from the existing segments when created and then maintained
+ * incrementally as the store appends. Queries select matching ordinals from memory and
+ * read only those records from the store. When retention deletes segments, the columns and
+ * posting lists drop the ordinals of the deleted records once they make up half of the index.
+ */
+public class AuditIndex implements SegmentAuditStore.AppendListener {
+    
+    /**
+     * Record fields with posting lists.
+     */
+    public static final List<String> KEY_FIELDS = List.of("correlationId", "assetId", "userId", "tool", "event");
+    
+    static final int TIME_BLOCK = 256;
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditIndex.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private final SegmentAuditStore store;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Guarded by lock
+    private final LongList segments = new LongList(1024);
+    private final LongList offsets = new LongList(1024);
+    private final LongList timestamps = new LongList(1024);
+    private final LongList blockMin = new LongList();
+    private final LongList blockMax = new LongList();
+    private final Map<String, Map<String, LongList>> postings = new HashMap<>();
+    /** Ordinal of the first entry of the columns, always a multiple of TIME_BLOCK. */
+    private long base;
+    private long firstLive;
+    private boolean building = true;
+    private final List<Object[]> appendedWhileBuilding = new ArrayList<>();
+    
+    /**
+     * Build the index from the records already in the store and keep it up to date.
+     * @param store store to index
+     */
+    public AuditIndex(SegmentAuditStore store) {
+        this.store = store;
+        for (String field : KEY_FIELDS) {
+            postings.put(field, new HashMap<>());
+        }
+        // Listen first so nothing appended during the rebuild is missed; those records are
+        // applied afterwards, skipping any the rebuild already saw
+        store.addAppendListener(this);
+        store.read((segmentId, offset, record) -> {
+            index(segmentId, offset, record);
+            return true;
+        });
+        lock.writeLock().lock();
+        try {
+            building = false;
+            for (Object[] appended : appendedWhileBuilding) {
+                addLocked((Long) appended[0], (Long) appended[1], (String) appended[2]);
+            }
+            appendedWhileBuilding.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onAppend(long segmentId, long offset, String record) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                appendedWhileBuilding.add(new Object[] {segmentId, offset, record});
+                return;
+            }
+            addLocked(segmentId, offset, record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void index(long segmentId, long offset, String record) {
+        lock.writeLock().lock();
+        try {
+            addLocked(segmentId, offset, record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void addLocked(long segmentId, long offset, String record) {
+        int size = segments.size();
+        if (size > 0 && compare(segments.get(size - 1), offsets.get(size - 1), segmentId, offset) >= 0) {
+            return; // Already indexed
+        }
+        
+        long timestamp = 0;
+        String[] keys = new String[KEY_FIELDS.size()];
+        try (JsonParser parser = JSON_FACTORY.createParser(record)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("timestamp".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    timestamp = parser.getLongValue();
+                } else if (value == JsonToken.VALUE_STRING) {
+                    int keyIndex = KEY_FIELDS.indexOf(field);
+                    if (keyIndex >= 0) {
+                        keys[keyIndex] = parser.getText();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Skipping unparseable audit record in segment {} at offset {}", segmentId, offset);
+            return;
+        }
+        
+        long ordinal = base + size;
+        segments.add(segmentId);
+        offsets.add(offset);
+        timestamps.add(timestamp);
+        int block = size / TIME_BLOCK;
+        if (block == blockMin.size()) {
+            blockMin.add(timestamp);
+            blockMax.add(timestamp);
+        } else {
+            // Timestamps are assigned when published, so they are only roughly ordered
+            blockMin.set(block, Math.min(blockMin.get(block), timestamp));
+            blockMax.set(block, Math.max(blockMax.get(block), timestamp));
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                postings.get(KEY_FIELDS.get(i)).computeIfAbsent(keys[i], value -> new LongList()).add(ordinal);
+            }
+        }
+    }
+    
+    @Override
+    public void onSegmentDeleted(long segmentId) {
+        lock.writeLock().lock();
+        try {
+            // Retention removes the oldest segments, so their records form a prefix of the ordinals
+            while (firstLive < base + segments.size() && segments.get(index(firstLive)) <= segmentId) {
+                firstLive++;
+            }
+            int dead = (int) (firstLive - base) / TIME_BLOCK * TIME_BLOCK;
+            // Trimming walks every posting list, so wait until it halves the index
+            if (dead > 0 && dead * 2L >= segments.size()) {
+                trimLocked(dead);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Drop the first entries of the columns, which must be whole time blocks, and the ordinals
+     * before the first live record from the posting lists.
+     */
+    private void trimLocked(int count) {
+        segments.removeFirst(count);
+        offsets.removeFirst(count);
+        timestamps.removeFirst(count);
+        blockMin.removeFirst(count / TIME_BLOCK);
+        blockMax.removeFirst(count / TIME_BLOCK);
+        base += count;
+        for (Map<String, LongList> field : postings.values()) {
+            field.values().removeIf(list -> {
+                list.removeFirst(list.lowerBound(firstLive));
+                return list.size() == 0;
+            });
+        }
+    }
+    
+    private int index(long ordinal) {
+        return (int) (ordinal - base);
+    }
+    
+    /**
+     * Run a query and collect one page of results.
+     * @param query filter, page size and cursor
+     * @return matching records in append order and the cursor for the next page
+     */
+    public AuditPage query(AuditQuery query) {
+        List<String> records = new ArrayList<>();
+        String next = stream(query, records::add);
+        return new AuditPage(records, next);
+    }
+    
+    /**
+     * Run a query and pass one page of results to a consumer as they are read.
+     * @param query filter, page size and cursor
+     * @param consumer receives matching records in append order
+     * @return cursor for the next page, or null if there are no more results
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public String stream(AuditQuery query, Consumer<String> consumer) {
+        int limit = query.getLimit();
+        long[] matchSegments = new long[Math.min(limit, 1024)];
+        long[] matchOffsets = new long[matchSegments.length];
+        int count = 0;
+        boolean more = false;
+        
+        lock.readLock().lock();
+        try {
+            long start = firstLive;
+            if (query.getCursor() != null) {
+                long[] position = decodeCursor(query.getCursor());
+                start = Math.max(start, base + firstAfter(position[0], position[1]));
+            }
+            OrdinalCursor candidates = candidates(query, start);
+            long ordinal;
+            while ((ordinal = candidates.next()) >= 0) {
+                if (!inRange(ordinal, query)) {
+                    continue;
+                }
+                if (count == limit) {
+                    more = true;
+                    break;
+                }
+                if (count == matchSegments.length) {
+                    matchSegments = Arrays.copyOf(matchSegments, count * 2);
+                    matchOffsets = Arrays.copyOf(matchOffsets, count * 2);
+                }
+                matchSegments[count] = segments.get(index(ordinal));
+                matchOffsets[count] = offsets.get(index(ordinal));
+                count++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        // Read the selected records without holding the lock, one segment at a time
+        int from = 0;
+        while (from < count) {
+            int to = from;
+            while (to < count && matchSegments[to] == matchSegments[from]) {
+                to++;
+            }
+            store.readRecords(matchSegments[from], matchOffsets, from, to, (segmentId, offset, record) -> {
+                consumer.accept(record);
+                return true;
+            });
+            from = to;
+        }
+        return more && count > 0 ? encodeCursor(matchSegments[count - 1], matchOffsets[count - 1]) : null;
+    }
+    
+    private boolean inRange(long ordinal, AuditQuery query) {
+        long timestamp = timestamps.get(index(ordinal));
+        return timestamp >= query.getFromMillis() && timestamp < query.getToMillis();
+    }
+    
+    private OrdinalCursor candidates(AuditQuery query, long start) {
+        Map<String, String> keys = query.getKeys();
+        if (keys.isEmpty()) {
+            return new ScanCursor(start, query.getFromMillis(), query.getToMillis());
+        }
+        List<LongList> lists = new ArrayList<>(keys.size());
+        for (Map.Entry<String, String> key : keys.entrySet()) {
+            Map<String, LongList> field = postings.get(key.getKey());
+            LongList list = field == null ? null : field.get(key.getValue());
+            if (list == null) {
+                return () -> -1;
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        return new IntersectionCursor(lists, start);
+    }
+    
+    /**
+     * @return index in the columns of the first entry positioned after the given record
+     */
+    private int firstAfter(long segmentId, long offset) {
+        int low = 0;
+        int high = segments.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(segments.get(mid), offsets.get(mid), segmentId, offset) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static int compare(long segmentA, long offsetA, long segmentB, long offsetB) {
+        return segmentA != segmentB ? Long.compare(segmentA, segmentB) : Long.compare(offsetA, offsetB);
+    }
+    
+    private static String encodeCursor(long segmentId, long offset) {
+        return Long.toString(segmentId, 36) + "." + Long.toString(offset, 36);
+    }
+    
+    private static long[] decodeCursor(String cursor) {
+        int dot = cursor.indexOf('.');
+        try {
+            return new long[] {
+                Long.parseLong(cursor.substring(0, dot), 36),
+                Long.parseLong(cursor.substring(dot + 1), 36)
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid audit cursor: " + cursor);
+        }
+    }
+    
+    /**
+     * @return number of indexed records still present in the store
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segments.size() - index(firstLive);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * @return number of entries held in the columns, including deleted records not trimmed yet
+     */
+    int indexedEntries() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * @param field key field
+     * @return number of distinct values with a posting list
+     */
+    int postingValues(String field) {
+        lock.readLock().lock();
+        try {
+            return postings.get(field).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Produces candidate ordinals in ascending order; -1 when exhausted.
+     */
+    private interface OrdinalCursor {
+        long next();
+    }
+    
+    /**
+     * Walks all ordinals, skipping time blocks that cannot match.
+     */
+    private final class ScanCursor implements OrdinalCursor {
+        
+        private final long fromMillis;
+        private final long toMillis;
+        private long ordinal;
+        
+        ScanCursor(long start, long fromMillis, long toMillis) {
+            this.ordinal = start;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+        
+        @Override
+        public long next() {
+            while (ordinal < base + segments.size()) {
+                int block = index(ordinal) / TIME_BLOCK;
+                if (blockMax.get(block) < fromMillis || blockMin.get(block) >= toMillis) {
+                    ordinal = base + (block + 1L) * TIME_BLOCK;
+                    continue;
+                }
+                return ordinal++;
+            }
+            return -1;
+        }
+    }
+    
+    /**
+     * Walks the shortest posting list and keeps ordinals present in all others.
+     */
+    private static final class IntersectionCursor implements OrdinalCursor {
+        
+        private final List<LongList> lists;
+        private int position;
+        
+        IntersectionCursor(List<LongList> lists, long start) {
+            this.lists = lists;
+            this.position = lists.get(0).lowerBound(start);
+        }
+        
+        @Override
+        public long next() {
+            LongList driver = lists.get(0);
+            outer:
+            while (position < driver.size()) {
+                long ordinal = driver.get(position++);
+                for (int i = 1; i < lists.size(); i++) {
+                    LongList other = lists.get(i);
+                    int found = other.lowerBound(ordinal);
+                    if (found == other.size() || other.get(found) != ordinal) {
+                        continue outer;
+                    }
+                }
+                return ordinal;
+            }
+            return -1;
+        }
+    }
+}
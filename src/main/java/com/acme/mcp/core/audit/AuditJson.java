@@ -0,0 +1,83 @@
+package com.acme.mcp.core.audit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Helpers for writing audit field values with a JSON generator.
+ */
+public final class AuditJson {
+    
+    private AuditJson() {
+    }
+    
+    /**
+     * Write a value as JSON. Collections, arrays and maps are written as nested JSON
+     * rather than as escaped strings.
+     * @param generator target generator
+     * @param value value to write, may be null
+     * @throws IOException if writing fails
+     */
+    public static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object item : (Collection<?>) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Object[]) {
+            generator.writeStartArray();
+            for (Object item : (Object[]) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof JsonNode) {
+            generator.writeTree((JsonNode) value);
+        } else if (value instanceof Enum) {
+            generator.writeString(((Enum<?>) value).name());
+        } else {
+            generator.writeObject(value);
+        }
+    }
+    
+    /**
+     * Write additional fields of an event, skipping names already written by the event.
+     * @param generator target generator
+     * @param extra additional fields, may be null
+     * @param reserved field names written by the event itself
+     * @throws IOException if writing fails
+     */
+    public static void writeExtra(JsonGenerator generator, Map<String, Object> extra, Set<String> reserved) throws IOException {
+        if (extra == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : extra.entrySet()) {
+            if (!reserved.contains(entry.getKey())) {
+                generator.writeFieldName(entry.getKey());
+                writeValue(generator, entry.getValue());
+            }
+        }
+    }
+}
@@ -1,20 +1,21 @@
 package com.acme.mcp.core.audit;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import java.nio.file.Paths;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Structured audit logger for MCP operations.
  * Logs events in JSON format for easy parsing and analysis.
+ * Entries are handed to an {@link AsyncAuditWriter}, which serializes and writes them
+ * on a background thread, so callers only pay for publishing into a ring buffer.
+ * The default writer sends entries to logback, or to a {@link SegmentAuditStore} in the
+ * directory named by the system property {@code mcp.audit.dir}, and is configured with the
+ * system properties {@code mcp.audit.capacity} and {@code mcp.audit.overflow} (BLOCK, DROP or SPILL).
  */
 public class AuditLogger {
     
-    private static final Logger AUDIT_LOGGER = LoggerFactory.getLogger("AUDIT");
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static volatile AsyncAuditWriter writer;
     
     /**
      * Log an audit event with structured data.
@@ -22,50 +23,63 @@ public class AuditLogger {
      * @param data additional event data
      */
     public static void info(String event, Map<String, Object> data) {
-        try {
-            ObjectNode logEntry = OBJECT_MAPPER.createObjectNode();
-            logEntry.put("event", event);
-            logEntry.put("timestamp", System.currentTimeMillis());
-            
-            // Add all data fields to the log entry
-            if (data != null) {
-                for (Map.Entry<String, Object> entry : data.entrySet()) {
-                    String key = entry.getKey();
-                    Object value = entry.getValue();
-                    
-                    if (value == null) {
-                        logEntry.putNull(key);
-                    } else if (value instanceof String) {
-                        logEntry.put(key, (String) value);
-                    } else if (value instanceof Number) {
-                        Number num = (Number) value;
-                        if (value instanceof Integer) {
-                            logEntry.put(key, num.intValue());
-                        } else if (value instanceof Long) {
-                            logEntry.put(key, num.longValue());
-                        } else if (value instanceof Double) {
-                            logEntry.put(key, num.doubleValue());
-                        } else if (value instanceof Float) {
-                            logEntry.put(key, num.floatValue());
-                        } else {
-                            logEntry.put(key, num.doubleValue());
-                        }
-                    } else if (value instanceof Boolean) {
-                        logEntry.put(key, (Boolean) value);
-                    } else {
-                        // Convert complex objects to JSON string
-                        logEntry.put(key, OBJECT_MAPPER.writeValueAsString(value));
-                    }
+        getWriter().publish(event, data);
+    }
+    
+    /**
+     * Log a typed audit event.
+     * @param event event to log, must not be modified afterwards
+     */
+    public static void log(AuditEvent event) {
+        getWriter().publish(event);
+    }
+    
+    /**
+     * @return writer receiving audit entries, created on first use
+     */
+    public static AsyncAuditWriter getWriter() {
+        AsyncAuditWriter current = writer;
+        if (current == null) {
+            synchronized (AuditLogger.class) {
+                current = writer;
+                if (current == null) {
+                    String storeDirectory = System.getProperty("mcp.audit.dir");
+                    AuditSink sink = storeDirectory == null
+                        ? new LogbackAuditSink()
+                        : new SegmentAuditStore(Paths.get(storeDirectory));
+                    current = new AsyncAuditWriter(sink,
+                        Integer.getInteger("mcp.audit.capacity", AsyncAuditWriter.DEFAULT_CAPACITY),
+                        OverflowPolicy.valueOf(System.getProperty("mcp.audit.overflow", "BLOCK").toUpperCase()));
+                    current.registerShutdownHook();
+                    writer = current;
                 }
             }
-            
-            AUDIT_LOGGER.info(OBJECT_MAPPER.writeValueAsString(logEntry));
-            
-        } catch (Exception e) {
-            // Fallback to simple logging if JSON serialization fails
-            AUDIT_LOGGER.error("Failed to serialize audit log entry: {}", e.getMessage());
-            AUDIT_LOGGER.info("AUDIT: event={}, data={}", event, data);
         }
+        return current;
+    }
+    
+    /**
+     * Replace the audit writer. The previous writer is drained and closed.
+     * @param newWriter writer receiving subsequent audit entries
+     */
+    public static void setWriter(AsyncAuditWriter newWriter) {
+        AsyncAuditWriter previous;
+        synchronized (AuditLogger.class) {
+            previous = writer;
+            writer = newWriter;
+        }
+        if (previous != null && previous != newWriter) {
+            previous.close();
+        }
+    }
+    
+    /**
+     * Wait until all audit entries logged so far have been written.
+     * @param timeoutMillis maximum time to wait
+     * @return true if everything was written in time
+     */
+    public static boolean flush(long timeoutMillis) {
+        return getWriter().flush(timeoutMillis, TimeUnit.MILLISECONDS);
     }
     
     /**
@@ -0,0 +1,35 @@
+package com.acme.mcp.core.audit;
+
+import java.util.List;
+
+/**
+ * One page of audit query results.
+ */
+public class AuditPage {
+    
+    private final List<String> records;
+    private final String nextCursor;
+    
+    public AuditPage(List<String> records, String nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+    
+    /**
+     * @return serialized audit entries in append order
+     */
+    public List<String> getRecords() {
+        return records;
+    }
+    
+    /**
+     * @return cursor for the next page, or null if there are no more results
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
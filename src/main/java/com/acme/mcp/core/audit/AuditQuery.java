@@ -0,0 +1,126 @@
+package com.acme.mcp.core.audit;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Filter for {@link AuditIndex} queries. Instances are immutable; each method returns a
+ * copy with one more condition. All conditions must match.
+ * <pre>
+ * AuditQuery.all().correlationId("corr-456").between(from, to).limit(50)
+ * </pre>
+ */
+public final class AuditQuery {
+    
+    /**
+     * Default maximum number of records per page.
+     */
+    public static final int DEFAULT_LIMIT = 100;
+    
+    private final Map<String, String> keys;
+    private final long fromMillis;
+    private final long toMillis;
+    private final int limit;
+    private final String cursor;
+    
+    private AuditQuery(Map<String, String> keys, long fromMillis, long toMillis, int limit, String cursor) {
+        this.keys = keys;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        this.limit = limit;
+        this.cursor = cursor;
+    }
+    
+    /**
+     * @return query matching every record
+     */
+    public static AuditQuery all() {
+        return new AuditQuery(Collections.emptyMap(), Long.MIN_VALUE, Long.MAX_VALUE, DEFAULT_LIMIT, null);
+    }
+    
+    public AuditQuery correlationId(String correlationId) {
+        return key("correlationId", correlationId);
+    }
+    
+    public AuditQuery assetId(String assetId) {
+        return key("assetId", assetId);
+    }
+    
+    public AuditQuery userId(String userId) {
+        return key("userId", userId);
+    }
+    
+    public AuditQuery tool(String tool) {
+        return key("tool", tool);
+    }
+    
+    public AuditQuery event(String event) {
+        return key("event", event);
+    }
+    
+    private AuditQuery key(String field, String value) {
+        Map<String, String> copy = new LinkedHashMap<>(keys);
+        copy.put(field, value);
+        return new AuditQuery(Collections.unmodifiableMap(copy), fromMillis, toMillis, limit, cursor);
+    }
+    
+    /**
+     * @param fromMillis inclusive lower bound of the record timestamp
+     * @param toMillis exclusive upper bound of the record timestamp
+     * @return query restricted to the time range
+     */
+    public AuditQuery between(long fromMillis, long toMillis) {
+        return new AuditQuery(keys, fromMillis, toMillis, limit, cursor);
+    }
+    
+    /**
+     * @param limit maximum number of records per page
+     * @return query with the page size
+     */
+    public AuditQuery limit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        return new AuditQuery(keys, fromMillis, toMillis, limit, cursor);
+    }
+    
+    /**
+     * @param cursor cursor returned with the previous page, or null for the first page
+     * @return query continuing after the cursor
+     */
+    public AuditQuery after(String cursor) {
+        return new AuditQuery(keys, fromMillis, toMillis, limit, cursor);
+    }
+    
+    Map<String, String> getKeys() {
+        return keys;
+    }
+    
+    long getFromMillis() {
+        return fromMillis;
+    }
+    
+    long getToMillis() {
+        return toMillis;
+    }
+    
+    int getLimit() {
+        return limit;
+    }
+    
+    String getCursor() {
+        return cursor;
+    }
+    
+    @Override
+    public String toString() {
+        return "AuditQuery{" +
+                "keys=" + keys +
+                ", fromMillis=" + fromMillis +
+                ", toMillis=" + toMillis +
+                ", limit=" + limit +
+                ", cursor='" + cursor + '\'' +
+                '}';
+    }
+}
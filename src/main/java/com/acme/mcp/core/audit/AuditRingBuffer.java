@@ -0,0 +1,132 @@
+package com.acme.mcp.core.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring buffer of audit entries.
+ * All slots are allocated up front and reused. Each slot carries a sequence number:
+ * a producer may fill slot {@code i} for position {@code p} once its sequence equals
+ * {@code p}, and publishes it by setting the sequence to {@code p + 1}; the consumer
+ * releases it for the next lap by setting it to {@code p + capacity}.
+ */
+class AuditRingBuffer {
+    
+    private final Entry[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    AuditRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new Entry[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Entry();
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+    
+    /**
+     * Publish an entry without waiting.
+     * @return false if the buffer is full
+     */
+    boolean offer(AuditEvent event, long timestamp) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    Entry entry = slots[index];
+                    entry.event = event;
+                    entry.timestamp = timestamp;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            // Another producer claimed this position; retry with the new tail
+        }
+    }
+    
+    /**
+     * Take the next published entry. Must only be called by the consumer thread.
+     * @param reader receives the entry fields; the slot is reused once this returns
+     * @return false if no published entry is available
+     */
+    boolean poll(EntryReader reader) {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return false;
+        }
+        Entry entry = slots[index];
+        reader.read(entry.event, entry.timestamp);
+        entry.event = null;
+        head = position + 1;
+        sequences.set(index, position + slots.length);
+        return true;
+    }
+    
+    /**
+     * @return timestamp of the oldest published entry not yet consumed, or -1 if none
+     */
+    long oldestTimestamp() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return -1;
+        }
+        return slots[index].timestamp;
+    }
+    
+    /**
+     * @return number of claimed entries not yet consumed
+     */
+    long size() {
+        return Math.max(0, tail.get() - head);
+    }
+    
+    /**
+     * @return number of positions claimed so far
+     */
+    long published() {
+        return tail.get();
+    }
+    
+    /**
+     * @return number of entries consumed so far
+     */
+    long consumed() {
+        return head;
+    }
+    
+    int capacity() {
+        return slots.length;
+    }
+    
+    /**
+     * Receives the fields of a consumed entry.
+     */
+    interface EntryReader {
+        void read(AuditEvent event, long timestamp);
+    }
+    
+    private static final class Entry {
+        AuditEvent event;
+        long timestamp;
+    }
+}
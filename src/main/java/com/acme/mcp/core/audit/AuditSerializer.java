@@ -0,0 +1,65 @@
+package com.acme.mcp.core.audit;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializes audit events to single-line JSON.
+ * Keeps one generator and output buffer that are reused for every event, so the only
+ * allocation per entry is the resulting String. Not thread-safe; each writer thread
+ * uses its own instance.
+ */
+public class AuditSerializer {
+    
+    private static final Logger AUDIT_LOGGER = LoggerFactory.getLogger("AUDIT");
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int INITIAL_BUFFER_BYTES = 4096;
+    
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_BYTES);
+    private JsonGenerator generator = createGenerator();
+    
+    private JsonGenerator createGenerator() {
+        try {
+            JsonGenerator created = OBJECT_MAPPER.getFactory().createGenerator(buffer, JsonEncoding.UTF8);
+            // Entries are separate documents; no separator between root values
+            created.setRootValueSeparator(null);
+            return created;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create audit JSON generator", e);
+        }
+    }
+    
+    /**
+     * Serialize an audit event.
+     * @param event event to serialize
+     * @param timestamp time the event was logged, in epoch milliseconds
+     * @return serialized entry
+     */
+    public String serialize(AuditEvent event, long timestamp) {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("event", event.getEvent());
+            generator.writeNumberField("timestamp", timestamp);
+            event.writeFields(generator);
+            generator.writeEndObject();
+            generator.flush();
+            return buffer.toString(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            // Fallback to simple logging if JSON serialization fails; the generator is left
+            // in the middle of an object, so start over with a fresh one
+            AUDIT_LOGGER.error("Failed to serialize audit log entry: {}", e.getMessage());
+            generator = createGenerator();
+            return "AUDIT: " + event;
+        } finally {
+            buffer.reset();
+        }
+    }
+}
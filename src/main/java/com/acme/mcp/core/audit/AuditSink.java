@@ -0,0 +1,23 @@
+package com.acme.mcp.core.audit;
+
+import java.util.List;
+
+/**
+ * Destination of serialized audit entries.
+ * Called from the single audit writer thread, and from producer threads when the
+ * {@link OverflowPolicy#SPILL} policy writes an entry directly.
+ */
+public interface AuditSink {
+    
+    /**
+     * Write a batch of audit entries.
+     * @param lines serialized entries, one JSON document each, in publication order
+     */
+    void write(List<String> lines);
+    
+    /**
+     * Flush buffered entries to durable storage.
+     */
+    default void flush() {
+    }
+}
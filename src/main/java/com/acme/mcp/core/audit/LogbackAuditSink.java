@@ -0,0 +1,22 @@
+package com.acme.mcp.core.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Default sink writing audit entries to the {@code AUDIT} logback logger,
+ * which sends them to the console and the rolling audit file.
+ */
+public class LogbackAuditSink implements AuditSink {
+    
+    private static final Logger AUDIT_LOGGER = LoggerFactory.getLogger("AUDIT");
+    
+    @Override
+    public void write(List<String> lines) {
+        for (String line : lines) {
+            AUDIT_LOGGER.info(line);
+        }
+    }
+}
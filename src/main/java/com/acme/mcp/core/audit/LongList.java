@@ -0,0 +1,72 @@
+package com.acme.mcp.core.audit;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive longs, used for index columns and posting lists.
+ */
+class LongList {
+    
+    private long[] values;
+    private int size;
+    
+    LongList() {
+        this(16);
+    }
+    
+    LongList(int capacity) {
+        this.values = new long[Math.max(1, capacity)];
+    }
+    
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+    
+    long get(int index) {
+        return values[index];
+    }
+    
+    void set(int index, long value) {
+        values[index] = value;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Remove the first values, keeping the capacity within twice the remaining size.
+     * @param count number of values to remove
+     */
+    void removeFirst(int count) {
+        int remaining = size - count;
+        if (values.length > 16 && remaining * 2 < values.length) {
+            values = Arrays.copyOfRange(values, count, count + Math.max(16, remaining * 3 / 2));
+        } else {
+            System.arraycopy(values, count, values, 0, remaining);
+        }
+        size = remaining;
+    }
+    
+    /**
+     * Find the first index whose value is at least the key. Values must be ascending.
+     * @param key value to search for
+     * @return index of the first value greater than or equal to key, or size if none
+     */
+    int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
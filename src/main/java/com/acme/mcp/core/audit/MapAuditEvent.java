@@ -0,0 +1,41 @@
+package com.acme.mcp.core.audit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Untyped audit event built from a name and a data map, as logged by {@link AuditLogger#info}.
+ */
+class MapAuditEvent implements AuditEvent {
+    
+    private final String event;
+    private final Map<String, Object> data;
+    
+    MapAuditEvent(String event, Map<String, Object> data) {
+        this.event = event;
+        this.data = data;
+    }
+    
+    @Override
+    public String getEvent() {
+        return event;
+    }
+    
+    @Override
+    public void writeFields(JsonGenerator generator) throws IOException {
+        if (data == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            AuditJson.writeValue(generator, entry.getValue());
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "event=" + event + ", data=" + data;
+    }
+}
@@ -0,0 +1,13 @@
+package com.acme.mcp.core.audit;
+
+/**
+ * What a producer does when the audit ring buffer is full.
+ */
+public enum OverflowPolicy {
+    /** Wait until the writer frees a slot. No entry is lost. */
+    BLOCK,
+    /** Discard the entry and count it. Producers never wait. */
+    DROP,
+    /** Serialize and write the entry on the producer thread, bypassing the buffer. */
+    SPILL
+}
@@ -0,0 +1,612 @@
+package com.acme.mcp.core.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only audit store made of numbered segment files.
+ * Each record is framed as {@code [length][crc32][UTF-8 JSON]}. Writes are group-committed:
+ * the active segment is fsynced once per batch, or at most once per sync interval when one
+ * is configured, and always when the audit writer goes idle. Full segments are sealed and
+ * gzip-compressed in the background, and the oldest sealed segments are deleted once the
+ * store exceeds its size limit or they exceed the maximum age. A segment's age is that of its
+ * last write; compression keeps the modification time of the sealed file.
+ * On open, a torn record left at the end of the last segment by a crash is truncated away.
+ */
+public class SegmentAuditStore implements AuditSink, AutoCloseable {
+    
+    /**
+     * Default size at which the active segment is sealed.
+     */
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+    
+    /**
+     * Default limit on the total size of all segments.
+     */
+    public static final long DEFAULT_MAX_TOTAL_BYTES = 1024L * 1024 * 1024;
+    
+    /**
+     * Default age after which sealed segments are deleted.
+     */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(30);
+    
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String COMPRESSED_SUFFIX = ".seg.gz";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentAuditStore.class);
+    
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final long syncIntervalNanos;
+    private final long maxTotalBytes;
+    private final Duration maxAge;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "audit-segment-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CRC32 crc = new CRC32();
+    private final List<AppendListener> listeners = new CopyOnWriteArrayList<>();
+    
+    // Guarded by this
+    private ByteBuffer frameBuffer = ByteBuffer.allocate(64 * 1024);
+    private long[] batchSegments = new long[0];
+    private long[] batchOffsets = new long[0];
+    private long activeId;
+    private FileChannel active;
+    private long activeSize;
+    private boolean dirty;
+    private long lastSyncNanos = System.nanoTime();
+    private long syncCount;
+    private long recordCount;
+    
+    /**
+     * Open a store with default limits, fsyncing every batch.
+     * @param directory directory holding the segment files, created if missing
+     */
+    public SegmentAuditStore(Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES, 0, DEFAULT_MAX_TOTAL_BYTES, DEFAULT_MAX_AGE);
+    }
+    
+    /**
+     * Open a store with custom limits.
+     * @param directory directory holding the segment files, created if missing
+     * @param maxSegmentBytes size at which the active segment is sealed
+     * @param syncIntervalMillis minimum time between fsyncs while batches keep arriving; 0 syncs every batch
+     * @param maxTotalBytes limit on the total size of all segments
+     * @param maxAge age after which sealed segments are deleted
+     */
+    public SegmentAuditStore(Path directory, long maxSegmentBytes, long syncIntervalMillis,
+                             long maxTotalBytes, Duration maxAge) {
+        if (maxSegmentBytes < HEADER_BYTES || syncIntervalMillis < 0 || maxTotalBytes < 1) {
+            throw new IllegalArgumentException("Invalid audit store limits");
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxAge = maxAge;
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = listSegments();
+            // Segments left uncompressed by a previous run, except the last one, still need compaction
+            for (int i = 0; i < segments.size() - 1; i++) {
+                if (segments.get(i).toString().endsWith(SEGMENT_SUFFIX)) {
+                    Path sealed = segments.get(i);
+                    compactor.execute(() -> compress(sealed));
+                }
+            }
+            if (!segments.isEmpty() && segments.get(segments.size() - 1).toString().endsWith(SEGMENT_SUFFIX)) {
+                Path last = segments.get(segments.size() - 1);
+                activeId = segmentId(last);
+                active = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.READ);
+                activeSize = recoverLength(last);
+                active.truncate(activeSize);
+                active.position(activeSize);
+            } else {
+                openSegment(segments.isEmpty() ? 1 : segmentId(segments.get(segments.size() - 1)) + 1);
+            }
+            long lastSealed = activeId - 1;
+            compactor.execute(() -> applyRetention(lastSealed));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open audit store in " + directory, e);
+        }
+    }
+    
+    private void openSegment(long id) throws IOException {
+        activeId = id;
+        active = FileChannel.open(segmentPath(id, SEGMENT_SUFFIX),
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        activeSize = 0;
+    }
+    
+    /**
+     * Append a batch of records and commit it according to the sync interval.
+     * @param lines serialized audit entries
+     */
+    @Override
+    public synchronized void write(List<String> lines) {
+        try {
+            boolean notify = !listeners.isEmpty();
+            if (notify && batchOffsets.length < lines.size()) {
+                batchSegments = new long[lines.size()];
+                batchOffsets = new long[lines.size()];
+            }
+            for (int i = 0; i < lines.size(); i++) {
+                byte[] bytes = lines.get(i).getBytes(StandardCharsets.UTF_8);
+                if (activeSize > 0 && activeSize + HEADER_BYTES + bytes.length > maxSegmentBytes) {
+                    drainFrames();
+                    roll();
+                }
+                if (notify) {
+                    batchSegments[i] = activeId;
+                    batchOffsets[i] = activeSize + frameBuffer.position();
+                }
+                appendFrame(bytes);
+                recordCount++;
+            }
+            drainFrames();
+            if (syncIntervalNanos == 0 || System.nanoTime() - lastSyncNanos >= syncIntervalNanos) {
+                sync();
+            }
+            // Notify once the batch is readable, so an index never points past the written data
+            if (notify) {
+                for (AppendListener listener : listeners) {
+                    for (int i = 0; i < lines.size(); i++) {
+                        listener.onAppend(batchSegments[i], batchOffsets[i], lines.get(i));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append audit records", e);
+        }
+    }
+    
+    private void appendFrame(byte[] bytes) throws IOException {
+        if (frameBuffer.remaining() < HEADER_BYTES + bytes.length) {
+            drainFrames();
+            if (frameBuffer.capacity() < HEADER_BYTES + bytes.length) {
+                frameBuffer = ByteBuffer.allocate(HEADER_BYTES + bytes.length);
+            }
+        }
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        frameBuffer.putInt(bytes.length);
+        frameBuffer.putInt((int) crc.getValue());
+        frameBuffer.put(bytes);
+    }
+    
+    private void drainFrames() throws IOException {
+        frameBuffer.flip();
+        while (frameBuffer.hasRemaining()) {
+            activeSize += active.write(frameBuffer);
+            dirty = true;
+        }
+        frameBuffer.clear();
+    }
+    
+    private void sync() throws IOException {
+        if (dirty) {
+            active.force(false);
+            dirty = false;
+            syncCount++;
+        }
+        lastSyncNanos = System.nanoTime();
+    }
+    
+    private void roll() throws IOException {
+        sync();
+        active.close();
+        Path sealed = segmentPath(activeId, SEGMENT_SUFFIX);
+        openSegment(activeId + 1);
+        long sealedId = activeId - 1;
+        compactor.execute(() -> {
+            compress(sealed);
+            applyRetention(sealedId);
+        });
+    }
+    
+    /**
+     * Commit everything written so far. Called by the audit writer when it goes idle.
+     */
+    @Override
+    public synchronized void flush() {
+        try {
+            drainFrames();
+            sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync audit store", e);
+        }
+    }
+    
+    private void compress(Path sealed) {
+        Path target = sealed.resolveSibling(sealed.getFileName() + ".gz");
+        Path temp = sealed.resolveSibling(sealed.getFileName() + ".gz.tmp");
+        try (InputStream in = Files.newInputStream(sealed);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+            in.transferTo(out);
+        } catch (NoSuchFileException e) {
+            // Already compressed by a previous run, or deleted by retention
+            return;
+        } catch (IOException e) {
+            LOGGER.error("Failed to compress audit segment {}: {}", sealed, e.getMessage());
+            return;
+        }
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            // Age retention goes by modification time, which must stay that of the last record
+            Files.setLastModifiedTime(temp, Files.getLastModifiedTime(sealed));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(sealed);
+        } catch (IOException e) {
+            LOGGER.error("Failed to replace audit segment {}: {}", sealed, e.getMessage());
+        }
+    }
+    
+    /**
+     * Delete the oldest sealed segments beyond the size limit or maximum age. Runs on the
+     * compactor after the given segment's compression, so no segment up to it is still queued.
+     * @param lastSealed newest segment that may be deleted
+     */
+    void applyRetention(long lastSealed) {
+        try {
+            List<Path> segments = listSegments();
+            long total = 0;
+            for (Path segment : segments) {
+                total += Files.size(segment);
+            }
+            long cutoff = System.currentTimeMillis() - maxAge.toMillis();
+            for (Path segment : segments) {
+                if (segmentId(segment) > lastSealed) {
+                    break;
+                }
+                long size = Files.size(segment);
+                if (total > maxTotalBytes || Files.getLastModifiedTime(segment).toMillis() < cutoff) {
+                    Files.deleteIfExists(segment);
+                    total -= size;
+                    for (AppendListener listener : listeners) {
+                        listener.onSegmentDeleted(segmentId(segment));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to apply audit retention: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Read every stored record in append order, verifying checksums.
+     * A corrupt or incomplete record ends the segment it belongs to.
+     * @param visitor receives each record; returning false stops reading
+     */
+    public void read(RecordVisitor visitor) {
+        for (Path segment : listSegments()) {
+            if (!readSegment(segmentId(segment), visitor)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Read the records of one segment, whether still active, sealed or compressed.
+     * @param segmentId segment to read
+     * @param visitor receives each record; returning false stops reading
+     * @return false if the visitor stopped reading
+     */
+    public boolean readSegment(long segmentId, RecordVisitor visitor) {
+        Path compressed = segmentPath(segmentId, COMPRESSED_SUFFIX);
+        try {
+            // The compressed file only appears once complete, so prefer it when both exist
+            if (Files.exists(compressed)) {
+                return readSegment(compressed, visitor);
+            }
+            try {
+                return readSegment(segmentPath(segmentId, SEGMENT_SUFFIX), visitor);
+            } catch (NoSuchFileException e) {
+                // Compressed and removed since the check above
+                return readSegment(compressed, visitor);
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted by retention
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read audit segment " + segmentId, e);
+        }
+    }
+    
+    /**
+     * Read selected records of one segment. Uncompressed segments are read by position;
+     * compressed segments are decompressed up to the last requested record.
+     * @param segmentId segment to read
+     * @param offsets ascending frame offsets, as reported to {@link AppendListener}s
+     * @param from first index in offsets to read
+     * @param to index after the last one to read
+     * @param visitor receives each record; returning false stops reading
+     * @return false if the visitor stopped reading
+     */
+    public boolean readRecords(long segmentId, long[] offsets, int from, int to, RecordVisitor visitor) {
+        try (FileChannel channel = FileChannel.open(segmentPath(segmentId, SEGMENT_SUFFIX), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            CRC32 checksum = new CRC32();
+            for (int i = from; i < to; i++) {
+                header.clear();
+                if (!readFully(channel, header, offsets[i])) {
+                    continue;
+                }
+                header.flip();
+                int length = header.getInt();
+                int expectedCrc = header.getInt();
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    continue;
+                }
+                ByteBuffer body = ByteBuffer.allocate(length);
+                if (!readFully(channel, body, offsets[i] + HEADER_BYTES)) {
+                    continue;
+                }
+                checksum.reset();
+                checksum.update(body.array(), 0, length);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    continue;
+                }
+                if (!visitor.visit(segmentId, offsets[i], new String(body.array(), 0, length, StandardCharsets.UTF_8))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            // Already compressed; fall back to a sequential scan below
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read audit segment " + segmentId, e);
+        }
+        
+        int[] next = {from};
+        boolean[] stopped = {false};
+        readSegment(segmentId, (id, offset, record) -> {
+            while (next[0] < to && offsets[next[0]] < offset) {
+                next[0]++;
+            }
+            if (next[0] < to && offsets[next[0]] == offset) {
+                next[0]++;
+                if (!visitor.visit(id, offset, record)) {
+                    stopped[0] = true;
+                    return false;
+                }
+            }
+            return next[0] < to;
+        });
+        return !stopped[0];
+    }
+    
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean readSegment(Path segment, RecordVisitor visitor) throws IOException {
+        try (InputStream raw = Files.newInputStream(segment)) {
+            InputStream in = segment.toString().endsWith(COMPRESSED_SUFFIX) ? new GZIPInputStream(raw, 64 * 1024) : raw;
+            return readFrames(segment, in, visitor) >= 0;
+        }
+    }
+    
+    private static long recoverLength(Path segment) throws IOException {
+        try (InputStream in = Files.newInputStream(segment)) {
+            return readFrames(segment, in, (segmentId, offset, record) -> true);
+        }
+    }
+    
+    /**
+     * Read framed records until the end of the stream or the first corrupt or incomplete record.
+     * @return length of the valid prefix, or -1 if the visitor stopped reading
+     */
+    private static long readFrames(Path segment, InputStream stream, RecordVisitor visitor) throws IOException {
+        long id = segmentId(segment);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+        CRC32 checksum = new CRC32();
+        long offset = 0;
+        byte[] bytes = new byte[1024];
+        while (true) {
+            int length;
+            int expectedCrc;
+            try {
+                length = in.readInt();
+                expectedCrc = in.readInt();
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    return offset;
+                }
+                if (bytes.length < length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                in.readFully(bytes, 0, length);
+            } catch (EOFException e) {
+                // End of segment, or a record torn by a crash
+                return offset;
+            }
+            checksum.reset();
+            checksum.update(bytes, 0, length);
+            if ((int) checksum.getValue() != expectedCrc) {
+                LOGGER.warn("Corrupt audit record in {} at offset {}", segment, offset);
+                return offset;
+            }
+            if (!visitor.visit(id, offset, new String(bytes, 0, length, StandardCharsets.UTF_8))) {
+                return -1;
+            }
+            offset += HEADER_BYTES + length;
+        }
+    }
+    
+    /**
+     * @return segment files in append order
+     */
+    List<Path> listSegments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith("audit-") && (name.endsWith(SEGMENT_SUFFIX) || name.endsWith(COMPRESSED_SUFFIX));
+            }).forEach(segments::add);
+            segments.sort((a, b) -> Long.compare(segmentId(a), segmentId(b)));
+            // A segment briefly exists in both forms while it is being compressed
+            List<Path> unique = new ArrayList<>();
+            for (Path segment : segments) {
+                if (!unique.isEmpty() && segmentId(unique.get(unique.size() - 1)) == segmentId(segment)) {
+                    continue;
+                }
+                unique.add(segment);
+            }
+            return unique;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list audit segments in " + directory, e);
+        }
+    }
+    
+    private Path segmentPath(long id, String suffix) {
+        return directory.resolve(String.format("audit-%020d%s", id, suffix));
+    }
+    
+    static long segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("audit-".length(), name.indexOf('.')));
+    }
+    
+    /**
+     * Register a listener notified of every appended record, e.g. to maintain an index.
+     * @param listener listener to add
+     */
+    public void addAppendListener(AppendListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Wait for background compaction to finish. Intended for tests and orderly shutdown.
+     * @param timeoutMillis maximum time to wait
+     * @return true if all queued compaction finished in time
+     */
+    public boolean awaitCompaction(long timeoutMillis) {
+        Future<?> marker = compactor.submit(() -> { });
+        try {
+            marker.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Commit outstanding records, close the active segment and wait for queued compaction.
+     * Compaction still running after the timeout is resumed when the store is next opened.
+     */
+    @Override
+    public void close() {
+        try {
+            synchronized (this) {
+                flush();
+                active.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close audit store", e);
+        } finally {
+            compactor.shutdown();
+            try {
+                if (!compactor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Audit segment compaction did not finish within {}s", CLOSE_TIMEOUT_SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    public synchronized long getActiveSegmentId() {
+        return activeId;
+    }
+    
+    /**
+     * @return number of fsyncs performed; lower than the batch count under a sync interval
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+    
+    /**
+     * @return number of records appended since the store was opened
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Receives stored records while reading.
+     */
+    public interface RecordVisitor {
+        /**
+         * @param segmentId segment holding the record
+         * @param offset byte offset of the record frame in the uncompressed segment
+         * @param record serialized audit entry
+         * @return true to continue reading
+         */
+        boolean visit(long segmentId, long offset, String record);
+    }
+    
+    /**
+     * Notified as records are appended and segments are removed.
+     */
+    public interface AppendListener {
+        /**
+         * Called on the appending thread once the record's batch has been written.
+         * @param segmentId segment holding the record
+         * @param offset byte offset of the record frame in the segment
+         * @param record serialized audit entry
+         */
+        void onAppend(long segmentId, long offset, String record);
+        
+        /**
+         * Called when retention deleted a segment.
+         * @param segmentId deleted segment
+         */
+        default void onSegmentDeleted(long segmentId) {
+        }
+    }
+}
@@ -0,0 +1,631 @@
+package com.acme.mcp.core.backup;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Incremental backup of folder trees into ZIP archives or a {@link ChunkStore}.
+ * <p>
+ * Each run walks the sources and compares every file with the manifest of the previous run in the
+ * destination folder. Files whose size and modification time are unchanged are carried over without
+ * being read; only new and modified files are compressed, so a run costs in proportion to what
+ * changed. Changed files are spread over one archive per worker, written and then verified against
+ * their SHA-256 in parallel. The new manifest references the archive holding the latest copy of each
+ * file, and archives no longer referenced are deleted.
+ * <p>
+ * Files that cannot be read (locked, permission denied) and files that fail verification keep their
+ * previous copy, if any, and are reported as errors. Runs into the same destination must not overlap.
+ * <p>
+ * Backups into a chunk store follow the same steps, but split changed files into content-defined
+ * chunks that are stored once across all backups of the store.
+ */
+public class BackupEngine implements AutoCloseable {
+
+    /** Name of the manifest in the destination folder. */
+    public static final String MANIFEST_FILE = "manifest.json";
+
+    private static final String ARCHIVE_PREFIX = "backup-";
+    private static final String ARCHIVE_SUFFIX = ".zip";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int threads;
+    private final ExecutorService workers;
+
+    /**
+     * Create a backup engine with one worker per processor.
+     */
+    public BackupEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a backup engine with a custom number of workers.
+     * @param threads maximum number of archives written in parallel
+     */
+    public BackupEngine(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be at least 1");
+        }
+        this.threads = threads;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "backup-worker-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        this.workers = pool;
+    }
+
+    /**
+     * Back up folder trees.
+     * @param sources source folders by label; the label is the first element of their paths in the backup.
+     *                Missing folders are skipped
+     * @param destination destination folder, created if needed
+     * @return report of the run
+     * @throws IOException if the destination cannot be written
+     */
+    public BackupReport backup(Map<String, Path> sources, Path destination) throws IOException {
+        return backup(sources, destination, null);
+    }
+
+    /**
+     * Back up folder trees, reporting progress.
+     * @param sources source folders by label; the label is the first element of their paths in the backup.
+     *                Missing folders are skipped
+     * @param destination destination folder, created if needed
+     * @param progress receives one line per phase and per archive written, may be null
+     * @return report of the run
+     * @throws IOException if the destination cannot be written
+     */
+    public BackupReport backup(Map<String, Path> sources, Path destination, Consumer<String> progress)
+            throws IOException {
+        long started = System.nanoTime();
+        Consumer<String> log = progress != null ? progress : line -> { };
+        Path target = destination.toAbsolutePath().normalize();
+        Files.createDirectories(target);
+        BackupManifest previous = BackupManifest.read(target.resolve(MANIFEST_FILE));
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        // Scan the sources and carry over unchanged files
+        Scan scan = scan(sources, target, errors);
+        Map<String, Boolean> archiveExists = new HashMap<>();
+        Predicate<BackupManifest.Entry> available = last -> last.archive() != null
+            && archiveExists.computeIfAbsent(last.archive(), name -> Files.isRegularFile(target.resolve(name)));
+        Map<String, BackupManifest.Entry> entries = new TreeMap<>();
+        List<SourceFile> changed = new ArrayList<>();
+        long bytesScanned = 0;
+        for (SourceFile file : scan.files) {
+            bytesScanned += file.size;
+            BackupManifest.Entry last = previous.get(file.path);
+            if (file.matches(last) && available.test(last)) {
+                entries.put(file.path, last);
+            } else {
+                changed.add(file);
+            }
+        }
+        int unchanged = entries.size();
+        log.accept("Scanned " + scan.files.size() + " files, " + changed.size() + " changed");
+
+        // Archive and verify changed files, one archive per worker
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<List<SourceFile>> parts = partition(changed, Math.min(threads, changed.size()));
+        List<Future<Part>> futures = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            Path archive = target.resolve(ARCHIVE_PREFIX + runId + "-" + i + ARCHIVE_SUFFIX);
+            List<SourceFile> files = parts.get(i);
+            futures.add(workers.submit(() -> writeAndVerify(archive, files, errors)));
+        }
+        int archived = 0;
+        int archives = 0;
+        int verified = 0;
+        int verifyFailures = 0;
+        long bytesArchived = 0;
+        long bytesWritten = 0;
+        Set<String> archivedPaths = new HashSet<>();
+        Set<String> recorded = new HashSet<>();
+        for (BackupManifest.Entry last : previous.getEntries().values()) {
+            if (last.archive() != null) {
+                recorded.add(last.archive());
+            }
+        }
+        for (Future<Part> future : futures) {
+            Part part = await(future);
+            recorded.add(part.archive.getFileName().toString());
+            for (BackupManifest.Entry entry : part.entries) {
+                entries.put(entry.path(), entry);
+                archivedPaths.add(entry.path());
+                bytesArchived += entry.size();
+            }
+            archived += part.entries.size();
+            verified += part.entries.size();
+            verifyFailures += part.verifyFailures;
+            if (!part.entries.isEmpty()) {
+                archives++;
+                bytesWritten += part.bytesWritten;
+                log.accept("Wrote " + part.archive.getFileName() + ": " + part.entries.size() + " files, "
+                    + part.bytesWritten + " bytes");
+            }
+        }
+
+        int removed = keepPrevious(previous, changed, archivedPaths, scan, entries, available);
+        BackupManifest manifest = new BackupManifest(entries.values());
+        manifest.write(target.resolve(MANIFEST_FILE));
+        prune(target, recorded, manifest, errors);
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        return new BackupReport(scan.files.size(), archived, unchanged, removed, bytesScanned, bytesArchived,
+            bytesWritten, archives, verified, verifyFailures, 0, 0, errors, durationMs);
+    }
+
+    /**
+     * Back up folder trees into a chunk store, reporting progress.
+     * Changed files are split into content-defined chunks by the workers in parallel, and chunks already
+     * in the store, from any backup, are not written again. The manifest is committed under the given
+     * name once all files are stored.
+     * @param sources source folders by label; the label is the first element of their paths in the backup.
+     *                Missing folders are skipped
+     * @param store chunk store, possibly shared with other backups
+     * @param name backup name, unique per backed up profile
+     * @param progress receives one line per phase, may be null
+     * @return report of the run
+     * @throws IOException if the store cannot be written
+     */
+    public BackupReport backup(Map<String, Path> sources, ChunkStore store, String name, Consumer<String> progress)
+            throws IOException {
+        long started = System.nanoTime();
+        Consumer<String> log = progress != null ? progress : line -> { };
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        try (ChunkStore.Session session = store.begin()) {
+            BackupManifest previous = store.manifest(name);
+
+            // Scan the sources and carry over unchanged files
+            Scan scan = scan(sources, store.getRoot(), errors);
+            Predicate<BackupManifest.Entry> available = last -> last.chunks() != null
+                && store.containsAll(last.chunks());
+            Map<String, BackupManifest.Entry> entries = new TreeMap<>();
+            List<SourceFile> changed = new ArrayList<>();
+            long bytesScanned = 0;
+            for (SourceFile file : scan.files) {
+                bytesScanned += file.size;
+                BackupManifest.Entry last = previous.get(file.path);
+                if (file.matches(last) && available.test(last)) {
+                    entries.put(file.path, last);
+                } else {
+                    changed.add(file);
+                }
+            }
+            int unchanged = entries.size();
+            log.accept("Scanned " + scan.files.size() + " files, " + changed.size() + " changed");
+
+            // Chunk changed files, one file per worker at a time
+            List<Future<ChunkedFile>> futures = new ArrayList<>();
+            for (SourceFile file : changed) {
+                futures.add(workers.submit(() -> writeChunks(session, file, errors)));
+            }
+            int archived = 0;
+            int chunksWritten = 0;
+            int chunksDeduplicated = 0;
+            long bytesArchived = 0;
+            long bytesWritten = 0;
+            Set<String> archivedPaths = new HashSet<>();
+            for (Future<ChunkedFile> future : futures) {
+                ChunkedFile result = await(future);
+                chunksWritten += result.chunksWritten;
+                chunksDeduplicated += result.chunksDeduplicated;
+                bytesWritten += result.bytesWritten;
+                if (result.entry != null) {
+                    entries.put(result.entry.path(), result.entry);
+                    archivedPaths.add(result.entry.path());
+                    bytesArchived += result.entry.size();
+                    archived++;
+                }
+            }
+            log.accept("Stored " + chunksWritten + " new chunks (" + bytesWritten + " bytes), "
+                + chunksDeduplicated + " deduplicated");
+
+            int removed = keepPrevious(previous, changed, archivedPaths, scan, entries, available);
+            session.commit(name, new BackupManifest(entries.values()));
+
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            return new BackupReport(scan.files.size(), archived, unchanged, removed, bytesScanned, bytesArchived,
+                bytesWritten, 0, 0, 0, chunksWritten, chunksDeduplicated, errors, durationMs);
+        }
+    }
+
+    /**
+     * Stop the workers once running backups complete.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    private static Scan scan(Map<String, Path> sources, Path target, List<String> errors) throws IOException {
+        Scan scan = new Scan(target, errors);
+        for (Map.Entry<String, Path> source : sources.entrySet()) {
+            scan.walk(source.getKey(), source.getValue());
+        }
+        return scan;
+    }
+
+    /**
+     * Keep the previous copy of files that could not be archived or listed.
+     * @return number of files of the previous manifest left out of the new one
+     */
+    private static int keepPrevious(BackupManifest previous, List<SourceFile> changed, Set<String> archivedPaths,
+                                    Scan scan, Map<String, BackupManifest.Entry> entries,
+                                    Predicate<BackupManifest.Entry> available) {
+        for (SourceFile file : changed) {
+            BackupManifest.Entry last = previous.get(file.path);
+            if (!archivedPaths.contains(file.path) && last != null && available.test(last)) {
+                entries.put(file.path, last);
+            }
+        }
+        for (BackupManifest.Entry last : previous.getEntries().values()) {
+            if (!entries.containsKey(last.path()) && scan.isUnreadable(last.path()) && available.test(last)) {
+                entries.put(last.path(), last);
+            }
+        }
+        int removed = 0;
+        for (String path : previous.getEntries().keySet()) {
+            if (!entries.containsKey(path)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Split files into groups of similar total size, largest files first.
+     */
+    static List<List<SourceFile>> partition(List<SourceFile> files, int count) {
+        List<List<SourceFile>> parts = new ArrayList<>();
+        long[] sizes = new long[count];
+        for (int i = 0; i < count; i++) {
+            parts.add(new ArrayList<>());
+        }
+        List<SourceFile> bySize = new ArrayList<>(files);
+        bySize.sort(Comparator.comparingLong((SourceFile file) -> file.size).reversed());
+        for (SourceFile file : bySize) {
+            int smallest = 0;
+            for (int i = 1; i < count; i++) {
+                if (sizes[i] < sizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            parts.get(smallest).add(file);
+            sizes[smallest] += file.size;
+        }
+        return parts;
+    }
+
+    private static Part writeAndVerify(Path archive, List<SourceFile> files, List<String> errors) throws IOException {
+        List<BackupManifest.Entry> written = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(archive), BUFFER_SIZE);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (SourceFile file : files) {
+                BackupManifest.Entry entry = write(zip, file, buffer, archive.getFileName().toString(), errors);
+                if (entry != null) {
+                    written.add(entry);
+                }
+            }
+        }
+        if (written.isEmpty()) {
+            Files.deleteIfExists(archive);
+            return new Part(archive, written, 0, 0);
+        }
+
+        // Read the archive back and keep only entries whose content matches
+        List<BackupManifest.Entry> verified = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            for (BackupManifest.Entry entry : written) {
+                ZipEntry zipEntry = zip.getEntry(entry.path());
+                String sha256 = null;
+                if (zipEntry != null) {
+                    MessageDigest digest = sha256();
+                    try (InputStream in = zip.getInputStream(zipEntry)) {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            digest.update(buffer, 0, read);
+                        }
+                    }
+                    sha256 = HexFormat.of().formatHex(digest.digest());
+                }
+                if (entry.sha256().equals(sha256)) {
+                    verified.add(entry);
+                } else {
+                    errors.add(entry.path() + ": checksum mismatch in " + archive.getFileName());
+                }
+            }
+        }
+        return new Part(archive, verified, written.size() - verified.size(), Files.size(archive));
+    }
+
+    /**
+     * Compress one file, hashing what is read.
+     * @return the manifest entry, or null if the file could not be read
+     */
+    private static BackupManifest.Entry write(ZipOutputStream zip, SourceFile file, byte[] buffer, String archive,
+                                              List<String> errors) throws IOException {
+        InputStream in;
+        try {
+            in = Files.newInputStream(file.source);
+        } catch (IOException e) {
+            errors.add(file.path + ": " + e.getMessage());
+            return null;
+        }
+        MessageDigest digest = sha256();
+        long size = 0;
+        boolean complete = true;
+        try (in) {
+            ZipEntry entry = new ZipEntry(file.path);
+            entry.setTime(file.modifiedMillis);
+            zip.putNextEntry(entry);
+            while (true) {
+                int read;
+                try {
+                    read = in.read(buffer);
+                } catch (IOException e) {
+                    // The partial entry stays in the archive but is never referenced
+                    errors.add(file.path + ": " + e.getMessage());
+                    complete = false;
+                    break;
+                }
+                if (read == -1) {
+                    break;
+                }
+                digest.update(buffer, 0, read);
+                zip.write(buffer, 0, read);
+                size += read;
+            }
+            zip.closeEntry();
+        }
+        if (!complete) {
+            return null;
+        }
+        return new BackupManifest.Entry(file.path, size, file.modifiedMillis,
+            HexFormat.of().formatHex(digest.digest()), archive);
+    }
+
+    /**
+     * Split one file into chunks and add them to the store, hashing what is read.
+     * @return the chunks written, and the manifest entry unless the file could not be read
+     */
+    private static ChunkedFile writeChunks(ChunkStore.Session session, SourceFile file, List<String> errors)
+            throws IOException {
+        ChunkedFile result = new ChunkedFile();
+        InputStream in;
+        try {
+            in = Files.newInputStream(file.source);
+        } catch (IOException e) {
+            errors.add(file.path + ": " + e.getMessage());
+            return result;
+        }
+        MessageDigest digest = sha256();
+        List<String> chunks = new ArrayList<>();
+        long size = 0;
+        try (in) {
+            Chunker chunker = new Chunker(in);
+            while (true) {
+                int length;
+                try {
+                    length = chunker.next();
+                } catch (IOException e) {
+                    // Chunks already stored stay unreferenced until collected
+                    errors.add(file.path + ": " + e.getMessage());
+                    return result;
+                }
+                if (length == 0) {
+                    break;
+                }
+                digest.update(chunker.buffer(), chunker.offset(), length);
+                ChunkStore.PutResult put = session.put(chunker.buffer(), chunker.offset(), length);
+                if (put.deduplicated()) {
+                    result.chunksDeduplicated++;
+                } else {
+                    result.chunksWritten++;
+                    result.bytesWritten += put.bytesWritten();
+                }
+                chunks.add(put.id());
+                size += length;
+            }
+        }
+        result.entry = new BackupManifest.Entry(file.path, size, file.modifiedMillis,
+            HexFormat.of().formatHex(digest.digest()), null, chunks);
+        return result;
+    }
+
+    /**
+     * Delete archives the manifest no longer references. Only archives this engine recorded, in the
+     * previous manifest or during this run, are candidates: the destination may hold other files
+     * matching the archive name pattern that are not ours to delete.
+     * @param recorded names of the archives of the previous manifest and of this run
+     */
+    private static void prune(Path target, Set<String> recorded, BackupManifest manifest, List<String> errors) {
+        Set<String> unreferenced = new HashSet<>(recorded);
+        for (BackupManifest.Entry entry : manifest.getEntries().values()) {
+            unreferenced.remove(entry.archive());
+        }
+        for (String name : unreferenced) {
+            Path archive = target.resolve(name).normalize();
+            if (!name.startsWith(ARCHIVE_PREFIX) || !name.endsWith(ARCHIVE_SUFFIX) || !target.equals(archive.getParent())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(archive);
+            } catch (IOException e) {
+                errors.add(name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Backup interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Backup failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Regular file found under a source.
+     */
+    static final class SourceFile {
+        final String path;
+        final Path source;
+        final long size;
+        final long modifiedMillis;
+
+        SourceFile(String path, Path source, long size, long modifiedMillis) {
+            this.path = path;
+            this.source = source;
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+        }
+
+        /**
+         * @return true if the entry was made from this file as it is now, going by size and modification time
+         */
+        boolean matches(BackupManifest.Entry entry) {
+            return entry != null && entry.size() == size && entry.modifiedMillis() == modifiedMillis;
+        }
+    }
+
+    private static final class ChunkedFile {
+        BackupManifest.Entry entry;
+        int chunksWritten;
+        int chunksDeduplicated;
+        long bytesWritten;
+    }
+
+    private static final class Part {
+        final Path archive;
+        final List<BackupManifest.Entry> entries;
+        final int verifyFailures;
+        final long bytesWritten;
+
+        Part(Path archive, List<BackupManifest.Entry> entries, int verifyFailures, long bytesWritten) {
+            this.archive = archive;
+            this.entries = entries;
+            this.verifyFailures = verifyFailures;
+            this.bytesWritten = bytesWritten;
+        }
+    }
+
+    /**
+     * Files found by walking the sources, and the paths that could not be listed.
+     */
+    private static final class Scan {
+        final Path target;
+        final List<String> errors;
+        final List<SourceFile> files = new ArrayList<>();
+        final List<String> unreadable = new ArrayList<>();
+
+        Scan(Path target, List<String> errors) {
+            this.target = target;
+            this.errors = errors;
+        }
+
+        void walk(String label, Path root) throws IOException {
+            Path start = root.toAbsolutePath().normalize();
+            if (!Files.isDirectory(start)) {
+                return;
+            }
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    // Never back up the backup
+                    return dir.equals(target) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        files.add(new SourceFile(key(label, start, file), file, attrs.size(),
+                            attrs.lastModifiedTime().toMillis()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    unreadable.add(key(label, start, file));
+                    errors.add(key(label, start, file) + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        /**
+         * @return true if the path is, or is under, a file or folder that could not be listed
+         */
+        boolean isUnreadable(String path) {
+            for (String prefix : unreadable) {
+                if (path.equals(prefix) || path.startsWith(prefix + "/")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String key(String label, Path root, Path file) {
+            StringBuilder key = new StringBuilder(label);
+            for (Path element : root.relativize(file)) {
+                if (!element.toString().isEmpty()) {
+                    key.append('/').append(element);
+                }
+            }
+            return key.toString();
+        }
+    }
+}
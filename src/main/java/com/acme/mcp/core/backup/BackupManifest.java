@@ -0,0 +1,214 @@
+package com.acme.mcp.core.backup;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * List of the files in a backup with the size, modification time and SHA-256 hash each had
+ * when it was archived, and the archive holding its content.
+ * The manifest of one run is the baseline of the next: files whose size and modification time
+ * still match are not read again. Manifests are written as JSON with a streaming generator and
+ * replaced atomically.
+ */
+public final class BackupManifest {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * One archived file. Its content is held either by an archive or by a list of chunks of a
+     * {@link ChunkStore}.
+     * @param path path inside the backup, {@code /}-separated and starting with the source label
+     * @param size size in bytes
+     * @param modifiedMillis last modification time in epoch milliseconds
+     * @param sha256 lowercase hex SHA-256 of the content
+     * @param archive name of the archive holding the content, or null if it is held by chunks
+     * @param chunks ids of the chunks holding the content in order, or null if it is held by an archive
+     */
+    public record Entry(String path, long size, long modifiedMillis, String sha256, String archive,
+                        List<String> chunks) {
+
+        public Entry {
+            chunks = chunks != null ? List.copyOf(chunks) : null;
+        }
+
+        /**
+         * Create an entry held by an archive.
+         */
+        public Entry(String path, long size, long modifiedMillis, String sha256, String archive) {
+            this(path, size, modifiedMillis, sha256, archive, null);
+        }
+    }
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Create a manifest.
+     * @param entries entries; a later entry replaces an earlier one with the same path
+     */
+    public BackupManifest(Collection<Entry> entries) {
+        Map<String, Entry> byPath = new TreeMap<>();
+        for (Entry entry : entries) {
+            byPath.put(entry.path(), entry);
+        }
+        this.entries = Collections.unmodifiableMap(byPath);
+    }
+
+    /**
+     * @return an empty manifest, the baseline of a first backup
+     */
+    public static BackupManifest empty() {
+        return new BackupManifest(List.of());
+    }
+
+    /**
+     * @return entries by path, in path order
+     */
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param path path inside the backup
+     * @return the entry, or null if the path is not in this manifest
+     */
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Read a manifest.
+     * @param file manifest file
+     * @return the manifest, or an empty manifest if the file does not exist
+     * @throws IOException if the file cannot be read or is not a manifest
+     */
+    public static BackupManifest read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file); JsonParser parser = JSON_FACTORY.createParser(in)) {
+            List<Entry> entries = new ArrayList<>();
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("entries")) {
+                    expect(value, JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        entries.add(readEntry(parser));
+                    }
+                } else if (field.equals("version") && parser.getIntValue() != FORMAT_VERSION) {
+                    throw new IOException("Unsupported manifest version: " + parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new BackupManifest(entries);
+        } catch (NoSuchFileException e) {
+            return empty();
+        }
+    }
+
+    private static Entry readEntry(JsonParser parser) throws IOException {
+        String path = null;
+        String sha256 = null;
+        String archive = null;
+        List<String> chunks = null;
+        long size = -1;
+        long modified = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "path":
+                    path = parser.getText();
+                    break;
+                case "size":
+                    size = parser.getLongValue();
+                    break;
+                case "mtime":
+                    modified = parser.getLongValue();
+                    break;
+                case "sha256":
+                    sha256 = parser.getText();
+                    break;
+                case "archive":
+                    archive = parser.getText();
+                    break;
+                case "chunks":
+                    expect(parser.currentToken(), JsonToken.START_ARRAY);
+                    chunks = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                        chunks.add(parser.getText());
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        if (path == null || sha256 == null || (archive == null && chunks == null) || size < 0) {
+            throw new IOException("Incomplete manifest entry: " + path);
+        }
+        return new Entry(path, size, modified, sha256, archive, chunks);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Malformed manifest: expected " + expected + " but found " + actual);
+        }
+    }
+
+    /**
+     * Write this manifest, replacing the file atomically.
+     * @param file manifest file
+     * @throws IOException if the manifest cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeNumberField("version", FORMAT_VERSION);
+            generator.writeArrayFieldStart("entries");
+            for (Entry entry : entries.values()) {
+                generator.writeStartObject();
+                generator.writeStringField("path", entry.path());
+                generator.writeNumberField("size", entry.size());
+                generator.writeNumberField("mtime", entry.modifiedMillis());
+                generator.writeStringField("sha256", entry.sha256());
+                if (entry.archive() != null) {
+                    generator.writeStringField("archive", entry.archive());
+                }
+                if (entry.chunks() != null) {
+                    generator.writeArrayFieldStart("chunks");
+                    for (String chunk : entry.chunks()) {
+                        generator.writeString(chunk);
+                    }
+                    generator.writeEndArray();
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,135 @@
+package com.acme.mcp.core.backup;
+
+import java.util.List;
+
+/**
+ * Outcome of one backup run.
+ */
+public final class BackupReport {
+
+    private final int filesScanned;
+    private final int filesChanged;
+    private final int filesUnchanged;
+    private final int filesRemoved;
+    private final long bytesScanned;
+    private final long bytesArchived;
+    private final long bytesWritten;
+    private final int archives;
+    private final int verified;
+    private final int verifyFailures;
+    private final int chunksWritten;
+    private final int chunksDeduplicated;
+    private final List<String> errors;
+    private final long durationMs;
+
+    /**
+     * @param filesScanned regular files found under the sources
+     * @param filesChanged new or modified files archived by this run
+     * @param filesUnchanged files carried over from the previous manifest without being read
+     * @param filesRemoved files of the previous manifest that no longer exist
+     * @param bytesScanned total size of the files found
+     * @param bytesArchived total size of the files archived by this run
+     * @param bytesWritten compressed size of the archives or chunks written by this run
+     * @param archives number of archives written by this run, 0 for chunk store backups
+     * @param verified archived files whose checksum was verified
+     * @param verifyFailures archived files whose checksum did not match
+     * @param chunksWritten chunks added to the chunk store, 0 for archive backups
+     * @param chunksDeduplicated chunks of archived files already in the chunk store, 0 for archive backups
+     * @param errors files or folders that could not be read, with the reason
+     * @param durationMs duration of the run
+     */
+    public BackupReport(int filesScanned, int filesChanged, int filesUnchanged, int filesRemoved,
+                        long bytesScanned, long bytesArchived, long bytesWritten, int archives,
+                        int verified, int verifyFailures, int chunksWritten, int chunksDeduplicated,
+                        List<String> errors, long durationMs) {
+        this.filesScanned = filesScanned;
+        this.filesChanged = filesChanged;
+        this.filesUnchanged = filesUnchanged;
+        this.filesRemoved = filesRemoved;
+        this.bytesScanned = bytesScanned;
+        this.bytesArchived = bytesArchived;
+        this.bytesWritten = bytesWritten;
+        this.archives = archives;
+        this.verified = verified;
+        this.verifyFailures = verifyFailures;
+        this.chunksWritten = chunksWritten;
+        this.chunksDeduplicated = chunksDeduplicated;
+        this.errors = List.copyOf(errors);
+        this.durationMs = durationMs;
+    }
+
+    public int getFilesScanned() {
+        return filesScanned;
+    }
+
+    public int getFilesChanged() {
+        return filesChanged;
+    }
+
+    public int getFilesUnchanged() {
+        return filesUnchanged;
+    }
+
+    public int getFilesRemoved() {
+        return filesRemoved;
+    }
+
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+    public long getBytesArchived() {
+        return bytesArchived;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public int getArchives() {
+        return archives;
+    }
+
+    public int getVerified() {
+        return verified;
+    }
+
+    public int getVerifyFailures() {
+        return verifyFailures;
+    }
+
+    public int getChunksWritten() {
+        return chunksWritten;
+    }
+
+    public int getChunksDeduplicated() {
+        return chunksDeduplicated;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    /**
+     * @return true if every file was read and every archived file verified
+     */
+    public boolean isComplete() {
+        return errors.isEmpty() && verifyFailures == 0;
+    }
+
+    @Override
+    public String toString() {
+        String written = chunksWritten + chunksDeduplicated > 0
+            ? String.format("%d chunks written (%d bytes), %d deduplicated", chunksWritten, bytesWritten,
+                chunksDeduplicated)
+            : String.format("%d archives written (%d bytes)", archives, bytesWritten);
+        return String.format("Backed up %d files (%d changed, %d unchanged, %d removed): "
+                + "%d of %d bytes archived, %s, %d verified, %d verify failures, %d errors in %d ms",
+            filesScanned, filesChanged, filesUnchanged, filesRemoved, bytesArchived, bytesScanned, written,
+            verified, verifyFailures, errors.size(), durationMs);
+    }
+}
@@ -0,0 +1,816 @@
+package com.acme.mcp.core.backup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Content-addressed store of file chunks shared by many backups.
+ * <p>
+ * Chunks are identified by the SHA-256 of their content and stored once, deflated, appended to pack
+ * files. A compact binary index of fixed-size records maps each chunk to its pack, offset and sizes,
+ * and counts the manifest entries referencing it. Each backup is a named {@link BackupManifest} whose
+ * entries list their chunks, so identical content across files, runs and assets is written once and
+ * storage grows with unique data only.
+ * <p>
+ * The index is a snapshot plus an append-only journal. Each commit appends one checksummed batch
+ * holding the chunks added since the previous batch and the net reference changes, so index writes
+ * grow with new and changed data rather than with the size of the store. The journal is folded into
+ * a new snapshot once it outgrows the snapshot.
+ * <p>
+ * Chunks are added and manifests committed through a {@link Session}; several sessions may run at
+ * once. The journal is always written after the data it points to and before the manifest that
+ * references it, and {@link #gc()} recounts references from the manifests before dropping anything,
+ * so a crash can leak space or leave a count stale but never lose a referenced chunk. {@link #gc()}
+ * waits for running sessions, drops unreferenced chunks and compacts the packs that held them.
+ */
+public class ChunkStore implements AutoCloseable {
+
+    private static final String INDEX_FILE = "chunks.idx";
+    private static final String JOURNAL_FILE = "chunks.jnl";
+    private static final String PACK_PREFIX = "pack-";
+    private static final String PACK_SUFFIX = ".dat";
+    private static final long INDEX_MAGIC = 0x4d4350434b494458L;
+    private static final long JOURNAL_MAGIC = 0x4d4350434b4a4e4cL;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REF = 2;
+    /** Size of a snapshot record: chunk hash, pack, offset, stored and original length, references. */
+    private static final int INDEX_RECORD_BYTES = 32 + 4 + 8 + 4 + 4 + 4;
+    /** Journal size below which it is never folded into the snapshot. */
+    private static final long MIN_COMPACT_BYTES = 1L << 20;
+    private static final long MAX_PACK_SIZE = 256L << 20;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path root;
+    private final Path packs;
+    private final Path manifests;
+    private final Map<ChunkKey, Location> index = new HashMap<>();
+    /** Chunks added since the last journal batch. */
+    private final List<ChunkKey> unjournaled = new ArrayList<>();
+    private long journalId;
+    private FileChannel journal;
+    private long journalSize;
+    private int nextPack;
+    private FileChannel pack;
+    private int packId;
+    private long packSize;
+    private int sessions;
+    private boolean closed;
+
+    private ChunkStore(Path root) {
+        this.root = root;
+        this.packs = root.resolve("packs");
+        this.manifests = root.resolve("manifests");
+    }
+
+    /**
+     * Open a store, creating it if needed.
+     * @param root store folder
+     * @return the store
+     * @throws IOException if the store cannot be read or created
+     */
+    public static ChunkStore open(Path root) throws IOException {
+        ChunkStore store = new ChunkStore(root.toAbsolutePath().normalize());
+        Files.createDirectories(store.packs);
+        Files.createDirectories(store.manifests);
+        store.readIndex();
+        store.replayJournal();
+        for (Path file : store.packFiles()) {
+            store.nextPack = Math.max(store.nextPack, packId(file) + 1);
+        }
+        return store;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Start adding chunks and committing manifests.
+     * @return the session, to be closed when done
+     */
+    public synchronized Session begin() {
+        if (closed) {
+            throw new IllegalStateException("Chunk store is closed");
+        }
+        sessions++;
+        return new Session();
+    }
+
+    /**
+     * Read a backup manifest.
+     * @param name backup name
+     * @return the manifest, or an empty manifest if there is no backup of that name
+     * @throws IOException if the manifest cannot be read
+     */
+    public BackupManifest manifest(String name) throws IOException {
+        return BackupManifest.read(manifestFile(name));
+    }
+
+    /**
+     * Delete a backup; its chunks are reclaimed by the next {@link #gc()}.
+     * @param name backup name
+     * @throws IOException if the manifest cannot be deleted
+     */
+    public synchronized void delete(String name) throws IOException {
+        BackupManifest manifest = manifest(name);
+        Files.deleteIfExists(manifestFile(name));
+        Map<ChunkKey, Integer> deltas = new HashMap<>();
+        count(deltas, manifest, -1);
+        journal(deltas);
+    }
+
+    /**
+     * @param chunks chunk ids
+     * @return true if every chunk is in the store
+     */
+    public synchronized boolean containsAll(Collection<String> chunks) {
+        for (String chunk : chunks) {
+            if (!index.containsKey(ChunkKey.parse(chunk))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of chunks stored
+     */
+    public synchronized int getChunkCount() {
+        return index.size();
+    }
+
+    /**
+     * @param chunk chunk id
+     * @return number of manifest entries referencing the chunk, or -1 if it is not stored
+     */
+    public synchronized int getReferences(String chunk) {
+        Location location = index.get(ChunkKey.parse(chunk));
+        return location != null ? location.refs : -1;
+    }
+
+    /**
+     * Stream the content of a file of a backup.
+     * @param name backup name
+     * @param path path of the file in the backup
+     * @param out receives the content
+     * @throws IOException if the file is not in the backup or its content cannot be read or is corrupt
+     */
+    public void restore(String name, String path, OutputStream out) throws IOException {
+        BackupManifest.Entry entry = manifest(name).get(path);
+        if (entry == null) {
+            throw new NoSuchFileException(path);
+        }
+        restore(entry, out);
+    }
+
+    /**
+     * Stream the content of a manifest entry one chunk at a time, verifying every chunk and the whole file.
+     * @param entry manifest entry whose content is held by chunks
+     * @param out receives the content
+     * @throws IOException if a chunk is missing or corrupt
+     */
+    public void restore(BackupManifest.Entry entry, OutputStream out) throws IOException {
+        if (entry.chunks() == null) {
+            throw new IllegalArgumentException("Entry is not chunked: " + entry.path());
+        }
+        MessageDigest fileDigest = sha256();
+        Map<Integer, FileChannel> channels = new HashMap<>();
+        // An open session keeps gc from removing the chunks while they are read
+        Session session = begin();
+        Inflater inflater = new Inflater();
+        try {
+            for (String chunk : entry.chunks()) {
+                byte[] data = read(chunk, channels, inflater);
+                fileDigest.update(data);
+                out.write(data);
+            }
+        } finally {
+            inflater.end();
+            try {
+                for (FileChannel channel : channels.values()) {
+                    channel.close();
+                }
+            } finally {
+                session.close();
+            }
+        }
+        if (!HEX.formatHex(fileDigest.digest()).equals(entry.sha256())) {
+            throw new IOException("Checksum mismatch restoring " + entry.path());
+        }
+    }
+
+    /**
+     * Drop chunks no manifest references and rewrite the packs that held them.
+     * Waits for running sessions; new sessions wait for the collection to finish.
+     * @return bytes reclaimed
+     * @throws IOException if a pack cannot be rewritten
+     */
+    public synchronized long gc() throws IOException {
+        while (sessions > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for backups to finish", e);
+            }
+        }
+        sealPack();
+
+        // Counts can be stale after a crash between a journal batch and its manifest
+        recount();
+        Map<Integer, List<Location>> live = new HashMap<>();
+        Iterator<Location> it = index.values().iterator();
+        while (it.hasNext()) {
+            Location location = it.next();
+            if (location.refs <= 0) {
+                it.remove();
+            } else {
+                live.computeIfAbsent(location.pack, id -> new ArrayList<>()).add(location);
+            }
+        }
+        snapshot();
+
+        long reclaimed = 0;
+        for (Path file : packFiles()) {
+            int id = packId(file);
+            long size = Files.size(file);
+            List<Location> locations = live.getOrDefault(id, List.of());
+            long liveBytes = 0;
+            for (Location location : locations) {
+                liveBytes += location.stored;
+            }
+            if (liveBytes == size) {
+                continue;
+            }
+            if (!locations.isEmpty()) {
+                // Copy the live chunks into a new pack and point the index at it before deleting the old one
+                locations.sort(Comparator.comparingLong(location -> location.offset));
+                int target = nextPack++;
+                try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+                     FileChannel copy = FileChannel.open(packFile(target), StandardOpenOption.CREATE_NEW,
+                         StandardOpenOption.WRITE)) {
+                    long offset = 0;
+                    for (Location location : locations) {
+                        long position = location.offset;
+                        long remaining = location.stored;
+                        while (remaining > 0) {
+                            long transferred = source.transferTo(position, remaining, copy);
+                            position += transferred;
+                            remaining -= transferred;
+                        }
+                        location.pack = target;
+                        location.offset = offset;
+                        offset += location.stored;
+                    }
+                    copy.force(true);
+                }
+                snapshot();
+            }
+            Files.delete(file);
+            reclaimed += size - liveBytes;
+        }
+        return reclaimed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        sealPack();
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Adds chunks and commits manifests. Chunks added by a session are not referenced until a manifest
+     * listing them is committed; chunks never committed are reclaimed by {@link #gc()}.
+     */
+    public final class Session implements AutoCloseable {
+
+        private boolean open = true;
+
+        private Session() {
+        }
+
+        /**
+         * Add a chunk unless an identical one is already stored.
+         * @param data buffer holding the chunk
+         * @param offset offset of the chunk in the buffer
+         * @param length length of the chunk
+         * @return id of the chunk and what was written
+         * @throws IOException if the chunk cannot be written
+         */
+        public PutResult put(byte[] data, int offset, int length) throws IOException {
+            MessageDigest digest = sha256();
+            digest.update(data, offset, length);
+            byte[] hash = digest.digest();
+            ChunkKey key = ChunkKey.of(hash);
+            String id = HEX.formatHex(hash);
+            synchronized (ChunkStore.this) {
+                if (index.containsKey(key)) {
+                    return new PutResult(id, 0);
+                }
+            }
+            byte[] stored = deflate(data, offset, length);
+            synchronized (ChunkStore.this) {
+                if (index.containsKey(key)) {
+                    return new PutResult(id, 0);
+                }
+                index.put(key, append(stored, length));
+                unjournaled.add(key);
+                return new PutResult(id, stored.length);
+            }
+        }
+
+        /**
+         * Store a manifest under a name, replacing the previous one.
+         * @param name backup name
+         * @param manifest manifest whose entries are all held by chunks of this store
+         * @throws IOException if a chunk is missing or the manifest cannot be written
+         */
+        public void commit(String name, BackupManifest manifest) throws IOException {
+            synchronized (ChunkStore.this) {
+                for (BackupManifest.Entry entry : manifest.getEntries().values()) {
+                    if (entry.chunks() == null || !containsAll(entry.chunks())) {
+                        throw new IOException("Entry has chunks missing from the store: " + entry.path());
+                    }
+                }
+                Map<ChunkKey, Integer> deltas = new HashMap<>();
+                count(deltas, manifest, 1);
+                count(deltas, manifest(name), -1);
+                if (pack != null) {
+                    pack.force(true);
+                }
+                journal(deltas);
+                manifest.write(manifestFile(name));
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (ChunkStore.this) {
+                if (open) {
+                    open = false;
+                    sessions--;
+                    ChunkStore.this.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Outcome of adding a chunk.
+     * @param id chunk id, the lowercase hex SHA-256 of its content
+     * @param bytesWritten bytes appended to the store, 0 if the chunk was already stored
+     */
+    public record PutResult(String id, long bytesWritten) {
+
+        /**
+         * @return true if the chunk was already stored
+         */
+        public boolean deduplicated() {
+            return bytesWritten == 0;
+        }
+    }
+
+    private byte[] read(String chunk, Map<Integer, FileChannel> channels, Inflater inflater) throws IOException {
+        int pack;
+        long offset;
+        int stored;
+        int length;
+        synchronized (this) {
+            Location location = index.get(ChunkKey.parse(chunk));
+            if (location == null) {
+                throw new IOException("Missing chunk " + chunk);
+            }
+            pack = location.pack;
+            offset = location.offset;
+            stored = location.stored;
+            length = location.length;
+        }
+        FileChannel channel = channels.get(pack);
+        if (channel == null) {
+            channel = FileChannel.open(packFile(pack), StandardOpenOption.READ);
+            channels.put(pack, channel);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(stored);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) == -1) {
+                throw new IOException("Truncated chunk " + chunk);
+            }
+        }
+        byte[] data = buffer.array();
+        if (stored != length) {
+            byte[] inflated = new byte[length];
+            inflater.reset();
+            inflater.setInput(data);
+            try {
+                if (inflater.inflate(inflated) != length || !inflater.finished()) {
+                    throw new IOException("Corrupt chunk " + chunk);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt chunk " + chunk, e);
+            }
+            data = inflated;
+        }
+        if (!HEX.formatHex(sha256().digest(data)).equals(chunk)) {
+            throw new IOException("Corrupt chunk " + chunk);
+        }
+        return data;
+    }
+
+    /**
+     * Deflate a chunk, keeping it as is when that does not make it smaller.
+     */
+    private static byte[] deflate(byte[] data, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            byte[] out = new byte[length];
+            int size = 0;
+            while (!deflater.finished() && size < length) {
+                size += deflater.deflate(out, size, length - size);
+            }
+            if (deflater.finished() && size < length) {
+                byte[] compressed = new byte[size];
+                System.arraycopy(out, 0, compressed, 0, size);
+                return compressed;
+            }
+            System.arraycopy(data, offset, out, 0, length);
+            return out;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private Location append(byte[] stored, int length) throws IOException {
+        if (pack == null || packSize + stored.length > MAX_PACK_SIZE) {
+            sealPack();
+            packId = nextPack++;
+            pack = FileChannel.open(packFile(packId), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            packSize = 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(stored);
+        while (buffer.hasRemaining()) {
+            pack.write(buffer, packSize + buffer.position());
+        }
+        Location location = new Location(packId, packSize, stored.length, length, 0);
+        packSize += stored.length;
+        return location;
+    }
+
+    private void sealPack() throws IOException {
+        if (pack != null) {
+            pack.force(true);
+            pack.close();
+            pack = null;
+        }
+    }
+
+    /**
+     * Add the references of a manifest to per-chunk reference changes, dropping changes that cancel out.
+     */
+    private static void count(Map<ChunkKey, Integer> deltas, BackupManifest manifest, int delta) {
+        for (BackupManifest.Entry entry : manifest.getEntries().values()) {
+            if (entry.chunks() == null) {
+                continue;
+            }
+            for (String chunk : entry.chunks()) {
+                deltas.merge(ChunkKey.parse(chunk), delta, (a, b) -> a + b == 0 ? null : a + b);
+            }
+        }
+    }
+
+    /**
+     * Set every reference count from the manifests on disk.
+     */
+    private void recount() throws IOException {
+        for (Location location : index.values()) {
+            location.refs = 0;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(manifests, "*.json")) {
+            for (Path file : stream) {
+                for (BackupManifest.Entry entry : BackupManifest.read(file).getEntries().values()) {
+                    if (entry.chunks() == null) {
+                        continue;
+                    }
+                    for (String chunk : entry.chunks()) {
+                        Location location = index.get(ChunkKey.parse(chunk));
+                        if (location != null) {
+                            location.refs++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply reference changes and append them to the journal in one batch, together with the chunks
+     * added since the previous batch. The batch is forced to disk before returning.
+     */
+    private void journal(Map<ChunkKey, Integer> deltas) throws IOException {
+        ByteBuffer batch = ByteBuffer.allocate(4 + unjournaled.size() * (1 + INDEX_RECORD_BYTES - 4)
+            + deltas.size() * (1 + 32 + 4) + 8);
+        batch.position(4);
+        for (ChunkKey key : unjournaled) {
+            Location location = index.get(key);
+            if (location == null) {
+                continue;
+            }
+            batch.put(RECORD_PUT);
+            putKey(batch, key);
+            batch.putInt(location.pack).putLong(location.offset).putInt(location.stored).putInt(location.length);
+        }
+        for (Map.Entry<ChunkKey, Integer> delta : deltas.entrySet()) {
+            Location location = index.get(delta.getKey());
+            if (location == null) {
+                continue;
+            }
+            location.refs += delta.getValue();
+            batch.put(RECORD_REF);
+            putKey(batch, delta.getKey());
+            batch.putInt(delta.getValue());
+        }
+        unjournaled.clear();
+        int length = batch.position() - 4;
+        batch.putInt(0, length);
+        CRC32 crc = new CRC32();
+        crc.update(batch.array(), 4, length);
+        batch.putLong(crc.getValue());
+        batch.flip();
+        while (batch.hasRemaining()) {
+            journalSize += journal.write(batch, journalSize);
+        }
+        journal.force(false);
+
+        if (journalSize > Math.max(MIN_COMPACT_BYTES, (long) index.size() * INDEX_RECORD_BYTES)) {
+            snapshot();
+        }
+    }
+
+    private static void putKey(ByteBuffer buffer, ChunkKey key) {
+        buffer.putLong(key.h0()).putLong(key.h1()).putLong(key.h2()).putLong(key.h3());
+    }
+
+    private static ChunkKey getKey(ByteBuffer buffer) {
+        return new ChunkKey(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Apply the journal batches written since the snapshot. A torn or corrupt batch at the end,
+     * left by a crash while appending, is cut off.
+     */
+    private void replayJournal() throws IOException {
+        Path file = root.resolve(JOURNAL_FILE);
+        if (!Files.exists(file)) {
+            startJournal();
+            return;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.remaining() < 16 || header.getLong() != JOURNAL_MAGIC || header.getLong() != journalId) {
+                // Left over from before the last snapshot, which already holds its changes
+                channel.close();
+                startJournal();
+                return;
+            }
+            long position = 16;
+            long size = channel.size();
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+            while (position + 4 <= size) {
+                lengthBuffer.clear();
+                readFully(channel, lengthBuffer, position);
+                int length = lengthBuffer.getInt(0);
+                if (length < 0 || position + 4 + length + 8 > size) {
+                    break;
+                }
+                ByteBuffer batch = ByteBuffer.allocate(length + 8);
+                readFully(channel, batch, position + 4);
+                CRC32 crc = new CRC32();
+                crc.update(batch.array(), 0, length);
+                if (batch.getLong(length) != crc.getValue()) {
+                    break;
+                }
+                batch.clear().limit(length);
+                applyBatch(batch);
+                position += 4 + length + 8;
+            }
+            channel.truncate(position);
+            channel.force(false);
+            journal = channel;
+            journalSize = position;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void applyBatch(ByteBuffer batch) throws IOException {
+        while (batch.hasRemaining()) {
+            byte type = batch.get();
+            ChunkKey key = getKey(batch);
+            switch (type) {
+                case RECORD_PUT -> index.putIfAbsent(key,
+                    new Location(batch.getInt(), batch.getLong(), batch.getInt(), batch.getInt(), 0));
+                case RECORD_REF -> {
+                    int delta = batch.getInt();
+                    Location location = index.get(key);
+                    if (location != null) {
+                        location.refs += delta;
+                    }
+                }
+                default -> throw new IOException("Corrupt chunk journal: " + root.resolve(JOURNAL_FILE));
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replace the journal with an empty one belonging to the current snapshot.
+     */
+    private void startJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        Path temp = root.resolve(JOURNAL_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(16).putLong(JOURNAL_MAGIC).putLong(journalId);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        Path file = root.resolve(JOURNAL_FILE);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journalSize = 16;
+    }
+
+    /**
+     * Fold the journal into a new snapshot. The snapshot names a new journal, so a crash before the
+     * old journal is replaced leaves it ignored rather than applied twice.
+     */
+    private void snapshot() throws IOException {
+        journalId++;
+        unjournaled.clear();
+        writeIndex();
+        startJournal();
+    }
+
+    private void readIndex() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(root.resolve(INDEX_FILE))))) {
+            if (in.readLong() != INDEX_MAGIC) {
+                throw new IOException("Not a chunk index: " + root.resolve(INDEX_FILE));
+            }
+            journalId = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ChunkKey key = new ChunkKey(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+                index.put(key, new Location(in.readInt(), in.readLong(), in.readInt(), in.readInt(), in.readInt()));
+            }
+        } catch (NoSuchFileException e) {
+            // New store
+        }
+    }
+
+    /**
+     * Write the index snapshot: the ID of the journal continuing it, then fixed-size records of the
+     * chunk hash, pack, offset, stored and original length, and reference count.
+     */
+    private void writeIndex() throws IOException {
+        Path file = root.resolve(INDEX_FILE);
+        Path temp = root.resolve(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeLong(INDEX_MAGIC);
+            out.writeLong(journalId);
+            out.writeInt(index.size());
+            for (Map.Entry<ChunkKey, Location> entry : index.entrySet()) {
+                ChunkKey key = entry.getKey();
+                Location location = entry.getValue();
+                out.writeLong(key.h0());
+                out.writeLong(key.h1());
+                out.writeLong(key.h2());
+                out.writeLong(key.h3());
+                out.writeInt(location.pack);
+                out.writeLong(location.offset);
+                out.writeInt(location.stored);
+                out.writeInt(location.length);
+                out.writeInt(location.refs);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<Path> packFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(packs, PACK_PREFIX + "*" + PACK_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private Path packFile(int id) {
+        return packs.resolve(String.format("%s%08d%s", PACK_PREFIX, id, PACK_SUFFIX));
+    }
+
+    private static int packId(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(PACK_PREFIX.length(), name.length() - PACK_SUFFIX.length()));
+    }
+
+    private Path manifestFile(String name) {
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+        return manifests.resolve(encoded + ".json");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Where a chunk is stored and how many manifest entries reference it.
+     */
+    private static final class Location {
+        int pack;
+        long offset;
+        final int stored;
+        final int length;
+        int refs;
+
+        Location(int pack, long offset, int stored, int length, int refs) {
+            this.pack = pack;
+            this.offset = offset;
+            this.stored = stored;
+            this.length = length;
+            this.refs = refs;
+        }
+    }
+
+    /**
+     * SHA-256 of a chunk as four longs, a compact hash map key.
+     */
+    private record ChunkKey(long h0, long h1, long h2, long h3) {
+
+        static ChunkKey of(byte[] hash) {
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new ChunkKey(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        static ChunkKey parse(String id) {
+            if (id.length() != 64) {
+                throw new IllegalArgumentException("Invalid chunk id: " + id);
+            }
+            return of(HEX.parseHex(id));
+        }
+    }
+}
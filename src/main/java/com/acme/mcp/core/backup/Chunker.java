@@ -0,0 +1,114 @@
+package com.acme.mcp.core.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Splits a stream into content-defined chunks.
+ * <p>
+ * A gear rolling hash is updated with every byte and a chunk ends where its top bits are all zero,
+ * so boundaries depend only on the bytes just before them: an insertion or deletion moves the
+ * boundaries next to it but not the ones further on, and identical content yields identical chunks
+ * wherever it sits in a file. Chunks are at least {@code min} and at most {@code max} bytes long,
+ * and about {@code min + avg} bytes on average.
+ * <p>
+ * Each chunk is returned as a range of an internal buffer that is only valid until the next call.
+ */
+final class Chunker {
+
+    static final int DEFAULT_MIN = 16 * 1024;
+    static final int DEFAULT_AVG = 64 * 1024;
+    static final int DEFAULT_MAX = 256 * 1024;
+
+    /** Random value per byte; fixed so that chunk boundaries never change between releases. */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x6d63702d63686e6bL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final InputStream in;
+    private final int min;
+    private final int max;
+    private final long mask;
+    private final byte[] buffer;
+    private int start;
+    private int end;
+    private int length;
+    private boolean eof;
+
+    Chunker(InputStream in) {
+        this(in, DEFAULT_MIN, DEFAULT_AVG, DEFAULT_MAX);
+    }
+
+    /**
+     * @param in stream to split; not closed by the chunker
+     * @param min minimum chunk size
+     * @param avg expected distance from the minimum size to a boundary, a power of two
+     * @param max maximum chunk size
+     */
+    Chunker(InputStream in, int min, int avg, int max) {
+        if (min < 1 || max < min || Integer.bitCount(avg) != 1) {
+            throw new IllegalArgumentException("Invalid chunk sizes: " + min + "/" + avg + "/" + max);
+        }
+        this.in = in;
+        this.min = min;
+        this.max = max;
+        this.mask = -1L << (64 - Integer.numberOfTrailingZeros(avg));
+        this.buffer = new byte[max];
+    }
+
+    /**
+     * Read the next chunk.
+     * @return length of the chunk, 0 at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    int next() throws IOException {
+        start += length;
+        length = 0;
+        if (end - start < max && !eof) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+            while (end < max) {
+                int read = in.read(buffer, end, max - end);
+                if (read == -1) {
+                    eof = true;
+                    break;
+                }
+                end += read;
+            }
+        }
+        int available = end - start;
+        length = available;
+        if (available > min) {
+            long hash = 0;
+            for (int i = start + min, limit = start + available; i < limit; i++) {
+                hash = (hash << 1) + GEAR[buffer[i] & 0xff];
+                if ((hash & mask) == 0) {
+                    length = i + 1 - start;
+                    break;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return buffer holding the current chunk
+     */
+    byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return offset of the current chunk in {@link #buffer()}
+     */
+    int offset() {
+        return start;
+    }
+}
@@ -0,0 +1,86 @@
+package com.acme.mcp.core.cleanup;
+
+/**
+ * Totals of a cleanup, also published as progress while it runs.
+ */
+public final class CleanupReport {
+
+    private final long filesScanned;
+    private final long bytesScanned;
+    private final long filesDeleted;
+    private final long bytesDeleted;
+    private final long filesFiltered;
+    private final long filesSkipped;
+    private final long directoriesDeleted;
+    private final long errors;
+    private final long durationMs;
+
+    /**
+     * @param filesScanned files found
+     * @param bytesScanned total size of the files found
+     * @param filesDeleted files deleted
+     * @param bytesDeleted total size of the files deleted
+     * @param filesFiltered files kept because they are too recent or too small
+     * @param filesSkipped files that could not be deleted, typically because they are in use
+     * @param directoriesDeleted directories deleted once emptied
+     * @param errors directories or attributes that could not be read
+     * @param durationMs time spent so far
+     */
+    public CleanupReport(long filesScanned, long bytesScanned, long filesDeleted, long bytesDeleted,
+                         long filesFiltered, long filesSkipped, long directoriesDeleted, long errors,
+                         long durationMs) {
+        this.filesScanned = filesScanned;
+        this.bytesScanned = bytesScanned;
+        this.filesDeleted = filesDeleted;
+        this.bytesDeleted = bytesDeleted;
+        this.filesFiltered = filesFiltered;
+        this.filesSkipped = filesSkipped;
+        this.directoriesDeleted = directoriesDeleted;
+        this.errors = errors;
+        this.durationMs = durationMs;
+    }
+
+    public long getFilesScanned() {
+        return filesScanned;
+    }
+
+    public long getBytesScanned() {
+        return bytesScanned;
+    }
+
+    public long getFilesDeleted() {
+        return filesDeleted;
+    }
+
+    public long getBytesDeleted() {
+        return bytesDeleted;
+    }
+
+    public long getFilesFiltered() {
+        return filesFiltered;
+    }
+
+    public long getFilesSkipped() {
+        return filesSkipped;
+    }
+
+    public long getDirectoriesDeleted() {
+        return directoriesDeleted;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Scanned %d files (%d bytes): deleted %d files (%d bytes) and %d directories, "
+                + "kept %d by filter, skipped %d in use, %d errors in %d ms",
+            filesScanned, bytesScanned, filesDeleted, bytesDeleted, directoriesDeleted, filesFiltered,
+            filesSkipped, errors, durationMs);
+    }
+}
@@ -0,0 +1,296 @@
+package com.acme.mcp.core.cleanup;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Deletes the content of temp folders in parallel.
+ * <p>
+ * Every directory is listed by its own fork-join task, and large directories are split into batches
+ * of files deleted in parallel. Files that are in use or cannot be deleted are skipped and counted,
+ * never failing the run; directories are deleted once everything in them is. Files modified more
+ * recently than the minimum age, or smaller than the minimum size, or matched by the caller's keep
+ * filter are kept. Symbolic links are deleted like files and never followed. The roots themselves
+ * are never deleted.
+ */
+public class TempCleaner implements AutoCloseable {
+
+    /** Files per batch when a directory is split. */
+    static final int BATCH_SIZE = 512;
+
+    /** Files scanned between two progress reports. */
+    private static final int PROGRESS_INTERVAL = 1_000;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a cleaner with one worker per processor.
+     */
+    public TempCleaner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a cleaner with a custom parallelism.
+     * @param parallelism number of workers
+     */
+    public TempCleaner(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("temp-cleaner-" + threadCounter.incrementAndGet());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Delete the content of folders.
+     * @param roots folders to empty; missing folders are skipped
+     * @param minAge files modified more recently than this are kept
+     * @param minSize files smaller than this many bytes are kept
+     * @param progress receives running totals every {@value #PROGRESS_INTERVAL} files scanned, one call at a time,
+     *                 may be null
+     * @return totals
+     */
+    public CleanupReport clean(List<Path> roots, Duration minAge, long minSize, Consumer<CleanupReport> progress) {
+        return clean(roots, minAge, minSize, file -> false, progress);
+    }
+
+    /**
+     * Delete the content of folders, keeping files matched by a filter.
+     * @param roots folders to empty; missing folders are skipped
+     * @param minAge files modified more recently than this are kept
+     * @param minSize files smaller than this many bytes are kept
+     * @param keep files it matches are kept and counted as filtered; called from the workers
+     * @param progress receives running totals every {@value #PROGRESS_INTERVAL} files scanned, one call at a time,
+     *                 may be null
+     * @return totals
+     */
+    public CleanupReport clean(List<Path> roots, Duration minAge, long minSize, Predicate<Path> keep,
+                               Consumer<CleanupReport> progress) {
+        Run run = new Run(System.currentTimeMillis() - minAge.toMillis(), minSize, keep, progress);
+        List<DirectoryTask> tasks = new ArrayList<>();
+        for (Path root : roots) {
+            if (Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS)) {
+                tasks.add(new DirectoryTask(run, root, null));
+            }
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        return run.report();
+    }
+
+    /**
+     * Stop the workers once running cleanups complete.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Filters and totals of one cleanup, shared by its tasks.
+     */
+    private static final class Run {
+        final long cutoffMillis;
+        final long minSize;
+        final Predicate<Path> keep;
+        final Consumer<CleanupReport> progress;
+        final long startedNanos = System.nanoTime();
+        final AtomicLong filesScanned = new AtomicLong();
+        final LongAdder bytesScanned = new LongAdder();
+        final LongAdder filesDeleted = new LongAdder();
+        final LongAdder bytesDeleted = new LongAdder();
+        final LongAdder filesFiltered = new LongAdder();
+        final LongAdder filesSkipped = new LongAdder();
+        final LongAdder directoriesDeleted = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        Run(long cutoffMillis, long minSize, Predicate<Path> keep, Consumer<CleanupReport> progress) {
+            this.cutoffMillis = cutoffMillis;
+            this.minSize = minSize;
+            this.keep = keep;
+            this.progress = progress;
+        }
+
+        /**
+         * @return true if the file is gone
+         */
+        boolean cleanFile(Path file, BasicFileAttributes attrs) {
+            long size = attrs.isRegularFile() ? attrs.size() : 0;
+            long scanned = filesScanned.incrementAndGet();
+            bytesScanned.add(size);
+            boolean deleted = false;
+            if (attrs.lastModifiedTime().toMillis() > cutoffMillis || size < minSize || keep.test(file)) {
+                filesFiltered.increment();
+            } else if (delete(file)) {
+                filesDeleted.increment();
+                bytesDeleted.add(size);
+                deleted = true;
+            } else {
+                filesSkipped.increment();
+            }
+            if (progress != null && scanned % PROGRESS_INTERVAL == 0) {
+                synchronized (progress) {
+                    progress.accept(report());
+                }
+            }
+            return deleted;
+        }
+
+        CleanupReport report() {
+            return new CleanupReport(filesScanned.get(), bytesScanned.sum(), filesDeleted.sum(), bytesDeleted.sum(),
+                filesFiltered.sum(), filesSkipped.sum(), directoriesDeleted.sum(), errors.sum(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos));
+        }
+
+        /**
+         * Delete a file or empty directory, clearing the read-only attribute if that is what prevents it.
+         * @return true if it is gone
+         */
+        private static boolean delete(Path path) {
+            try {
+                Files.delete(path);
+                return true;
+            } catch (NoSuchFileException e) {
+                return true;
+            } catch (AccessDeniedException e) {
+                try {
+                    Files.setAttribute(path, "dos:readonly", false, LinkOption.NOFOLLOW_LINKS);
+                    Files.delete(path);
+                    return true;
+                } catch (IOException | UnsupportedOperationException | IllegalArgumentException retry) {
+                    return false;
+                }
+            } catch (IOException e) {
+                // In use, or the directory is not empty
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Empties a directory and deletes it unless it is a root; yields true if it is gone.
+     */
+    private static final class DirectoryTask extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final Path dir;
+        private final BasicFileAttributes attrs;
+
+        /**
+         * @param attrs attributes of the directory read before it was emptied, null for a root
+         */
+        DirectoryTask(Run run, Path dir, BasicFileAttributes attrs) {
+            this.run = run;
+            this.dir = dir;
+            this.attrs = attrs;
+        }
+
+        @Override
+        protected Boolean compute() {
+            List<RecursiveTask<Boolean>> subtasks = new ArrayList<>();
+            List<Path> batch = new ArrayList<>();
+            List<BasicFileAttributes> batchAttrs = new ArrayList<>();
+            boolean empty = true;
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes entryAttrs;
+                    try {
+                        entryAttrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    } catch (IOException e) {
+                        run.errors.increment();
+                        empty = false;
+                        continue;
+                    }
+                    if (entryAttrs.isDirectory()) {
+                        DirectoryTask task = new DirectoryTask(run, entry, entryAttrs);
+                        task.fork();
+                        subtasks.add(task);
+                    } else {
+                        batch.add(entry);
+                        batchAttrs.add(entryAttrs);
+                        if (batch.size() == BATCH_SIZE) {
+                            FileBatchTask task = new FileBatchTask(run, batch, batchAttrs);
+                            task.fork();
+                            subtasks.add(task);
+                            batch = new ArrayList<>();
+                            batchAttrs = new ArrayList<>();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                run.errors.increment();
+                empty = false;
+            }
+            if (!new FileBatchTask(run, batch, batchAttrs).compute()) {
+                empty = false;
+            }
+            for (RecursiveTask<Boolean> task : subtasks) {
+                if (!task.join()) {
+                    empty = false;
+                }
+            }
+            if (attrs == null || !empty || attrs.lastModifiedTime().toMillis() > run.cutoffMillis) {
+                return false;
+            }
+            if (Run.delete(dir)) {
+                run.directoriesDeleted.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Deletes files of one directory; yields true if they are all gone.
+     */
+    private static final class FileBatchTask extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final List<Path> files;
+        private final List<BasicFileAttributes> attrs;
+
+        FileBatchTask(Run run, List<Path> files, List<BasicFileAttributes> attrs) {
+            this.run = run;
+            this.files = files;
+            this.attrs = attrs;
+        }
+
+        @Override
+        protected Boolean compute() {
+            boolean all = true;
+            for (int i = 0; i < files.size(); i++) {
+                if (!run.cleanFile(files.get(i), attrs.get(i))) {
+                    all = false;
+                }
+            }
+            return all;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.acme.mcp.core.schema;
+
+/**
+ * Thrown when tool arguments do not match the tool's JSON schema.
+ */
+public class ArgumentValidationException extends IllegalArgumentException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final String field;
+    private final boolean missing;
+    
+    /**
+     * @param field name of the offending field, null if the arguments as a whole are invalid
+     * @param missing true if a required field is missing
+     * @param message description of the problem
+     */
+    public ArgumentValidationException(String field, boolean missing, String message) {
+        super(message);
+        this.field = field;
+        this.missing = missing;
+    }
+    
+    /**
+     * @return name of the offending field, or null if the arguments as a whole are invalid
+     */
+    public String getField() {
+        return field;
+    }
+    
+    /**
+     * @return true if a required field is missing
+     */
+    public boolean isMissing() {
+        return missing;
+    }
+}
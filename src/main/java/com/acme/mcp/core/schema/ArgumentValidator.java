@@ -0,0 +1,213 @@
+package com.acme.mcp.core.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validates tool arguments against a tool's JSON schema.
+ * <p>
+ * The schema is compiled once into a flat array of checks, one per declared property, covering the
+ * subset {@link JsonSchemas} produces: {@code required}, {@code type} (string, integer, number,
+ * boolean, array with typed items, object), {@code minimum}, {@code maximum}, {@code enum} and
+ * {@code default}. Validation runs the checks in order without walking the schema and fills in
+ * declared defaults of absent or null fields in the same pass. Undeclared fields are accepted,
+ * and keywords outside that subset are ignored.
+ */
+public final class ArgumentValidator {
+    
+    /** Validator of a schema without properties; accepts any object. */
+    public static final ArgumentValidator ACCEPT_ALL = new ArgumentValidator(new Check[0]);
+    
+    private enum Type {
+        ANY,
+        STRING,
+        INTEGER,
+        NUMBER,
+        BOOLEAN,
+        ARRAY,
+        OBJECT
+    }
+    
+    private final Check[] checks;
+    
+    private ArgumentValidator(Check[] checks) {
+        this.checks = checks;
+    }
+    
+    /**
+     * Compile a tool schema.
+     * @param schema JSON schema of the tool arguments, may be null
+     * @return validator for the schema
+     * @throws IllegalArgumentException if the schema declares an unsupported type or a default that violates it
+     */
+    public static ArgumentValidator compile(JsonNode schema) {
+        if (schema == null || !schema.path("properties").isObject()) {
+            return ACCEPT_ALL;
+        }
+        Set<String> required = new HashSet<>();
+        for (JsonNode name : schema.path("required")) {
+            required.add(name.asText());
+        }
+        List<Check> checks = new ArrayList<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = schema.get("properties").fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            checks.add(compileProperty(field.getKey(), field.getValue(), required.remove(field.getKey())));
+        }
+        // Required fields without a declared property only need to be present
+        for (String name : required) {
+            checks.add(new Check(name, true, Type.ANY, Type.ANY, null, null, null, null));
+        }
+        return checks.isEmpty() ? ACCEPT_ALL : new ArgumentValidator(checks.toArray(new Check[0]));
+    }
+    
+    private static Check compileProperty(String name, JsonNode property, boolean required) {
+        Type type = type(name, property.path("type"));
+        Type itemType = type == Type.ARRAY ? type(name, property.path("items").path("type")) : Type.ANY;
+        Double minimum = property.path("minimum").isNumber() ? property.get("minimum").asDouble() : null;
+        Double maximum = property.path("maximum").isNumber() ? property.get("maximum").asDouble() : null;
+        Set<String> allowed = null;
+        if (property.path("enum").isArray()) {
+            allowed = new HashSet<>();
+            for (JsonNode value : property.get("enum")) {
+                allowed.add(value.asText());
+            }
+        }
+        JsonNode defaultValue = property.get("default");
+        Check check = new Check(name, required, type, itemType, minimum, maximum, allowed, defaultValue);
+        if (defaultValue != null && !defaultValue.isNull()) {
+            check.check(defaultValue);
+        }
+        return check;
+    }
+    
+    private static Type type(String name, JsonNode type) {
+        if (type.isMissingNode()) {
+            return Type.ANY;
+        }
+        return switch (type.asText()) {
+            case "string" -> Type.STRING;
+            case "integer" -> Type.INTEGER;
+            case "number" -> Type.NUMBER;
+            case "boolean" -> Type.BOOLEAN;
+            case "array" -> Type.ARRAY;
+            case "object" -> Type.OBJECT;
+            default -> throw new IllegalArgumentException("Unsupported schema type for '" + name + "': " + type.asText());
+        };
+    }
+    
+    /**
+     * @return number of compiled checks
+     */
+    public int getCheckCount() {
+        return checks.length;
+    }
+    
+    /**
+     * Validate arguments and apply declared defaults.
+     * @param args tool arguments, null is treated as an empty object
+     * @return the arguments if nothing was defaulted, otherwise a copy with the defaults filled in
+     * @throws ArgumentValidationException if the arguments do not match the schema
+     */
+    public JsonNode validate(JsonNode args) {
+        if (args == null || args.isNull() || args.isMissingNode()) {
+            args = JsonNodeFactory.instance.objectNode();
+        } else if (!args.isObject()) {
+            throw new ArgumentValidationException(null, false, "Arguments must be a JSON object");
+        }
+        ObjectNode defaulted = null;
+        for (Check check : checks) {
+            JsonNode value = args.get(check.name);
+            if (value == null || value.isNull()) {
+                if (check.required) {
+                    throw new ArgumentValidationException(check.name, true, "Required field missing: " + check.name);
+                }
+                if (check.defaultValue != null) {
+                    if (defaulted == null) {
+                        defaulted = ((ObjectNode) args).deepCopy();
+                    }
+                    defaulted.set(check.name, check.defaultValue);
+                }
+            } else {
+                check.check(value);
+            }
+        }
+        return defaulted != null ? defaulted : args;
+    }
+    
+    /**
+     * Constraints of one property.
+     */
+    private static final class Check {
+        final String name;
+        final boolean required;
+        final Type type;
+        final Type itemType;
+        final Double minimum;
+        final Double maximum;
+        final Set<String> allowed;
+        final JsonNode defaultValue;
+        
+        Check(String name, boolean required, Type type, Type itemType, Double minimum, Double maximum,
+              Set<String> allowed, JsonNode defaultValue) {
+            this.name = name;
+            this.required = required;
+            this.type = type;
+            this.itemType = itemType;
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.allowed = allowed;
+            this.defaultValue = defaultValue;
+        }
+        
+        void check(JsonNode value) {
+            if (!matches(type, value)) {
+                throw invalid("must be of type " + type.name().toLowerCase());
+            }
+            if (type == Type.ARRAY && itemType != Type.ANY) {
+                for (JsonNode item : value) {
+                    if (!matches(itemType, item)) {
+                        throw invalid("items must be of type " + itemType.name().toLowerCase());
+                    }
+                }
+            }
+            if (minimum != null && value.isNumber() && value.asDouble() < minimum) {
+                throw invalid("must be at least " + format(minimum));
+            }
+            if (maximum != null && value.isNumber() && value.asDouble() > maximum) {
+                throw invalid("must be at most " + format(maximum));
+            }
+            if (allowed != null && !allowed.contains(value.asText())) {
+                throw invalid("must be one of " + allowed);
+            }
+        }
+        
+        private ArgumentValidationException invalid(String reason) {
+            return new ArgumentValidationException(name, false, "Invalid value for '" + name + "': " + reason);
+        }
+        
+        private static boolean matches(Type type, JsonNode value) {
+            return switch (type) {
+                case STRING -> value.isTextual();
+                case INTEGER -> value.isIntegralNumber()
+                    || (value.isFloatingPointNumber() && value.canConvertToExactIntegral());
+                case NUMBER -> value.isNumber();
+                case BOOLEAN -> value.isBoolean();
+                case ARRAY -> value.isArray();
+                case OBJECT -> value.isObject();
+                case ANY -> true;
+            };
+        }
+        
+        private static String format(double bound) {
+            return bound == Math.rint(bound) ? Long.toString((long) bound) : Double.toString(bound);
+        }
+    }
+}
@@ -56,6 +56,21 @@ public class JsonSchemas {
         return schema;
     }
     
+    /**
+     * Create an array of strings schema.
+     * @param description description of the array field
+     * @return JSON schema object node
+     */
+    public static ObjectNode stringArray(String description) {
+        ObjectNode schema = OBJECT_MAPPER.createObjectNode();
+        schema.put("type", "array");
+        schema.set("items", OBJECT_MAPPER.createObjectNode().put("type", "string"));
+        if (description != null) {
+            schema.put("description", description);
+        }
+        return schema;
+    }
+
     /**
      * Create a boolean schema with default value.
      * @param defaultVal default boolean value
@@ -84,6 +99,20 @@ public class JsonSchemas {
         return schema;
     }
     
+    /**
+     * Create an integer schema with min and max values and no default, for fields whose absence matters.
+     * @param min minimum value
+     * @param max maximum value
+     * @return JSON schema object node
+     */
+    public static ObjectNode integer(int min, int max) {
+        ObjectNode schema = OBJECT_MAPPER.createObjectNode();
+        schema.put("type", "integer");
+        schema.put("minimum", min);
+        schema.put("maximum", max);
+        return schema;
+    }
+    
     /**
      * Create an enum schema for string values.
      * @param values allowed string values
@@ -1,10 +1,15 @@
 package com.acme.mcp.core.security;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Security allowlist for PowerShell commands.
- * Validates that only approved commands can be executed.
+ * Validates that only approved commands can be executed. Every command invocation in a
+ * line is checked, including later pipeline stages, statements after {@code ;} or
+ * {@code &&}, script blocks and subexpressions.
  */
 public class Allowlist {
     
@@ -18,6 +23,8 @@ public class Allowlist {
         "manage-bde",
         "Get-Service",
         "Restart-Service",
+        "Stop-Service",
+        "Start-Service",
         "Stop-Process",
         "Start-Process",
         "Remove-Item",
@@ -34,26 +41,110 @@ public class Allowlist {
         "Where-Object",
         "Select-Object",
         "ForEach-Object",
-        "Start-Sleep"
+        "Start-Sleep",
+        "Format-Table",
+        "Get-WinEvent",
+        "ConvertTo-Json",
+        "Get-CimInstance",
+        "Sort-Object"
     );
     
+    private static final CommandTrie COMMAND_TRIE = new CommandTrie(ALLOWED_COMMANDS);
+    
+    private static final ThreadLocal<CommandScanner> SCANNER =
+        ThreadLocal.withInitial(() -> new CommandScanner(COMMAND_TRIE));
+    
+    /** Template verdicts by template hash: index of the first disallowed line, or -1. */
+    private static final ConcurrentMap<String, Integer> TEMPLATE_VERDICTS = new ConcurrentHashMap<>();
+    
     /**
-     * Check if a command is allowed by extracting the first token.
+     * Check if every command invoked by a line is allowed.
      * @param command the full command to check
-     * @return true if the first token is in the allowlist
+     * @return true if all command names in the line are in the allowlist
      */
     public boolean isCommandAllowed(String command) {
-        if (command == null || command.trim().isEmpty()) {
+        if (command == null || command.isBlank()) {
             return false;
         }
         
-        // Extract first token (command name)
-        String firstToken = command.trim().split("\\s+")[0];
-        
-        // Remove any PowerShell operators or special characters
-        firstToken = firstToken.replaceAll("[;&|]", "");
-        
-        return ALLOWED_COMMANDS.contains(firstToken);
+        CommandScanner scanner = SCANNER.get();
+        scanner.reset();
+        return scanner.scan(command) && scanner.isComplete();
+    }
+    
+    /**
+     * Check a script made of several lines. Strings, blocks and comments may span lines;
+     * blank and comment-only lines are accepted.
+     * @param lines script lines in execution order
+     * @return index of the first line invoking a disallowed command, or of the last line if
+     *         the script ends inside an unterminated string, block or comment; -1 if allowed
+     */
+    public int findDisallowedLine(List<String> lines) {
+        CommandScanner scanner = SCANNER.get();
+        scanner.reset();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line == null || !scanner.scan(line)) {
+                return i;
+            }
+        }
+        return scanner.isComplete() ? -1 : lines.size() - 1;
+    }
+    
+    /**
+     * Check a script template. Values are passed as script parameters, so the template is
+     * verified once and the verdict is cached by its hash. Placeholders inside strings, comments
+     * or escapes are rejected because a parameter is not expanded there.
+     * @param template script template
+     * @return index of the first disallowed line, or -1 if allowed
+     */
+    public int findDisallowedLine(ScriptTemplate template) {
+        Integer verdict = TEMPLATE_VERDICTS.get(template.getHash());
+        if (verdict == null) {
+            verdict = scanTemplate(template);
+            TEMPLATE_VERDICTS.putIfAbsent(template.getHash(), verdict);
+        }
+        return verdict;
+    }
+    
+    /**
+     * Verify a script template, typically when its tool is registered.
+     * @param template script template
+     * @throws SecurityException if the template invokes a disallowed command
+     */
+    public void verify(ScriptTemplate template) {
+        int blocked = findDisallowedLine(template);
+        if (blocked >= 0) {
+            throw new SecurityException("Script template not allowed: " + template.getLines().get(blocked));
+        }
+    }
+    
+    private static int scanTemplate(ScriptTemplate template) {
+        List<String> lines = template.verificationLines();
+        CommandScanner scanner = SCANNER.get();
+        scanner.reset(true);
+        int expectedPlaceholders = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (!scanner.scan(line)) {
+                return i;
+            }
+            expectedPlaceholders += countPlaceholders(line);
+            if (scanner.getPlaceholderCount() != expectedPlaceholders) {
+                return i;
+            }
+        }
+        return scanner.isComplete() ? -1 : lines.size() - 1;
+    }
+    
+    private static int countPlaceholders(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == CommandScanner.PLACEHOLDER) {
+                count++;
+            }
+        }
+        return count;
     }
     
     /**
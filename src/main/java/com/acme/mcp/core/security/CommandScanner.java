@@ -0,0 +1,874 @@
+package com.acme.mcp.core.security;
+
+/**
+ * Single-pass PowerShell tokenizer that finds every command invocation in a script.
+ * Command positions are the start of each statement and pipeline stage (after newline,
+ * {@code ;}, {@code |}, {@code ||}, {@code &&}), the inside of {@code (...)}, {@code $(...)},
+ * {@code @(...)} and script blocks, the right-hand side of assignments and hashtable values,
+ * and the target of the {@code &} and {@code .} call operators. Each bareword found in command
+ * position must be in the command trie.
+ * <p>
+ * Methods reach anything the objects returned by allowed commands can do, such as
+ * {@code Process.Kill()} or WMI methods, so a member followed by {@code (} is an invocation and
+ * must be one of {@link #SAFE_METHODS}. Member names that are not plain identifiers cannot be
+ * checked and are rejected, as is {@code $ExecutionContext}, which exposes the script engine.
+ * <p>
+ * Strings, comments, variables, numbers and parameters are skipped without being copied, and
+ * nesting is tracked in a packed {@code long}, so a scan allocates nothing. Instances are
+ * not thread-safe; state is carried across {@link #scan} calls until {@link #reset}.
+ * <p>
+ * In template mode {@link #PLACEHOLDER} stands for a parameter value. It is accepted only as a
+ * standalone value token in code; one swallowed by a string, comment or escape is not counted,
+ * which lets the caller detect it.
+ */
+final class CommandScanner {
+
+    private static final int NONE = 0;
+    private static final int PAREN = 1;
+    private static final int BRACE = 2;
+    private static final int HASH = 3;
+    private static final int ATTRIBUTE = 4;
+    private static final int STRING = 5;
+    private static final int HERE_STRING = 6;
+
+    private static final int TYPE_MASK = 0x7;
+    private static final int ARGUMENT_BIT = 0x8;
+    private static final int BITS_PER_LEVEL = 4;
+
+    /** Stand-in for a template parameter during verification. */
+    static final char PLACEHOLDER = '\uE000';
+
+    /** Deepest nesting that fits the packed stack; deeper scripts are rejected. */
+    static final int MAX_DEPTH = Long.SIZE / BITS_PER_LEVEL;
+
+    private static final int SINGLE_QUOTED = 1;
+    private static final int HERE_SINGLE_QUOTED = 2;
+
+    private static final String[] KEYWORDS = {
+        "begin", "break", "catch", "clean", "continue", "data", "default", "do", "dynamicparam",
+        "else", "elseif", "end", "exit", "filter", "finally", "for", "foreach", "function",
+        "if", "param", "process", "return", "switch", "throw", "trap", "try", "until", "while"
+    };
+
+    /** Types whose static members may be used, e.g. {@code [Math]::Round(...)}. */
+    private static final String[] SAFE_TYPES = {
+        "math", "string", "datetime", "int", "long", "double", "timespan", "convert",
+        "char", "bool", "guid"
+    };
+
+    /** Methods that only compute or wait, callable on any object. */
+    private static final String[] SAFE_METHODS = {
+        "addseconds", "addminutes", "addhours", "adddays", "addmilliseconds", "compareto", "contains",
+        "containskey", "endswith", "equals", "indexof", "padleft", "padright", "refresh", "replace",
+        "sort", "split", "startswith", "substring", "tolower", "tolowerinvariant", "tostring",
+        "toupper", "toupperinvariant", "trim", "trimend", "trimstart", "waitforstatus"
+    };
+
+    /**
+     * Receiver variables and methods, pairwise, callable in templates only. Templates are code of
+     * this repository, so the variables hold what the template assigned; in other scripts a
+     * variable of the same name could hold a process, whose Start launches any program.
+     */
+    private static final String[] TEMPLATE_RECEIVERS = {"svc", "target"};
+    private static final String[] TEMPLATE_METHODS = {"start", "start"};
+
+    private final CommandTrie commands;
+
+    private boolean template;
+    private int placeholders;
+    private long stack;
+    private int depth;
+    private int quote;
+    private boolean blockComment;
+    private boolean continued;
+
+    private boolean commandPosition;
+    private boolean argumentMode;
+    private boolean callTarget;
+    private boolean keyPosition;
+    private boolean functionName;
+
+    CommandScanner(CommandTrie commands) {
+        this.commands = commands;
+        reset();
+    }
+
+    /**
+     * Forget all state from previous scans.
+     */
+    void reset() {
+        reset(false);
+    }
+
+    /**
+     * Forget all state from previous scans.
+     * @param template whether {@link #PLACEHOLDER} marks template parameters
+     */
+    void reset(boolean template) {
+        this.template = template;
+        placeholders = 0;
+        stack = 0;
+        depth = 0;
+        quote = NONE;
+        blockComment = false;
+        continued = false;
+        argumentMode = false;
+        startStatement();
+    }
+
+    /**
+     * @return true if no string, comment, block or subexpression is left open
+     */
+    boolean isComplete() {
+        return depth == 0 && quote == NONE && !blockComment;
+    }
+
+    /**
+     * @return number of placeholders accepted as value tokens since the last reset
+     */
+    int getPlaceholderCount() {
+        return placeholders;
+    }
+
+    /**
+     * Scan one line of a script. The end of the text separates statements, matching how
+     * the runner joins commands with {@code ;}.
+     * @param text line to scan
+     * @return false if the line invokes a command that is not allowed
+     */
+    boolean scan(CharSequence text) {
+        int length = text.length();
+        int lineStart = 0;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                endLine();
+                i++;
+                lineStart = i;
+                continue;
+            }
+            if (blockComment) {
+                i = skipBlockComment(text, i);
+            } else if (quote != NONE) {
+                i = scanSingleQuoted(text, i, lineStart);
+            } else if (top() == STRING || top() == HERE_STRING) {
+                i = scanDoubleQuoted(text, i, lineStart);
+            } else {
+                i = scanToken(text, i);
+            }
+            if (i < 0) {
+                return false;
+            }
+        }
+        continued = false;
+        endLine();
+        return true;
+    }
+
+    private void endLine() {
+        if (blockComment || quote != NONE || top() == STRING || top() == HERE_STRING) {
+            return;
+        }
+        if (continued) {
+            continued = false;
+        } else {
+            startStatement();
+        }
+    }
+
+    private void startStatement() {
+        commandPosition = true;
+        argumentMode = false;
+        callTarget = false;
+        functionName = false;
+        int top = top();
+        keyPosition = top == HASH || top == ATTRIBUTE;
+    }
+
+    private int scanToken(CharSequence text, int i) {
+        int length = text.length();
+        char c = text.charAt(i);
+        char next = i + 1 < length ? text.charAt(i + 1) : '\0';
+
+        if (isSpace(c)) {
+            return i + 1;
+        }
+        if (isSingleQuote(c)) {
+            quote = SINGLE_QUOTED;
+            return value() ? i + 1 : -1;
+        }
+        if (isDoubleQuote(c)) {
+            return value() && push(STRING) ? i + 1 : -1;
+        }
+        if (c == PLACEHOLDER && template) {
+            placeholders++;
+            return value() ? i + 1 : -1;
+        }
+        if (isDash(c)) {
+            if (commandPosition && !keyPosition) {
+                // Unary operator or negative number, e.g. -not, -join, -1
+                return value() ? readWord(text, i + 1) : -1;
+            }
+            return readWord(text, i + 1);
+        }
+
+        switch (c) {
+            case '#':
+                return skipLineComment(text, i);
+            case '<':
+                if (next == '#') {
+                    blockComment = true;
+                    return i + 2;
+                }
+                return i + 1;
+            case '`':
+                if (i + 1 == length || next == '\n' || next == '\r') {
+                    continued = true;
+                    return i + 1;
+                }
+                return bareword(text, i);
+            case '@':
+                return scanAt(text, i, next);
+            case '$':
+                if (!value()) {
+                    return -1;
+                }
+                if (next == '(') {
+                    return open(PAREN, i + 2);
+                }
+                int end = skipVariable(text, i + 1);
+                return isEngineVariable(text, i + 1, end) ? -1 : end;
+            case '(':
+                return value() ? open(PAREN, i + 1) : -1;
+            case ')':
+                return closeParen(i);
+            case '{':
+                return open(BRACE, i + 1);
+            case '}':
+                return closeBrace(i);
+            case '[':
+                return scanType(text, i);
+            case ']':
+                return i + 1;
+            case ';':
+                startStatement();
+                return i + 1;
+            case '|':
+                startStatement();
+                return next == '|' ? i + 2 : i + 1;
+            case '&':
+                if (next == '&') {
+                    startStatement();
+                    return i + 2;
+                }
+                if (commandPosition && !keyPosition) {
+                    callTarget = true;
+                    argumentMode = true;
+                } else {
+                    startStatement();
+                }
+                return i + 1;
+            case '=':
+                if (keyPosition) {
+                    keyPosition = false;
+                    commandPosition = true;
+                    argumentMode = false;
+                    return i + 1;
+                }
+                if (!argumentMode) {
+                    // Assignment: the right-hand side is a pipeline
+                    commandPosition = true;
+                    return i + 1;
+                }
+                return readWord(text, i + 1);
+            case '>':
+                return skipRedirection(text, i);
+            case ',':
+                if (top() == ATTRIBUTE) {
+                    keyPosition = true;
+                }
+                return i + 1;
+            case '!':
+                return value() ? i + 1 : -1;
+            case '.':
+                return scanDot(text, i, next);
+            case ':':
+                if (next == ':') {
+                    // Static member access on anything but a type literal
+                    return -1;
+                }
+                return readWord(text, i + 1);
+            default:
+                break;
+        }
+
+        if (isDigit(c) && commandPosition && !keyPosition) {
+            int end = readNumber(text, i);
+            if (isNumber(text, i, end)) {
+                return value() ? end : -1;
+            }
+        }
+        return bareword(text, i);
+    }
+
+    private int bareword(CharSequence text, int i) {
+        int end = Math.max(readWord(text, i), i + 1);
+        if (keyPosition) {
+            return end;
+        }
+        if (functionName) {
+            functionName = false;
+            return end;
+        }
+        if (!commandPosition) {
+            if (!argumentMode && top() == PAREN && equalsIgnoreCase(text, i, end, "in")) {
+                // foreach ($item in <pipeline>)
+                commandPosition = true;
+            }
+            return end;
+        }
+        if (!callTarget && isKeyword(text, i, end)) {
+            argumentMode = false;
+            if (equalsIgnoreCase(text, i, end, "function") || equalsIgnoreCase(text, i, end, "filter")) {
+                functionName = true;
+            }
+            return end;
+        }
+        if (!commands.contains(text, i, end)) {
+            return -1;
+        }
+        commandPosition = false;
+        callTarget = false;
+        argumentMode = true;
+        return end;
+    }
+
+    private int scanAt(CharSequence text, int i, char next) {
+        if (next == '(') {
+            return value() ? open(PAREN, i + 2) : -1;
+        }
+        if (next == '{') {
+            return value() ? open(HASH, i + 2) : -1;
+        }
+        if (isSingleQuote(next)) {
+            quote = HERE_SINGLE_QUOTED;
+            return value() ? i + 2 : -1;
+        }
+        if (isDoubleQuote(next)) {
+            return value() && push(HERE_STRING) ? i + 2 : -1;
+        }
+        if (Character.isLetterOrDigit(next) || next == '_') {
+            // Splatted variable
+            return value() ? skipVariable(text, i + 1) : -1;
+        }
+        return bareword(text, i);
+    }
+
+    private int scanDot(CharSequence text, int i, char next) {
+        int length = text.length();
+        if (next == '.') {
+            // Range operator
+            commandPosition = false;
+            return i + 2;
+        }
+        if (commandPosition && !keyPosition && (i + 1 == length || isSpace(next))) {
+            // Dot-sourcing operator
+            callTarget = true;
+            argumentMode = true;
+            return i + 1;
+        }
+        if (i > 0 && isMemberOwner(text.charAt(i - 1))) {
+            commandPosition = false;
+            int j = i + 1;
+            while (j < length && isIdentifier(text.charAt(j))) {
+                j++;
+            }
+            if (j == i + 1 && isDynamicMember(next)) {
+                // .'Kill'() or .$name() name the member at run time
+                return -1;
+            }
+            if (isInvocation(text, j) && !isSafeMethod(text, i, i + 1, j)) {
+                return -1;
+            }
+            return j;
+        }
+        return bareword(text, i);
+    }
+
+    /**
+     * Type literals are skipped, except that static member access such as {@code [IO.File]::Delete}
+     * is only allowed on a small set of side-effect-free types.
+     */
+    private int scanType(CharSequence text, int i) {
+        int length = text.length();
+        int j = i + 1;
+        while (j < length && isSpace(text.charAt(j))) {
+            j++;
+        }
+        int nameStart = j;
+        while (j < length && (isIdentifier(text.charAt(j)) || text.charAt(j) == '.')) {
+            j++;
+        }
+        int nameEnd = j;
+        if (nameEnd == nameStart) {
+            return i + 1;
+        }
+        if (j < length && text.charAt(j) == '(') {
+            // Attribute, e.g. [Parameter(Mandatory)]
+            return push(ATTRIBUTE) ? afterOpen(j + 1) : -1;
+        }
+        if (j < length && text.charAt(j) == '[') {
+            int nesting = 1;
+            j++;
+            while (j < length && nesting > 0) {
+                char c = text.charAt(j);
+                if (c == '[') {
+                    nesting++;
+                } else if (c == ']') {
+                    nesting--;
+                } else if (!isIdentifier(c) && c != '.' && c != ',' && !isSpace(c)) {
+                    return nameEnd;
+                }
+                j++;
+            }
+        }
+        if (j >= length || text.charAt(j) != ']') {
+            return nameEnd;
+        }
+        j++;
+        if (j + 1 < length && text.charAt(j) == ':' && text.charAt(j + 1) == ':') {
+            if (!isSafeType(text, nameStart, nameEnd) || !value()) {
+                return -1;
+            }
+            j += 2;
+            while (j < length && isIdentifier(text.charAt(j))) {
+                j++;
+            }
+        }
+        return j;
+    }
+
+    private int open(int type, int i) {
+        return push(type) ? afterOpen(i) : -1;
+    }
+
+    private int afterOpen(int i) {
+        startStatement();
+        return i;
+    }
+
+    private int closeParen(int i) {
+        int top = top();
+        if (top != PAREN && top != ATTRIBUTE) {
+            return -1;
+        }
+        pop();
+        commandPosition = top == ATTRIBUTE;
+        keyPosition = false;
+        return i + 1;
+    }
+
+    private int closeBrace(int i) {
+        int top = top();
+        if (top != BRACE && top != HASH) {
+            return -1;
+        }
+        pop();
+        commandPosition = top == BRACE && !argumentMode;
+        keyPosition = false;
+        return i + 1;
+    }
+
+    private boolean value() {
+        if (callTarget) {
+            return false;
+        }
+        if (commandPosition && !keyPosition) {
+            commandPosition = false;
+            argumentMode = false;
+        }
+        functionName = false;
+        return true;
+    }
+
+    private boolean push(int type) {
+        if (depth == MAX_DEPTH) {
+            return false;
+        }
+        stack = (stack << BITS_PER_LEVEL) | type | (argumentMode ? ARGUMENT_BIT : 0);
+        depth++;
+        argumentMode = false;
+        callTarget = false;
+        return true;
+    }
+
+    private void pop() {
+        argumentMode = (stack & ARGUMENT_BIT) != 0;
+        stack >>>= BITS_PER_LEVEL;
+        depth--;
+    }
+
+    private int top() {
+        return depth == 0 ? NONE : (int) (stack & TYPE_MASK);
+    }
+
+    private int scanSingleQuoted(CharSequence text, int i, int lineStart) {
+        int length = text.length();
+        if (quote == HERE_SINGLE_QUOTED) {
+            while (i < length) {
+                char c = text.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    return i;
+                }
+                if (i == lineStart && isSingleQuote(c) && i + 1 < length && text.charAt(i + 1) == '@') {
+                    quote = NONE;
+                    return i + 2;
+                }
+                i++;
+            }
+            return i;
+        }
+        while (i < length) {
+            if (isSingleQuote(text.charAt(i))) {
+                if (i + 1 < length && isSingleQuote(text.charAt(i + 1))) {
+                    i += 2;
+                    continue;
+                }
+                quote = NONE;
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private int scanDoubleQuoted(CharSequence text, int i, int lineStart) {
+        int length = text.length();
+        boolean here = top() == HERE_STRING;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (here) {
+                if (c == '\n' || c == '\r') {
+                    return i;
+                }
+                if (i == lineStart && isDoubleQuote(c) && i + 1 < length && text.charAt(i + 1) == '@') {
+                    pop();
+                    return i + 2;
+                }
+            } else if (isDoubleQuote(c)) {
+                if (i + 1 < length && isDoubleQuote(text.charAt(i + 1))) {
+                    i += 2;
+                    continue;
+                }
+                pop();
+                return i + 1;
+            }
+            if (c == '`' && i + 1 < length && text.charAt(i + 1) != '\n' && text.charAt(i + 1) != '\r') {
+                i += 2;
+                continue;
+            }
+            if (c == '$' && i + 1 < length && text.charAt(i + 1) == '(') {
+                return open(PAREN, i + 2);
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private int skipBlockComment(CharSequence text, int i) {
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                return i;
+            }
+            if (c == '#' && i + 1 < length && text.charAt(i + 1) == '>') {
+                blockComment = false;
+                return i + 2;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipLineComment(CharSequence text, int i) {
+        int length = text.length();
+        while (i < length && text.charAt(i) != '\n' && text.charAt(i) != '\r') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipVariable(CharSequence text, int i) {
+        int length = text.length();
+        if (i >= length) {
+            return i;
+        }
+        char c = text.charAt(i);
+        if (c == '{') {
+            while (i < length && text.charAt(i) != '}') {
+                i += text.charAt(i) == '`' ? 2 : 1;
+            }
+            return Math.min(i + 1, length);
+        }
+        if (c == '$' || c == '?' || c == '^') {
+            return i + 1;
+        }
+        int start = i;
+        boolean scoped = false;
+        while (i < length) {
+            c = text.charAt(i);
+            if (isIdentifier(c)) {
+                i++;
+            } else if (c == ':' && !scoped && i > start && i + 1 < length && isIdentifier(text.charAt(i + 1))) {
+                // Scope or drive qualifier, e.g. $env:TEMP; never '::'
+                scoped = true;
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static int skipRedirection(CharSequence text, int i) {
+        int length = text.length();
+        i++;
+        if (i < length && text.charAt(i) == '>') {
+            i++;
+        }
+        if (i < length && text.charAt(i) == '&') {
+            i++;
+            if (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private int readWord(CharSequence text, int i) {
+        int length = text.length();
+        int start = i;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '`') {
+                if (i + 1 < length && text.charAt(i + 1) != '\n' && text.charAt(i + 1) != '\r') {
+                    i += 2;
+                    continue;
+                }
+                break;
+            }
+            if (isWordEnd(c) || (c == '=' && keyPosition && i > start)) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int readNumber(CharSequence text, int i) {
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isIdentifier(c) || (c == '.' && i + 1 < length && isDigit(text.charAt(i + 1)))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Numeric literals: decimal with optional fraction, exponent, type suffix and multiplier,
+     * or hexadecimal.
+     */
+    private static boolean isNumber(CharSequence text, int start, int end) {
+        int i = start;
+        if (end - i > 2 && text.charAt(i) == '0' && (text.charAt(i + 1) | 0x20) == 'x') {
+            i += 2;
+            while (i < end && Character.digit(text.charAt(i), 16) >= 0) {
+                i++;
+            }
+        } else {
+            while (i < end && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i < end && text.charAt(i) == '.') {
+                i++;
+                while (i < end && isDigit(text.charAt(i))) {
+                    i++;
+                }
+            }
+            if (i + 1 < end && (text.charAt(i) | 0x20) == 'e' && isDigit(text.charAt(i + 1))) {
+                i++;
+                while (i < end && isDigit(text.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        if (i < end && "dlDL".indexOf(text.charAt(i)) >= 0) {
+            i++;
+        }
+        if (i + 2 == end && (text.charAt(i + 1) | 0x20) == 'b' && "kmgtpKMGTP".indexOf(text.charAt(i)) >= 0) {
+            i += 2;
+        }
+        return i == end;
+    }
+
+    private static boolean isDynamicMember(char c) {
+        return c == '$' || c == '(' || c == '{' || isSingleQuote(c) || isDoubleQuote(c);
+    }
+
+    /**
+     * @return true if the member ending at {@code end} is called, with or without generic arguments
+     */
+    private static boolean isInvocation(CharSequence text, int end) {
+        int length = text.length();
+        int i = end;
+        while (i < length && isSpace(text.charAt(i))) {
+            i++;
+        }
+        if (i < length && text.charAt(i) == '[') {
+            // Generic method arguments, e.g. .Method[string]()
+            int nesting = 0;
+            do {
+                char c = text.charAt(i);
+                if (c == '[') {
+                    nesting++;
+                } else if (c == ']') {
+                    nesting--;
+                }
+                i++;
+            } while (i < length && nesting > 0);
+            while (i < length && isSpace(text.charAt(i))) {
+                i++;
+            }
+        }
+        return i < length && text.charAt(i) == '(';
+    }
+
+    /**
+     * @param dot index of the dot before the method name
+     * @param start index of the method name
+     * @param end index after the method name
+     */
+    private boolean isSafeMethod(CharSequence text, int dot, int start, int end) {
+        for (String method : SAFE_METHODS) {
+            if (equalsIgnoreCase(text, start, end, method)) {
+                return true;
+            }
+        }
+        if (!template) {
+            return false;
+        }
+        // Receiver must be a plain variable, e.g. $svc.Start()
+        int receiver = dot;
+        while (receiver > 0 && isIdentifier(text.charAt(receiver - 1))) {
+            receiver--;
+        }
+        if (receiver == dot || receiver == 0 || text.charAt(receiver - 1) != '$') {
+            return false;
+        }
+        for (int k = 0; k < TEMPLATE_RECEIVERS.length; k++) {
+            if (equalsIgnoreCase(text, receiver, dot, TEMPLATE_RECEIVERS[k])
+                    && equalsIgnoreCase(text, start, end, TEMPLATE_METHODS[k])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the variable name, without the {@code $}, is {@code ExecutionContext} in any scope
+     */
+    private static boolean isEngineVariable(CharSequence text, int start, int end) {
+        if (end > start && text.charAt(start) == '{') {
+            start++;
+            end = Math.max(start, end - 1);
+        }
+        for (int i = end - 1; i >= start; i--) {
+            if (text.charAt(i) == ':') {
+                start = i + 1;
+                break;
+            }
+        }
+        return equalsIgnoreCase(text, start, end, "executioncontext");
+    }
+
+    private static boolean isKeyword(CharSequence text, int start, int end) {
+        for (String keyword : KEYWORDS) {
+            if (equalsIgnoreCase(text, start, end, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSafeType(CharSequence text, int start, int end) {
+        if (end - start > 7 && equalsIgnoreCase(text, start, start + 7, "system.")) {
+            start += 7;
+        }
+        for (String type : SAFE_TYPES) {
+            if (equalsIgnoreCase(text, start, end, type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalsIgnoreCase(CharSequence text, int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(text.charAt(start + i)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordEnd(char c) {
+        switch (c) {
+            case '\n': case '\r': case ';': case '|': case '&': case '(': case ')':
+            case '{': case '}': case ',': case '$': case '>': case '<': case PLACEHOLDER:
+                return true;
+            default:
+                return isSpace(c) || isSingleQuote(c) || isDoubleQuote(c);
+        }
+    }
+
+    private static boolean isMemberOwner(char c) {
+        return isIdentifier(c) || c == ')' || c == ']' || c == '}' || isSingleQuote(c) || isDoubleQuote(c);
+    }
+
+    private static boolean isIdentifier(char c) {
+        if (c < 0x80) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+        return Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\f' || c == '\u000B' || (c > 0x7F && Character.isSpaceChar(c));
+    }
+
+    private static boolean isDash(char c) {
+        return c == '-' || c == '\u2013' || c == '\u2014' || c == '\u2015';
+    }
+
+    /** PowerShell accepts typographic quotes as string delimiters. */
+    private static boolean isSingleQuote(char c) {
+        return c == '\'' || c == '\u2018' || c == '\u2019' || c == '\u201A' || c == '\u201B';
+    }
+
+    private static boolean isDoubleQuote(char c) {
+        return c == '"' || c == '\u201C' || c == '\u201D' || c == '\u201E';
+    }
+}
@@ -0,0 +1,88 @@
+package com.acme.mcp.core.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Immutable character trie over command names, flattened into three arrays.
+ * The outgoing edges of node {@code n} are {@code edges[offsets[n]..offsets[n + 1])}, sorted by
+ * label. Lookups walk a slice of a {@link CharSequence} directly, so matching a token needs
+ * no substring or other allocation.
+ */
+final class CommandTrie {
+    
+    private final int[] offsets;
+    private final char[] labels;
+    private final int[] targets;
+    private final boolean[] terminal;
+    
+    CommandTrie(Collection<String> words) {
+        List<TreeMap<Character, Integer>> nodes = new ArrayList<>();
+        List<Boolean> ends = new ArrayList<>();
+        nodes.add(new TreeMap<>());
+        ends.add(false);
+        for (String word : words) {
+            int node = 0;
+            for (int i = 0; i < word.length(); i++) {
+                Integer child = nodes.get(node).get(word.charAt(i));
+                if (child == null) {
+                    child = nodes.size();
+                    nodes.add(new TreeMap<>());
+                    ends.add(false);
+                    nodes.get(node).put(word.charAt(i), child);
+                }
+                node = child;
+            }
+            ends.set(node, true);
+        }
+        
+        offsets = new int[nodes.size() + 1];
+        labels = new char[nodes.size() - 1];
+        targets = new int[nodes.size() - 1];
+        terminal = new boolean[nodes.size()];
+        int edge = 0;
+        for (int node = 0; node < nodes.size(); node++) {
+            offsets[node] = edge;
+            terminal[node] = ends.get(node);
+            for (var entry : nodes.get(node).entrySet()) {
+                labels[edge] = entry.getKey();
+                targets[edge] = entry.getValue();
+                edge++;
+            }
+        }
+        offsets[nodes.size()] = edge;
+    }
+    
+    /**
+     * @param text text holding the token
+     * @param start index of the first token character
+     * @param end index after the last token character
+     * @return true if the token is exactly one of the words
+     */
+    boolean contains(CharSequence text, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            int low = offsets[node];
+            int high = offsets[node + 1] - 1;
+            node = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (labels[mid] < c) {
+                    low = mid + 1;
+                } else if (labels[mid] > c) {
+                    high = mid - 1;
+                } else {
+                    node = targets[mid];
+                    break;
+                }
+            }
+            if (node < 0) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+}
@@ -0,0 +1,176 @@
+package com.acme.mcp.core.security;
+
+import com.acme.mcp.core.windows.PowerShellScript;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PowerShell script with {@code {{name}}} placeholders.
+ * The template is compiled into a {@link PowerShellScript} in which every placeholder is a
+ * {@code $name} parameter, so values are passed next to the script instead of being rendered
+ * into it and can never be parsed as code. Once the template is verified by
+ * {@link Allowlist#findDisallowedLine(ScriptTemplate)}, its runs therefore need no further
+ * checks. Placeholders must stand outside strings and comments, where a parameter would not
+ * be expanded.
+ * <p>
+ * Templates are immutable and meant to be declared as static constants.
+ */
+public final class ScriptTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{([A-Za-z_][A-Za-z0-9_]*)}}");
+
+    private final List<String> lines;
+    private final List<String> parameters;
+    private final String[][] fragments;
+    private final String[][] names;
+    private final String hash;
+    private final PowerShellScript script;
+
+    private ScriptTemplate(List<String> lines) {
+        this.lines = List.copyOf(lines);
+        this.fragments = new String[lines.size()][];
+        this.names = new String[lines.size()][];
+
+        Set<String> parameterNames = new LinkedHashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.indexOf(CommandScanner.PLACEHOLDER) >= 0) {
+                throw new IllegalArgumentException("Script line contains a reserved character: " + line);
+            }
+            List<String> lineFragments = new ArrayList<>();
+            List<String> lineNames = new ArrayList<>();
+            Matcher matcher = PLACEHOLDER.matcher(line);
+            int last = 0;
+            while (matcher.find()) {
+                lineFragments.add(line.substring(last, matcher.start()));
+                lineNames.add(matcher.group(1));
+                parameterNames.add(matcher.group(1));
+                last = matcher.end();
+            }
+            lineFragments.add(line.substring(last));
+            fragments[i] = lineFragments.toArray(new String[0]);
+            names[i] = lineNames.toArray(new String[0]);
+        }
+        this.parameters = List.copyOf(parameterNames);
+        this.hash = sha256(this.lines);
+        this.script = compile();
+    }
+
+    /**
+     * Create a template from script lines.
+     * @param lines script lines, executed in order
+     * @return the template
+     * @throws IllegalArgumentException if a line contains the reserved character U+E000
+     *         or a placeholder is named after a PowerShell automatic variable
+     */
+    public static ScriptTemplate of(String... lines) {
+        return new ScriptTemplate(List.of(lines));
+    }
+
+    /**
+     * Create a template from script lines.
+     * @param lines script lines, executed in order
+     * @return the template
+     */
+    public static ScriptTemplate of(List<String> lines) {
+        return new ScriptTemplate(lines);
+    }
+
+    /**
+     * Get the template lines with their placeholders.
+     * @return unmodifiable list of lines
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Get the placeholder names in order of first appearance.
+     * @return unmodifiable list of parameter names
+     */
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Get the SHA-256 hash of the template text, used to cache verification verdicts.
+     * @return lowercase hex hash
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Get the compiled script, with placeholders turned into parameters.
+     * @return script built once for this template
+     */
+    public PowerShellScript getScript() {
+        return script;
+    }
+
+    /**
+     * Lines with every placeholder replaced by the scanner's placeholder mark.
+     */
+    List<String> verificationLines() {
+        List<String> result = new ArrayList<>(lines.size());
+        for (int i = 0; i < fragments.length; i++) {
+            result.add(String.join(String.valueOf(CommandScanner.PLACEHOLDER), fragments[i]));
+        }
+        return result;
+    }
+
+    private PowerShellScript compile() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < fragments.length; i++) {
+            if (i > 0) {
+                body.append('\n');
+            }
+            for (int j = 0; j < names[i].length; j++) {
+                String next = fragments[i][j + 1];
+                body.append(fragments[i][j]);
+                if (!next.isEmpty() && isVariableNameChar(next.charAt(0))) {
+                    // Braced so that the following text is not read as part of the variable name
+                    body.append("${").append(names[i][j]).append('}');
+                } else {
+                    body.append('$').append(names[i][j]);
+                }
+            }
+            body.append(fragments[i][names[i].length]);
+        }
+        return new PowerShellScript(parameters, body.toString());
+    }
+
+    private static boolean isVariableNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == ':' || c == '?';
+    }
+
+    private static String sha256(List<String> lines) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String line : lines) {
+                // Length-prefixed so that line boundaries are part of the hash
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptTemplate{" + hash.substring(0, 12) + ", parameters=" + parameters + "}";
+    }
+}
@@ -0,0 +1,68 @@
+package com.acme.mcp.core.tool;
+
+/**
+ * Outcome of one asset in a fleet fan-out.
+ */
+public class AssetResult {
+    
+    private final String assetId;
+    private final ExecuteResult result;
+    private final String error;
+    private final long latencyNanos;
+    
+    /**
+     * @param assetId asset the tool ran against
+     * @param result execution result, null if the tool threw
+     * @param error message of the exception thrown by the tool, null if it returned a result
+     * @param latencyNanos time spent executing the tool
+     */
+    public AssetResult(String assetId, ExecuteResult result, String error, long latencyNanos) {
+        this.assetId = assetId;
+        this.result = result;
+        this.error = error;
+        this.latencyNanos = latencyNanos;
+    }
+    
+    public String getAssetId() {
+        return assetId;
+    }
+    
+    /**
+     * @return execution result, or null if the tool threw before producing one
+     */
+    public ExecuteResult getResult() {
+        return result;
+    }
+    
+    /**
+     * @return message of the exception thrown by the tool, or null
+     */
+    public String getError() {
+        return error;
+    }
+    
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+    
+    /**
+     * @return status of the result; ERROR if the tool threw
+     */
+    public ExecuteResult.Status getStatus() {
+        return result == null ? ExecuteResult.Status.ERROR : result.getStatus();
+    }
+    
+    public boolean isSuccess() {
+        return result != null && result.isSuccess();
+    }
+    
+    @Override
+    public String toString() {
+        return "AssetResult{" +
+                "assetId='" + assetId + '\'' +
+                ", status=" + getStatus() +
+                ", latencyMillis=" + latencyNanos / 1_000_000 +
+                (error != null ? ", error='" + error + '\'' : "") +
+                '}';
+    }
+}
@@ -0,0 +1,124 @@
+package com.acme.mcp.core.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * Tool running another tool through a {@link ResultCache}.
+ * Cached tools are answered from the cache; any other tool invalidates the results cached for
+ * its asset before it starts and after it finishes.
+ */
+class CachingTool implements Tool {
+
+    private final Tool delegate;
+    private final ResultCache cache;
+
+    CachingTool(Tool delegate, ResultCache cache) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Tool cannot be null");
+        }
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getDescription() {
+        return delegate.getDescription();
+    }
+
+    @Override
+    public JsonNode getJsonSchema() {
+        return delegate.getJsonSchema();
+    }
+
+    @Override
+    public boolean requiresConfirmation() {
+        return delegate.requiresConfirmation();
+    }
+
+    @Override
+    public List<String> getOsSupport() {
+        return delegate.getOsSupport();
+    }
+
+    @Override
+    public List<String> aliases() {
+        return delegate.aliases();
+    }
+
+    @Override
+    public void prepare() {
+        delegate.prepare();
+    }
+
+    @Override
+    public ExecuteResult execute(ExecutionContext context, JsonNode args) {
+        if (cache.isCached(getName())) {
+            return cache.get(delegate, context, args, () -> delegate.execute(context, args));
+        }
+        cache.invalidate(context.getAssetId());
+        try {
+            return delegate.execute(context, args);
+        } finally {
+            cache.invalidate(context.getAssetId());
+        }
+    }
+
+    @Override
+    public Flow.Publisher<OutputChunk> executeStreaming(ExecutionContext context, JsonNode args) {
+        if (cache.isCached(getName())) {
+            // Cached output is replayed once the result is known
+            return new ExecutionPublisher(listener -> execute(context, args), true);
+        }
+        Flow.Publisher<OutputChunk> publisher = delegate.executeStreaming(context, args);
+        return subscriber -> {
+            cache.invalidate(context.getAssetId());
+            publisher.subscribe(new InvalidatingSubscriber(subscriber, context.getAssetId()));
+        };
+    }
+
+    /**
+     * Forwards output and invalidates the asset once the execution ends.
+     */
+    private final class InvalidatingSubscriber implements Flow.Subscriber<OutputChunk> {
+        private final Flow.Subscriber<? super OutputChunk> subscriber;
+        private final String assetId;
+
+        InvalidatingSubscriber(Flow.Subscriber<? super OutputChunk> subscriber, String assetId) {
+            this.subscriber = subscriber;
+            this.assetId = assetId;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscriber.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(OutputChunk chunk) {
+            if (chunk.getType() == OutputChunk.Type.EXIT) {
+                cache.invalidate(assetId);
+            }
+            subscriber.onNext(chunk);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            cache.invalidate(assetId);
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            cache.invalidate(assetId);
+            subscriber.onComplete();
+        }
+    }
+}
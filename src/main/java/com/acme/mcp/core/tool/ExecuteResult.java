@@ -1,63 +1,216 @@
 package com.acme.mcp.core.tool;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.InputStream;
+
 /**
  * Result of tool execution.
  * Contains execution metadata and output information.
+ * Output is held in bounded {@link OutputCapture}s; use the head, tail and stream
+ * accessors to inspect large outputs without materializing them.
+ * Structured runs also carry the parsed stdout as a JSON payload.
  */
 public class ExecuteResult {
-    
+
     public enum Status {
         SUCCESS,
         FAILURE,
-        ERROR
+        ERROR,
+        /** Execution exceeded its deadline; output captured before the process was killed is kept. */
+        TIMEOUT
     }
-    
+
     private final String executionId;
     private final int exitCode;
-    private final String stdout;
-    private final String stderr;
+    private final OutputCapture stdout;
+    private final OutputCapture stderr;
     private final Status status;
-    
+    private final JsonNode payload;
+
     public ExecuteResult(String executionId, int exitCode, String stdout, String stderr, Status status) {
+        this(executionId, exitCode, OutputCapture.of(stdout), OutputCapture.of(stderr), status);
+    }
+
+    public ExecuteResult(String executionId, int exitCode, OutputCapture stdout, OutputCapture stderr, Status status) {
+        this(executionId, exitCode, stdout, stderr, status, null);
+    }
+
+    private ExecuteResult(String executionId, int exitCode, OutputCapture stdout, OutputCapture stderr, Status status,
+                          JsonNode payload) {
         this.executionId = executionId;
         this.exitCode = exitCode;
         this.stdout = stdout;
         this.stderr = stderr;
         this.status = status;
+        this.payload = payload;
     }
-    
+
+    /**
+     * Copy this result with a parsed payload. The output captures are shared, not copied.
+     * @param payload parsed stdout, may be null
+     * @return result carrying the payload
+     */
+    public ExecuteResult withPayload(JsonNode payload) {
+        return new ExecuteResult(executionId, exitCode, stdout, stderr, status, payload);
+    }
+
+    /**
+     * Copy this result with right-sized in-memory output, so that holding it does not keep the
+     * spare capacity of the capture buffers alive.
+     * @return compact copy of this result
+     * @throws IllegalStateException if the output was spilled to disk
+     */
+    public ExecuteResult compact() {
+        return new ExecuteResult(executionId, exitCode, stdout.compact(), stderr.compact(), status, payload);
+    }
+
     public String getExecutionId() {
         return executionId;
     }
-    
+
     public int getExitCode() {
         return exitCode;
     }
-    
+
+    /**
+     * Complete standard output. Reads spilled output back into memory.
+     * @return standard output text
+     */
     public String getStdout() {
-        return stdout;
+        return stdout.text();
     }
-    
+
+    /**
+     * Complete standard error. Reads spilled output back into memory.
+     * @return standard error text
+     */
     public String getStderr() {
-        return stderr;
+        return stderr.text();
+    }
+
+    /**
+     * @param maxBytes maximum number of bytes to return
+     * @return start of standard output
+     */
+    public String getStdoutHead(int maxBytes) {
+        return stdout.head(maxBytes);
+    }
+
+    /**
+     * @param maxBytes maximum number of bytes to return
+     * @return end of standard output
+     */
+    public String getStdoutTail(int maxBytes) {
+        return stdout.tail(maxBytes);
+    }
+
+    /**
+     * @param maxBytes maximum number of bytes to return
+     * @return start of standard error
+     */
+    public String getStderrHead(int maxBytes) {
+        return stderr.head(maxBytes);
     }
-    
+
+    /**
+     * @param maxBytes maximum number of bytes to return
+     * @return end of standard error
+     */
+    public String getStderrTail(int maxBytes) {
+        return stderr.tail(maxBytes);
+    }
+
+    /**
+     * Copy the start of standard output into a caller-owned buffer.
+     * @param dest destination buffer
+     * @param maxBytes maximum number of bytes to copy
+     * @return number of UTF-8 bytes copied
+     */
+    public int copyStdoutHead(byte[] dest, int maxBytes) {
+        return stdout.copyHead(dest, maxBytes);
+    }
+
+    /**
+     * Copy the start of standard error into a caller-owned buffer.
+     * @param dest destination buffer
+     * @param maxBytes maximum number of bytes to copy
+     * @return number of UTF-8 bytes copied
+     */
+    public int copyStderrHead(byte[] dest, int maxBytes) {
+        return stderr.copyHead(dest, maxBytes);
+    }
+
+    /**
+     * @return stream over the complete standard output, including spilled data
+     */
+    public InputStream openStdout() {
+        return stdout.openStream();
+    }
+
+    /**
+     * @return stream over the complete standard error, including spilled data
+     */
+    public InputStream openStderr() {
+        return stderr.openStream();
+    }
+
+    /**
+     * @return total size of standard output in bytes
+     */
+    public long getStdoutBytes() {
+        return stdout.size();
+    }
+
+    /**
+     * @return total size of standard error in bytes
+     */
+    public long getStderrBytes() {
+        return stderr.size();
+    }
+
+    /**
+     * @return number of heap bytes held by the output buffers
+     */
+    public long getRetainedBytes() {
+        return (long) stdout.retainedBytes() + stderr.retainedBytes();
+    }
+
     public Status getStatus() {
         return status;
     }
-    
+
+    /**
+     * Parsed stdout of a structured run: the JSON document for {@link OutputFormat#JSON}, an array
+     * of the documents for {@link OutputFormat#NDJSON}.
+     * @return parsed output, or null for text runs and output that is not valid JSON
+     */
+    public JsonNode getPayload() {
+        return payload;
+    }
+
     public boolean isSuccess() {
         return status == Status.SUCCESS && exitCode == 0;
     }
-    
+
+    /**
+     * Delete temporary files holding spilled output. The output must not be read afterwards.
+     */
+    public void release() {
+        stdout.release();
+        stderr.release();
+    }
+
     @Override
     public String toString() {
         return "ExecuteResult{" +
                 "executionId='" + executionId + '\'' +
                 ", exitCode=" + exitCode +
                 ", status=" + status +
-                ", stdout='" + stdout + '\'' +
-                ", stderr='" + stderr + '\'' +
+                ", stdoutBytes=" + stdout.size() +
+                ", stderrBytes=" + stderr.size() +
+                ", stdout='" + stdout.head(200) + '\'' +
+                ", stderr='" + stderr.head(200) + '\'' +
                 '}';
     }
 }
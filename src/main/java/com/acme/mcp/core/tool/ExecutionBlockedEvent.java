@@ -0,0 +1,25 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AuditEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Audit event logged when a command is rejected by the allowlist.
+ * @param tool tool name
+ * @param command rejected command
+ */
+public record ExecutionBlockedEvent(String tool, String command) implements AuditEvent {
+    
+    @Override
+    public String getEvent() {
+        return "tool_execution_blocked";
+    }
+    
+    @Override
+    public void writeFields(JsonGenerator generator) throws IOException {
+        generator.writeStringField("tool", tool);
+        generator.writeStringField("command", command);
+    }
+}
@@ -0,0 +1,33 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AuditEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Audit event logged when a call is answered by a {@link ResultCache} without running the tool,
+ * either from a cached result or by sharing an identical call that was already running.
+ * @param tool tool name
+ * @param context execution context of the answered call
+ * @param executionId ID of the execution that produced the result
+ * @param shared true if the call waited for a running identical call, false for a cache hit
+ */
+public record ExecutionCachedEvent(String tool, ExecutionContext context, String executionId,
+                                   boolean shared) implements AuditEvent {
+    
+    @Override
+    public String getEvent() {
+        return "tool_execution_cached";
+    }
+    
+    @Override
+    public void writeFields(JsonGenerator generator) throws IOException {
+        generator.writeStringField("tool", tool);
+        generator.writeStringField("userId", context.getUserId());
+        generator.writeStringField("assetId", context.getAssetId());
+        generator.writeStringField("correlationId", context.getCorrelationId());
+        generator.writeStringField("executionId", executionId);
+        generator.writeStringField("source", shared ? "single_flight" : "cache");
+    }
+}
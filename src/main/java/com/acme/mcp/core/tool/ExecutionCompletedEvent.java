@@ -0,0 +1,111 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AuditEvent;
+import com.acme.mcp.core.audit.AuditJson;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Audit event logged after a tool's PowerShell commands finished.
+ * The output previews and result fields are copied when the event is created, so a queued
+ * event does not keep the result and its capture buffers reachable. Previews are copied from
+ * the head of the captured output into right-sized arrays and written as UTF-8, without
+ * building substrings.
+ * @param tool tool name
+ * @param context execution context
+ * @param executionId execution ID
+ * @param exitCode process exit code
+ * @param status execution status
+ * @param stdoutBytes total stdout size in bytes
+ * @param stderrBytes total stderr size in bytes
+ * @param stdoutPreview UTF-8 stdout preview, with a truncation marker if cut
+ * @param stderrPreview UTF-8 stderr preview, with a truncation marker if cut
+ * @param extra tool-specific audit data, may be null
+ */
+public record ExecutionCompletedEvent(String tool, ExecutionContext context, String executionId, int exitCode,
+                                      ExecuteResult.Status status, long stdoutBytes, long stderrBytes,
+                                      byte[] stdoutPreview, byte[] stderrPreview,
+                                      Map<String, Object> extra) implements AuditEvent {
+    
+    /**
+     * Number of output bytes included in previews.
+     */
+    public static final int PREVIEW_BYTES = 200;
+    
+    private static final byte[] TRUNCATED = "... [TRUNCATED]".getBytes(StandardCharsets.UTF_8);
+    private static final ThreadLocal<byte[]> PREVIEW_BUFFER = ThreadLocal.withInitial(() -> new byte[PREVIEW_BYTES]);
+    private static final Set<String> FIELDS = Set.of(
+        "event", "timestamp", "tool", "userId", "assetId", "correlationId", "executionId", "exitCode",
+        "status", "success", "stdoutLen", "stderrLen", "stdoutPreview", "stderrPreview");
+    
+    /**
+     * Create the event from an execution result, copying the fields and previews it writes.
+     * @param tool tool name
+     * @param context execution context
+     * @param result execution result
+     * @param extra tool-specific audit data, may be null
+     */
+    public ExecutionCompletedEvent(String tool, ExecutionContext context, ExecuteResult result,
+                                   Map<String, Object> extra) {
+        this(tool, context, result.getExecutionId(), result.getExitCode(), result.getStatus(),
+            result.getStdoutBytes(), result.getStderrBytes(),
+            preview(result.getStdoutBytes(), result::copyStdoutHead),
+            preview(result.getStderrBytes(), result::copyStderrHead), extra);
+    }
+    
+    @Override
+    public String getEvent() {
+        return "tool_execution_completed";
+    }
+    
+    @Override
+    public void writeFields(JsonGenerator generator) throws IOException {
+        generator.writeStringField("tool", tool);
+        generator.writeStringField("userId", context.getUserId());
+        generator.writeStringField("assetId", context.getAssetId());
+        generator.writeStringField("correlationId", context.getCorrelationId());
+        generator.writeStringField("executionId", executionId);
+        generator.writeNumberField("exitCode", exitCode);
+        generator.writeStringField("status", status.name());
+        generator.writeBooleanField("success", status == ExecuteResult.Status.SUCCESS && exitCode == 0);
+        generator.writeNumberField("stdoutLen", stdoutBytes);
+        generator.writeNumberField("stderrLen", stderrBytes);
+        if (stdoutPreview != null) {
+            generator.writeFieldName("stdoutPreview");
+            generator.writeUTF8String(stdoutPreview, 0, stdoutPreview.length);
+        }
+        if (stderrPreview != null) {
+            generator.writeFieldName("stderrPreview");
+            generator.writeUTF8String(stderrPreview, 0, stderrPreview.length);
+        }
+        AuditJson.writeExtra(generator, extra, FIELDS);
+    }
+    
+    /**
+     * Copy the head of one output stream into an array holding exactly the preview.
+     * @return the preview, or null if the stream is empty
+     */
+    private static byte[] preview(long totalBytes, HeadCopier copier) {
+        if (totalBytes == 0) {
+            return null;
+        }
+        byte[] buffer = PREVIEW_BUFFER.get();
+        int length = copier.copyHead(buffer, PREVIEW_BYTES);
+        if (totalBytes <= PREVIEW_BYTES) {
+            return Arrays.copyOf(buffer, length);
+        }
+        byte[] preview = new byte[length + TRUNCATED.length];
+        System.arraycopy(buffer, 0, preview, 0, length);
+        System.arraycopy(TRUNCATED, 0, preview, length, TRUNCATED.length);
+        return preview;
+    }
+    
+    private interface HeadCopier {
+        int copyHead(byte[] dest, int maxBytes);
+    }
+}
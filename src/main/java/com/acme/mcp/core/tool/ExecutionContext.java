@@ -9,11 +9,28 @@ public class ExecutionContext {
     private final String userId;
     private final String assetId;
     private final String correlationId;
+    private final OutputFormat outputFormat;
     
     public ExecutionContext(String userId, String assetId, String correlationId) {
+        this(userId, assetId, correlationId, OutputFormat.TEXT);
+    }
+    
+    /**
+     * Create a context that requests a specific output format.
+     * @param userId user executing the tool
+     * @param assetId asset the tool runs on
+     * @param correlationId id correlating related executions
+     * @param outputFormat requested output format; tools answer a structured request with
+     *        {@link OutputFormat#JSON} or, for lists, {@link OutputFormat#NDJSON}
+     */
+    public ExecutionContext(String userId, String assetId, String correlationId, OutputFormat outputFormat) {
+        if (outputFormat == null) {
+            throw new IllegalArgumentException("Output format cannot be null");
+        }
         this.userId = userId;
         this.assetId = assetId;
         this.correlationId = correlationId;
+        this.outputFormat = outputFormat;
     }
     
     public String getUserId() {
@@ -28,12 +45,24 @@ public class ExecutionContext {
         return correlationId;
     }
     
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+    
+    /**
+     * @return true if the caller asked for machine readable output
+     */
+    public boolean isStructuredOutput() {
+        return outputFormat.isStructured();
+    }
+    
     @Override
     public String toString() {
         return "ExecutionContext{" +
                 "userId='" + userId + '\'' +
                 ", assetId='" + assetId + '\'' +
                 ", correlationId='" + correlationId + '\'' +
+                ", outputFormat=" + outputFormat +
                 '}';
     }
 }
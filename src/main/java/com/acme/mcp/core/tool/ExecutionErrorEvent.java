@@ -0,0 +1,29 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AuditEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Audit event logged when running a tool's commands failed with an exception.
+ * @param tool tool name
+ * @param context execution context
+ * @param error exception message
+ */
+public record ExecutionErrorEvent(String tool, ExecutionContext context, String error) implements AuditEvent {
+    
+    @Override
+    public String getEvent() {
+        return "tool_execution_error";
+    }
+    
+    @Override
+    public void writeFields(JsonGenerator generator) throws IOException {
+        generator.writeStringField("tool", tool);
+        generator.writeStringField("userId", context.getUserId());
+        generator.writeStringField("assetId", context.getAssetId());
+        generator.writeStringField("correlationId", context.getCorrelationId());
+        generator.writeStringField("error", error);
+    }
+}
@@ -0,0 +1,95 @@
+package com.acme.mcp.core.tool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Publisher that starts one tool execution when subscribed and publishes its output chunks.
+ * Delivery is backed by a bounded {@link SubmissionPublisher}: when the subscriber falls behind,
+ * the producing thread blocks, which stops draining the process pipes and slows the process down
+ * instead of buffering its output in memory. The last chunk is always an EXIT chunk carrying the result.
+ * Only a single subscriber is supported.
+ */
+public class ExecutionPublisher implements Flow.Publisher<OutputChunk> {
+
+    /**
+     * Default number of chunks buffered for a slow subscriber.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService STREAMING_THREADS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "tool-streaming-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Function<OutputListener, ExecuteResult> execution;
+    private final boolean replayOutput;
+    private final int bufferSize;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Create a publisher with the default buffer size.
+     * @param execution runs the tool, forwarding output to the given listener as it is produced
+     * @param replayOutput if true, stdout and stderr of the result are published after execution,
+     *                     for executions that cannot report output incrementally
+     */
+    public ExecutionPublisher(Function<OutputListener, ExecuteResult> execution, boolean replayOutput) {
+        this(execution, replayOutput, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a publisher.
+     * @param execution runs the tool, forwarding output to the given listener as it is produced
+     * @param replayOutput if true, stdout and stderr of the result are published after execution
+     * @param bufferSize number of chunks buffered before the producer blocks
+     */
+    public ExecutionPublisher(Function<OutputListener, ExecuteResult> execution, boolean replayOutput, int bufferSize) {
+        this.execution = execution;
+        this.replayOutput = replayOutput;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super OutputChunk> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Execution output can only be subscribed once"));
+            return;
+        }
+
+        SubmissionPublisher<OutputChunk> publisher = new SubmissionPublisher<>(STREAMING_THREADS, bufferSize);
+        publisher.subscribe(subscriber);
+        STREAMING_THREADS.execute(() -> {
+            try {
+                ExecuteResult result = execution.apply(publisher::submit);
+                if (replayOutput) {
+                    if (result.getStdout() != null && !result.getStdout().isEmpty()) {
+                        publisher.submit(OutputChunk.stdout(result.getStdout()));
+                    }
+                    if (result.getStderr() != null && !result.getStderr().isEmpty()) {
+                        publisher.submit(OutputChunk.stderr(result.getStderr()));
+                    }
+                }
+                publisher.submit(OutputChunk.exit(result));
+                publisher.close();
+            } catch (RuntimeException e) {
+                publisher.closeExceptionally(e);
+            }
+        });
+    }
+}
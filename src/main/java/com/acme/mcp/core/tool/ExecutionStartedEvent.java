@@ -0,0 +1,46 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AuditEvent;
+import com.acme.mcp.core.audit.AuditJson;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Audit event logged before a tool runs its PowerShell commands.
+ * @param tool tool name
+ * @param context execution context
+ * @param commands commands about to run, written as a JSON array
+ * @param dryRun whether the runner is in dry-run mode
+ * @param extra tool-specific audit data, may be null
+ */
+public record ExecutionStartedEvent(String tool, ExecutionContext context, List<String> commands,
+                                    boolean dryRun, Map<String, Object> extra) implements AuditEvent {
+    
+    private static final Set<String> FIELDS = Set.of(
+        "event", "timestamp", "tool", "userId", "assetId", "correlationId", "commands", "commandCount", "dryRun");
+    
+    @Override
+    public String getEvent() {
+        return "tool_execution_started";
+    }
+    
+    @Override
+    public void writeFields(JsonGenerator generator) throws IOException {
+        generator.writeStringField("tool", tool);
+        generator.writeStringField("userId", context.getUserId());
+        generator.writeStringField("assetId", context.getAssetId());
+        generator.writeStringField("correlationId", context.getCorrelationId());
+        generator.writeArrayFieldStart("commands");
+        for (String command : commands) {
+            generator.writeString(command);
+        }
+        generator.writeEndArray();
+        generator.writeNumberField("commandCount", commands.size());
+        generator.writeBooleanField("dryRun", dryRun);
+        AuditJson.writeExtra(generator, extra, FIELDS);
+    }
+}
@@ -0,0 +1,135 @@
+package com.acme.mcp.core.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs one tool across many assets in parallel.
+ * Fan-outs share a pool of {@code width} worker threads; each fan-out starts at most
+ * {@code width} workers that claim assets one at a time, so no task is queued per asset
+ * and no more than {@code width} executions run at once. Every execution gets its own {@link ExecutionContext} for its asset,
+ * sharing the user and correlation ID of the fan-out.
+ */
+public class FleetExecutor implements AutoCloseable {
+    
+    private final ToolRegistry registry;
+    private final int width;
+    private final ExecutorService workers;
+    
+    /**
+     * Create a fleet executor running up to 32 assets in parallel.
+     * @param registry registry used to resolve tool names and aliases
+     */
+    public FleetExecutor(ToolRegistry registry) {
+        this(registry, 32);
+    }
+    
+    /**
+     * Create a fleet executor with a custom width.
+     * @param registry registry used to resolve tool names and aliases
+     * @param width maximum number of assets executed in parallel
+     */
+    public FleetExecutor(ToolRegistry registry, int width) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null");
+        }
+        if (width < 1) {
+            throw new IllegalArgumentException("Width must be at least 1");
+        }
+        this.registry = registry;
+        this.width = width;
+        
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(width, width, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "fleet-worker-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        this.workers = pool;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    /**
+     * Start running a tool against every asset.
+     * @param toolName tool name or alias
+     * @param args tool arguments as JSON, shared by all assets
+     * @param assetIds assets to run against
+     * @param userId user starting the fan-out
+     * @param correlationId correlation ID shared by all executions
+     * @param listener receives each asset result as it completes, may be null
+     * @return handle for the running fan-out
+     * @throws IllegalArgumentException if the tool is unknown or the arguments do not match its schema
+     */
+    public FleetRun fanOut(String toolName, JsonNode args, Collection<String> assetIds,
+                           String userId, String correlationId, Consumer<AssetResult> listener) {
+        Tool tool = registry.get(toolName);
+        if (tool == null) {
+            throw new IllegalArgumentException("Unknown tool: " + toolName);
+        }
+        // Validated once for the whole fleet, before any asset runs
+        JsonNode validated = registry.validateArguments(tool, args);
+        
+        FleetRun run = new FleetRun(List.copyOf(assetIds), listener);
+        int workerCount = Math.min(width, assetIds.size());
+        AtomicInteger activeWorkers = new AtomicInteger(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(() -> {
+                try {
+                    String assetId;
+                    while ((assetId = run.nextAsset()) != null) {
+                        executeOne(run, tool, validated, assetId, userId, correlationId);
+                    }
+                } finally {
+                    // Also when an Error ended this worker, so the run still completes
+                    run.workerStopped(activeWorkers.decrementAndGet());
+                }
+            });
+        }
+        return run;
+    }
+    
+    /**
+     * Execute the tool against one asset and record the outcome. An Error is recorded as a
+     * failed asset before it is rethrown, so the asset is never left without a result.
+     */
+    private static void executeOne(FleetRun run, Tool tool, JsonNode args, String assetId,
+                                   String userId, String correlationId) {
+        ExecutionContext context = new ExecutionContext(userId, assetId, correlationId);
+        long start = System.nanoTime();
+        AssetResult outcome;
+        try {
+            ExecuteResult result = tool.execute(context, args);
+            outcome = new AssetResult(assetId, result, null, System.nanoTime() - start);
+        } catch (Throwable e) {
+            String message = e instanceof Error || e.getMessage() == null ? e.toString() : e.getMessage();
+            run.record(new AssetResult(assetId, null, message, System.nanoTime() - start));
+            if (e instanceof Error error) {
+                throw error;
+            }
+            return;
+        }
+        run.record(outcome);
+    }
+    
+    /**
+     * Stop accepting fan-outs and let running ones finish.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,127 @@
+package com.acme.mcp.core.tool;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Handle of a running fleet fan-out.
+ * Keeps a running aggregate that can be read at any time with {@link #getSummary()};
+ * per-asset results are passed to the listener given to {@link FleetExecutor#fanOut}
+ * and are not retained.
+ */
+public class FleetRun {
+    
+    private final List<String> assetIds;
+    private final Consumer<AssetResult> listener;
+    private final AtomicInteger nextAsset = new AtomicInteger();
+    private final CompletableFuture<FleetSummary> completion = new CompletableFuture<>();
+    private final long startNanos = System.nanoTime();
+    private volatile boolean cancelled;
+    
+    // Guarded by this
+    private final long[] latencies;
+    private int completed;
+    private int success;
+    private int failure;
+    private int timeout;
+    private int error;
+    
+    FleetRun(List<String> assetIds, Consumer<AssetResult> listener) {
+        this.assetIds = assetIds;
+        this.listener = listener;
+        this.latencies = new long[assetIds.size()];
+        if (assetIds.isEmpty()) {
+            completion.complete(getSummary());
+        }
+    }
+    
+    /**
+     * Claim the next asset to execute.
+     * @return asset ID, or null once all assets are claimed or the run was cancelled
+     */
+    String nextAsset() {
+        if (cancelled) {
+            return null;
+        }
+        int index = nextAsset.getAndIncrement();
+        return index < assetIds.size() ? assetIds.get(index) : null;
+    }
+    
+    void record(AssetResult result) {
+        FleetSummary finished = null;
+        synchronized (this) {
+            latencies[completed++] = result.getLatencyNanos();
+            switch (result.getStatus()) {
+                case SUCCESS -> success++;
+                case FAILURE -> failure++;
+                case TIMEOUT -> timeout++;
+                default -> error++;
+            }
+            if (completed == assetIds.size()) {
+                finished = getSummary();
+            }
+        }
+        if (listener != null) {
+            try {
+                listener.accept(result);
+            } catch (RuntimeException e) {
+                // A failing listener must not stop the remaining assets
+            }
+        }
+        if (finished != null) {
+            completion.complete(finished);
+        }
+    }
+    
+    /**
+     * Called by a worker that stopped claiming assets; completes the run if it was cancelled
+     * and no other worker is still executing.
+     */
+    synchronized void workerStopped(int remainingWorkers) {
+        if (remainingWorkers == 0 && !completion.isDone()) {
+            completion.complete(getSummary());
+        }
+    }
+    
+    /**
+     * Stop starting executions for assets that have not been claimed yet.
+     * Executions already running finish and are recorded; the completion future then
+     * completes with a summary whose completed count is below the total.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * @return future completed with the final summary once every started execution has finished
+     */
+    public CompletableFuture<FleetSummary> completion() {
+        return completion;
+    }
+    
+    /**
+     * @return snapshot of the running aggregate
+     */
+    public synchronized FleetSummary getSummary() {
+        long[] sorted = Arrays.copyOf(latencies, completed);
+        Arrays.sort(sorted);
+        return new FleetSummary(assetIds.size(), completed, success, failure, timeout, error,
+            percentileMillis(sorted, 50), percentileMillis(sorted, 90), percentileMillis(sorted, 99),
+            (System.nanoTime() - startNanos) / 1_000_000);
+    }
+    
+    private static double percentileMillis(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+}
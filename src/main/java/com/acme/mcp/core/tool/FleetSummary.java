@@ -0,0 +1,107 @@
+package com.acme.mcp.core.tool;
+
+/**
+ * Aggregate of a fleet fan-out at a point in time.
+ * Latency percentiles use the nearest-rank method over the assets finished so far.
+ */
+public class FleetSummary {
+    
+    private final int total;
+    private final int completed;
+    private final int success;
+    private final int failure;
+    private final int timeout;
+    private final int error;
+    private final double p50Millis;
+    private final double p90Millis;
+    private final double p99Millis;
+    private final long elapsedMillis;
+    
+    public FleetSummary(int total, int completed, int success, int failure, int timeout, int error,
+                        double p50Millis, double p90Millis, double p99Millis, long elapsedMillis) {
+        this.total = total;
+        this.completed = completed;
+        this.success = success;
+        this.failure = failure;
+        this.timeout = timeout;
+        this.error = error;
+        this.p50Millis = p50Millis;
+        this.p90Millis = p90Millis;
+        this.p99Millis = p99Millis;
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    /**
+     * @return number of assets in the fan-out
+     */
+    public int getTotal() {
+        return total;
+    }
+    
+    /**
+     * @return number of assets finished so far
+     */
+    public int getCompleted() {
+        return completed;
+    }
+    
+    public int getSuccessCount() {
+        return success;
+    }
+    
+    public int getFailureCount() {
+        return failure;
+    }
+    
+    public int getTimeoutCount() {
+        return timeout;
+    }
+    
+    /**
+     * @return number of assets whose execution ended with ERROR status or an exception
+     */
+    public int getErrorCount() {
+        return error;
+    }
+    
+    public double getP50Millis() {
+        return p50Millis;
+    }
+    
+    public double getP90Millis() {
+        return p90Millis;
+    }
+    
+    public double getP99Millis() {
+        return p99Millis;
+    }
+    
+    /**
+     * @return wall-clock time since the fan-out started
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    /**
+     * @return true if every asset has finished
+     */
+    public boolean isDone() {
+        return completed == total;
+    }
+    
+    @Override
+    public String toString() {
+        return "FleetSummary{" +
+                "completed=" + completed + "/" + total +
+                ", success=" + success +
+                ", failure=" + failure +
+                ", timeout=" + timeout +
+                ", error=" + error +
+                ", p50Millis=" + p50Millis +
+                ", p90Millis=" + p90Millis +
+                ", p99Millis=" + p99Millis +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,27 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AuditEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Audit event logged when an argument does not match the tool's schema.
+ * @param tool tool name
+ * @param field name of the invalid field, or null if the arguments are not an object
+ * @param reason why the argument was rejected
+ */
+public record InvalidArgumentEvent(String tool, String field, String reason) implements AuditEvent {
+    
+    @Override
+    public String getEvent() {
+        return "tool_invalid_argument";
+    }
+    
+    @Override
+    public void writeFields(JsonGenerator generator) throws IOException {
+        generator.writeStringField("tool", tool);
+        generator.writeStringField("field", field);
+        generator.writeStringField("reason", reason);
+    }
+}
@@ -0,0 +1,93 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.windows.PowerShellRunner;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * Tool described by a {@link ToolDescriptor} and created on first execution.
+ */
+class LazyTool implements Tool {
+
+    private final ToolDescriptor descriptor;
+    private final PowerShellRunner powerShellRunner;
+    private final Allowlist allowlist;
+    private volatile Tool delegate;
+
+    LazyTool(ToolDescriptor descriptor, PowerShellRunner powerShellRunner, Allowlist allowlist) {
+        this.descriptor = descriptor;
+        this.powerShellRunner = powerShellRunner;
+        this.allowlist = allowlist;
+    }
+
+    @Override
+    public String getName() {
+        return descriptor.getName();
+    }
+
+    @Override
+    public String getDescription() {
+        return descriptor.getDescription();
+    }
+
+    @Override
+    public JsonNode getJsonSchema() {
+        return descriptor.getJsonSchema();
+    }
+
+    @Override
+    public boolean requiresConfirmation() {
+        return descriptor.requiresConfirmation();
+    }
+
+    @Override
+    public List<String> getOsSupport() {
+        return descriptor.getOsSupport();
+    }
+
+    @Override
+    public List<String> aliases() {
+        return descriptor.getAliases();
+    }
+
+    @Override
+    public ExecuteResult execute(ExecutionContext context, JsonNode args) {
+        return instance().execute(context, args);
+    }
+
+    @Override
+    public Flow.Publisher<OutputChunk> executeStreaming(ExecutionContext context, JsonNode args) {
+        return instance().executeStreaming(context, args);
+    }
+
+    /**
+     * @return true once the tool has been created
+     */
+    boolean isInstantiated() {
+        return delegate != null;
+    }
+
+    private Tool instance() {
+        Tool tool = delegate;
+        if (tool == null) {
+            synchronized (this) {
+                tool = delegate;
+                if (tool == null) {
+                    tool = descriptor.create(powerShellRunner, allowlist);
+                    // A tool that fails verification is never published, so every call reports it
+                    tool.prepare();
+                    delegate = tool;
+                }
+            }
+        }
+        return tool;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyTool{" + descriptor.getName() + ", instantiated=" + isInstantiated() + "}";
+    }
+}
@@ -0,0 +1,394 @@
+package com.acme.mcp.core.tool;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded capture of one output stream.
+ * Keeps the first bytes in a head buffer and the most recent bytes in a tail ring buffer.
+ * Once the output no longer fits in memory, everything after the head is spilled to a
+ * temporary file so the complete stream can still be read through {@link #openStream()}.
+ * Both buffers start small and grow on demand up to their limits, so heap usage per stream is
+ * proportional to the output for small outputs and bounded by head plus tail size for large ones.
+ */
+public class OutputCapture {
+
+    /**
+     * Default number of bytes kept from the start of the stream.
+     */
+    public static final int DEFAULT_HEAD_BYTES = 64 * 1024;
+
+    /**
+     * Default number of bytes kept from the end of the stream.
+     */
+    public static final int DEFAULT_TAIL_BYTES = 64 * 1024;
+
+    /**
+     * Smallest buffer allocated once a stream produces output.
+     */
+    private static final int MIN_BUFFER_BYTES = 256;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /** File names of the spill files of this process that have not been deleted yet. */
+    private static final Set<String> LIVE_SPILL_FILES = ConcurrentHashMap.newKeySet();
+
+    private final int headLimit;
+    private final int tailLimit;
+    private byte[] head = new byte[0];
+    private byte[] tail = new byte[0];
+    private int headLength;
+    private int tailStart;
+    private int tailLength;
+    private long size;
+    private SpillFile spill;
+    private Cleaner.Cleanable spillCleanup;
+
+    /**
+     * Create a capture with default limits.
+     */
+    public OutputCapture() {
+        this(DEFAULT_HEAD_BYTES, DEFAULT_TAIL_BYTES);
+    }
+
+    /**
+     * Create a capture with custom limits.
+     * @param headBytes number of bytes kept from the start of the stream
+     * @param tailBytes number of bytes kept from the end of the stream
+     */
+    public OutputCapture(int headBytes, int tailBytes) {
+        if (headBytes < 0 || tailBytes < 0) {
+            throw new IllegalArgumentException("Capture limits cannot be negative");
+        }
+        this.headLimit = headBytes;
+        this.tailLimit = tailBytes;
+    }
+
+    /**
+     * Create a capture holding the given text completely in memory.
+     * @param text captured text, may be null
+     * @return capture of the text
+     */
+    public static OutputCapture of(String text) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        OutputCapture capture = new OutputCapture(bytes.length, 0);
+        capture.write(bytes, 0, bytes.length);
+        return capture;
+    }
+
+    /**
+     * Copy the captured output into a capture holding exactly its bytes, without spare buffer capacity.
+     * @return right-sized copy of this capture
+     * @throws IllegalStateException if part of the output was spilled to disk
+     */
+    public synchronized OutputCapture compact() {
+        if (spill != null) {
+            throw new IllegalStateException("Spilled output cannot be compacted");
+        }
+        byte[] bytes = contiguousBytes();
+        OutputCapture copy = new OutputCapture(bytes.length, 0);
+        copy.write(bytes, 0, bytes.length);
+        return copy;
+    }
+
+    /**
+     * Append bytes to the capture.
+     * @param bytes source buffer
+     * @param offset start offset in the buffer
+     * @param length number of bytes to append
+     */
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        size += length;
+
+        int toHead = Math.min(length, headLimit - headLength);
+        if (toHead > 0) {
+            if (headLength + toHead > head.length) {
+                head = grow(head, headLength, headLength + toHead, headLimit);
+            }
+            System.arraycopy(bytes, offset, head, headLength, toHead);
+            headLength += toHead;
+            offset += toHead;
+            length -= toHead;
+        }
+        if (length == 0) {
+            return;
+        }
+
+        if (spill == null && tailLength + length > tailLimit) {
+            startSpill();
+        }
+        if (spill != null) {
+            spill.write(bytes, offset, length);
+        }
+        writeTail(bytes, offset, length);
+    }
+
+    /**
+     * Append text to the capture, encoded as UTF-8.
+     * @param text text to append
+     */
+    public void write(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        write(bytes, 0, bytes.length);
+    }
+
+    private void writeTail(byte[] bytes, int offset, int length) {
+        if (tailLimit == 0) {
+            return;
+        }
+        if (tail.length < tailLimit && tailLength + length > tail.length) {
+            // Below the limit the ring never wraps, so the content is contiguous from tailStart
+            byte[] current = tailBytes(tailLength);
+            tail = grow(current, tailLength, (int) Math.min(tailLimit, (long) tailLength + length), tailLimit);
+            tailStart = 0;
+        }
+        if (length >= tail.length) {
+            System.arraycopy(bytes, offset + length - tail.length, tail, 0, tail.length);
+            tailStart = 0;
+            tailLength = tail.length;
+            return;
+        }
+        int writePos = (tailStart + tailLength) % tail.length;
+        int first = Math.min(length, tail.length - writePos);
+        System.arraycopy(bytes, offset, tail, writePos, first);
+        System.arraycopy(bytes, offset + first, tail, 0, length - first);
+        int overflow = Math.max(0, tailLength + length - tail.length);
+        tailStart = (tailStart + overflow) % tail.length;
+        tailLength = Math.min(tail.length, tailLength + length);
+    }
+
+    private static byte[] grow(byte[] buffer, int used, int needed, int limit) {
+        int capacity = (int) Math.min(limit, Math.max(needed, Math.max(MIN_BUFFER_BYTES, 2L * buffer.length)));
+        byte[] grown = new byte[capacity];
+        System.arraycopy(buffer, 0, grown, 0, used);
+        return grown;
+    }
+
+    private void startSpill() {
+        spill = new SpillFile();
+        spillCleanup = CLEANER.register(this, spill);
+        byte[] current = tailBytes(tailLength);
+        spill.write(current, 0, current.length);
+    }
+
+    /**
+     * @return total number of bytes written
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return number of heap bytes held by the head and tail buffers
+     */
+    public synchronized int retainedBytes() {
+        return head.length + tail.length;
+    }
+
+    /**
+     * @return true if part of the output was moved to a temporary file
+     */
+    public synchronized boolean isSpilled() {
+        return spill != null;
+    }
+
+    /**
+     * Decode the start of the stream without reading spilled data.
+     * @param maxBytes maximum number of bytes to decode
+     * @return text of at most maxBytes bytes, cut at a character boundary
+     */
+    public synchronized String head(int maxBytes) {
+        int available = headLength + (spill == null ? tailLength : 0);
+        int length = Math.min(maxBytes, available);
+        byte[] bytes = length <= headLength ? head : contiguousBytes();
+        return new String(bytes, 0, completeUtf8Length(bytes, length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy the start of the stream into a caller-owned buffer without reading spilled data.
+     * @param dest destination buffer
+     * @param maxBytes maximum number of bytes to copy
+     * @return number of bytes copied, cut at a character boundary
+     */
+    public synchronized int copyHead(byte[] dest, int maxBytes) {
+        int available = headLength + (spill == null ? tailLength : 0);
+        int length = Math.min(Math.min(maxBytes, dest.length), available);
+        int fromHead = Math.min(length, headLength);
+        System.arraycopy(head, 0, dest, 0, fromHead);
+        int fromTail = length - fromHead;
+        if (fromTail > 0) {
+            int first = Math.min(fromTail, tail.length - tailStart);
+            System.arraycopy(tail, tailStart, dest, fromHead, first);
+            System.arraycopy(tail, 0, dest, fromHead + first, fromTail - first);
+        }
+        return completeUtf8Length(dest, length);
+    }
+
+    /**
+     * Decode the end of the stream without reading spilled data.
+     * @param maxBytes maximum number of bytes to decode
+     * @return text of at most maxBytes bytes, starting at a character boundary
+     */
+    public synchronized String tail(int maxBytes) {
+        byte[] bytes;
+        if (spill != null) {
+            bytes = tailBytes(Math.min(maxBytes, tailLength));
+        } else {
+            byte[] all = contiguousBytes();
+            int length = Math.min(maxBytes, all.length);
+            bytes = new byte[length];
+            System.arraycopy(all, all.length - length, bytes, 0, length);
+        }
+        int start = 0;
+        while (start < bytes.length && start < 3 && (bytes[start] & 0xC0) == 0x80) {
+            start++;
+        }
+        return new String(bytes, start, bytes.length - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Open the complete captured stream, including spilled data.
+     * @return input stream over all captured bytes
+     */
+    public synchronized InputStream openStream() {
+        InputStream headStream = new ByteArrayInputStream(head, 0, headLength);
+        if (spill == null) {
+            return new SequenceInputStream(headStream, new ByteArrayInputStream(tailBytes(tailLength)));
+        }
+        return new SequenceInputStream(headStream, spill.open());
+    }
+
+    /**
+     * Materialize the complete output as a String.
+     * This reads spilled data back into memory; prefer {@link #head}, {@link #tail} or {@link #openStream()}.
+     * @return complete captured text
+     */
+    public String text() {
+        try (InputStream in = openStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read captured output", e);
+        }
+    }
+
+    /**
+     * Delete the spill file, if any. The capture must not be read afterwards.
+     */
+    public synchronized void release() {
+        if (spillCleanup != null) {
+            spillCleanup.clean();
+        }
+    }
+
+    private byte[] contiguousBytes() {
+        byte[] bytes = new byte[headLength + tailLength];
+        System.arraycopy(head, 0, bytes, 0, headLength);
+        byte[] tailCopy = tailBytes(tailLength);
+        System.arraycopy(tailCopy, 0, bytes, headLength, tailCopy.length);
+        return bytes;
+    }
+
+    private byte[] tailBytes(int count) {
+        byte[] bytes = new byte[count];
+        int start = (tailStart + tailLength - count) % Math.max(1, tail.length);
+        int first = Math.min(count, tail.length - start);
+        System.arraycopy(tail, start, bytes, 0, first);
+        System.arraycopy(tail, 0, bytes, first, count - first);
+        return bytes;
+    }
+
+    /**
+     * Tell whether a file is a spill file of a capture of this process that is still in use,
+     * so that temp folder cleanups can leave it alone.
+     * @param file file to check
+     * @return true if the file holds spilled output of a live capture
+     */
+    public static boolean isLiveSpillFile(Path file) {
+        Path name = file.getFileName();
+        return name != null && LIVE_SPILL_FILES.contains(name.toString());
+    }
+
+    /**
+     * Number of leading bytes that form complete UTF-8 sequences.
+     * @param bytes buffer holding UTF-8 data
+     * @param length number of valid bytes in the buffer
+     * @return length without a trailing incomplete multi-byte sequence
+     */
+    public static int completeUtf8Length(byte[] bytes, int length) {
+        for (int i = length - 1; i >= Math.max(0, length - 3); i--) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                return length;
+            }
+            if (b >= 0xC0) {
+                int sequenceLength = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+                return length - i >= sequenceLength ? length : i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Temporary file holding everything after the head; deleted when the capture is released
+     * or garbage collected.
+     */
+    private static final class SpillFile implements Runnable {
+
+        private final Path path;
+        private final FileChannel channel;
+
+        SpillFile() {
+            try {
+                path = Files.createTempFile("mcp-output-", ".spill");
+                LIVE_SPILL_FILES.add(path.getFileName().toString());
+                channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to create output spill file", e);
+            }
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, channel.size());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to spill output", e);
+            }
+        }
+
+        InputStream open() {
+            try {
+                return Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open output spill file", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Best effort cleanup of a temporary file
+            } finally {
+                LIVE_SPILL_FILES.remove(path.getFileName().toString());
+            }
+        }
+    }
+}
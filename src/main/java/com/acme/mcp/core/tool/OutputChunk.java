@@ -0,0 +1,90 @@
+package com.acme.mcp.core.tool;
+
+/**
+ * Incremental piece of tool output published while a tool is running.
+ * Concatenating the text of all STDOUT (or STDERR) chunks yields the complete stream.
+ */
+public class OutputChunk {
+
+    public enum Type {
+        STDOUT,
+        STDERR,
+        PHASE,
+        EXIT
+    }
+
+    private final Type type;
+    private final String text;
+    private final ExecuteResult result;
+    private final long timestamp;
+
+    private OutputChunk(Type type, String text, ExecuteResult result) {
+        this.type = type;
+        this.text = text;
+        this.result = result;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * @param text piece of standard output
+     * @return stdout chunk
+     */
+    public static OutputChunk stdout(String text) {
+        return new OutputChunk(Type.STDOUT, text, null);
+    }
+
+    /**
+     * @param text piece of standard error
+     * @return stderr chunk
+     */
+    public static OutputChunk stderr(String text) {
+        return new OutputChunk(Type.STDERR, text, null);
+    }
+
+    /**
+     * @param phase name of the execution phase that was reached (e.g. "started", "completed")
+     * @return phase marker chunk
+     */
+    public static OutputChunk phase(String phase) {
+        return new OutputChunk(Type.PHASE, phase, null);
+    }
+
+    /**
+     * @param result final execution result
+     * @return exit chunk, always the last chunk of an execution
+     */
+    public static OutputChunk exit(ExecuteResult result) {
+        return new OutputChunk(Type.EXIT, result.getStatus().toString(), result);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return output text for STDOUT/STDERR, phase name for PHASE, status for EXIT
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return final execution result for EXIT chunks, null otherwise
+     */
+    public ExecuteResult getResult() {
+        return result;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "OutputChunk{" +
+                "type=" + type +
+                ", text='" + text + '\'' +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,23 @@
+package com.acme.mcp.core.tool;
+
+/**
+ * Format of the output a tool writes to stdout.
+ */
+public enum OutputFormat {
+
+    /** Human readable text, the default. */
+    TEXT,
+
+    /** A single compact JSON document, parsed into {@link ExecuteResult#getPayload()}. */
+    JSON,
+
+    /** One compact JSON document per line, parsed into a JSON array payload. Used for lists. */
+    NDJSON;
+
+    /**
+     * @return true for the machine readable formats
+     */
+    public boolean isStructured() {
+        return this != TEXT;
+    }
+}
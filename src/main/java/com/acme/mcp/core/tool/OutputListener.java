@@ -0,0 +1,15 @@
+package com.acme.mcp.core.tool;
+
+/**
+ * Receives output chunks as soon as they are produced.
+ * Implementations may block to apply backpressure to the producing process.
+ */
+@FunctionalInterface
+public interface OutputListener {
+
+    /**
+     * Called for every chunk of output in production order.
+     * @param chunk the output chunk
+     */
+    void onOutput(OutputChunk chunk);
+}
@@ -2,11 +2,16 @@ package com.acme.mcp.core.tool;
 
 import com.acme.mcp.core.audit.AuditLogger;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
+import com.acme.mcp.core.windows.PowerShellScript;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
 
 /**
  * Abstract base class for PowerShell-based tools.
@@ -14,6 +19,11 @@ import java.util.Map;
  */
 public abstract class PowerShellToolBase implements Tool {
     
+    /**
+     * Listener of the streaming execution running on the current thread, if any.
+     */
+    private static final ThreadLocal<OutputListener> OUTPUT_LISTENER = new ThreadLocal<>();
+    
     private final String name;
     private final String description;
     private final boolean requiresConfirmation;
@@ -63,6 +73,13 @@ public abstract class PowerShellToolBase implements Tool {
         return name;
     }
     
+    /**
+     * @return runner executing this tool's scripts
+     */
+    protected PowerShellRunner getPowerShellRunner() {
+        return powerShellRunner;
+    }
+    
     @Override
     public String getDescription() {
         return description;
@@ -83,6 +100,57 @@ public abstract class PowerShellToolBase implements Tool {
         return osSupport;
     }
     
+    /**
+     * Execute this tool and publish PowerShell output while it is produced.
+     * Runs {@link #execute} with the subscriber attached to every {@link #runPs} call,
+     * so subclasses stream without any changes.
+     * @param context execution context
+     * @param args tool arguments as JSON
+     * @return publisher of output chunks, ending with an EXIT chunk
+     */
+    @Override
+    public Flow.Publisher<OutputChunk> executeStreaming(ExecutionContext context, JsonNode args) {
+        return new ExecutionPublisher(listener -> {
+            OUTPUT_LISTENER.set(listener);
+            try {
+                return execute(context, args);
+            } finally {
+                OUTPUT_LISTENER.remove();
+            }
+        }, false);
+    }
+    
+    /**
+     * Script templates this tool runs. They are verified against the allowlist when the tool
+     * is registered, so {@link #runPs(ScriptTemplate, Map, ExecutionContext, Map)} does not
+     * re-check them per call. Declare templates as static constants.
+     * @return script templates (empty by default)
+     */
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of();
+    }
+    
+    /**
+     * Whether this tool only reads state, so that its script template calls may share one PowerShell
+     * invocation with other calls for the same asset when the runner batches (see
+     * {@link PowerShellRunner#setBatching}). Each call is still audited on its own.
+     * @return true if template calls may be batched (false by default)
+     */
+    protected boolean isBatchable() {
+        return false;
+    }
+    
+    /**
+     * Verify this tool's script templates.
+     * @throws SecurityException if a template invokes a disallowed command
+     */
+    @Override
+    public void prepare() {
+        for (ScriptTemplate template : scriptTemplates()) {
+            allowlist.verify(template);
+        }
+    }
+    
     /**
      * Execute PowerShell commands with auditing and validation.
      * @param commands list of PowerShell commands to execute
@@ -91,85 +159,132 @@ public abstract class PowerShellToolBase implements Tool {
      * @return execution result
      */
     protected ExecuteResult runPs(List<String> commands, ExecutionContext context, Map<String, Object> auditExtra) {
-        // Validate commands against allowlist
-        for (String command : commands) {
-            if (!allowlist.isCommandAllowed(command)) {
-                AuditLogger.info("tool_execution_blocked", Map.of(
-                    "tool", getName(),
-                    "command", command
-                ));
-                throw new SecurityException("Command not allowed: " + command);
-            }
+        // Validate every command invocation in the script against allowlist
+        int blocked = allowlist.findDisallowedLine(commands);
+        if (blocked >= 0) {
+            String command = commands.get(blocked);
+            AuditLogger.log(new ExecutionBlockedEvent(getName(), command));
+            throw new SecurityException("Command not allowed: " + command);
         }
         
+        return runCommands(commands, context, auditExtra, OutputFormat.TEXT,
+            listener -> powerShellRunner.execute(listener, commands.toArray(new String[0])));
+    }
+    
+    /**
+     * Execute a script template with auditing. The template verdict is cached by hash, and the
+     * template runs as its compiled script with the values passed as parameters, so neither the
+     * script is rebuilt nor the values scanned per call. The audit entry records the template lines,
+     * the script hash and the parameter values.
+     * @param template script template
+     * @param values value for each template parameter
+     * @param context execution context
+     * @param auditExtra additional audit data
+     * @return execution result
+     * @throws IllegalArgumentException if a template parameter has no value
+     */
+    protected ExecuteResult runPs(ScriptTemplate template, Map<String, ?> values,
+                                  ExecutionContext context, Map<String, Object> auditExtra) {
+        return runPs(template, values, OutputFormat.TEXT, context, auditExtra);
+    }
+    
+    /**
+     * Execute a script template that writes the given output format. Structured output is parsed
+     * into {@link ExecuteResult#getPayload()}, and the completion audit entry records whether it parsed.
+     * @param template script template
+     * @param values value for each template parameter
+     * @param format format the template writes to stdout
+     * @param context execution context
+     * @param auditExtra additional audit data
+     * @return execution result
+     * @throws IllegalArgumentException if a template parameter has no value
+     */
+    protected ExecuteResult runPs(ScriptTemplate template, Map<String, ?> values, OutputFormat format,
+                                  ExecutionContext context, Map<String, Object> auditExtra) {
+        int blocked = allowlist.findDisallowedLine(template);
+        if (blocked >= 0) {
+            String command = template.getLines().get(blocked);
+            AuditLogger.log(new ExecutionBlockedEvent(getName(), command));
+            throw new SecurityException("Command not allowed: " + command);
+        }
+        
+        PowerShellScript script = template.getScript();
+        Map<String, Object> parameters = script.parameterValues(values);
+        Map<String, Object> extra = auditExtra == null ? new HashMap<>() : new HashMap<>(auditExtra);
+        extra.put("scriptHash", script.getHash());
+        extra.put("scriptParameters", parameters);
+        
+        if (format.isStructured()) {
+            extra.put("outputFormat", format.name());
+        }
+        
+        if (isBatchable() && powerShellRunner.isBatching()) {
+            return runCommands(template.getLines(), context, extra, format, listener ->
+                powerShellRunner.executeBatched(context.getAssetId(), script, parameters, listener, format));
+        }
+        return runCommands(template.getLines(), context, extra, format,
+            listener -> powerShellRunner.execute(script, parameters, listener, format));
+    }
+    
+    /**
+     * Run an in-process operation with the same auditing and streaming phases as {@link #runPs}.
+     * In dry-run mode the operation is audited but not run, and the result reads {@code DRY_RUN}
+     * like a dry-run PowerShell call.
+     * @param operation description of the operation, recorded as its command
+     * @param context execution context
+     * @param auditExtra additional audit data
+     * @param execution the operation; receives the streaming listener, which may be null
+     * @return execution result
+     */
+    protected ExecuteResult runNative(String operation, ExecutionContext context, Map<String, Object> auditExtra,
+                                      Function<OutputListener, ExecuteResult> execution) {
+        return runCommands(List.of(operation), context, auditExtra, OutputFormat.TEXT, listener -> {
+            if (powerShellRunner.isDryRun()) {
+                if (listener != null) {
+                    listener.onOutput(OutputChunk.stdout("DRY_RUN"));
+                }
+                return new ExecuteResult(java.util.UUID.randomUUID().toString(), 0, "DRY_RUN", "",
+                    ExecuteResult.Status.SUCCESS);
+            }
+            return execution.apply(listener);
+        });
+    }
+    
+    private ExecuteResult runCommands(List<String> commands, ExecutionContext context, Map<String, Object> auditExtra,
+                                      OutputFormat format, Function<OutputListener, ExecuteResult> execution) {
         // Log execution start with detailed command info
-        Map<String, Object> startLog = new java.util.HashMap<>(Map.of(
-            "tool", getName(),
-            "userId", context.getUserId(),
-            "assetId", context.getAssetId(),
-            "correlationId", context.getCorrelationId(),
-            "commands", commands,
-            "commandCount", commands.size(),
-            "dryRun", powerShellRunner.toString().contains("dryRun=true")
-        ));
-        startLog.putAll(auditExtra);
-        AuditLogger.info("tool_execution_started", startLog);
+        AuditLogger.log(new ExecutionStartedEvent(getName(), context, commands, powerShellRunner.isDryRun(), auditExtra));
+        
+        OutputListener listener = OUTPUT_LISTENER.get();
+        if (listener != null) {
+            listener.onOutput(OutputChunk.phase("started"));
+        }
         
         try {
             // Execute commands
-            ExecuteResult result = powerShellRunner.execute(commands.toArray(new String[0]));
-            
-            // Prepare audit data with output previews
-            Map<String, Object> auditData = new java.util.HashMap<>(Map.of(
-                "tool", getName(),
-                "userId", context.getUserId(),
-                "assetId", context.getAssetId(),
-                "correlationId", context.getCorrelationId(),
-                "executionId", result.getExecutionId(),
-                "exitCode", result.getExitCode(),
-                "status", result.getStatus().toString(),
-                "success", result.isSuccess(),
-                "stdoutLen", result.getStdout() != null ? result.getStdout().length() : 0,
-                "stderrLen", result.getStderr() != null ? result.getStderr().length() : 0
-            ));
-            
-            // Add output previews for debugging
-            if (result.getStdout() != null && !result.getStdout().isEmpty()) {
-                String stdoutPreview = result.getStdout().length() > 200 
-                    ? result.getStdout().substring(0, 200) + "... [TRUNCATED]"
-                    : result.getStdout();
-                auditData.put("stdoutPreview", stdoutPreview);
-            }
+            ExecuteResult result = execution.apply(listener);
             
-            if (result.getStderr() != null && !result.getStderr().isEmpty()) {
-                String stderrPreview = result.getStderr().length() > 200 
-                    ? result.getStderr().substring(0, 200) + "... [TRUNCATED]"
-                    : result.getStderr();
-                auditData.put("stderrPreview", stderrPreview);
+            // Log execution completion; the event copies the previews so it does not retain the capture
+            Map<String, Object> completedExtra = auditExtra;
+            if (format.isStructured() && !powerShellRunner.isDryRun()) {
+                completedExtra = new HashMap<>(auditExtra);
+                completedExtra.put("parsed", result.getPayload() != null);
             }
+            AuditLogger.log(new ExecutionCompletedEvent(getName(), context, result, completedExtra));
             
-            // Add extra audit data if provided
-            if (auditExtra != null && !auditExtra.isEmpty()) {
-                // Create mutable map for combining data
-                java.util.HashMap<String, Object> combinedData = new java.util.HashMap<>(auditData);
-                combinedData.putAll(auditExtra);
-                auditData = combinedData;
+            if (listener != null) {
+                listener.onOutput(OutputChunk.phase("completed"));
             }
             
-            // Log execution completion
-            AuditLogger.info("tool_execution_completed", auditData);
-            
             return result;
             
         } catch (Exception e) {
             // Log execution error
-            AuditLogger.info("tool_execution_error", Map.of(
-                "tool", getName(),
-                "userId", context.getUserId(),
-                "assetId", context.getAssetId(),
-                "correlationId", context.getCorrelationId(),
-                "error", e.getMessage()
-            ));
+            AuditLogger.log(new ExecutionErrorEvent(getName(), context, e.getMessage()));
+            
+            if (listener != null) {
+                listener.onOutput(OutputChunk.stderr("Tool execution failed: " + e.getMessage()));
+            }
             
             return new ExecuteResult(
                 java.util.UUID.randomUUID().toString(),
@@ -190,11 +305,7 @@ public abstract class PowerShellToolBase implements Tool {
     protected void validateRequiredFields(JsonNode args, List<String> requiredFields) {
         for (String field : requiredFields) {
             if (!args.has(field) || args.get(field).isNull()) {
-                AuditLogger.info("tool_validation_error", Map.of(
-                    "tool", getName(),
-                    "missingField", field,
-                    "providedFields", java.util.Arrays.asList(args.fieldNames())
-                ));
+                AuditLogger.log(new ValidationErrorEvent(getName(), field, args));
                 throw new IllegalArgumentException("Required field missing: " + field);
             }
         }
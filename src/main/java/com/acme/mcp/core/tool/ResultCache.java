@@ -0,0 +1,394 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AuditLogger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of tool results keyed by tool, asset, output format and canonical arguments.
+ * <p>
+ * Only tools given a TTL with {@link #setTtl} are cached; every other tool is treated as mutating,
+ * and running it on an asset drops the cached results of that asset before and after it runs.
+ * Concurrent identical misses share one execution (single flight). Only successful results are
+ * cached, and results large enough to spill to disk are not, since callers may release them.
+ * Cached results are copied into right-sized buffers and weighed by the heap they retain.
+ * Entries are evicted least recently used first once the entry count or the total weight
+ * exceeds its bound.
+ * <p>
+ * Calls answered without running the tool are audited as {@link ExecutionCachedEvent}s for the caller.
+ * <p>
+ * Results are shared between users: cache only tools whose output does not depend on the caller.
+ */
+public class ResultCache {
+
+    private static final long MAX_ENTRY_WEIGHT = OutputCapture.DEFAULT_HEAD_BYTES + OutputCapture.DEFAULT_TAIL_BYTES;
+
+    /** Bytes counted per entry on top of its output buffers. */
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ConcurrentMap<String, Duration> ttls = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, CompletableFuture<ExecuteResult>> inFlight = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Key>> keysByAsset = new HashMap<>();
+    /** Only assets with executions running, so the map is bounded by the concurrent executions. */
+    private final Map<String, Generation> generations = new HashMap<>();
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Create a cache holding up to 10,000 results and 64 MiB of output.
+     */
+    public ResultCache() {
+        this(10_000, 64L << 20);
+    }
+
+    /**
+     * Create a cache with custom bounds.
+     * @param maxEntries maximum number of cached results
+     * @param maxWeight maximum total size of the cached output in bytes
+     */
+    public ResultCache(int maxEntries, long maxWeight) {
+        if (maxEntries < 1 || maxWeight < 1) {
+            throw new IllegalArgumentException("Max entries and weight must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Cache the results of a tool.
+     * @param toolName canonical tool name
+     * @param ttl how long results stay valid, or null to stop caching the tool
+     */
+    public void setTtl(String toolName, Duration ttl) {
+        if (ttl == null) {
+            ttls.remove(toolName);
+        } else if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be positive");
+        } else {
+            ttls.put(toolName, ttl);
+        }
+    }
+
+    /**
+     * @param toolName canonical tool name
+     * @return true if results of the tool are cached
+     */
+    public boolean isCached(String toolName) {
+        return ttls.containsKey(toolName);
+    }
+
+    /**
+     * Wrap a tool so that its executions go through this cache. Register the wrapper instead of the tool.
+     * @param tool tool to wrap
+     * @return wrapping tool with the same name, aliases and schema
+     */
+    public Tool wrap(Tool tool) {
+        return new CachingTool(tool, this);
+    }
+
+    /**
+     * Return the cached result of a cacheable tool, or run it once for all concurrent callers.
+     * @param tool tool being run
+     * @param context execution context
+     * @param args tool arguments as JSON
+     * @param execution runs the tool
+     * @return execution result
+     */
+    ExecuteResult get(Tool tool, ExecutionContext context, JsonNode args, Supplier<ExecuteResult> execution) {
+        Duration ttl = ttls.get(tool.getName());
+        if (ttl == null) {
+            return execution.get();
+        }
+        Key key = new Key(tool.getName(), context.getAssetId(), context.getOutputFormat(), canonical(args));
+        ExecuteResult cached = lookup(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            AuditLogger.log(new ExecutionCachedEvent(tool.getName(), context, cached.getExecutionId(), false));
+            return cached;
+        }
+
+        CompletableFuture<ExecuteResult> flight = new CompletableFuture<>();
+        CompletableFuture<ExecuteResult> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            shared.incrementAndGet();
+            try {
+                ExecuteResult result = leader.join();
+                AuditLogger.log(new ExecutionCachedEvent(tool.getName(), context, result.getExecutionId(), true));
+                return result;
+            } catch (CompletionException e) {
+                AuditLogger.log(new ExecutionErrorEvent(tool.getName(), context,
+                    String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage())));
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            // A flight may have completed between the lookup and registering this one
+            cached = lookup(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                AuditLogger.log(new ExecutionCachedEvent(tool.getName(), context, cached.getExecutionId(), false));
+                flight.complete(cached);
+                return cached;
+            }
+            misses.incrementAndGet();
+            long generation = begin(key.assetId);
+            try {
+                ExecuteResult result = execution.get();
+                store(key, result, ttl, generation);
+                flight.complete(result);
+                return result;
+            } finally {
+                end(key.assetId);
+            }
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Drop the cached results of an asset. Results of executions already running on it are not cached.
+     * @param assetId asset ID
+     */
+    public synchronized void invalidate(String assetId) {
+        Generation generation = generations.get(assetId);
+        if (generation != null) {
+            generation.value++;
+        }
+        Set<Key> keys = keysByAsset.remove(assetId);
+        if (keys != null) {
+            for (Key key : keys) {
+                weight -= entries.remove(key).weight;
+            }
+            invalidations.addAndGet(keys.size());
+        }
+    }
+
+    /**
+     * Drop all cached results.
+     */
+    public synchronized void invalidateAll() {
+        for (String assetId : new ArrayList<>(keysByAsset.keySet())) {
+            invalidate(assetId);
+        }
+    }
+
+    /**
+     * @return number of cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return heap retained by the cached results in bytes, including a fixed overhead per entry
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return number of calls answered from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of calls that ran the tool
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of calls that waited for an identical running call instead of running the tool
+     */
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    /**
+     * @return number of results evicted to stay within bounds
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of results dropped by invalidation
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return share of cacheable calls that did not run the tool, between 0 and 1
+     */
+    public double getHitRate() {
+        long avoided = hits.get() + shared.get();
+        long total = avoided + misses.get();
+        return total == 0 ? 0 : avoided / (double) total;
+    }
+
+    private synchronized ExecuteResult lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtNanos - System.nanoTime() <= 0) {
+            remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    /**
+     * Register an execution on an asset.
+     * @return invalidation count of the asset, compared again before the result is stored
+     */
+    private synchronized long begin(String assetId) {
+        Generation generation = generations.computeIfAbsent(assetId, id -> new Generation());
+        generation.running++;
+        return generation.value;
+    }
+
+    private synchronized void end(String assetId) {
+        Generation generation = generations.get(assetId);
+        if (--generation.running == 0) {
+            generations.remove(assetId);
+        }
+    }
+
+    /**
+     * @return number of assets whose invalidations are tracked
+     */
+    synchronized int trackedAssetCount() {
+        return generations.size();
+    }
+
+    private synchronized void store(Key key, ExecuteResult result, Duration ttl, long generation) {
+        if (!result.isSuccess() || result.getStdoutBytes() + result.getStderrBytes() > MAX_ENTRY_WEIGHT
+                || generations.get(key.assetId).value != generation) {
+            return;
+        }
+        // Keep only the output bytes, not the spare capacity of the capture buffers
+        ExecuteResult compact = result.compact();
+        long entryWeight = compact.getRetainedBytes();
+        if (compact.getPayload() != null) {
+            // The parsed payload is estimated at the size of the output it was parsed from
+            entryWeight += compact.getStdoutBytes();
+        }
+        remove(key);
+        Entry entry = new Entry(compact, System.nanoTime() + ttl.toNanos(), entryWeight + ENTRY_OVERHEAD);
+        entries.put(key, entry);
+        keysByAsset.computeIfAbsent(key.assetId, assetId -> new HashSet<>()).add(key);
+        weight += entry.weight;
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            Map.Entry<Key, Entry> victim = eldest.next();
+            eldest.remove();
+            weight -= victim.getValue().weight;
+            unindex(victim.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            weight -= entry.weight;
+            unindex(key);
+        }
+    }
+
+    private void unindex(Key key) {
+        Set<Key> keys = keysByAsset.get(key.assetId);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByAsset.remove(key.assetId);
+        }
+    }
+
+    /**
+     * Arguments as compact JSON with object fields sorted, so that field order does not matter.
+     */
+    static String canonical(JsonNode args) {
+        return args == null ? "{}" : sorted(args).toString();
+    }
+
+    private static JsonNode sorted(JsonNode node) {
+        if (node.isObject()) {
+            List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            names.sort(null);
+            ObjectNode copy = JsonNodeFactory.instance.objectNode();
+            for (String name : names) {
+                copy.set(name, sorted(node.get(name)));
+            }
+            return copy;
+        }
+        if (node.isArray()) {
+            ArrayNode copy = JsonNodeFactory.instance.arrayNode();
+            for (JsonNode element : node) {
+                copy.add(sorted(element));
+            }
+            return copy;
+        }
+        return node;
+    }
+
+    private record Key(String toolName, String assetId, OutputFormat format, String args) {
+    }
+
+    /** Invalidations of an asset seen while executions on it are running. */
+    private static final class Generation {
+        long value;
+        int running;
+    }
+
+    private static final class Entry {
+        final ExecuteResult result;
+        final long expiresAtNanos;
+        final long weight;
+
+        Entry(ExecuteResult result, long expiresAtNanos, long weight) {
+            this.result = result;
+            this.expiresAtNanos = expiresAtNanos;
+            this.weight = weight;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.acme.mcp.core.tool;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import java.util.List;
+import java.util.concurrent.Flow;
 
 /**
  * Contract for executable tools in the MCP system.
@@ -47,6 +48,27 @@ public interface Tool {
      */
     ExecuteResult execute(ExecutionContext context, JsonNode args);
     
+    /**
+     * Execute this tool and publish its output incrementally.
+     * Execution starts when the publisher is subscribed. The default implementation runs
+     * {@link #execute} and publishes the complete output once it finishes; tools that can
+     * report output while running override this.
+     * @param context execution context containing user, asset, and correlation info
+     * @param args tool arguments as JSON
+     * @return publisher of output chunks, ending with an EXIT chunk
+     */
+    default Flow.Publisher<OutputChunk> executeStreaming(ExecutionContext context, JsonNode args) {
+        return new ExecutionPublisher(listener -> execute(context, args), true);
+    }
+    
+    /**
+     * Prepare this tool for use. Called once by {@link ToolRegistry#register} before the tool
+     * becomes visible, so constant resources such as scripts can be verified at startup.
+     * Throwing aborts the registration.
+     */
+    default void prepare() {
+    }
+    
     /**
      * Get alternative names (aliases) for this tool.
      * @return list of alias names (empty by default)
@@ -0,0 +1,122 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.windows.PowerShellRunner;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Lightweight description of a tool, discovered with {@link ServiceLoader}.
+ * <p>
+ * A descriptor carries everything the registry and the tool catalog need (name, aliases,
+ * schema) without loading the tool class, so a large catalog starts without building its
+ * scripts. The tool itself is created by {@link #create} with the shared runner and allowlist,
+ * either right away or on first execution through {@link #lazy}.
+ * <p>
+ * Implementations need a public no-argument constructor and are listed in
+ * {@code META-INF/services/com.acme.mcp.core.tool.ToolDescriptor}.
+ */
+public abstract class ToolDescriptor {
+    
+    private final String name;
+    private final String description;
+    private final boolean requiresConfirmation;
+    private final List<String> osSupport;
+    private final List<String> aliases;
+    private volatile JsonNode jsonSchema;
+    
+    /**
+     * @param name tool name
+     * @param description tool description
+     * @param requiresConfirmation whether user confirmation is required
+     * @param osSupport supported operating systems
+     * @param aliases alternative names of the tool
+     */
+    protected ToolDescriptor(String name, String description, boolean requiresConfirmation,
+                             List<String> osSupport, List<String> aliases) {
+        this.name = name;
+        this.description = description;
+        this.requiresConfirmation = requiresConfirmation;
+        this.osSupport = List.copyOf(osSupport);
+        this.aliases = List.copyOf(aliases);
+    }
+    
+    /**
+     * Discover the descriptors visible to a class loader.
+     * @param classLoader class loader to search, null for the system class loader
+     * @return descriptors in discovery order
+     */
+    public static List<ToolDescriptor> discover(ClassLoader classLoader) {
+        List<ToolDescriptor> descriptors = new ArrayList<>();
+        for (ToolDescriptor descriptor : ServiceLoader.load(ToolDescriptor.class, classLoader)) {
+            descriptors.add(descriptor);
+        }
+        return descriptors;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public boolean requiresConfirmation() {
+        return requiresConfirmation;
+    }
+    
+    public List<String> getOsSupport() {
+        return osSupport;
+    }
+    
+    public List<String> getAliases() {
+        return aliases;
+    }
+    
+    /**
+     * @return JSON schema of the tool parameters, built on first call
+     */
+    public JsonNode getJsonSchema() {
+        JsonNode schema = jsonSchema;
+        if (schema == null) {
+            schema = createJsonSchema();
+            jsonSchema = schema;
+        }
+        return schema;
+    }
+    
+    /**
+     * Build the JSON schema of the tool parameters.
+     * @return JSON schema
+     */
+    protected abstract JsonNode createJsonSchema();
+    
+    /**
+     * Create the tool.
+     * @param powerShellRunner shared PowerShell runner
+     * @param allowlist shared security allowlist
+     * @return new tool instance
+     */
+    public abstract Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist);
+    
+    /**
+     * Create a tool that answers metadata from this descriptor and creates the actual tool on first
+     * execution. The tool is prepared when it is created, so script verification moves from
+     * registration to the first execution.
+     * @param powerShellRunner shared PowerShell runner
+     * @param allowlist shared security allowlist
+     * @return lazily instantiated tool
+     */
+    public Tool lazy(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+        return new LazyTool(this, powerShellRunner, allowlist);
+    }
+    
+    @Override
+    public String toString() {
+        return "ToolDescriptor{" + name + ", aliases=" + aliases + "}";
+    }
+}
@@ -0,0 +1,210 @@
+package com.acme.mcp.core.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs registered tools asynchronously with bounded concurrency.
+ * A global bulkhead limits how many executions (and so PowerShell processes) run at once,
+ * excess work waits in a bounded queue, and a per-tool bulkhead stops a single tool from
+ * taking the whole capacity. Work that does not fit is rejected immediately with a
+ * {@link RejectedExecutionException} instead of piling up.
+ */
+public class ToolExecutor implements AutoCloseable {
+
+    private final ToolRegistry registry;
+    private final int maxConcurrencyPerTool;
+    private final ThreadPoolExecutor workers;
+    private final ConcurrentMap<String, Semaphore> toolBulkheads = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    /**
+     * Create an executor with default limits (64 concurrent executions, 1024 queued, 16 per tool).
+     * @param registry registry used to resolve tool names and aliases
+     */
+    public ToolExecutor(ToolRegistry registry) {
+        this(registry, 64, 1024, 16);
+    }
+
+    /**
+     * Create an executor with custom limits.
+     * @param registry registry used to resolve tool names and aliases
+     * @param maxConcurrency maximum number of executions running at once
+     * @param queueCapacity maximum number of executions waiting for a worker
+     * @param maxConcurrencyPerTool maximum number of queued plus running executions of a single tool
+     */
+    public ToolExecutor(ToolRegistry registry, int maxConcurrency, int queueCapacity, int maxConcurrencyPerTool) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null");
+        }
+        if (maxConcurrency < 1 || queueCapacity < 1 || maxConcurrencyPerTool < 1) {
+            throw new IllegalArgumentException("Concurrency limits and queue capacity must be at least 1");
+        }
+        this.registry = registry;
+        this.maxConcurrencyPerTool = maxConcurrencyPerTool;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "tool-executor-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Submit a tool execution.
+     * @param toolName tool name or alias
+     * @param context execution context
+     * @param args tool arguments as JSON
+     * @return future completed with the execution result; completed exceptionally with
+     *         {@link IllegalArgumentException} for unknown tools,
+     *         {@link com.acme.mcp.core.schema.ArgumentValidationException} for arguments not matching the
+     *         tool's schema, {@link RejectedExecutionException}
+     *         when a bulkhead or the queue is full, or the exception thrown by the tool
+     */
+    public CompletableFuture<ExecuteResult> submit(String toolName, ExecutionContext context, JsonNode args) {
+        submitted.incrementAndGet();
+        Tool tool = registry.get(toolName);
+        if (tool == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown tool: " + toolName));
+        }
+
+        // Reject invalid calls before they take capacity
+        JsonNode validated;
+        try {
+            validated = registry.validateArguments(tool, args);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Semaphore bulkhead = toolBulkheads.computeIfAbsent(tool.getName(), name -> new Semaphore(maxConcurrencyPerTool));
+        if (!bulkhead.tryAcquire()) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                "Too many concurrent executions of tool: " + tool.getName()));
+        }
+
+        CompletableFuture<ExecuteResult> future = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        try {
+            workers.execute(() -> run(tool, context, validated, future, bulkhead, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            rejected.incrementAndGet();
+            future.completeExceptionally(new RejectedExecutionException(
+                "Tool executor queue is full, rejected: " + tool.getName(), e));
+        }
+        return future;
+    }
+
+    private void run(Tool tool, ExecutionContext context, JsonNode args,
+                     CompletableFuture<ExecuteResult> future, Semaphore bulkhead, long enqueuedAt) {
+        long waited = System.nanoTime() - enqueuedAt;
+        started.incrementAndGet();
+        totalQueueWaitNanos.addAndGet(waited);
+        maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+        ExecuteResult result = null;
+        Throwable failure = null;
+        try {
+            result = tool.execute(context, args);
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            // Free capacity before completing so callers chaining on the future see it released
+            bulkhead.release();
+            completed.incrementAndGet();
+        }
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(result);
+        }
+    }
+
+    /**
+     * Stop accepting work and let queued executions finish.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    /**
+     * @return number of executions waiting for a worker
+     */
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return number of executions currently running
+     */
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    /**
+     * @param toolName canonical tool name
+     * @return number of queued plus running executions of the tool
+     */
+    public int getInFlight(String toolName) {
+        Semaphore bulkhead = toolBulkheads.get(toolName);
+        return bulkhead == null ? 0 : maxConcurrencyPerTool - bulkhead.availablePermits();
+    }
+
+    /**
+     * @return number of submitted executions, including rejected ones
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * @return number of executions rejected because a bulkhead or the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * @return number of finished executions
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * @return average time executions waited in the queue, in milliseconds
+     */
+    public double getAverageQueueWaitMillis() {
+        long count = started.get();
+        return count == 0 ? 0 : totalQueueWaitNanos.get() / (double) count / 1_000_000;
+    }
+
+    /**
+     * @return longest time an execution waited in the queue, in milliseconds
+     */
+    public double getMaxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1_000_000.0;
+    }
+}
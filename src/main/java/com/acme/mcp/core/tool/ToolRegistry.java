@@ -1,24 +1,36 @@
 package com.acme.mcp.core.tool;
 
+import com.acme.mcp.core.audit.AuditLogger;
+import com.acme.mcp.core.schema.ArgumentValidationException;
+import com.acme.mcp.core.schema.ArgumentValidator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
 import java.util.Collection;
-import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
 
 /**
  * Registry for managing available tools.
- * Thread-safe registry using ConcurrentHashMap for tool storage and retrieval.
+ * Thread-safe copy-on-write registry: every change publishes a new immutable
+ * {@link ToolRegistrySnapshot}, so lookups and listings never lock and never copy.
+ * Changes are serialized, which makes checking for conflicts and registering atomic.
+ * Each tool's schema is compiled into an {@link ArgumentValidator} when it is registered.
  */
 public class ToolRegistry {
     
-    private final ConcurrentMap<String, Tool> tools = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile ToolRegistrySnapshot snapshot =
+        new ToolRegistrySnapshot(0, new LinkedHashMap<>(), new LinkedHashMap<>(), Map.of());
     
     /**
      * Register a tool in the registry.
      * @param tool the tool to register
-     * @throws IllegalArgumentException if tool name is null or empty
+     * @throws IllegalArgumentException if tool name is null or empty, or its schema cannot be compiled
      * @throws IllegalStateException if tool name or alias conflicts with existing registration
+     * @throws SecurityException if the tool's scripts fail verification in {@link Tool#prepare()}
      */
     public void register(Tool tool) {
         if (tool == null || tool.getName() == null || tool.getName().trim().isEmpty()) {
@@ -26,26 +38,59 @@ public class ToolRegistry {
         }
         
         String toolName = tool.getName();
+        List<String> aliases = tool.aliases();
+        
+        // Fail fast before the tool is prepared; checked again when it is published
+        checkConflicts(snapshot, toolName, aliases);
         
+        // Verify the tool before it becomes visible
+        tool.prepare();
+        ArgumentValidator validator = ArgumentValidator.compile(tool.getJsonSchema());
+        
+        synchronized (writeLock) {
+            ToolRegistrySnapshot current = snapshot;
+            checkConflicts(current, toolName, aliases);
+            
+            LinkedHashMap<String, Tool> names = new LinkedHashMap<>(current.getNames());
+            LinkedHashMap<String, Tool> aliasIndex = new LinkedHashMap<>(current.getAliases());
+            names.put(toolName, tool);
+            for (String alias : aliases) {
+                if (!alias.equals(toolName)) {
+                    aliasIndex.put(alias, tool);
+                }
+            }
+            IdentityHashMap<Tool, ArgumentValidator> validators = new IdentityHashMap<>(current.getValidators());
+            validators.put(tool, validator);
+            publish(current, names, aliasIndex, validators);
+        }
+    }
+    
+    private static void checkConflicts(ToolRegistrySnapshot current, String toolName, List<String> aliases) {
         // Check for conflicts with main name
-        if (tools.containsKey(toolName)) {
+        if (current.contains(toolName)) {
             throw new IllegalStateException("Tool name '" + toolName + "' is already registered");
         }
         
         // Check for conflicts with aliases
-        for (String alias : tool.aliases()) {
-            if (tools.containsKey(alias)) {
+        for (String alias : aliases) {
+            if (current.contains(alias)) {
                 throw new IllegalStateException("Tool alias '" + alias + "' is already registered");
             }
         }
-        
-        // Register main name
-        tools.put(toolName, tool);
-        
-        // Register aliases
-        for (String alias : tool.aliases()) {
-            tools.put(alias, tool);
-        }
+    }
+    
+    private void publish(ToolRegistrySnapshot current, LinkedHashMap<String, Tool> names,
+                         LinkedHashMap<String, Tool> aliases, Map<Tool, ArgumentValidator> validators) {
+        snapshot = new ToolRegistrySnapshot(current.getVersion() + 1, names, aliases, validators);
+    }
+    
+    /**
+     * Get the current state of the registry. The snapshot never changes; later changes to the
+     * registry publish new snapshots.
+     * @return current snapshot
+     */
+    public ToolRegistrySnapshot snapshot() {
+        return snapshot;
     }
     
     /**
@@ -54,7 +99,29 @@ public class ToolRegistry {
      * @return the tool or null if not found
      */
     public Tool get(String name) {
-        return tools.get(name);
+        return snapshot.get(name);
+    }
+    
+    /**
+     * Validate arguments against a registered tool's schema and apply its declared defaults.
+     * Invalid arguments are audited and rejected without running anything.
+     * @param tool registered tool
+     * @param args tool arguments as JSON, may be null
+     * @return the arguments, or a copy with defaults filled in
+     * @throws ArgumentValidationException if the arguments do not match the schema
+     */
+    public JsonNode validateArguments(Tool tool, JsonNode args) {
+        try {
+            return snapshot.getValidator(tool).validate(args);
+        } catch (ArgumentValidationException e) {
+            if (e.isMissing()) {
+                AuditLogger.log(new ValidationErrorEvent(tool.getName(), e.getField(),
+                    args != null ? args : JsonNodeFactory.instance.objectNode()));
+            } else {
+                AuditLogger.log(new InvalidArgumentEvent(tool.getName(), e.getField(), e.getMessage()));
+            }
+            throw e;
+        }
     }
     
     /**
@@ -62,9 +129,7 @@ public class ToolRegistry {
      * @return unmodifiable collection of all unique tools
      */
     public Collection<Tool> list() {
-        return Collections.unmodifiableCollection(tools.values().stream()
-            .distinct()
-            .collect(java.util.stream.Collectors.toList()));
+        return snapshot.getTools();
     }
     
     /**
@@ -72,7 +137,7 @@ public class ToolRegistry {
      * @return unmodifiable list of tool names
      */
     public List<String> listNames() {
-        return List.copyOf(tools.keySet());
+        return snapshot.getAllNames();
     }
     
     /**
@@ -81,16 +146,28 @@ public class ToolRegistry {
      * @return true if tool is registered
      */
     public boolean contains(String name) {
-        return tools.containsKey(name);
+        return snapshot.contains(name);
     }
     
     /**
-     * Remove a tool from the registry.
+     * Remove a tool name or alias from the registry. The tool stays reachable through its other names.
      * @param name tool name
      * @return the removed tool or null if not found
      */
     public Tool unregister(String name) {
-        return tools.remove(name);
+        synchronized (writeLock) {
+            ToolRegistrySnapshot current = snapshot;
+            LinkedHashMap<String, Tool> names = new LinkedHashMap<>(current.getNames());
+            LinkedHashMap<String, Tool> aliases = new LinkedHashMap<>(current.getAliases());
+            Tool removed = names.remove(name);
+            if (removed == null) {
+                removed = aliases.remove(name);
+            }
+            if (removed != null) {
+                publish(current, names, aliases, current.getValidators());
+            }
+            return removed;
+        }
     }
     
     /**
@@ -98,13 +175,15 @@ public class ToolRegistry {
      * @return tool count
      */
     public int size() {
-        return tools.size();
+        return snapshot.size();
     }
     
     /**
      * Clear all tools from the registry.
      */
     public void clear() {
-        tools.clear();
+        synchronized (writeLock) {
+            publish(snapshot, new LinkedHashMap<>(), new LinkedHashMap<>(), Map.of());
+        }
     }
 }
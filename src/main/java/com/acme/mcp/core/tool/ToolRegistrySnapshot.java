@@ -0,0 +1,245 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.schema.ArgumentValidator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable state of a {@link ToolRegistry} at one version.
+ * <p>
+ * A snapshot indexes tools by canonical name and by alias, lists the unique tools, holds the
+ * argument validator compiled from each tool's schema at registration, and carries the
+ * tool catalog ({@code {"tools":[{"name","description","inputSchema"}]}}) serialized once when the
+ * snapshot is published, with a strong ETag derived from its bytes. Readers never lock: they read
+ * the snapshot the registry currently publishes, and changes publish a new one.
+ */
+public final class ToolRegistrySnapshot {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final long version;
+    private final Map<String, Tool> names;
+    private final Map<String, Tool> aliases;
+    private final List<Tool> tools;
+    private final List<String> allNames;
+    private final Map<Tool, ArgumentValidator> validators;
+    private final byte[] catalog;
+    private final String catalogETag;
+
+    /**
+     * @param version version number, increasing with every change
+     * @param names tools by canonical name, in registration order; not copied
+     * @param aliases tools by alias, in registration order; not copied
+     * @param validators argument validator of each tool, by identity; entries of removed tools are dropped
+     */
+    ToolRegistrySnapshot(long version, LinkedHashMap<String, Tool> names, LinkedHashMap<String, Tool> aliases,
+                         Map<Tool, ArgumentValidator> validators) {
+        this.version = version;
+        this.names = Collections.unmodifiableMap(names);
+        this.aliases = Collections.unmodifiableMap(aliases);
+
+        Set<Tool> unique = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Tool> tools = new ArrayList<>();
+        for (Tool tool : names.values()) {
+            if (unique.add(tool)) {
+                tools.add(tool);
+            }
+        }
+        for (Tool tool : aliases.values()) {
+            if (unique.add(tool)) {
+                tools.add(tool);
+            }
+        }
+        this.tools = Collections.unmodifiableList(tools);
+
+        IdentityHashMap<Tool, ArgumentValidator> retained = new IdentityHashMap<>();
+        for (Tool tool : tools) {
+            retained.put(tool, validators.getOrDefault(tool, ArgumentValidator.ACCEPT_ALL));
+        }
+        this.validators = Collections.unmodifiableMap(retained);
+
+        List<String> allNames = new ArrayList<>(names.keySet());
+        allNames.addAll(aliases.keySet());
+        this.allNames = List.copyOf(allNames);
+
+        this.catalog = serializeCatalog(this.tools);
+        this.catalogETag = "\"" + sha256(catalog).substring(0, 32) + "\"";
+    }
+
+    /**
+     * @return version number, increasing with every change of the registry
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get a tool by canonical name or alias.
+     * @param name tool name or alias
+     * @return the tool or null if not found
+     */
+    public Tool get(String name) {
+        Tool tool = names.get(name);
+        return tool != null ? tool : aliases.get(name);
+    }
+
+    /**
+     * @param name tool name or alias
+     * @return true if a tool is registered under the name
+     */
+    public boolean contains(String name) {
+        return names.containsKey(name) || aliases.containsKey(name);
+    }
+
+    /**
+     * Get the argument validator of a registered tool.
+     * @param tool registered tool
+     * @return validator compiled from the tool's schema, or one accepting anything if the tool is not registered
+     */
+    public ArgumentValidator getValidator(Tool tool) {
+        return validators.getOrDefault(tool, ArgumentValidator.ACCEPT_ALL);
+    }
+
+    /**
+     * @return unmodifiable map of argument validators by tool identity
+     */
+    Map<Tool, ArgumentValidator> getValidators() {
+        return validators;
+    }
+
+    /**
+     * @return unmodifiable list of unique tools in registration order
+     */
+    public List<Tool> getTools() {
+        return tools;
+    }
+
+    /**
+     * @return unmodifiable map of tools by canonical name
+     */
+    public Map<String, Tool> getNames() {
+        return names;
+    }
+
+    /**
+     * @return unmodifiable map of tools by alias
+     */
+    public Map<String, Tool> getAliases() {
+        return aliases;
+    }
+
+    /**
+     * @return unmodifiable list of canonical names followed by aliases
+     */
+    public List<String> getAllNames() {
+        return allNames;
+    }
+
+    /**
+     * @return number of canonical names and aliases
+     */
+    public int size() {
+        return names.size() + aliases.size();
+    }
+
+    /**
+     * @return copy of the UTF-8 JSON tool catalog
+     */
+    public byte[] getCatalogBytes() {
+        return catalog.clone();
+    }
+
+    /**
+     * @return size of the tool catalog in bytes
+     */
+    public int getCatalogSize() {
+        return catalog.length;
+    }
+
+    /**
+     * Write the tool catalog without copying it first.
+     * @param out stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeCatalog(OutputStream out) throws IOException {
+        out.write(catalog);
+    }
+
+    /**
+     * @return quoted strong ETag of the tool catalog; equal catalogs have equal ETags across versions
+     */
+    public String getCatalogETag() {
+        return catalogETag;
+    }
+
+    /**
+     * @param ifNoneMatch value of an If-None-Match header, may be null
+     * @return true if the client's copy of the catalog is current
+     */
+    public boolean catalogMatches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(catalogETag) || trimmed.equals("W/" + catalogETag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] serializeCatalog(List<Tool> tools) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("tools");
+            for (Tool tool : tools) {
+                generator.writeStartObject();
+                generator.writeStringField("name", tool.getName());
+                generator.writeStringField("description", tool.getDescription());
+                generator.writeFieldName("inputSchema");
+                OBJECT_MAPPER.writeTree(generator, tool.getJsonSchema() != null
+                    ? tool.getJsonSchema() : OBJECT_MAPPER.createObjectNode());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Tool catalog cannot be serialized", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ToolRegistrySnapshot{version=" + version + ", tools=" + tools.size()
+            + ", aliases=" + aliases.size() + ", etag=" + catalogETag + "}";
+    }
+}
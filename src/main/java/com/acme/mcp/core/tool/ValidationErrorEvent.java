@@ -0,0 +1,33 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AuditEvent;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Audit event logged when a required argument is missing.
+ * @param tool tool name
+ * @param missingField name of the missing field
+ * @param args arguments provided by the caller; their field names are written as {@code providedFields}
+ */
+public record ValidationErrorEvent(String tool, String missingField, JsonNode args) implements AuditEvent {
+    
+    @Override
+    public String getEvent() {
+        return "tool_validation_error";
+    }
+    
+    @Override
+    public void writeFields(JsonGenerator generator) throws IOException {
+        generator.writeStringField("tool", tool);
+        generator.writeStringField("missingField", missingField);
+        generator.writeArrayFieldStart("providedFields");
+        for (Iterator<String> names = args.fieldNames(); names.hasNext(); ) {
+            generator.writeString(names.next());
+        }
+        generator.writeEndArray();
+    }
+}
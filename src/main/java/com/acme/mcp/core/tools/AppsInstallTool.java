@@ -3,6 +3,7 @@ package com.acme.mcp.core.tools;
 import com.acme.mcp.core.tool.*;
 import com.acme.mcp.core.schema.JsonSchemas;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -18,15 +19,40 @@ public class AppsInstallTool extends PowerShellToolBase {
     private static final String TOOL_DESCRIPTION = "Install applications using Windows Package Manager (winget)";
     private static final List<String> OS_SUPPORT = List.of("windows");
     
+    /** Package install; the package name is passed as a script parameter. */
+    private static final ScriptTemplate INSTALL = ScriptTemplate.of(
+        "winget install --accept-source-agreements --accept-package-agreements {{name}}"
+    );
+    
+    private static final ScriptTemplate INSTALL_SILENT = ScriptTemplate.of(
+        "winget install --accept-source-agreements --accept-package-agreements {{name}} --silent"
+    );
+    
+    /** Structured variants: winget output is captured and returned with its exit code. */
+    private static final ScriptTemplate INSTALL_JSON = ScriptTemplate.of(
+        "$output = winget install --accept-source-agreements --accept-package-agreements {{name}}",
+        "[pscustomobject]@{ name = {{name}}; exitCode = $LASTEXITCODE; output = @($output) } | ConvertTo-Json -Compress"
+    );
+    
+    private static final ScriptTemplate INSTALL_SILENT_JSON = ScriptTemplate.of(
+        "$output = winget install --accept-source-agreements --accept-package-agreements {{name}} --silent",
+        "[pscustomobject]@{ name = {{name}}; exitCode = $LASTEXITCODE; output = @($output) } | ConvertTo-Json -Compress"
+    );
+    
     public AppsInstallTool() {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema());
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema());
     }
     
     /**
      * Constructor for testing with custom PowerShellRunner.
      */
     public AppsInstallTool(PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema(), powerShellRunner, allowlist);
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema(), powerShellRunner, allowlist);
+    }
+    
+    @Override
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of(INSTALL, INSTALL_SILENT, INSTALL_JSON, INSTALL_SILENT_JSON);
     }
     
     @Override
@@ -37,29 +63,44 @@ public class AppsInstallTool extends PowerShellToolBase {
         String name = args.get("name").asText();
         boolean silent = args.has("silent") ? args.get("silent").asBoolean() : true;
         
-        // Build winget command
-        StringBuilder command = new StringBuilder("winget install --accept-source-agreements --accept-package-agreements ");
-        command.append(name);
-        
-        if (silent) {
-            command.append(" --silent");
-        }
-        
-        List<String> commands = List.of(command.toString());
-        
-        return runPs(commands, context, Map.of(
+        Map<String, Object> auditExtra = Map.of(
             "packageName", name,
             "silent", silent
-        ));
+        );
+        if (context.isStructuredOutput()) {
+            return runPs(silent ? INSTALL_SILENT_JSON : INSTALL_JSON, Map.of("name", name), OutputFormat.JSON,
+                context, auditExtra);
+        }
+        return runPs(silent ? INSTALL_SILENT : INSTALL, Map.of("name", name), context, auditExtra);
     }
     
-    private static JsonNode createJsonSchema() {
-        return JsonSchemas.object(
-            Map.of(
-                "name", JsonSchemas.string("Id/name in Winget"),
-                "silent", JsonSchemas.bool(true)
-            ),
-            List.of("name")
-        );
+    /**
+     * Descriptor of this tool, discovered through {@link ToolDescriptor} without loading the tool.
+     */
+    public static final class Descriptor extends ToolDescriptor {
+        
+        public Descriptor() {
+            super(TOOL_NAME, TOOL_DESCRIPTION, true, List.of("windows"), List.of());
+        }
+        
+        static JsonNode schema() {
+            return JsonSchemas.object(
+                Map.of(
+                    "name", JsonSchemas.string("Id/name in Winget"),
+                    "silent", JsonSchemas.bool(true)
+                ),
+                List.of("name")
+            );
+        }
+        
+        @Override
+        protected JsonNode createJsonSchema() {
+            return schema();
+        }
+        
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            return new AppsInstallTool(powerShellRunner, allowlist);
+        }
     }
 }
@@ -2,9 +2,10 @@ package com.acme.mcp.core.tools;
 
 import com.acme.mcp.core.tool.*;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 
 import java.util.List;
 import java.util.Map;
@@ -18,32 +19,67 @@ public class AppsRepairTeamsTool extends PowerShellToolBase {
     private static final String TOOL_DESCRIPTION = "Repair Microsoft Teams by killing processes and clearing cache";
     private static final List<String> OS_SUPPORT = List.of("windows");
     
+    /** Teams repair commands; constant, verified at registration. */
+    private static final ScriptTemplate SCRIPT = ScriptTemplate.of(
+        "taskkill /IM Teams.exe /F",
+        "Remove-Item -Recurse -Force \"$env:APPDATA\\Microsoft\\Teams\"",
+        "Start-Process \"$env:LOCALAPPDATA\\Microsoft\\Teams\\Update.exe\" --processStart \"Teams.exe\""
+    );
+    
+    /** Structured variant: reports the outcome of each step instead of the raw command output. */
+    private static final ScriptTemplate JSON_SCRIPT = ScriptTemplate.of(
+        "$kill = taskkill /IM Teams.exe /F 2>&1",
+        "$killExit = $LASTEXITCODE",
+        "Remove-Item -Recurse -Force \"$env:APPDATA\\Microsoft\\Teams\" -ErrorAction SilentlyContinue -ErrorVariable cacheErrors",
+        "Start-Process \"$env:LOCALAPPDATA\\Microsoft\\Teams\\Update.exe\" --processStart \"Teams.exe\" -ErrorAction SilentlyContinue -ErrorVariable startErrors",
+        "[pscustomobject]@{ killExitCode = $killExit; cacheCleared = ($cacheErrors.Count -eq 0); restarted = ($startErrors.Count -eq 0) } | ConvertTo-Json -Compress"
+    );
+    
     public AppsRepairTeamsTool() {
-        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, createJsonSchema());
+        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, Descriptor.schema());
     }
     
     /**
      * Constructor for testing with custom PowerShellRunner.
      */
     public AppsRepairTeamsTool(PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, createJsonSchema(), powerShellRunner, allowlist);
+        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, Descriptor.schema(), powerShellRunner, allowlist);
+    }
+    
+    @Override
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of(SCRIPT, JSON_SCRIPT);
     }
     
     @Override
     public ExecuteResult execute(ExecutionContext context, JsonNode args) {
-        // This tool doesn't require parameters
-        
-        List<String> commands = List.of(
-            "taskkill /IM Teams.exe /F",
-            "Remove-Item -Recurse -Force \"$env:APPDATA\\Microsoft\\Teams\"",
-            "Start-Process \"$env:LOCALAPPDATA\\Microsoft\\Teams\\Update.exe\" --processStart \"Teams.exe\""
-        );
-        
-        return runPs(commands, context, Map.of());
+        if (context.isStructuredOutput()) {
+            return runPs(JSON_SCRIPT, Map.of(), OutputFormat.JSON, context, Map.of());
+        }
+        return runPs(SCRIPT, Map.of(), context, Map.of());
     }
     
-    private static JsonNode createJsonSchema() {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.createObjectNode();
+    /**
+     * Descriptor of this tool, discovered through {@link ToolDescriptor} without loading the tool.
+     */
+    public static final class Descriptor extends ToolDescriptor {
+        
+        public Descriptor() {
+            super(TOOL_NAME, TOOL_DESCRIPTION, false, List.of("windows"), List.of());
+        }
+        
+        static JsonNode schema() {
+            return JsonNodeFactory.instance.objectNode();
+        }
+        
+        @Override
+        protected JsonNode createJsonSchema() {
+            return schema();
+        }
+        
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            return new AppsRepairTeamsTool(powerShellRunner, allowlist);
+        }
     }
 }
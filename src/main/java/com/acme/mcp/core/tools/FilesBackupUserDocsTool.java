@@ -1,32 +1,79 @@
 package com.acme.mcp.core.tools;
 
+import com.acme.mcp.core.backup.BackupEngine;
+import com.acme.mcp.core.backup.BackupReport;
+import com.acme.mcp.core.backup.ChunkStore;
 import com.acme.mcp.core.tool.*;
 import com.acme.mcp.core.schema.JsonSchemas;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Tool to backup user documents to a ZIP file.
+ * The native engine runs in process instead and backs up incrementally into a folder of archives,
+ * see {@link BackupEngine}; the dedup engine backs up into a {@link ChunkStore} shared by all assets
+ * and users backed up to the same folder.
  */
 public class FilesBackupUserDocsTool extends PowerShellToolBase {
     
     private static final String TOOL_NAME = "files.backup_user_docs";
     private static final String TOOL_DESCRIPTION = "Backup user documents to a ZIP file";
     private static final List<String> OS_SUPPORT = List.of("windows");
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    /** Shared by all instances; its workers are started on demand and stop when idle. */
+    private static final BackupEngine BACKUP_ENGINE = new BackupEngine();
+    
+    /** Chunk stores by folder, opened on first use and kept open. */
+    private static final Map<Path, ChunkStore> CHUNK_STORES = new ConcurrentHashMap<>();
+    
+    /** Archive the selected profile folders; flags and destination are passed as script parameters. */
+    private static final ScriptTemplate SCRIPT = ScriptTemplate.of(
+        "$paths = @()",
+        "if ({{includeDesktop}}) { $paths += \"$env:USERPROFILE\\Desktop\" }",
+        "if ({{includeDocuments}}) { $paths += \"$env:USERPROFILE\\Documents\" }",
+        "if ({{includeDownloads}}) { $paths += \"$env:USERPROFILE\\Downloads\" }",
+        "Compress-Archive -Path $paths -DestinationPath {{destZip}} -Force"
+    );
+    
+    /** Structured variant: also reports the archived folders and the archive size. */
+    private static final ScriptTemplate JSON_SCRIPT = ScriptTemplate.of(
+        "$paths = @()",
+        "if ({{includeDesktop}}) { $paths += \"$env:USERPROFILE\\Desktop\" }",
+        "if ({{includeDocuments}}) { $paths += \"$env:USERPROFILE\\Documents\" }",
+        "if ({{includeDownloads}}) { $paths += \"$env:USERPROFILE\\Downloads\" }",
+        "Compress-Archive -Path $paths -DestinationPath {{destZip}} -Force",
+        "$archive = Get-ChildItem -Path {{destZip}} -ErrorAction SilentlyContinue",
+        "[pscustomobject]@{ destZip = {{destZip}}; paths = $paths; sizeBytes = $archive.Length } | ConvertTo-Json -Compress"
+    );
     
     public FilesBackupUserDocsTool() {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema());
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema());
     }
     
     /**
      * Constructor for testing with custom PowerShellRunner.
      */
     public FilesBackupUserDocsTool(PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema(), powerShellRunner, allowlist);
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema(), powerShellRunner, allowlist);
+    }
+    
+    @Override
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of(SCRIPT, JSON_SCRIPT);
     }
     
     @Override
@@ -36,50 +83,142 @@ public class FilesBackupUserDocsTool extends PowerShellToolBase {
         boolean includeDesktop = args.has("includeDesktop") ? args.get("includeDesktop").asBoolean() : true;
         boolean includeDocuments = args.has("includeDocuments") ? args.get("includeDocuments").asBoolean() : true;
         boolean includeDownloads = args.has("includeDownloads") ? args.get("includeDownloads").asBoolean() : false;
+        String engine = args.has("engine") ? args.get("engine").asText() : "powershell";
         
-        // Build paths to collect
-        StringBuilder pathsToBackup = new StringBuilder();
-        
-        if (includeDesktop) {
-            pathsToBackup.append("\"$env:USERPROFILE\\Desktop\"");
-        }
-        if (includeDocuments) {
-            if (pathsToBackup.length() > 0) pathsToBackup.append(", ");
-            pathsToBackup.append("\"$env:USERPROFILE\\Documents\"");
+        if (engine.equals("native") || engine.equals("dedup")) {
+            String destDir = args.has("destDir") ? args.get("destDir").asText() : "C:\\Temp\\user-docs-backup";
+            Path profile = profileFolder(args.has("user") ? args.get("user").asText() : null);
+            Map<String, Path> sources = new LinkedHashMap<>();
+            if (includeDesktop) {
+                sources.put("Desktop", profile.resolve("Desktop"));
+            }
+            if (includeDocuments) {
+                sources.put("Documents", profile.resolve("Documents"));
+            }
+            if (includeDownloads) {
+                sources.put("Downloads", profile.resolve("Downloads"));
+            }
+            String backupName = context.getAssetId() + "/"
+                + (args.has("user") ? args.get("user").asText() : System.getProperty("user.name"));
+            return executeNative(context, engine.equals("dedup"), sources, Path.of(destDir), backupName, Map.of(
+                "engine", engine,
+                "user", user,
+                "destDir", destDir,
+                "includeDesktop", includeDesktop,
+                "includeDocuments", includeDocuments,
+                "includeDownloads", includeDownloads
+            ));
         }
-        if (includeDownloads) {
-            if (pathsToBackup.length() > 0) pathsToBackup.append(", ");
-            pathsToBackup.append("\"$env:USERPROFILE\\Downloads\"");
+        if (!engine.equals("powershell")) {
+            throw new IllegalArgumentException("Unknown engine: " + engine);
         }
         
-        // Create backup command
-        String backupCommand = String.format(
-            "Compress-Archive -Path %s -DestinationPath \"%s\" -Force",
-            pathsToBackup.toString(),
-            destZip
+        Map<String, Object> values = Map.of(
+            "includeDesktop", includeDesktop,
+            "includeDocuments", includeDocuments,
+            "includeDownloads", includeDownloads,
+            "destZip", destZip
         );
-        
-        List<String> commands = List.of(backupCommand);
-        
-        return runPs(commands, context, Map.of(
+        Map<String, Object> auditExtra = Map.of(
             "user", user,
             "destZip", destZip,
             "includeDesktop", includeDesktop,
             "includeDocuments", includeDocuments,
             "includeDownloads", includeDownloads
-        ));
+        );
+        if (context.isStructuredOutput()) {
+            return runPs(JSON_SCRIPT, values, OutputFormat.JSON, context, auditExtra);
+        }
+        return runPs(SCRIPT, values, context, auditExtra);
     }
     
-    private static JsonNode createJsonSchema() {
-        return JsonSchemas.object(
-            Map.of(
-                "user", JsonSchemas.string("User name; defaults to current user"),
-                "destZip", JsonSchemas.string("Destination ZIP file path"),
-                "includeDesktop", JsonSchemas.bool(true),
-                "includeDocuments", JsonSchemas.bool(true),
-                "includeDownloads", JsonSchemas.bool(false)
-            ),
-            List.of()
-        );
+    private ExecuteResult executeNative(ExecutionContext context, boolean dedup, Map<String, Path> sources,
+                                        Path destDir, String backupName, Map<String, Object> auditExtra) {
+        String operation = "BackupEngine " + sources.values() + " -> " + destDir + (dedup ? " as " + backupName : "");
+        return runNative(operation, context, auditExtra, listener -> {
+            BackupReport report;
+            try {
+                Consumer<String> progress = line -> {
+                    if (listener != null) {
+                        listener.onOutput(OutputChunk.stdout(line + System.lineSeparator()));
+                    }
+                };
+                report = dedup
+                    ? BACKUP_ENGINE.backup(sources, chunkStore(destDir), backupName, progress)
+                    : BACKUP_ENGINE.backup(sources, destDir, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ExecuteResult result = new ExecuteResult(
+                UUID.randomUUID().toString(),
+                report.isComplete() ? 0 : 1,
+                report.toString(),
+                String.join(System.lineSeparator(), report.getErrors()),
+                report.isComplete() ? ExecuteResult.Status.SUCCESS : ExecuteResult.Status.FAILURE
+            );
+            return context.isStructuredOutput() ? result.withPayload(OBJECT_MAPPER.valueToTree(report)) : result;
+        });
+    }
+    
+    private static ChunkStore chunkStore(Path folder) {
+        return CHUNK_STORES.computeIfAbsent(folder.toAbsolutePath().normalize(), root -> {
+            try {
+                return ChunkStore.open(root);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    /**
+     * Profile folder of a user; other users' profiles are siblings of the current one.
+     * @param user user name, or null for the current user
+     * @return profile folder
+     */
+    private static Path profileFolder(String user) {
+        Path home = Path.of(System.getProperty("user.home"));
+        if (user == null) {
+            return home;
+        }
+        if (user.isEmpty() || user.contains("/") || user.contains("\\") || user.equals(".") || user.equals("..")) {
+            throw new IllegalArgumentException("Invalid user name: " + user);
+        }
+        Path parent = home.getParent();
+        return parent != null ? parent.resolve(user) : home;
+    }
+    
+    /**
+     * Descriptor of this tool, discovered through {@link ToolDescriptor} without loading the tool.
+     */
+    public static final class Descriptor extends ToolDescriptor {
+        
+        public Descriptor() {
+            super(TOOL_NAME, TOOL_DESCRIPTION, true, List.of("windows"), List.of());
+        }
+        
+        static JsonNode schema() {
+            return JsonSchemas.object(
+                Map.of(
+                    "user", JsonSchemas.string("User name; defaults to current user"),
+                    "destZip", JsonSchemas.string("Destination ZIP file path"),
+                    "engine", JsonSchemas.stringEnum(List.of("powershell", "native", "dedup"), "powershell"),
+                    "destDir", JsonSchemas.string("Destination folder of incremental backups or of the shared chunk store"),
+                    "includeDesktop", JsonSchemas.bool(true),
+                    "includeDocuments", JsonSchemas.bool(true),
+                    "includeDownloads", JsonSchemas.bool(false)
+                ),
+                List.of()
+            );
+        }
+        
+        @Override
+        protected JsonNode createJsonSchema() {
+            return schema();
+        }
+        
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            return new FilesBackupUserDocsTool(powerShellRunner, allowlist);
+        }
     }
 }
@@ -2,9 +2,10 @@ package com.acme.mcp.core.tools;
 
 import com.acme.mcp.core.tool.*;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 
 import java.util.List;
 import java.util.Map;
@@ -18,47 +19,69 @@ public class SecurityCheckBitlockerTool extends PowerShellToolBase {
     private static final String TOOL_DESCRIPTION = "Check BitLocker encryption status on all volumes";
     private static final List<String> OS_SUPPORT = List.of("windows");
     
+    /** BitLocker status query; constant, verified at registration. */
+    private static final ScriptTemplate SCRIPT = ScriptTemplate.of(
+        "Get-BitLockerVolume | Select-Object MountPoint, ProtectionStatus, VolumeStatus, EncryptionMethod, PercentageEncrypted"
+    );
+    
+    /** Structured variant: one compact JSON object per volume (NDJSON). */
+    private static final ScriptTemplate JSON_SCRIPT = ScriptTemplate.of(
+        "Get-BitLockerVolume | ForEach-Object {",
+        "    [pscustomobject]@{ mountPoint = $_.MountPoint; protectionStatus = [string]$_.ProtectionStatus; volumeStatus = [string]$_.VolumeStatus; encryptionMethod = [string]$_.EncryptionMethod; percentageEncrypted = $_.EncryptionPercentage } | ConvertTo-Json -Compress",
+        "}"
+    );
+    
     public SecurityCheckBitlockerTool() {
-        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, createJsonSchema());
+        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, Descriptor.schema());
     }
     
     /**
      * Constructor for testing with custom PowerShellRunner.
      */
     public SecurityCheckBitlockerTool(PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, createJsonSchema(), powerShellRunner, allowlist);
+        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, Descriptor.schema(), powerShellRunner, allowlist);
+    }
+    
+    @Override
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of(SCRIPT, JSON_SCRIPT);
+    }
+    
+    @Override
+    protected boolean isBatchable() {
+        return true;
     }
     
     @Override
     public ExecuteResult execute(ExecutionContext context, JsonNode args) {
         // This tool doesn't require parameters
+        if (context.isStructuredOutput()) {
+            return runPs(JSON_SCRIPT, Map.of(), OutputFormat.NDJSON, context, Map.of());
+        }
+        return runPs(SCRIPT, Map.of(), context, Map.of());
+    }
+    
+    /**
+     * Descriptor of this tool, discovered through {@link ToolDescriptor} without loading the tool.
+     */
+    public static final class Descriptor extends ToolDescriptor {
         
-        List<String> commands = List.of(
-            "Get-BitLockerVolume | Select-Object MountPoint, ProtectionStatus, VolumeStatus, EncryptionMethod, PercentageEncrypted"
-        );
+        public Descriptor() {
+            super(TOOL_NAME, TOOL_DESCRIPTION, false, List.of("windows"), List.of());
+        }
         
-        ExecuteResult result = runPs(commands, context, Map.of());
+        static JsonNode schema() {
+            return JsonNodeFactory.instance.objectNode();
+        }
         
-        // Try to parse output as JSON (optional)
-        boolean parsed = false;
-        try {
-            if (result.getStdout() != null && !result.getStdout().trim().isEmpty()) {
-                // Simple check if output looks like structured data
-                String output = result.getStdout().trim();
-                parsed = output.contains("MountPoint") && output.contains("ProtectionStatus");
-            }
-        } catch (Exception e) {
-            // Ignore parsing errors
+        @Override
+        protected JsonNode createJsonSchema() {
+            return schema();
         }
         
-        // Add parsing result to audit data
-        return runPs(commands, context, Map.of(
-            "parsed", parsed
-        ));
-    }
-    
-    private static JsonNode createJsonSchema() {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.createObjectNode();
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            return new SecurityCheckBitlockerTool(powerShellRunner, allowlist);
+        }
     }
 }
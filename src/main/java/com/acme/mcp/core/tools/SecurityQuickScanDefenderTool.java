@@ -3,6 +3,7 @@ package com.acme.mcp.core.tools;
 import com.acme.mcp.core.tool.*;
 import com.acme.mcp.core.schema.JsonSchemas;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -18,38 +19,74 @@ public class SecurityQuickScanDefenderTool extends PowerShellToolBase {
     private static final String TOOL_DESCRIPTION = "Perform quick or full scan using Windows Defender";
     private static final List<String> OS_SUPPORT = List.of("windows");
     
+    /** Computer status (read-only), then the scan; the scan type is passed as a script parameter. */
+    private static final ScriptTemplate SCRIPT = ScriptTemplate.of(
+        "Get-MpComputerStatus",
+        "Start-MpScan -ScanType {{scanType}}"
+    );
+    
+    /** Structured variant: the scan followed by the relevant computer status fields. */
+    private static final ScriptTemplate JSON_SCRIPT = ScriptTemplate.of(
+        "$status = Get-MpComputerStatus",
+        "Start-MpScan -ScanType {{scanType}}",
+        "[pscustomobject]@{ scanType = {{scanType}}; antivirusEnabled = $status.AntivirusEnabled; realTimeProtectionEnabled = $status.RealTimeProtectionEnabled; antivirusSignatureVersion = $status.AntivirusSignatureVersion; antivirusSignatureLastUpdated = [string]$status.AntivirusSignatureLastUpdated; quickScanAge = $status.QuickScanAge; fullScanAge = $status.FullScanAge } | ConvertTo-Json -Compress"
+    );
+    
     public SecurityQuickScanDefenderTool() {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema());
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema());
     }
     
     /**
      * Constructor for testing with custom PowerShellRunner.
      */
     public SecurityQuickScanDefenderTool(PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema(), powerShellRunner, allowlist);
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema(), powerShellRunner, allowlist);
+    }
+    
+    @Override
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of(SCRIPT, JSON_SCRIPT);
     }
     
     @Override
     public ExecuteResult execute(ExecutionContext context, JsonNode args) {
         String scanType = args.has("scanType") ? args.get("scanType").asText() : "QuickScan";
         
-        // First, get computer status (read-only)
-        List<String> commands = List.of(
-            "Get-MpComputerStatus",
-            "Start-MpScan -ScanType " + scanType
-        );
-        
-        return runPs(commands, context, Map.of(
+        Map<String, Object> auditExtra = Map.of(
             "scanType", scanType
-        ));
+        );
+        if (context.isStructuredOutput()) {
+            return runPs(JSON_SCRIPT, Map.of("scanType", scanType), OutputFormat.JSON, context, auditExtra);
+        }
+        return runPs(SCRIPT, Map.of("scanType", scanType), context, auditExtra);
     }
     
-    private static JsonNode createJsonSchema() {
-        return JsonSchemas.object(
-            Map.of(
-                "scanType", JsonSchemas.stringEnum(List.of("QuickScan", "FullScan"), "QuickScan")
-            ),
-            List.of()
-        );
+    /**
+     * Descriptor of this tool, discovered through {@link ToolDescriptor} without loading the tool.
+     */
+    public static final class Descriptor extends ToolDescriptor {
+        
+        public Descriptor() {
+            super(TOOL_NAME, TOOL_DESCRIPTION, true, List.of("windows"), List.of());
+        }
+        
+        static JsonNode schema() {
+            return JsonSchemas.object(
+                Map.of(
+                    "scanType", JsonSchemas.stringEnum(List.of("QuickScan", "FullScan"), "QuickScan")
+                ),
+                List.of()
+            );
+        }
+        
+        @Override
+        protected JsonNode createJsonSchema() {
+            return schema();
+        }
+        
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            return new SecurityQuickScanDefenderTool(powerShellRunner, allowlist);
+        }
     }
 }
@@ -0,0 +1,204 @@
+package com.acme.mcp.core.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last known service table per asset, versioned so that callers can ask for the changes since
+ * a version they already hold.
+ * <p>
+ * Each row remembers the version it was added and last modified in, and removed rows leave a
+ * tombstone, so a delta can be answered for any version from the oldest retained tombstone on,
+ * not only for the latest one. Versions come from one process-wide sequence, so they interleave
+ * across snapshots; each snapshot remembers the versions it issued and answers a delta only for
+ * one of those, so a version from an evicted or different snapshot falls back to the full table.
+ * Snapshots are evicted least recently used first.
+ */
+final class ServiceSnapshots {
+
+    /** Default number of snapshots kept, one per asset and filter. */
+    static final int DEFAULT_MAX_SNAPSHOTS = 10_000;
+
+    /** Removed services remembered per snapshot; older removals fall back to a full response. */
+    static final int MAX_TOMBSTONES = 1_024;
+
+    /** Versions remembered per snapshot; deltas since older versions fall back to a full response. */
+    static final int MAX_VERSIONS = 1_024;
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final Map<String, Snapshot> snapshots;
+
+    /**
+     * @param maxSnapshots number of snapshots kept before the least recently used is evicted
+     */
+    ServiceSnapshots(int maxSnapshots) {
+        if (maxSnapshots <= 0) {
+            throw new IllegalArgumentException("Max snapshots must be positive");
+        }
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > maxSnapshots;
+            }
+        };
+    }
+
+    /**
+     * Record the current service table and describe it relative to a version the caller holds.
+     * The response is a delta {@code {version, sinceVersion, full: false, added, changed, removed}}
+     * when the changes since that version are known, otherwise the full table
+     * {@code {version, full: true, services}}.
+     * @param key snapshot key, typically the asset id and filter
+     * @param services current rows, each an object with a unique {@code name}
+     * @param sinceVersion version the caller holds, 0 for none
+     * @return response payload
+     */
+    ObjectNode update(String key, JsonNode services, long sinceVersion) {
+        Snapshot snapshot;
+        boolean created = false;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(key);
+            if (snapshot == null) {
+                snapshot = new Snapshot();
+                snapshots.put(key, snapshot);
+                created = true;
+            }
+        }
+        synchronized (snapshot) {
+            snapshot.apply(services);
+            if (!created && snapshot.issued.contains(sinceVersion)) {
+                return snapshot.delta(sinceVersion);
+            }
+            return snapshot.full();
+        }
+    }
+
+    /**
+     * @return number of snapshots held
+     */
+    int size() {
+        synchronized (snapshots) {
+            return snapshots.size();
+        }
+    }
+
+    private static final class Row {
+        JsonNode data;
+        final long added;
+        long modified;
+
+        Row(JsonNode data, long version) {
+            this.data = data;
+            this.added = version;
+            this.modified = version;
+        }
+    }
+
+    private static final class Snapshot {
+        final Map<String, Row> rows = new TreeMap<>();
+        final LinkedHashMap<String, Long> tombstones = new LinkedHashMap<>();
+        /** Versions issued by this snapshot from minVersion on. */
+        final TreeSet<Long> issued = new TreeSet<>();
+        long version;
+        long minVersion;
+
+        void apply(JsonNode services) {
+            long next = 0;
+            Set<String> seen = new HashSet<>();
+            for (JsonNode service : services) {
+                String name = service.path("name").asText();
+                if (name.isEmpty() || !seen.add(name)) {
+                    continue;
+                }
+                Row row = rows.get(name);
+                if (row == null) {
+                    next = next == 0 ? VERSIONS.incrementAndGet() : next;
+                    rows.put(name, new Row(service, next));
+                    tombstones.remove(name);
+                } else if (!row.data.equals(service)) {
+                    next = next == 0 ? VERSIONS.incrementAndGet() : next;
+                    row.data = service;
+                    row.modified = next;
+                }
+            }
+            Iterator<String> it = rows.keySet().iterator();
+            while (it.hasNext()) {
+                String name = it.next();
+                if (!seen.contains(name)) {
+                    next = next == 0 ? VERSIONS.incrementAndGet() : next;
+                    it.remove();
+                    tombstones.put(name, next);
+                }
+            }
+            if (next == 0 && version == 0) {
+                // First table is empty; it still gets a version of its own
+                next = VERSIONS.incrementAndGet();
+            }
+            if (next != 0) {
+                if (version == 0) {
+                    minVersion = next;
+                }
+                version = next;
+                issued.add(next);
+                if (issued.size() > MAX_VERSIONS) {
+                    issued.pollFirst();
+                    minVersion = Math.max(minVersion, issued.first());
+                }
+            }
+            Iterator<Map.Entry<String, Long>> eldest = tombstones.entrySet().iterator();
+            while (tombstones.size() > MAX_TOMBSTONES) {
+                // Changes before the dropped removal can no longer be described
+                minVersion = Math.max(minVersion, eldest.next().getValue());
+                eldest.remove();
+            }
+            issued.headSet(minVersion).clear();
+        }
+
+        ObjectNode delta(long sinceVersion) {
+            ObjectNode payload = NODES.objectNode();
+            payload.put("version", version);
+            payload.put("sinceVersion", sinceVersion);
+            payload.put("full", false);
+            ArrayNode added = payload.putArray("added");
+            ArrayNode changed = payload.putArray("changed");
+            ArrayNode removed = payload.putArray("removed");
+            for (Row row : rows.values()) {
+                if (row.added > sinceVersion) {
+                    added.add(row.data);
+                } else if (row.modified > sinceVersion) {
+                    changed.add(row.data);
+                }
+            }
+            for (Map.Entry<String, Long> tombstone : tombstones.entrySet()) {
+                if (tombstone.getValue() > sinceVersion) {
+                    removed.add(tombstone.getKey());
+                }
+            }
+            return payload;
+        }
+
+        ObjectNode full() {
+            ObjectNode payload = NODES.objectNode();
+            payload.put("version", version);
+            payload.put("full", true);
+            ArrayNode services = payload.putArray("services");
+            for (Row row : rows.values()) {
+                services.add(row.data);
+            }
+            return payload;
+        }
+    }
+}
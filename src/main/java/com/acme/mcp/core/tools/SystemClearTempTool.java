@@ -1,48 +1,155 @@
 package com.acme.mcp.core.tools;
 
+import com.acme.mcp.core.cleanup.CleanupReport;
+import com.acme.mcp.core.cleanup.TempCleaner;
+import com.acme.mcp.core.schema.JsonSchemas;
 import com.acme.mcp.core.tool.*;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Tool to clear temporary files from system and user temp directories.
+ * The native engine runs in process instead, deleting in parallel with age and size filters and
+ * reporting what it freed, see {@link TempCleaner}.
  */
 public class SystemClearTempTool extends PowerShellToolBase {
     
     private static final String TOOL_NAME = "system.clear_temp";
     private static final String TOOL_DESCRIPTION = "Clear temporary files from system and user temp directories";
     private static final List<String> OS_SUPPORT = List.of("windows");
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    /** Shared by all instances; its workers are started on demand and stop when idle. */
+    private static final TempCleaner TEMP_CLEANER = new TempCleaner();
+    
+    /** Temp cleanup commands; constant, verified at registration. */
+    private static final ScriptTemplate SCRIPT = ScriptTemplate.of(
+        "Remove-Item -Recurse -Force \"$env:TEMP\\*\"",
+        "Remove-Item -Recurse -Force \"C:\\Windows\\Temp\\*\""
+    );
+    
+    /** Structured variant: errors are collected instead of printed and reported as counts. */
+    private static final ScriptTemplate JSON_SCRIPT = ScriptTemplate.of(
+        "Remove-Item -Recurse -Force \"$env:TEMP\\*\" -ErrorAction SilentlyContinue -ErrorVariable userTempErrors",
+        "Remove-Item -Recurse -Force \"C:\\Windows\\Temp\\*\" -ErrorAction SilentlyContinue -ErrorVariable systemTempErrors",
+        "[pscustomobject]@{ userTempErrors = $userTempErrors.Count; systemTempErrors = $systemTempErrors.Count } | ConvertTo-Json -Compress"
+    );
     
     public SystemClearTempTool() {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema());
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema());
     }
     
     /**
      * Constructor for testing with custom PowerShellRunner.
      */
     public SystemClearTempTool(PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema(), powerShellRunner, allowlist);
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema(), powerShellRunner, allowlist);
+    }
+    
+    @Override
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of(SCRIPT, JSON_SCRIPT);
     }
     
     @Override
     public ExecuteResult execute(ExecutionContext context, JsonNode args) {
-        // This tool doesn't require parameters
-        
-        List<String> commands = List.of(
-            "Remove-Item -Recurse -Force \"$env:TEMP\\*\"",
-            "Remove-Item -Recurse -Force \"C:\\Windows\\Temp\\*\""
-        );
-        
-        return runPs(commands, context, Map.of());
+        String engine = args.has("engine") ? args.get("engine").asText() : "powershell";
+        if (engine.equals("native")) {
+            int minAgeHours = args.has("minAgeHours") ? args.get("minAgeHours").asInt() : 0;
+            int minSizeKb = args.has("minSizeKb") ? args.get("minSizeKb").asInt() : 0;
+            return executeNative(context, Duration.ofHours(minAgeHours), minSizeKb * 1024L, Map.of(
+                "engine", engine,
+                "minAgeHours", minAgeHours,
+                "minSizeKb", minSizeKb
+            ));
+        }
+        if (!engine.equals("powershell")) {
+            throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+        if (context.isStructuredOutput()) {
+            return runPs(JSON_SCRIPT, Map.of(), OutputFormat.JSON, context, Map.of());
+        }
+        return runPs(SCRIPT, Map.of(), context, Map.of());
+    }
+    
+    private ExecuteResult executeNative(ExecutionContext context, Duration minAge, long minSize,
+                                        Map<String, Object> auditExtra) {
+        return runNative("TempCleaner %TEMP% %SystemRoot%\\Temp", context, auditExtra, listener -> {
+            // Resolved here so that a missing folder is audited as an error, and dry runs need none
+            List<Path> folders = tempFolders();
+            // Output of running executions may be spilled into the user temp folder
+            CleanupReport report = TEMP_CLEANER.clean(folders, minAge, minSize, OutputCapture::isLiveSpillFile, progress -> {
+                if (listener != null) {
+                    listener.onOutput(OutputChunk.stdout(progress + System.lineSeparator()));
+                }
+            });
+            ExecuteResult result = new ExecuteResult(UUID.randomUUID().toString(), 0, report.toString(), "",
+                ExecuteResult.Status.SUCCESS);
+            return context.isStructuredOutput() ? result.withPayload(OBJECT_MAPPER.valueToTree(report)) : result;
+        });
     }
     
-    private static JsonNode createJsonSchema() {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.createObjectNode();
+    /**
+     * Only the folders Windows defines as temp folders are cleaned; there is no fallback, since
+     * other temp folders, such as /tmp, hold files of other programs.
+     * @return the user temp folder and the system temp folder
+     * @throws IllegalStateException if not running on Windows or TEMP is not set
+     */
+    private static List<Path> tempFolders() {
+        if (!System.getProperty("os.name", "").startsWith("Windows")) {
+            throw new IllegalStateException("The native engine only cleans Windows temp folders");
+        }
+        String userTemp = System.getenv("TEMP");
+        if (userTemp == null || userTemp.isBlank()) {
+            throw new IllegalStateException("TEMP is not set");
+        }
+        List<Path> folders = new ArrayList<>();
+        folders.add(Path.of(userTemp));
+        String systemRoot = System.getenv("SystemRoot");
+        if (systemRoot != null) {
+            folders.add(Path.of(systemRoot, "Temp"));
+        }
+        return folders;
+    }
+    
+    /**
+     * Descriptor of this tool, discovered through {@link ToolDescriptor} without loading the tool.
+     */
+    public static final class Descriptor extends ToolDescriptor {
+        
+        public Descriptor() {
+            super(TOOL_NAME, TOOL_DESCRIPTION, true, List.of("windows"), List.of());
+        }
+        
+        static JsonNode schema() {
+            return JsonSchemas.object(
+                Map.of(
+                    "engine", JsonSchemas.stringEnum(List.of("powershell", "native"), "powershell"),
+                    "minAgeHours", JsonSchemas.integer(0, 87_600, 0),
+                    "minSizeKb", JsonSchemas.integer(0, Integer.MAX_VALUE, 0)
+                ),
+                List.of()
+            );
+        }
+        
+        @Override
+        protected JsonNode createJsonSchema() {
+            return schema();
+        }
+        
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            return new SystemClearTempTool(powerShellRunner, allowlist);
+        }
     }
 }
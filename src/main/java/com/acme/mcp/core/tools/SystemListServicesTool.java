@@ -3,14 +3,33 @@ package com.acme.mcp.core.tools;
 import com.acme.mcp.core.tool.*;
 import com.acme.mcp.core.schema.JsonSchemas;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Tool to list and search Windows services.
+ * Services are read with a single {@code Win32_Service} CIM query whose WQL filter carries the
+ * search term and the status, so filtering happens on the provider side. Pages are ordered by
+ * service name, compared ordinally both when sorting and when resuming after the cursor, so a
+ * page never repeats or skips services whatever the culture of the host. Structured pages are
+ * sorted and cut in Java and carry an opaque cursor for the next page. Paging therefore requires
+ * structured output; text output shows the first page and whether more services match.
+ * <p>
+ * Structured calls with {@code sinceVersion} read the whole filtered table instead of a page and
+ * answer with the services added, changed or removed since that version of the asset's last
+ * known table (see {@link ServiceSnapshots}), or with the full table if that version is unknown.
  */
 public class SystemListServicesTool extends PowerShellToolBase {
     
@@ -18,15 +37,82 @@ public class SystemListServicesTool extends PowerShellToolBase {
     private static final String TOOL_DESCRIPTION = "List and search Windows services";
     private static final List<String> OS_SUPPORT = List.of("windows");
     
+    private static final String CURSOR_PREFIX = "svc:";
+    
+    /** Service listing script; the WQL filter and limit are passed as script parameters. */
+    private static final ScriptTemplate SCRIPT = ScriptTemplate.of(
+        "Write-Host '=== WINDOWS SERVICES LIST ===' -ForegroundColor Yellow",
+        "Write-Host ('Timestamp: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss')) -ForegroundColor Cyan",
+        "Write-Host ('Search Term: ' + {{search}}) -ForegroundColor Green",
+        "Write-Host ('Status Filter: ' + {{status}}) -ForegroundColor Green",
+        "Write-Host ('Limit: ' + {{limit}}) -ForegroundColor Green",
+        "",
+        "Write-Host '--- Service Information ---' -ForegroundColor Magenta",
+        "$query = @{ ClassName = 'Win32_Service'; Property = 'Name', 'DisplayName', 'State', 'StartMode', 'StartName', 'PathName' }",
+        "if ({{filter}} -ne '') { $query.Filter = {{filter}} }",
+        "$services = [System.Collections.Generic.List[object]]@(Get-CimInstance @query)",
+        "$services.Sort([System.Comparison[object]] { param($a, $b) [string]::CompareOrdinal($a.Name, $b.Name) })",
+        "$services = @($services | Select-Object -First ({{limit}} + 1))",
+        "$more = $services.Count -gt {{limit}}",
+        "$services = @($services | Select-Object -First {{limit}})",
+        "",
+        "Write-Host ('Total Services Found: ' + $services.Count) -ForegroundColor Cyan",
+        "",
+        "Write-Host '--- Detailed Service List ---' -ForegroundColor Magenta",
+        "$services | ForEach-Object {",
+        "    Write-Host ('Service Name: ' + $_.Name) -ForegroundColor White",
+        "    Write-Host ('Display Name: ' + $_.DisplayName) -ForegroundColor White",
+        "    Write-Host ('Status: ' + $_.State) -ForegroundColor White",
+        "    Write-Host ('Start Type: ' + $_.StartMode) -ForegroundColor White",
+        "    Write-Host ('Service Account: ' + $_.StartName) -ForegroundColor White",
+        "    Write-Host ('Service Path: ' + $_.PathName) -ForegroundColor White",
+        "    Write-Host '----------------------------------------' -ForegroundColor DarkGray",
+        "}",
+        "",
+        "Write-Host '--- Service Summary ---' -ForegroundColor Magenta",
+        "$runningCount = @($services | Where-Object { $_.State -eq 'Running' }).Count",
+        "$stoppedCount = @($services | Where-Object { $_.State -eq 'Stopped' }).Count",
+        "",
+        "Write-Host ('Running Services: ' + $runningCount) -ForegroundColor Green",
+        "Write-Host ('Stopped Services: ' + $stoppedCount) -ForegroundColor Red",
+        "Write-Host ('More Services: ' + $more) -ForegroundColor Green",
+        "",
+        "Write-Host '=== LIST COMPLETED ===' -ForegroundColor Yellow"
+    );
+    
+    /**
+     * Structured variant: every service matching the filter, one compact JSON object per line (NDJSON).
+     * Pages and snapshots are cut from it by {@link #execute}.
+     */
+    private static final ScriptTemplate TABLE_SCRIPT = ScriptTemplate.of(
+        "$query = @{ ClassName = 'Win32_Service'; Property = 'Name', 'DisplayName', 'State', 'StartMode', 'StartName', 'PathName', 'ProcessId' }",
+        "if ({{filter}} -ne '') { $query.Filter = {{filter}} }",
+        "Get-CimInstance @query | ForEach-Object {",
+        "    [pscustomobject]@{ name = $_.Name; displayName = $_.DisplayName; status = $_.State; startType = $_.StartMode; account = $_.StartName; path = $_.PathName; processId = $_.ProcessId } | ConvertTo-Json -Compress",
+        "}"
+    );
+    
+    private final ServiceSnapshots snapshots = new ServiceSnapshots(ServiceSnapshots.DEFAULT_MAX_SNAPSHOTS);
+    
     public SystemListServicesTool() {
-        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, createJsonSchema());
+        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, Descriptor.schema());
     }
     
     /**
      * Constructor for testing with custom PowerShellRunner.
      */
     public SystemListServicesTool(PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, createJsonSchema(), powerShellRunner, allowlist);
+        super(TOOL_NAME, TOOL_DESCRIPTION, false, OS_SUPPORT, Descriptor.schema(), powerShellRunner, allowlist);
+    }
+    
+    @Override
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of(SCRIPT, TABLE_SCRIPT);
+    }
+    
+    @Override
+    protected boolean isBatchable() {
+        return true;
     }
     
     @Override
@@ -34,68 +120,162 @@ public class SystemListServicesTool extends PowerShellToolBase {
         String searchTerm = args.has("search") ? args.get("search").asText() : "";
         String status = args.has("status") ? args.get("status").asText() : "all";
         int limit = args.has("limit") ? args.get("limit").asInt() : 50;
+        String cursor = args.has("cursor") ? args.get("cursor").asText() : "";
         
-        // Simplified service listing that works reliably
-        List<String> commands = List.of(
-            "Write-Host '=== WINDOWS SERVICES LIST ===' -ForegroundColor Yellow",
-            "Write-Host ('Timestamp: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss')) -ForegroundColor Cyan",
-            "Write-Host ('Search Term: " + searchTerm + "') -ForegroundColor Green",
-            "Write-Host ('Status Filter: " + status + "') -ForegroundColor Green",
-            "Write-Host ('Limit: " + limit + "') -ForegroundColor Green",
-            "",
-            "Write-Host '--- Service Information ---' -ForegroundColor Magenta",
-            "$services = Get-Service",
-            "if ('" + status + "' -ne 'all') {",
-            "    $services = $services | Where-Object { $_.Status -eq '" + status + "' }",
-            "}",
-            "if ('" + searchTerm + "' -ne '') {",
-            "    $services = $services | Where-Object { $_.Name -like '*" + searchTerm + "*' -or $_.DisplayName -like '*" + searchTerm + "*' }",
-            "}",
-            "$services = $services | Select-Object -First " + limit,
-            "",
-            "Write-Host ('Total Services Found: ' + $services.Count) -ForegroundColor Cyan",
-            "",
-            "Write-Host '--- Detailed Service List ---' -ForegroundColor Magenta",
-            "$services | ForEach-Object {",
-            "    Write-Host ('Service Name: ' + $_.Name) -ForegroundColor White",
-            "    Write-Host ('Display Name: ' + $_.DisplayName) -ForegroundColor White",
-            "    Write-Host ('Status: ' + $_.Status) -ForegroundColor White",
-            "    Write-Host ('Start Type: ' + $_.StartType) -ForegroundColor White",
-            "    ",
-            "    # Get basic service info",
-            "    $serviceInfo = Get-WmiObject -Class Win32_Service | Where-Object { $_.Name -eq $_.Name }",
-            "    if ($serviceInfo) {",
-            "        Write-Host ('Service Account: ' + $serviceInfo.StartName) -ForegroundColor White",
-            "        Write-Host ('Service Path: ' + $serviceInfo.PathName) -ForegroundColor White",
-            "    }",
-            "    Write-Host '----------------------------------------' -ForegroundColor DarkGray",
-            "}",
-            "",
-            "Write-Host '--- Service Summary ---' -ForegroundColor Magenta",
-            "$runningCount = ($services | Where-Object { $_.Status -eq 'Running' }).Count",
-            "$stoppedCount = ($services | Where-Object { $_.Status -eq 'Stopped' }).Count",
-            "",
-            "Write-Host ('Running Services: ' + $runningCount) -ForegroundColor Green",
-            "Write-Host ('Stopped Services: ' + $stoppedCount) -ForegroundColor Red",
-            "",
-            "Write-Host '=== LIST COMPLETED ===' -ForegroundColor Yellow"
-        );
+        if (args.has("sinceVersion") && context.isStructuredOutput()) {
+            return executeSnapshot(context, searchTerm, status, args.get("sinceVersion").asLong());
+        }
+        
+        String after = cursor.isEmpty() ? "" : decodeCursor(cursor);
+        if (!cursor.isEmpty() && !context.isStructuredOutput()) {
+            throw new IllegalArgumentException("Paging with a cursor requires structured output");
+        }
+        String filter = serviceFilter(searchTerm, status);
         
-        return runPs(commands, context, Map.of(
+        Map<String, Object> values = Map.of("search", searchTerm, "status", status, "limit", limit, "filter", filter);
+        Map<String, Object> auditExtra = new HashMap<>();
+        auditExtra.put("searchTerm", searchTerm);
+        auditExtra.put("status", status);
+        auditExtra.put("limit", limit);
+        if (!cursor.isEmpty()) {
+            auditExtra.put("cursor", cursor);
+        }
+        if (context.isStructuredOutput()) {
+            ExecuteResult result = runPs(TABLE_SCRIPT, Map.of("filter", filter), OutputFormat.NDJSON, context, auditExtra);
+            if (!result.isSuccess() || result.getPayload() == null) {
+                return result;
+            }
+            return result.withPayload(page(result.getPayload(), after, limit));
+        }
+        return runPs(SCRIPT, values, context, auditExtra);
+    }
+    
+    /**
+     * Read the whole filtered table and answer relative to the asset's last known table.
+     */
+    private ExecuteResult executeSnapshot(ExecutionContext context, String searchTerm, String status, long sinceVersion) {
+        String filter = serviceFilter(searchTerm, status);
+        Map<String, Object> values = Map.of("filter", filter);
+        Map<String, Object> auditExtra = Map.of(
             "searchTerm", searchTerm,
             "status", status,
-            "limit", limit
-        ));
+            "sinceVersion", sinceVersion
+        );
+        ExecuteResult result = runPs(TABLE_SCRIPT, values, OutputFormat.NDJSON, context, auditExtra);
+        if (!result.isSuccess() || result.getPayload() == null) {
+            return result;
+        }
+        // Filtered tables are tracked separately, so a delta always compares like with like
+        String key = context.getAssetId() + '\u0000' + filter;
+        return result.withPayload(snapshots.update(key, result.getPayload(), sinceVersion));
     }
     
-    private static JsonNode createJsonSchema() {
-        return JsonSchemas.object(
-            Map.of(
-                "search", JsonSchemas.string("Search term to filter services by name or display name"),
-                "status", JsonSchemas.string("Filter by service status: all, Running, Stopped, Paused"),
-                "limit", JsonSchemas.integer(1, 200, 50)
-            ),
-            List.of()
-        );
+    /**
+     * Cut one page from the services table, ordered by ordinal comparison of the names.
+     * @param table services, one object per service
+     * @param after only services ordered after this name, empty to start at the beginning
+     * @param limit maximum number of services on the page
+     * @return page holding the services and the cursor of the next page, null on the last page
+     */
+    static ObjectNode page(JsonNode table, String after, int limit) {
+        List<JsonNode> services = new ArrayList<>(table.size());
+        for (JsonNode service : table) {
+            if (service.path("name").asText().compareTo(after) > 0) {
+                services.add(service);
+            }
+        }
+        services.sort(Comparator.comparing(service -> service.path("name").asText()));
+        
+        ObjectNode page = JsonNodeFactory.instance.objectNode();
+        ArrayNode items = page.putArray("services");
+        for (int i = 0; i < services.size() && i < limit; i++) {
+            items.add(services.get(i));
+        }
+        if (services.size() > limit && limit > 0) {
+            page.put("nextCursor", encodeCursor(services.get(limit - 1).path("name").asText()));
+        } else {
+            page.putNull("nextCursor");
+        }
+        return page;
+    }
+    
+    /**
+     * Build the WQL filter for a service query.
+     * @param search term matched anywhere in the name or display name, empty for none
+     * @param status service state, or "all"
+     * @return WQL condition, empty if nothing is filtered
+     */
+    static String serviceFilter(String search, String status) {
+        List<String> conditions = new ArrayList<>();
+        if (!search.isEmpty()) {
+            String pattern = Wql.string("%" + Wql.escapeLike(search) + "%");
+            conditions.add("(Name LIKE " + pattern + " OR DisplayName LIKE " + pattern + ")");
+        }
+        if (!status.isEmpty() && !status.equalsIgnoreCase("all")) {
+            conditions.add("State = " + Wql.string(status));
+        }
+        return String.join(" AND ", conditions);
+    }
+    
+    /**
+     * Encode the paging position after a service as an opaque cursor.
+     * @param name last service name of a page
+     * @return URL-safe cursor
+     */
+    static String encodeCursor(String name) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((CURSOR_PREFIX + name).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode a cursor produced by {@link #encodeCursor}.
+     * @param cursor the cursor
+     * @return service name the next page starts after
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static String decodeCursor(String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (!decoded.startsWith(CURSOR_PREFIX) || decoded.length() == CURSOR_PREFIX.length()) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return decoded.substring(CURSOR_PREFIX.length());
+    }
+    
+    /**
+     * Descriptor of this tool, discovered through {@link ToolDescriptor} without loading the tool.
+     */
+    public static final class Descriptor extends ToolDescriptor {
+        
+        public Descriptor() {
+            super(TOOL_NAME, TOOL_DESCRIPTION, false, List.of("windows"), List.of());
+        }
+        
+        static JsonNode schema() {
+            return JsonSchemas.object(
+                Map.of(
+                    "search", JsonSchemas.string("Search term to filter services by name or display name"),
+                    "status", JsonSchemas.string("Filter by service status: all, Running, Stopped, Paused"),
+                    "limit", JsonSchemas.integer(1, 200, 50),
+                    "cursor", JsonSchemas.string("Cursor returned with the previous structured page; omit for the first page"),
+                    "sinceVersion", JsonSchemas.integer(0, Integer.MAX_VALUE)
+                ),
+                List.of()
+            );
+        }
+        
+        @Override
+        protected JsonNode createJsonSchema() {
+            return schema();
+        }
+        
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            return new SystemListServicesTool(powerShellRunner, allowlist);
+        }
     }
 }
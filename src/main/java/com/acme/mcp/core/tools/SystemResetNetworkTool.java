@@ -2,9 +2,11 @@ package com.acme.mcp.core.tools;
 
 import com.acme.mcp.core.tool.*;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 
 import java.util.List;
 import java.util.Map;
@@ -19,10 +21,28 @@ public class SystemResetNetworkTool extends PowerShellToolBase {
     private static final String TOOL_DESCRIPTION = "Reset network configuration to resolve connectivity issues";
     private static final List<String> OS_SUPPORT = List.of("windows");
     
+    /** Network reset commands; constant, verified at registration. */
+    private static final ScriptTemplate SCRIPT = ScriptTemplate.of(
+        "ipconfig /flushdns",
+        "netsh winsock reset",
+        "netsh int ip reset"
+    );
+    
+    /** Structured variant: the tool output is captured and each step reports its exit code. */
+    private static final ScriptTemplate JSON_SCRIPT = ScriptTemplate.of(
+        "$flushDns = ipconfig /flushdns",
+        "$flushDnsExit = $LASTEXITCODE",
+        "$winsock = netsh winsock reset",
+        "$winsockExit = $LASTEXITCODE",
+        "$ip = netsh int ip reset",
+        "$ipExit = $LASTEXITCODE",
+        "[pscustomobject]@{ flushDns = $flushDnsExit; winsockReset = $winsockExit; ipReset = $ipExit; output = @($flushDns) + @($winsock) + @($ip) } | ConvertTo-Json -Compress"
+    );
+    
     private final ObjectMapper objectMapper;
     
     public SystemResetNetworkTool() {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema());
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema());
         this.objectMapper = new ObjectMapper();
     }
     
@@ -30,30 +50,51 @@ public class SystemResetNetworkTool extends PowerShellToolBase {
      * Constructor for testing with custom PowerShellRunner.
      */
     public SystemResetNetworkTool(PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema(), powerShellRunner, allowlist);
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema(), powerShellRunner, allowlist);
         this.objectMapper = new ObjectMapper();
     }
     
     @Override
     public List<String> aliases() {
-        return List.of("system_reset_network");
+        return Descriptor.ALIASES;
+    }
+    
+    @Override
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of(SCRIPT, JSON_SCRIPT);
     }
     
     @Override
     public ExecuteResult execute(ExecutionContext context, JsonNode args) {
-        // This tool doesn't require parameters, so no validation needed
-        
-        List<String> commands = List.of(
-            "ipconfig /flushdns",
-            "netsh winsock reset",
-            "netsh int ip reset"
-        );
-        
-        return runPs(commands, context, Map.of());
+        if (context.isStructuredOutput()) {
+            return runPs(JSON_SCRIPT, Map.of(), OutputFormat.JSON, context, Map.of());
+        }
+        return runPs(SCRIPT, Map.of(), context, Map.of());
     }
     
-    private static JsonNode createJsonSchema() {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.createObjectNode();
+    /**
+     * Descriptor of this tool, discovered through {@link ToolDescriptor} without loading the tool.
+     */
+    public static final class Descriptor extends ToolDescriptor {
+        
+        static final List<String> ALIASES = List.of("system_reset_network");
+        
+        public Descriptor() {
+            super(TOOL_NAME, TOOL_DESCRIPTION, true, List.of("windows"), ALIASES);
+        }
+        
+        static JsonNode schema() {
+            return JsonNodeFactory.instance.objectNode();
+        }
+        
+        @Override
+        protected JsonNode createJsonSchema() {
+            return schema();
+        }
+        
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            return new SystemResetNetworkTool(powerShellRunner, allowlist);
+        }
     }
 }
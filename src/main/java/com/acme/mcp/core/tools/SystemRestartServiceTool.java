@@ -3,14 +3,31 @@ package com.acme.mcp.core.tools;
 import com.acme.mcp.core.tool.*;
 import com.acme.mcp.core.schema.JsonSchemas;
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Tool to restart a Windows service.
+ * Waits for each state change with WaitForStatus instead of fixed sleeps; the stop and start waits
+ * share one deadline of {@code timeoutSec}, which is kept below the runner timeout so that the
+ * runner never kills the script between stopping and starting. The lean mode (and structured output) reports state before and after plus stop and
+ * start timings; {@code names} restarts a batch of services in dependency order.
  */
 public class SystemRestartServiceTool extends PowerShellToolBase {
     
@@ -18,133 +35,429 @@ public class SystemRestartServiceTool extends PowerShellToolBase {
     private static final String TOOL_DESCRIPTION = "Restart a Windows service";
     private static final List<String> OS_SUPPORT = List.of("windows");
     
+    /** Seconds of the runner timeout left for the state queries around the waits. */
+    private static final int WAIT_MARGIN_SEC = 15;
+    
+    /** Restart script with before/after diagnostics; the service name and timeout are passed as script parameters. */
+    private static final ScriptTemplate SCRIPT = ScriptTemplate.of(
+        // Phase 1: Pre-restart information gathering
+        "Write-Host '=== PHASE 1: PRE-RESTART SERVICE ANALYSIS ===' -ForegroundColor Yellow",
+        "Write-Host 'Timestamp: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss') -ForegroundColor Cyan",
+        "Write-Host ('Service Name: ' + {{name}}) -ForegroundColor Green",
+        "",
+        "Write-Host '--- Current Service Status ---' -ForegroundColor Magenta",
+        "Get-Service -Name {{name}} | Select-Object Name, Status, StartType, DisplayName | Format-Table -AutoSize",
+        "",
+        "Write-Host '--- Service Process Information ---' -ForegroundColor Magenta",
+        "$service = Get-Service -Name {{name}}",
+        "if ($service.Status -eq 'Running') {",
+        "    $processes = Get-WmiObject -Class Win32_Service | Where-Object { $_.Name -eq {{name}} }",
+        "    if ($processes) {",
+        "        $processes | ForEach-Object {",
+        "            Write-Host 'Process ID: ' $_.ProcessId -ForegroundColor White",
+        "            Write-Host 'Service Account: ' $_.StartName -ForegroundColor White",
+        "            Write-Host 'Service Path: ' $_.PathName -ForegroundColor White",
+        "            Write-Host 'Service Description: ' $_.Description -ForegroundColor White",
+        "            Write-Host 'Service State: ' $_.State -ForegroundColor White",
+        "            Write-Host 'Service Start Mode: ' $_.StartMode -ForegroundColor White",
+        "            if ($_.ProcessId -ne 0) {",
+        "                $proc = Get-Process -Id $_.ProcessId -ErrorAction SilentlyContinue",
+        "                if ($proc) {",
+        "                    Write-Host 'Process Name: ' $proc.ProcessName -ForegroundColor White",
+        "                    Write-Host 'Process Start Time: ' $proc.StartTime -ForegroundColor White",
+        "                    Write-Host 'Process CPU Time: ' $proc.TotalProcessorTime -ForegroundColor White",
+        "                    Write-Host 'Process Memory: ' ([math]::Round($proc.WorkingSet64/1MB, 2)) 'MB' -ForegroundColor White",
+        "                }",
+        "            }",
+        "        }",
+        "    }",
+        "} else {",
+        "    Write-Host 'Service is not running' -ForegroundColor Red",
+        "}",
+        "",
+        "Write-Host '--- Service Dependencies ---' -ForegroundColor Magenta",
+        "Get-Service -Name {{name}} -DependentServices | Select-Object Name, Status | Format-Table -AutoSize",
+        "",
+        "Write-Host '--- Service Dependents ---' -ForegroundColor Magenta",
+        "Get-Service -Name {{name}} -RequiredServices | Select-Object Name, Status | Format-Table -AutoSize",
+        "",
+        "Write-Host '=== PHASE 2: STOPPING SERVICE ===' -ForegroundColor Yellow",
+        "Write-Host ('Stopping service: ' + {{name}}) -ForegroundColor Red",
+        "Write-Host 'Stop Time: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss') -ForegroundColor Cyan",
+        "$deadline = [datetime]::UtcNow.AddSeconds({{timeoutSec}})",
+        "Stop-Service -Name {{name}} -Force -NoWait -ErrorAction SilentlyContinue",
+        "$remaining = $deadline - [datetime]::UtcNow",
+        "if ($remaining -lt [timespan]::Zero) { $remaining = [timespan]::Zero }",
+        "try { (Get-Service -Name {{name}}).WaitForStatus('Stopped', $remaining) } catch { Write-Host ('Service did not stop within ' + {{timeoutSec}} + 's') -ForegroundColor Red }",
+        "",
+        "Write-Host '--- Post-Stop Status ---' -ForegroundColor Magenta",
+        "Get-Service -Name {{name}} | Select-Object Name, Status | Format-Table -AutoSize",
+        "",
+        "Write-Host '=== PHASE 3: STARTING SERVICE ===' -ForegroundColor Yellow",
+        "Write-Host ('Starting service: ' + {{name}}) -ForegroundColor Green",
+        "Write-Host 'Start Time: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss') -ForegroundColor Cyan",
+        "$target = Get-Service -Name {{name}}",
+        "try { $target.Start() } catch { Write-Host ('Start failed: ' + $_.Exception.Message) -ForegroundColor Red }",
+        "$remaining = $deadline - [datetime]::UtcNow",
+        "if ($remaining -lt [timespan]::Zero) { $remaining = [timespan]::Zero }",
+        "try { $target.WaitForStatus('Running', $remaining) } catch { Write-Host ('Service did not start within ' + {{timeoutSec}} + 's') -ForegroundColor Red }",
+        "",
+        "Write-Host '=== PHASE 4: POST-RESTART MONITORING ===' -ForegroundColor Yellow",
+        "Write-Host '--- Final Service Status ---' -ForegroundColor Magenta",
+        "Get-Service -Name {{name}} | Select-Object Name, Status, StartType, DisplayName | Format-Table -AutoSize",
+        "",
+        "Write-Host '--- New Process Information ---' -ForegroundColor Magenta",
+        "$newService = Get-Service -Name {{name}}",
+        "if ($newService.Status -eq 'Running') {",
+        "    $newProcesses = Get-WmiObject -Class Win32_Service | Where-Object { $_.Name -eq {{name}} }",
+        "    if ($newProcesses) {",
+        "        $newProcesses | ForEach-Object {",
+        "            Write-Host 'NEW Process ID: ' $_.ProcessId -ForegroundColor Green",
+        "            Write-Host 'NEW Service Account: ' $_.StartName -ForegroundColor Green",
+        "            Write-Host 'NEW Service Path: ' $_.PathName -ForegroundColor Green",
+        "            Write-Host 'NEW Service State: ' $_.State -ForegroundColor Green",
+        "            if ($_.ProcessId -ne 0) {",
+        "                $newProc = Get-Process -Id $_.ProcessId -ErrorAction SilentlyContinue",
+        "                if ($newProc) {",
+        "                    Write-Host 'NEW Process Name: ' $newProc.ProcessName -ForegroundColor Green",
+        "                    Write-Host 'NEW Process Start Time: ' $newProc.StartTime -ForegroundColor Green",
+        "                    Write-Host 'NEW Process CPU Time: ' $newProc.TotalProcessorTime -ForegroundColor Green",
+        "                    Write-Host 'NEW Process Memory: ' ([math]::Round($newProc.WorkingSet64/1MB, 2)) 'MB' -ForegroundColor Green",
+        "                }",
+        "            }",
+        "        }",
+        "    }",
+        "} else {",
+        "    Write-Host 'WARNING: Service failed to start!' -ForegroundColor Red",
+        "}",
+        "",
+        "Write-Host '--- Service Event Log (Last 5 entries) ---' -ForegroundColor Magenta",
+        "Get-WinEvent -FilterHashtable @{LogName='System'; ID=7034,7035,7036} -MaxEvents 5 | Where-Object { $_.Message -like ('*' + {{name}} + '*') } | Select-Object TimeCreated, Id, LevelDisplayName, Message | Format-Table -AutoSize",
+        "",
+        "Write-Host '=== RESTART COMPLETED ===' -ForegroundColor Yellow",
+        "Write-Host 'Completion Time: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss') -ForegroundColor Cyan",
+        "Write-Host 'Service Status: ' + (Get-Service -Name {{name}}).Status -ForegroundColor $(if ((Get-Service -Name {{name}}).Status -eq 'Running') { 'Green' } else { 'Red' })"
+    );
+    
+    /**
+     * Lean restart of one or more services, one compact JSON object per service (NDJSON).
+     * State before and after is read with one CIM query each; all services are stopped and then
+     * started without blocking and awaited with WaitForStatus, so the services of one call restart
+     * concurrently and share the timeout. Names are separated by newlines.
+     */
+    private static final ScriptTemplate LEAN_SCRIPT = ScriptTemplate.of(
+        "$deadline = [datetime]::UtcNow.AddSeconds({{timeoutSec}})",
+        "$names = {{names}} -split [char]10",
+        "$before = @{}",
+        "Get-CimInstance -ClassName Win32_Service -Filter {{filter}} -Property Name, State, ProcessId | ForEach-Object { $before[$_.Name] = $_ }",
+        "$targets = @(Get-Service -Name $names -ErrorAction SilentlyContinue)",
+        "$results = @{}",
+        "$targets | ForEach-Object { $results[$_.Name] = @{ stopMs = 0; startMs = 0; error = $null } }",
+        "$phase = [datetime]::UtcNow",
+        "$targets | Where-Object { $_.Status -ne 'Stopped' } | ForEach-Object {",
+        "    $svc = $_",
+        "    Stop-Service -InputObject $svc -Force -NoWait -ErrorAction SilentlyContinue -ErrorVariable stopErrors",
+        "    if ($stopErrors) { $results[$svc.Name].error = [string]$stopErrors[0] }",
+        "}",
+        "$targets | ForEach-Object {",
+        "    $svc = $_",
+        "    $remaining = $deadline - [datetime]::UtcNow",
+        "    if ($remaining -lt [timespan]::Zero) { $remaining = [timespan]::Zero }",
+        "    try { $svc.WaitForStatus('Stopped', $remaining) } catch { $results[$svc.Name].error = 'Timed out waiting for Stopped' }",
+        "    $results[$svc.Name].stopMs = [math]::Round(([datetime]::UtcNow - $phase).TotalMilliseconds)",
+        "}",
+        "$phase = [datetime]::UtcNow",
+        "$targets | ForEach-Object {",
+        "    $svc = $_",
+        "    try { $svc.Start() } catch { $results[$svc.Name].error = $_.Exception.Message }",
+        "}",
+        "$targets | ForEach-Object {",
+        "    $svc = $_",
+        "    $remaining = $deadline - [datetime]::UtcNow",
+        "    if ($remaining -lt [timespan]::Zero) { $remaining = [timespan]::Zero }",
+        "    try { $svc.WaitForStatus('Running', $remaining) } catch { if (-not $results[$svc.Name].error) { $results[$svc.Name].error = 'Timed out waiting for Running' } }",
+        "    $results[$svc.Name].startMs = [math]::Round(([datetime]::UtcNow - $phase).TotalMilliseconds)",
+        "}",
+        "$after = @{}",
+        "Get-CimInstance -ClassName Win32_Service -Filter {{filter}} -Property Name, State, StartMode, ProcessId | ForEach-Object { $after[$_.Name] = $_ }",
+        "$targets | ForEach-Object {",
+        "    $b = $before[$_.Name]",
+        "    $a = $after[$_.Name]",
+        "    $r = $results[$_.Name]",
+        "    [pscustomobject]@{ name = $_.Name; displayName = $_.DisplayName; statusBefore = $b.State; status = $a.State; startType = $a.StartMode; processIdBefore = $b.ProcessId; processId = $a.ProcessId; running = ($a.State -eq 'Running'); stopMs = $r.stopMs; startMs = $r.startMs; error = $r.error } | ConvertTo-Json -Compress",
+        "}",
+        "$names | Where-Object { -not $results.ContainsKey($_) } | ForEach-Object {",
+        "    [pscustomobject]@{ name = $_; running = $false; error = 'Service not found' } | ConvertTo-Json -Compress",
+        "}"
+    );
+    
+    /**
+     * Start the named services that are not running, in the given order, sharing one deadline;
+     * one compact JSON object per service that had to be started (NDJSON).
+     */
+    private static final ScriptTemplate RECOVERY_SCRIPT = ScriptTemplate.of(
+        "$deadline = [datetime]::UtcNow.AddSeconds({{timeoutSec}})",
+        "{{names}} -split [char]10 | ForEach-Object {",
+        "    $svc = Get-Service -Name $_ -ErrorAction SilentlyContinue",
+        "    if (-not $svc -or $svc.Status -eq 'Running') { return }",
+        "    $failure = $null",
+        "    $remaining = $deadline - [datetime]::UtcNow",
+        "    if ($remaining -lt [timespan]::Zero) { $remaining = [timespan]::Zero }",
+        "    if ($svc.Status -eq 'StopPending') { try { $svc.WaitForStatus('Stopped', $remaining) } catch { $failure = 'Timed out waiting for Stopped' } }",
+        "    try { if ($svc.Status -ne 'StartPending') { $svc.Start() } } catch { $failure = $_.Exception.Message }",
+        "    $remaining = $deadline - [datetime]::UtcNow",
+        "    if ($remaining -lt [timespan]::Zero) { $remaining = [timespan]::Zero }",
+        "    try { $svc.WaitForStatus('Running', $remaining) } catch { if (-not $failure) { $failure = 'Timed out waiting for Running' } }",
+        "    $svc.Refresh()",
+        "    [pscustomobject]@{ name = $svc.Name; status = [string]$svc.Status; running = ($svc.Status -eq 'Running'); error = $failure } | ConvertTo-Json -Compress",
+        "}"
+    );
+    
+    /** Direct dependencies of each named service, one compact JSON object per service (NDJSON). */
+    private static final ScriptTemplate DEPENDENCIES_SCRIPT = ScriptTemplate.of(
+        "{{names}} -split [char]10 | ForEach-Object {",
+        "    $service = Get-Service -Name $_ -ErrorAction SilentlyContinue",
+        "    [pscustomobject]@{ name = $_; dependsOn = @($service.ServicesDependedOn | ForEach-Object { $_.Name }) } | ConvertTo-Json -Compress",
+        "}"
+    );
+    
     public SystemRestartServiceTool() {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema());
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema());
     }
     
     /**
      * Constructor for testing with custom PowerShellRunner.
      */
     public SystemRestartServiceTool(PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, createJsonSchema(), powerShellRunner, allowlist);
+        super(TOOL_NAME, TOOL_DESCRIPTION, true, OS_SUPPORT, Descriptor.schema(), powerShellRunner, allowlist);
+    }
+    
+    @Override
+    protected List<ScriptTemplate> scriptTemplates() {
+        return List.of(SCRIPT, LEAN_SCRIPT, RECOVERY_SCRIPT, DEPENDENCIES_SCRIPT);
     }
     
     @Override
     public ExecuteResult execute(ExecutionContext context, JsonNode args) {
+        int timeoutSec = waitTimeout(args.has("timeoutSec") ? args.get("timeoutSec").asInt() : 30);
+        
+        if (args.has("names") && !args.get("names").isNull()) {
+            List<String> names = new ArrayList<>();
+            args.get("names").forEach(name -> names.add(checkServiceName(name.asText())));
+            if (names.isEmpty()) {
+                throw new IllegalArgumentException("At least one service name is required");
+            }
+            return executeBatch(context, names, timeoutSec);
+        }
+        
         // Validate required fields
         validateRequiredFields(args, List.of("name"));
         
-        String serviceName = args.get("name").asText();
-        int timeoutSec = args.has("timeoutSec") ? args.get("timeoutSec").asInt() : 30;
-        
-        // Enhanced restart with detailed monitoring and information gathering
-        List<String> commands = List.of(
-            // Phase 1: Pre-restart information gathering
-            "Write-Host '=== PHASE 1: PRE-RESTART SERVICE ANALYSIS ===' -ForegroundColor Yellow",
-            "Write-Host 'Timestamp: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss') -ForegroundColor Cyan",
-            "Write-Host 'Service Name: " + serviceName + "' -ForegroundColor Green",
-            "",
-            "Write-Host '--- Current Service Status ---' -ForegroundColor Magenta",
-            "Get-Service -Name \"" + serviceName + "\" | Select-Object Name, Status, StartType, DisplayName | Format-Table -AutoSize",
-            "",
-            "Write-Host '--- Service Process Information ---' -ForegroundColor Magenta",
-            "$service = Get-Service -Name \"" + serviceName + "\"",
-            "if ($service.Status -eq 'Running') {",
-            "    $processes = Get-WmiObject -Class Win32_Service | Where-Object { $_.Name -eq \"" + serviceName + "\" }",
-            "    if ($processes) {",
-            "        $processes | ForEach-Object {",
-            "            Write-Host 'Process ID: ' $_.ProcessId -ForegroundColor White",
-            "            Write-Host 'Service Account: ' $_.StartName -ForegroundColor White",
-            "            Write-Host 'Service Path: ' $_.PathName -ForegroundColor White",
-            "            Write-Host 'Service Description: ' $_.Description -ForegroundColor White",
-            "            Write-Host 'Service State: ' $_.State -ForegroundColor White",
-            "            Write-Host 'Service Start Mode: ' $_.StartMode -ForegroundColor White",
-            "            if ($_.ProcessId -ne 0) {",
-            "                $proc = Get-Process -Id $_.ProcessId -ErrorAction SilentlyContinue",
-            "                if ($proc) {",
-            "                    Write-Host 'Process Name: ' $proc.ProcessName -ForegroundColor White",
-            "                    Write-Host 'Process Start Time: ' $proc.StartTime -ForegroundColor White",
-            "                    Write-Host 'Process CPU Time: ' $proc.TotalProcessorTime -ForegroundColor White",
-            "                    Write-Host 'Process Memory: ' ([math]::Round($proc.WorkingSet64/1MB, 2)) 'MB' -ForegroundColor White",
-            "                }",
-            "            }",
-            "        }",
-            "    }",
-            "} else {",
-            "    Write-Host 'Service is not running' -ForegroundColor Red",
-            "}",
-            "",
-            "Write-Host '--- Service Dependencies ---' -ForegroundColor Magenta",
-            "Get-Service -Name \"" + serviceName + "\" -DependentServices | Select-Object Name, Status | Format-Table -AutoSize",
-            "",
-            "Write-Host '--- Service Dependents ---' -ForegroundColor Magenta",
-            "Get-Service -Name \"" + serviceName + "\" -RequiredServices | Select-Object Name, Status | Format-Table -AutoSize",
-            "",
-            "Write-Host '=== PHASE 2: STOPPING SERVICE ===' -ForegroundColor Yellow",
-            "Write-Host 'Stopping service: " + serviceName + "' -ForegroundColor Red",
-            "Write-Host 'Stop Time: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss') -ForegroundColor Cyan",
-            "Stop-Service -Name \"" + serviceName + "\" -Force -ErrorAction SilentlyContinue",
-            "Start-Sleep -Seconds 2",
-            "",
-            "Write-Host '--- Post-Stop Status ---' -ForegroundColor Magenta",
-            "Get-Service -Name \"" + serviceName + "\" | Select-Object Name, Status | Format-Table -AutoSize",
-            "",
-            "Write-Host '=== PHASE 3: STARTING SERVICE ===' -ForegroundColor Yellow",
-            "Write-Host 'Starting service: " + serviceName + "' -ForegroundColor Green",
-            "Write-Host 'Start Time: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss') -ForegroundColor Cyan",
-            "Start-Service -Name \"" + serviceName + "\" -ErrorAction SilentlyContinue",
-            "Start-Sleep -Seconds 3",
-            "",
-            "Write-Host '=== PHASE 4: POST-RESTART MONITORING ===' -ForegroundColor Yellow",
-            "Write-Host '--- Final Service Status ---' -ForegroundColor Magenta",
-            "Get-Service -Name \"" + serviceName + "\" | Select-Object Name, Status, StartType, DisplayName | Format-Table -AutoSize",
-            "",
-            "Write-Host '--- New Process Information ---' -ForegroundColor Magenta",
-            "$newService = Get-Service -Name \"" + serviceName + "\"",
-            "if ($newService.Status -eq 'Running') {",
-            "    $newProcesses = Get-WmiObject -Class Win32_Service | Where-Object { $_.Name -eq \"" + serviceName + "\" }",
-            "    if ($newProcesses) {",
-            "        $newProcesses | ForEach-Object {",
-            "            Write-Host 'NEW Process ID: ' $_.ProcessId -ForegroundColor Green",
-            "            Write-Host 'NEW Service Account: ' $_.StartName -ForegroundColor Green",
-            "            Write-Host 'NEW Service Path: ' $_.PathName -ForegroundColor Green",
-            "            Write-Host 'NEW Service State: ' $_.State -ForegroundColor Green",
-            "            if ($_.ProcessId -ne 0) {",
-            "                $newProc = Get-Process -Id $_.ProcessId -ErrorAction SilentlyContinue",
-            "                if ($newProc) {",
-            "                    Write-Host 'NEW Process Name: ' $newProc.ProcessName -ForegroundColor Green",
-            "                    Write-Host 'NEW Process Start Time: ' $newProc.StartTime -ForegroundColor Green",
-            "                    Write-Host 'NEW Process CPU Time: ' $newProc.TotalProcessorTime -ForegroundColor Green",
-            "                    Write-Host 'NEW Process Memory: ' ([math]::Round($newProc.WorkingSet64/1MB, 2)) 'MB' -ForegroundColor Green",
-            "                }",
-            "            }",
-            "        }",
-            "    }",
-            "} else {",
-            "    Write-Host 'WARNING: Service failed to start!' -ForegroundColor Red",
-            "}",
-            "",
-            "Write-Host '--- Service Event Log (Last 5 entries) ---' -ForegroundColor Magenta",
-            "Get-WinEvent -FilterHashtable @{LogName='System'; ID=7034,7035,7036} -MaxEvents 5 | Where-Object { $_.Message -like '*" + serviceName + "*' } | Select-Object TimeCreated, Id, LevelDisplayName, Message | Format-Table -AutoSize",
-            "",
-            "Write-Host '=== RESTART COMPLETED ===' -ForegroundColor Yellow",
-            "Write-Host 'Completion Time: ' + (Get-Date -Format 'yyyy-MM-dd HH:mm:ss') -ForegroundColor Cyan",
-            "Write-Host 'Service Status: ' + (Get-Service -Name \"" + serviceName + "\").Status -ForegroundColor $(if ((Get-Service -Name \"" + serviceName + "\").Status -eq 'Running') { 'Green' } else { 'Red' })"
-        );
+        String serviceName = checkServiceName(args.get("name").asText());
+        String mode = args.has("mode") ? args.get("mode").asText() : "detailed";
         
-        return runPs(commands, context, Map.of(
+        Map<String, Object> auditExtra = Map.of(
             "serviceName", serviceName,
             "timeoutSec", timeoutSec
-        ));
+        );
+        if (context.isStructuredOutput() || mode.equals("lean")) {
+            return runPs(LEAN_SCRIPT, leanValues(List.of(serviceName), timeoutSec), OutputFormat.NDJSON,
+                context, auditExtra);
+        }
+        return runPs(SCRIPT, Map.of("name", serviceName, "timeoutSec", timeoutSec), context, auditExtra);
     }
     
-    private static JsonNode createJsonSchema() {
-        return JsonSchemas.object(
-            Map.of(
-                "name", JsonSchemas.string("Service name"),
-                "timeoutSec", JsonSchemas.integer(0, 120, 30)
-            ),
-            List.of("name")
-        );
+    /**
+     * Restart several services in dependency order. Services are grouped into layers in which no
+     * service depends on another of the batch; each layer restarts in one lean script, so its
+     * services restart concurrently, and the next layer starts once the previous one is done.
+     * A failed layer stops the batch. Since stopping a service also stops the services depending on it,
+     * the batch services that are left stopped are then started again, last layer first, and reported
+     * under {@code recovered}. Services whose dependencies cannot be read restart one at a time in the
+     * given order.
+     */
+    private ExecuteResult executeBatch(ExecutionContext context, List<String> names, int timeoutSec) {
+        String joinedNames = String.join("\n", names);
+        ExecuteResult dependencies = runPs(DEPENDENCIES_SCRIPT, Map.of("names", joinedNames), OutputFormat.NDJSON,
+            context, Map.of("serviceNames", names, "phase", "dependencies"));
+        if (!dependencies.isSuccess()) {
+            return dependencies;
+        }
+        List<List<String>> layers = dependencies.getPayload() == null
+            ? names.stream().map(List::of).collect(Collectors.toList())
+            : restartLayers(names, dependencies.getPayload());
+        
+        ObjectNode payload = JsonNodeFactory.instance.objectNode();
+        ArrayNode layerTimings = payload.putArray("layers");
+        ArrayNode services = payload.putArray("services");
+        StringBuilder stdout = new StringBuilder();
+        StringBuilder stderr = new StringBuilder();
+        ExecuteResult last = dependencies;
+        for (List<String> layer : layers) {
+            long start = System.nanoTime();
+            last = runPs(LEAN_SCRIPT, leanValues(layer, timeoutSec), OutputFormat.NDJSON, context, Map.of(
+                "serviceNames", layer,
+                "timeoutSec", timeoutSec,
+                "phase", "restart"
+            ));
+            ObjectNode timing = layerTimings.addObject();
+            layer.forEach(timing.putArray("services")::add);
+            timing.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (last.getPayload() != null) {
+                services.addAll((ArrayNode) last.getPayload());
+            }
+            stdout.append(last.getStdout());
+            stderr.append(last.getStderr());
+            if (!last.isSuccess()) {
+                recover(context, layers, timeoutSec, payload, stdout, stderr);
+                break;
+            }
+        }
+        return new ExecuteResult(UUID.randomUUID().toString(), last.getExitCode(), stdout.toString(),
+            stderr.toString(), last.getStatus()).withPayload(payload);
+    }
+    
+    /**
+     * Start the batch services left stopped by a failed layer, in reverse layer order.
+     */
+    private void recover(ExecutionContext context, List<List<String>> layers, int timeoutSec, ObjectNode payload,
+                         StringBuilder stdout, StringBuilder stderr) {
+        List<String> names = new ArrayList<>();
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            names.addAll(layers.get(i));
+        }
+        ExecuteResult recovery = runPs(RECOVERY_SCRIPT,
+            Map.of("names", String.join("\n", names), "timeoutSec", timeoutSec), OutputFormat.NDJSON, context,
+            Map.of("serviceNames", names, "timeoutSec", timeoutSec, "phase", "recover"));
+        ArrayNode recovered = payload.putArray("recovered");
+        if (recovery.getPayload() != null) {
+            recovered.addAll((ArrayNode) recovery.getPayload());
+        }
+        stdout.append(recovery.getStdout());
+        stderr.append(recovery.getStderr());
+    }
+    
+    /**
+     * Keep the wait timeout below the runner timeout, leaving time for the queries around the waits.
+     * @param requested requested timeout in seconds
+     * @return timeout in seconds the script may spend waiting
+     */
+    private int waitTimeout(int requested) {
+        int limit = Math.max(1, getPowerShellRunner().getTimeoutSeconds() - WAIT_MARGIN_SEC);
+        return Math.min(requested, limit);
+    }
+    
+    /**
+     * Group services into restart layers. A service is placed after every batch service it
+     * depends on; services of one layer do not depend on each other. Dependencies on services
+     * outside the batch are ignored, and a cycle, which the service manager does not allow,
+     * ends up in one final layer.
+     * @param names services to restart, in the caller's order
+     * @param dependencies objects with {@code name} and {@code dependsOn} names
+     * @return layers in restart order, each in the caller's order
+     */
+    static List<List<String>> restartLayers(List<String> names, JsonNode dependencies) {
+        Map<String, Set<String>> pending = new LinkedHashMap<>();
+        for (String name : names) {
+            pending.put(name.toLowerCase(Locale.ROOT), new HashSet<>());
+        }
+        for (JsonNode service : dependencies) {
+            Set<String> dependsOn = pending.get(service.path("name").asText().toLowerCase(Locale.ROOT));
+            if (dependsOn == null) {
+                continue;
+            }
+            for (JsonNode dependency : service.path("dependsOn")) {
+                String key = dependency.asText().toLowerCase(Locale.ROOT);
+                if (pending.containsKey(key)) {
+                    dependsOn.add(key);
+                }
+            }
+        }
+        Map<String, String> originalNames = new HashMap<>();
+        for (String name : names) {
+            originalNames.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+        }
+        
+        List<List<String>> layers = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            List<String> ready = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> entry : pending.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    ready.add(entry.getKey());
+                }
+            }
+            if (ready.isEmpty()) {
+                ready.addAll(pending.keySet());
+            }
+            List<String> layer = new ArrayList<>();
+            for (String key : ready) {
+                pending.remove(key);
+                layer.add(originalNames.get(key));
+            }
+            for (Set<String> dependsOn : pending.values()) {
+                dependsOn.removeAll(ready);
+            }
+            layers.add(layer);
+        }
+        return layers;
+    }
+    
+    private static Map<String, Object> leanValues(List<String> names, int timeoutSec) {
+        StringBuilder filter = new StringBuilder();
+        for (String name : names) {
+            if (filter.length() > 0) {
+                filter.append(" OR ");
+            }
+            filter.append("Name = ").append(Wql.string(name));
+        }
+        return Map.of("names", String.join("\n", names), "filter", filter.toString(), "timeoutSec", timeoutSec);
+    }
+    
+    /**
+     * Reject names that Get-Service would expand as wildcards or that cannot be joined by newlines.
+     */
+    private static String checkServiceName(String name) {
+        if (name.isBlank()) {
+            throw new IllegalArgumentException("Service name cannot be empty");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || Character.isISOControl(c)) {
+                throw new IllegalArgumentException("Invalid service name: " + name);
+            }
+        }
+        return name;
+    }
+    
+    /**
+     * Descriptor of this tool, discovered through {@link ToolDescriptor} without loading the tool.
+     */
+    public static final class Descriptor extends ToolDescriptor {
+        
+        public Descriptor() {
+            super(TOOL_NAME, TOOL_DESCRIPTION, true, List.of("windows"), List.of());
+        }
+        
+        static JsonNode schema() {
+            return JsonSchemas.object(
+                Map.of(
+                    "name", JsonSchemas.string("Service name"),
+                    "names", JsonSchemas.stringArray("Service names to restart as a batch, in dependency order; replaces name"),
+                    "mode", JsonSchemas.stringEnum(List.of("detailed", "lean"), "detailed"),
+                    "timeoutSec", JsonSchemas.integer(0, 120, 30)
+                ),
+                List.of()
+            );
+        }
+        
+        @Override
+        protected JsonNode createJsonSchema() {
+            return schema();
+        }
+        
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            return new SystemRestartServiceTool(powerShellRunner, allowlist);
+        }
     }
 }
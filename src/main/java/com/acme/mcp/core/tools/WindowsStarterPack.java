@@ -1,36 +1,33 @@
 package com.acme.mcp.core.tools;
 
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.tool.ResultCache;
+import com.acme.mcp.core.tool.ToolDescriptor;
 import com.acme.mcp.core.tool.ToolRegistry;
 import com.acme.mcp.core.windows.PowerShellRunner;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Windows Starter Pack - collection of commonly used Windows administration tools.
  * Provides easy registration of all tools with their aliases.
+ * <p>
+ * Tools are discovered through their {@link ToolDescriptor}s listed in
+ * {@code META-INF/services}, so the names and aliases reported here always match what is registered.
  */
 public class WindowsStarterPack {
     
+    private static final String PACKAGE_PREFIX = WindowsStarterPack.class.getPackageName() + ".";
+    
     /**
-     * Register all Windows Starter Pack tools in the given registry.
+     * Register all Windows Starter Pack tools in the given registry. Tools share one default
+     * PowerShell runner and allowlist, and each is created on its first execution.
      * @param registry the tool registry to register tools in
      */
     public static void registerAll(ToolRegistry registry) {
-        // System tools
-        registry.register(new SystemResetNetworkTool());
-        registry.register(new SystemRestartServiceTool());
-        registry.register(new SystemListServicesTool());
-        registry.register(new SystemClearTempTool());
-        
-        // Application tools
-        registry.register(new AppsInstallTool());
-        registry.register(new AppsRepairTeamsTool());
-        
-        // Security tools
-        registry.register(new SecurityQuickScanDefenderTool());
-        registry.register(new SecurityCheckBitlockerTool());
-        
-        // File tools
-        registry.register(new FilesBackupUserDocsTool());
+        registerLazily(registry, new PowerShellRunner(), new Allowlist());
     }
     
     /**
@@ -40,22 +37,62 @@ public class WindowsStarterPack {
      * @param allowlist custom allowlist for security
      */
     public static void registerAll(ToolRegistry registry, PowerShellRunner powerShellRunner, Allowlist allowlist) {
-        // System tools
-        registry.register(new SystemResetNetworkTool(powerShellRunner, allowlist));
-        registry.register(new SystemRestartServiceTool(powerShellRunner, allowlist));
-        registry.register(new SystemListServicesTool(powerShellRunner, allowlist));
-        registry.register(new SystemClearTempTool(powerShellRunner, allowlist));
-        
-        // Application tools
-        registry.register(new AppsInstallTool(powerShellRunner, allowlist));
-        registry.register(new AppsRepairTeamsTool(powerShellRunner, allowlist));
-        
-        // Security tools
-        registry.register(new SecurityQuickScanDefenderTool(powerShellRunner, allowlist));
-        registry.register(new SecurityCheckBitlockerTool(powerShellRunner, allowlist));
-        
-        // File tools
-        registry.register(new FilesBackupUserDocsTool(powerShellRunner, allowlist));
+        for (ToolDescriptor descriptor : descriptors()) {
+            registry.register(descriptor.create(powerShellRunner, allowlist));
+        }
+    }
+    
+    /**
+     * Register all Windows Starter Pack tools behind a result cache, caching the read-only tools
+     * with their default TTLs (see {@link #configureCache}).
+     * @param registry the tool registry to register tools in
+     * @param powerShellRunner custom PowerShell runner (for dry-run mode, etc.)
+     * @param allowlist custom allowlist for security
+     * @param cache result cache shared by the tools
+     */
+    public static void registerAll(ToolRegistry registry, PowerShellRunner powerShellRunner, Allowlist allowlist,
+                                   ResultCache cache) {
+        configureCache(cache);
+        for (ToolDescriptor descriptor : descriptors()) {
+            registry.register(cache.wrap(descriptor.create(powerShellRunner, allowlist)));
+        }
+    }
+    
+    /**
+     * Register all Windows Starter Pack tools without creating them. Each tool is created with the
+     * shared runner and allowlist on its first execution, and its scripts are verified then.
+     * @param registry the tool registry to register tools in
+     * @param powerShellRunner shared PowerShell runner
+     * @param allowlist shared allowlist
+     */
+    public static void registerLazily(ToolRegistry registry, PowerShellRunner powerShellRunner, Allowlist allowlist) {
+        for (ToolDescriptor descriptor : descriptors()) {
+            registry.register(descriptor.lazy(powerShellRunner, allowlist));
+        }
+    }
+    
+    /**
+     * Cache the read-only tools: services for 5 seconds, BitLocker status for 60 seconds.
+     * Every other tool is mutating and invalidates the results cached for its asset.
+     * @param cache result cache to configure
+     */
+    public static void configureCache(ResultCache cache) {
+        cache.setTtl("system.list_services", Duration.ofSeconds(5));
+        cache.setTtl("security.check_bitlocker", Duration.ofSeconds(60));
+    }
+    
+    /**
+     * Get the descriptors of the Windows Starter Pack tools, in registration order.
+     * @return descriptors discovered in this package
+     */
+    public static List<ToolDescriptor> descriptors() {
+        List<ToolDescriptor> descriptors = new ArrayList<>();
+        for (ToolDescriptor descriptor : ToolDescriptor.discover(WindowsStarterPack.class.getClassLoader())) {
+            if (descriptor.getClass().getName().startsWith(PACKAGE_PREFIX)) {
+                descriptors.add(descriptor);
+            }
+        }
+        return descriptors;
     }
     
     /**
@@ -63,17 +100,9 @@ public class WindowsStarterPack {
      * @return list of tool names
      */
     public static String[] getToolNames() {
-        return new String[]{
-            "system.reset_network",
-            "system.restart_service",
-            "system.list_services", 
-            "system.clear_temp",
-            "apps.install",
-            "apps.repair_teams",
-            "security.quick_scan_defender",
-            "security.check_bitlocker",
-            "files.backup_user_docs"
-        };
+        return descriptors().stream()
+            .map(ToolDescriptor::getName)
+            .toArray(String[]::new);
     }
     
     /**
@@ -81,8 +110,8 @@ public class WindowsStarterPack {
      * @return list of legacy alias names
      */
     public static String[] getLegacyAliases() {
-        return new String[]{
-            "system_reset_network"
-        };
+        return descriptors().stream()
+            .flatMap(descriptor -> descriptor.getAliases().stream())
+            .toArray(String[]::new);
     }
 }
@@ -0,0 +1,39 @@
+package com.acme.mcp.core.tools;
+
+/**
+ * Helpers for building WQL conditions from caller input.
+ * Values are always quoted here, so a filter built from them can be passed to CIM as one
+ * bound script parameter.
+ */
+final class Wql {
+
+    private Wql() {
+    }
+
+    /**
+     * Quote a WQL string literal; backslashes and single quotes are escaped with a backslash.
+     * @param value raw value
+     * @return quoted literal
+     */
+    static String string(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    /**
+     * Make LIKE wildcards in a value match literally.
+     * @param value raw value
+     * @return value with {@code %}, {@code _} and {@code [} bracketed
+     */
+    static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == '[') {
+                escaped.append('[').append(c).append(']');
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
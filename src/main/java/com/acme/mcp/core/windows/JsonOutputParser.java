@@ -0,0 +1,169 @@
+package com.acme.mcp.core.windows;
+
+import com.acme.mcp.core.tool.OutputChunk;
+import com.acme.mcp.core.tool.OutputListener;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Parses JSON stdout while it is produced.
+ * stdout chunks are fed to Jackson's non-blocking parser as they arrive and the tree is
+ * built token by token, so the payload is ready when the process ends and stdout is never
+ * buffered a second time. Chunks are passed on to the wrapped listener unchanged.
+ */
+class JsonOutputParser implements OutputListener {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final boolean lines;
+    private final ArrayNode documents = NODES.arrayNode();
+    private final Deque<JsonNode> containers = new ArrayDeque<>();
+    private OutputListener listener;
+    private JsonParser parser;
+    private String fieldName;
+    private boolean failed;
+
+    /**
+     * @param listener listener receiving every chunk, may be null
+     * @param lines true to accept a sequence of documents (NDJSON), false for a single document
+     */
+    JsonOutputParser(OutputListener listener, boolean lines) {
+        this.listener = listener;
+        this.lines = lines;
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            this.failed = true;
+        }
+    }
+
+    @Override
+    public void onOutput(OutputChunk chunk) {
+        if (chunk.getType() == OutputChunk.Type.STDOUT) {
+            feed(chunk.getText());
+        }
+        OutputListener target = listener;
+        if (target != null) {
+            try {
+                target.onOutput(chunk);
+            } catch (RuntimeException e) {
+                // Keep parsing even if the caller's listener fails
+                listener = null;
+            }
+        }
+    }
+
+    private synchronized void feed(String text) {
+        if (failed || text.isEmpty()) {
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT:
+                    containers.push(add(NODES.objectNode()));
+                    break;
+                case START_ARRAY:
+                    containers.push(add(NODES.arrayNode()));
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    containers.pop();
+                    break;
+                case FIELD_NAME:
+                    fieldName = parser.currentName();
+                    break;
+                case VALUE_STRING:
+                    add(NODES.textNode(parser.getText()));
+                    break;
+                case VALUE_NUMBER_INT:
+                    add(integer());
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    add(NODES.numberNode(parser.getDecimalValue()));
+                    break;
+                case VALUE_TRUE:
+                    add(NODES.booleanNode(true));
+                    break;
+                case VALUE_FALSE:
+                    add(NODES.booleanNode(false));
+                    break;
+                case VALUE_NULL:
+                    add(NODES.nullNode());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private JsonNode integer() throws IOException {
+        switch (parser.getNumberType()) {
+            case INT:
+                return NODES.numberNode(parser.getIntValue());
+            case LONG:
+                return NODES.numberNode(parser.getLongValue());
+            default:
+                return NODES.numberNode(parser.getBigIntegerValue());
+        }
+    }
+
+    private JsonNode add(JsonNode node) {
+        JsonNode parent = containers.peek();
+        if (parent == null) {
+            documents.add(node);
+        } else if (parent.isObject()) {
+            ((ObjectNode) parent).set(fieldName, node);
+        } else {
+            ((ArrayNode) parent).add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Finish parsing. Call once, after the process output has been fully read.
+     * @return the document (or array of documents in line mode), or null if stdout was
+     *         not valid JSON of the expected shape
+     */
+    synchronized JsonNode finish() {
+        if (failed) {
+            return null;
+        }
+        try {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+            drain();
+            parser.close();
+        } catch (IOException e) {
+            return null;
+        }
+        if (!containers.isEmpty()) {
+            return null;
+        }
+        if (lines) {
+            return documents;
+        }
+        return documents.size() == 1 ? documents.get(0) : null;
+    }
+}
@@ -0,0 +1,400 @@
+package com.acme.mcp.core.windows;
+
+import com.acme.mcp.core.tool.ExecuteResult;
+import com.acme.mcp.core.tool.OutputCapture;
+import com.acme.mcp.core.tool.OutputChunk;
+import com.acme.mcp.core.tool.OutputFormat;
+import com.acme.mcp.core.tool.OutputListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs compiled scripts that arrive close together for the same key as one PowerShell invocation.
+ * <p>
+ * The first call for a key waits up to the window for more calls, or until the batch is full, then
+ * runs them all on its own thread as one combined script; the other calls wait for their share of
+ * the output. The combined script writes a marker line to stdout and stderr before each call and
+ * the call's exit code after it, and the output is split back into one result per call while it
+ * streams, so each caller still receives its own output chunks. Markers carry a random nonce passed
+ * as a parameter, so scripts cannot forge them and the combined script text stays byte-identical
+ * for the same set of scripts. A call alone in its window runs like an unbatched call.
+ */
+class PowerShellBatcher {
+
+    private static final String MARKER_PREFIX = "<<<MCP-BATCH ";
+    private static final String MARKER_SUFFIX = ">>>";
+
+    /** Combined scripts kept before the cache is cleared. */
+    private static final int MAX_COMBINED_SCRIPTS = 256;
+
+    private final PowerShellRunner runner;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Map<String, Batch> pending = new HashMap<>();
+    private final ConcurrentMap<List<String>, PowerShellScript> combinedScripts = new ConcurrentHashMap<>();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedCalls = new AtomicLong();
+
+    /**
+     * @param runner runner executing the batches
+     * @param windowMillis how long the first call of a batch waits for more calls
+     * @param maxBatchSize number of calls that runs a batch without waiting for the window to end
+     */
+    PowerShellBatcher(PowerShellRunner runner, int windowMillis, int maxBatchSize) {
+        if (windowMillis < 1 || maxBatchSize < 2) {
+            throw new IllegalArgumentException("Batch window must be at least 1ms and batch size at least 2");
+        }
+        this.runner = runner;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @return number of combined invocations run
+     */
+    long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * @return number of calls that ran as part of a combined invocation
+     */
+    long getBatchedCallCount() {
+        return batchedCalls.get();
+    }
+
+    /**
+     * Execute a compiled script, possibly together with other calls for the same key.
+     * @param key calls with the same key may share an invocation
+     * @param script the compiled script
+     * @param parameters value for each script parameter, extra entries are ignored
+     * @param listener receives this call's stdout and stderr chunks as they arrive, may be null
+     * @param format format the script writes to stdout
+     * @return result of this call alone
+     * @throws IllegalArgumentException if a script parameter has no value
+     */
+    ExecuteResult execute(String key, PowerShellScript script, Map<String, ?> parameters, OutputListener listener,
+                          OutputFormat format) {
+        Call call = new Call(script, parameters, script.encodeParameters(parameters), listener, format);
+        Batch batch;
+        boolean leader = false;
+        synchronized (pending) {
+            batch = pending.get(key);
+            if (batch == null) {
+                batch = new Batch();
+                pending.put(key, batch);
+                leader = true;
+            }
+            batch.calls.add(call);
+            if (batch.calls.size() >= maxBatchSize) {
+                pending.remove(key);
+                batch.full.countDown();
+            }
+        }
+        if (leader) {
+            run(key, batch);
+        }
+        try {
+            return call.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void run(String key, Batch batch) {
+        try {
+            if (!batch.full.await(windowNanos, TimeUnit.NANOSECONDS)) {
+                closeBatch(key, batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeBatch(key, batch);
+        }
+        List<Call> calls = batch.calls;
+        try {
+            if (calls.size() == 1) {
+                Call call = calls.get(0);
+                call.result.complete(runner.execute(call.script, call.parameters, call.listener, call.format));
+            } else {
+                runCombined(calls);
+            }
+        } catch (RuntimeException | Error e) {
+            for (Call call : calls) {
+                call.result.completeExceptionally(e);
+            }
+            throw e;
+        }
+    }
+
+    private void closeBatch(String key, Batch batch) {
+        synchronized (pending) {
+            pending.remove(key, batch);
+        }
+    }
+
+    private void runCombined(List<Call> calls) {
+        // Same scripts in the same order give the same combined text, whatever order the calls arrived in
+        List<Call> ordered = new ArrayList<>(calls);
+        ordered.sort(Comparator.comparing(call -> call.script.getHash()));
+        PowerShellScript combined = combinedScript(ordered);
+
+        String marker = MARKER_PREFIX + UUID.randomUUID() + MARKER_SUFFIX;
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("marker", marker);
+        List<CallOutput> outputs = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            Call call = ordered.get(i);
+            parameters.put("p" + i, call.encodedParameters);
+            outputs.add(new CallOutput(call));
+        }
+
+        Demultiplexer demultiplexer = new Demultiplexer(marker, outputs);
+        ExecuteResult batchResult = runner.execute(combined, parameters, demultiplexer, OutputFormat.TEXT);
+        demultiplexer.finish();
+        batches.incrementAndGet();
+        batchedCalls.addAndGet(ordered.size());
+
+        for (CallOutput output : outputs) {
+            output.call.result.complete(output.result(batchResult));
+        }
+        // Every call has its own copy of its output
+        batchResult.release();
+    }
+
+    private PowerShellScript combinedScript(List<Call> ordered) {
+        List<String> hashes = new ArrayList<>(ordered.size());
+        for (Call call : ordered) {
+            hashes.add(call.script.getHash());
+        }
+        PowerShellScript combined = combinedScripts.get(hashes);
+        if (combined == null) {
+            if (combinedScripts.size() >= MAX_COMBINED_SCRIPTS) {
+                combinedScripts.clear();
+            }
+            combined = combinedScripts.computeIfAbsent(hashes, key -> compile(ordered));
+        }
+        return combined;
+    }
+
+    /**
+     * Build the combined script. Each call runs in its own script block with its parameters splatted
+     * and its output formatted per object, like a call on a pooled host.
+     */
+    private static PowerShellScript compile(List<Call> ordered) {
+        List<String> parameterNames = new ArrayList<>();
+        parameterNames.add("marker");
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < ordered.size(); i++) {
+            parameterNames.add("p" + i);
+            body.append("[Console]::Out.WriteLine(\"$marker BEGIN ").append(i).append("\")\n")
+                .append("[Console]::Error.WriteLine(\"$marker ").append(i).append("\")\n")
+                .append("$code = 0\n")
+                .append("try {\n")
+                .append("    $parameters = @{}\n")
+                .append("    ($p").append(i).append(" | ConvertFrom-Json).PSObject.Properties | ForEach-Object { $parameters[$_.Name] = $_.Value }\n")
+                .append("    $global:LASTEXITCODE = 0\n")
+                .append("    & {\n")
+                .append(ordered.get(i).script.getText()).append('\n')
+                .append("    } @parameters *>&1 | ForEach-Object {\n")
+                .append("        if ($_ -is [System.Management.Automation.ErrorRecord]) { [Console]::Error.WriteLine($_.ToString()) }\n")
+                .append("        else { [Console]::Out.WriteLine(($_ | Out-String).TrimEnd()) }\n")
+                .append("    }\n")
+                .append("    if ($global:LASTEXITCODE) { $code = $global:LASTEXITCODE }\n")
+                .append("} catch {\n")
+                .append("    [Console]::Error.WriteLine($_.ToString())\n")
+                .append("    $code = 1\n")
+                .append("}\n")
+                .append("[Console]::Out.WriteLine(\"$marker END ").append(i).append(" $code\")\n");
+        }
+        body.append("[Console]::Out.Flush()\n")
+            .append("[Console]::Error.Flush()\n")
+            .append("$global:LASTEXITCODE = 0");
+        return new PowerShellScript(parameterNames, body.toString());
+    }
+
+    /**
+     * Calls waiting for the same invocation.
+     */
+    private static final class Batch {
+        final List<Call> calls = new ArrayList<>();
+        final CountDownLatch full = new CountDownLatch(1);
+    }
+
+    /**
+     * One caller's script and the future its result is delivered through.
+     */
+    private static final class Call {
+        final PowerShellScript script;
+        final Map<String, ?> parameters;
+        final String encodedParameters;
+        final OutputListener listener;
+        final OutputFormat format;
+        final CompletableFuture<ExecuteResult> result = new CompletableFuture<>();
+
+        Call(PowerShellScript script, Map<String, ?> parameters, String encodedParameters, OutputListener listener,
+             OutputFormat format) {
+            this.script = script;
+            this.parameters = parameters;
+            this.encodedParameters = encodedParameters;
+            this.listener = listener;
+            this.format = format;
+        }
+    }
+
+    /**
+     * Output of one call of a combined invocation.
+     */
+    private final class CallOutput {
+        final Call call;
+        final OutputCapture stdout = runner.newCapture();
+        final OutputCapture stderr = runner.newCapture();
+        final JsonOutputParser parser;
+        final OutputListener listener;
+        volatile Integer exitCode;
+
+        CallOutput(Call call) {
+            this.call = call;
+            this.parser = call.format.isStructured()
+                ? new JsonOutputParser(call.listener, call.format == OutputFormat.NDJSON) : null;
+            this.listener = parser != null ? parser : call.listener;
+        }
+
+        void stdout(String text) {
+            stdout.write(text);
+            if (listener != null) {
+                listener.onOutput(OutputChunk.stdout(text));
+            }
+        }
+
+        void stderr(String text) {
+            stderr.write(text);
+            if (listener != null) {
+                listener.onOutput(OutputChunk.stderr(text));
+            }
+        }
+
+        ExecuteResult result(ExecuteResult batchResult) {
+            String executionId = UUID.randomUUID().toString();
+            Integer code = exitCode;
+            ExecuteResult result;
+            if (code != null) {
+                result = new ExecuteResult(executionId, code, stdout, stderr,
+                    code == 0 ? ExecuteResult.Status.SUCCESS : ExecuteResult.Status.FAILURE);
+            } else {
+                // The invocation ended before this call did: timed out, crashed or failed to start
+                String reason = "Batched execution ended with " + batchResult.getStatus() + " before this call completed";
+                stderr((stderr.size() == 0 ? "" : "\n") + reason);
+                ExecuteResult.Status status = batchResult.getStatus() == ExecuteResult.Status.SUCCESS
+                    ? ExecuteResult.Status.ERROR : batchResult.getStatus();
+                result = new ExecuteResult(executionId, -1, stdout, stderr, status);
+            }
+            return parser != null ? result.withPayload(parser.finish()) : result;
+        }
+    }
+
+    /**
+     * Routes the lines of a combined invocation to the call whose section they belong to.
+     * stdout and stderr are delivered by different threads, so each stream keeps its own state.
+     */
+    private static final class Demultiplexer implements OutputListener {
+        private final String marker;
+        private final List<CallOutput> outputs;
+        private final Stream stdout = new Stream(true);
+        private final Stream stderr = new Stream(false);
+
+        Demultiplexer(String marker, List<CallOutput> outputs) {
+            this.marker = marker;
+            this.outputs = outputs;
+        }
+
+        @Override
+        public void onOutput(OutputChunk chunk) {
+            if (chunk.getType() == OutputChunk.Type.STDOUT) {
+                stdout.feed(chunk.getText());
+            } else if (chunk.getType() == OutputChunk.Type.STDERR) {
+                stderr.feed(chunk.getText());
+            }
+        }
+
+        void finish() {
+            stdout.flush();
+            stderr.flush();
+        }
+
+        private final class Stream {
+            private final boolean isStdout;
+            private final StringBuilder line = new StringBuilder();
+            private CallOutput current;
+
+            Stream(boolean isStdout) {
+                this.isStdout = isStdout;
+            }
+
+            synchronized void feed(String text) {
+                int start = 0;
+                int newline;
+                while ((newline = text.indexOf('\n', start)) >= 0) {
+                    line.append(text, start, newline + 1);
+                    accept(line.toString());
+                    line.setLength(0);
+                    start = newline + 1;
+                }
+                line.append(text, start, text.length());
+            }
+
+            synchronized void flush() {
+                if (line.length() > 0) {
+                    accept(line.toString());
+                    line.setLength(0);
+                }
+            }
+
+            private void accept(String text) {
+                String content = text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+                if (content.endsWith("\r")) {
+                    content = content.substring(0, content.length() - 1);
+                }
+                if (content.startsWith(marker + " ")) {
+                    marker(content.substring(marker.length() + 1).split(" "));
+                } else if (current != null) {
+                    if (isStdout) {
+                        current.stdout(text);
+                    } else {
+                        current.stderr(text);
+                    }
+                }
+            }
+
+            private void marker(String[] fields) {
+                try {
+                    if (isStdout && fields.length == 2 && fields[0].equals("BEGIN")) {
+                        current = outputs.get(Integer.parseInt(fields[1]));
+                    } else if (isStdout && fields.length == 3 && fields[0].equals("END")) {
+                        outputs.get(Integer.parseInt(fields[1])).exitCode = Integer.parseInt(fields[2]);
+                        current = null;
+                    } else if (!isStdout && fields.length == 1) {
+                        current = outputs.get(Integer.parseInt(fields[0]));
+                    }
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    // Not a marker this script writes; the nonce makes this unreachable in practice
+                }
+            }
+        }
+    }
+}
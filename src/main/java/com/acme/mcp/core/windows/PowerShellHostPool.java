@@ -0,0 +1,559 @@
+package com.acme.mcp.core.windows;
+
+import com.acme.mcp.core.tool.ExecuteResult;
+import com.acme.mcp.core.tool.OutputCapture;
+import com.acme.mcp.core.tool.OutputChunk;
+import com.acme.mcp.core.tool.OutputListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of long-lived PowerShell hosts.
+ * Avoids paying the powershell.exe startup cost on every execution by sending
+ * scripts to warm hosts over stdin using a small framed protocol:
+ * <pre>
+ * request  (stdin):  &lt;id&gt; &lt;base64 UTF-8 script&gt;
+ *               or:  &lt;id&gt; &lt;script hash&gt; &lt;base64 UTF-8 script or "-"&gt; &lt;base64 UTF-8 JSON parameters&gt;
+ * response (stdout): script output, then "&lt;&lt;&lt;MCP-END &lt;id&gt; &lt;exitCode&gt;&gt;&gt;&gt;" on its own line
+ * response (stderr): script errors, then "&lt;&lt;&lt;MCP-END &lt;id&gt;&gt;&gt;&gt;" on its own line
+ * </pre>
+ * The second request form runs a {@link PowerShellScript}. Each host keeps the parsed script
+ * blocks it has run by hash, and once a script ran successfully on a host only its hash is sent
+ * ("-" in place of the script). The cache lives as long as the host, so it is bounded by the
+ * number of uses per host.
+ * Hosts are recycled after a configurable number of uses, when they crash and
+ * when an execution exceeds its timeout.
+ */
+public class PowerShellHostPool implements AutoCloseable {
+
+    static final String END_MARKER_PREFIX = "<<<MCP-END ";
+    static final String END_MARKER_SUFFIX = ">>>";
+
+    /**
+     * Host loop executed by each pooled powershell.exe process.
+     */
+    static final String POWERSHELL_HOST_SCRIPT = String.join("\n",
+        "$blocks = @{}",
+        "while ($true) {",
+        "    $line = [Console]::In.ReadLine()",
+        "    if ($line -eq $null) { break }",
+        "    $parts = $line.Split(' ')",
+        "    $id = $parts[0]",
+        "    $code = 0",
+        "    try {",
+        "        $parameters = @{}",
+        "        if ($parts.Length -eq 4) {",
+        "            if ($parts[2] -ne '-') {",
+        "                $blocks[$parts[1]] = [scriptblock]::Create([Text.Encoding]::UTF8.GetString([Convert]::FromBase64String($parts[2])))",
+        "            }",
+        "            $block = $blocks[$parts[1]]",
+        "            $values = [Text.Encoding]::UTF8.GetString([Convert]::FromBase64String($parts[3])) | ConvertFrom-Json",
+        "            $values.PSObject.Properties | ForEach-Object { $parameters[$_.Name] = $_.Value }",
+        "        } else {",
+        "            $block = [scriptblock]::Create([Text.Encoding]::UTF8.GetString([Convert]::FromBase64String($parts[1])))",
+        "        }",
+        "        $global:LASTEXITCODE = 0",
+        "        & $block @parameters *>&1 | ForEach-Object {",
+        "            if ($_ -is [System.Management.Automation.ErrorRecord]) { [Console]::Error.WriteLine($_.ToString()) }",
+        "            else { [Console]::Out.WriteLine(($_ | Out-String).TrimEnd()) }",
+        "        }",
+        "        if ($global:LASTEXITCODE) { $code = $global:LASTEXITCODE }",
+        "    } catch {",
+        "        [Console]::Error.WriteLine($_.ToString())",
+        "        $code = 1",
+        "    }",
+        "    [Console]::Out.WriteLine()",
+        "    [Console]::Out.WriteLine('" + END_MARKER_PREFIX + "' + $id + ' ' + $code + '" + END_MARKER_SUFFIX + "')",
+        "    [Console]::Out.Flush()",
+        "    [Console]::Error.WriteLine()",
+        "    [Console]::Error.WriteLine('" + END_MARKER_PREFIX + "' + $id + '" + END_MARKER_SUFFIX + "')",
+        "    [Console]::Error.Flush()",
+        "}"
+    );
+
+    /**
+     * Default command used to start a pooled PowerShell host.
+     */
+    public static final List<String> DEFAULT_HOST_COMMAND = List.of(
+        "powershell.exe",
+        "-NoProfile",
+        "-NonInteractive",
+        "-ExecutionPolicy", "Bypass",
+        "-EncodedCommand", encodePowerShellCommand(POWERSHELL_HOST_SCRIPT)
+    );
+
+    private final List<String> hostCommand;
+    private final int size;
+    private final int maxUsesPerHost;
+    private final Semaphore permits;
+    private final BlockingDeque<Host> idleHosts = new LinkedBlockingDeque<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong spawns = new AtomicLong();
+    private final AtomicLong recycles = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong scriptCacheHits = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Create a pool of PowerShell hosts with default settings (100 uses per host).
+     * @param size maximum number of concurrently running hosts
+     */
+    public PowerShellHostPool(int size) {
+        this(DEFAULT_HOST_COMMAND, size, 100);
+    }
+
+    /**
+     * Create a pool with a custom host command.
+     * The host command must speak the framed protocol described in the class documentation;
+     * this allows a stand-in host to be used where powershell.exe is not available.
+     * @param hostCommand command line used to start a host
+     * @param size maximum number of concurrently running hosts
+     * @param maxUsesPerHost number of executions after which a host is recycled
+     */
+    public PowerShellHostPool(List<String> hostCommand, int size, int maxUsesPerHost) {
+        if (hostCommand == null || hostCommand.isEmpty()) {
+            throw new IllegalArgumentException("Host command cannot be null or empty");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        if (maxUsesPerHost < 1) {
+            throw new IllegalArgumentException("Max uses per host must be at least 1");
+        }
+        this.hostCommand = List.copyOf(hostCommand);
+        this.size = size;
+        this.maxUsesPerHost = maxUsesPerHost;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Execute a script on a pooled host.
+     * Time spent waiting for a free host counts against the timeout.
+     * @param script the script to execute
+     * @param timeoutSeconds timeout in seconds for queueing and execution
+     * @return execution result with output and exit code
+     */
+    public ExecuteResult execute(String script, int timeoutSeconds) {
+        return execute(script, timeoutSeconds, null);
+    }
+
+    /**
+     * Execute a script on a pooled host, reporting output line by line while it is produced.
+     * @param script the script to execute
+     * @param timeoutSeconds timeout in seconds for queueing and execution
+     * @param listener receives stdout and stderr chunks as they arrive, may be null
+     * @return execution result with output and exit code
+     */
+    public ExecuteResult execute(String script, int timeoutSeconds, OutputListener listener) {
+        return execute(script, timeoutSeconds, listener, new OutputCapture(), new OutputCapture());
+    }
+
+    /**
+     * Execute a compiled script on a pooled host, reporting output line by line while it is produced.
+     * Hosts that already ran the script successfully receive only its hash.
+     * @param script the compiled script
+     * @param parameters value for each script parameter
+     * @param timeoutSeconds timeout in seconds for queueing and execution
+     * @param listener receives stdout and stderr chunks as they arrive, may be null
+     * @return execution result with output and exit code
+     * @throws IllegalArgumentException if a script parameter has no value
+     */
+    public ExecuteResult execute(PowerShellScript script, Map<String, ?> parameters, int timeoutSeconds,
+                                 OutputListener listener) {
+        return execute(script, script.encodeParameters(parameters), timeoutSeconds, listener,
+            new OutputCapture(), new OutputCapture());
+    }
+
+    ExecuteResult execute(String script, int timeoutSeconds, OutputListener listener,
+                          OutputCapture stdout, OutputCapture stderr) {
+        return execute(null, script, timeoutSeconds, listener, stdout, stderr);
+    }
+
+    /**
+     * @param compiled compiled script, or null when payload is a plain script
+     * @param payload plain script, or the JSON parameters of the compiled script
+     */
+    ExecuteResult execute(PowerShellScript compiled, String payload, int timeoutSeconds, OutputListener listener,
+                          OutputCapture stdout, OutputCapture stderr) {
+        String executionId = UUID.randomUUID().toString();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+
+        if (closed) {
+            return new ExecuteResult(executionId, -1, "", "Host pool is closed", ExecuteResult.Status.ERROR);
+        }
+
+        try {
+            if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                queueWaitNanos.addAndGet(System.nanoTime() - start);
+                return new ExecuteResult(executionId, -1, "",
+                    "Timed out waiting for a PowerShell host", ExecuteResult.Status.TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ExecuteResult(executionId, -1, "",
+                "Execution failed: " + e.getMessage(), ExecuteResult.Status.ERROR);
+        }
+        queueWaitNanos.addAndGet(System.nanoTime() - start);
+        executions.incrementAndGet();
+
+        Host host = null;
+        try {
+            host = borrow();
+            Response response = host.send(executionId, compiled, payload, listener, stdout, stderr);
+            if (response.scriptCached) {
+                scriptCacheHits.incrementAndGet();
+            }
+            boolean finished = response.await(deadline - System.nanoTime());
+
+            if (!finished) {
+                retire(host);
+                host = null;
+                appendLine(stderr, "Execution timed out after " + timeoutSeconds + "s");
+                return new ExecuteResult(executionId, -1, stdout, stderr, ExecuteResult.Status.TIMEOUT);
+            }
+            if (response.hostDied) {
+                retire(host);
+                host = null;
+                appendLine(stderr, "PowerShell host exited unexpectedly");
+                return new ExecuteResult(executionId, -1, stdout, stderr, ExecuteResult.Status.ERROR);
+            }
+
+            int exitCode = response.exitCode;
+            if (compiled != null && exitCode == 0) {
+                // Only a successful run proves the host parsed and cached the script block
+                host.scripts.add(compiled.getHash());
+            }
+            ExecuteResult.Status status = exitCode == 0 ? ExecuteResult.Status.SUCCESS : ExecuteResult.Status.FAILURE;
+            return new ExecuteResult(executionId, exitCode, stdout, stderr, status);
+
+        } catch (IOException e) {
+            if (host != null) {
+                retire(host);
+                host = null;
+            }
+            return new ExecuteResult(executionId, -1, "",
+                "Execution failed: " + e.getMessage(), ExecuteResult.Status.ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (host != null) {
+                retire(host);
+                host = null;
+            }
+            return new ExecuteResult(executionId, -1, "",
+                "Execution failed: " + e.getMessage(), ExecuteResult.Status.ERROR);
+        } finally {
+            if (host != null) {
+                release(host);
+            }
+            permits.release();
+        }
+    }
+
+    private Host borrow() throws IOException {
+        Host host;
+        while ((host = idleHosts.pollFirst()) != null) {
+            if (host.process.isAlive()) {
+                reuses.incrementAndGet();
+                return host;
+            }
+            retire(host);
+        }
+        spawns.incrementAndGet();
+        return new Host(new ProcessBuilder(hostCommand).start());
+    }
+
+    private void release(Host host) {
+        host.uses++;
+        if (closed || host.uses >= maxUsesPerHost || !host.process.isAlive()) {
+            retire(host);
+        } else {
+            idleHosts.offerFirst(host);
+        }
+    }
+
+    private void retire(Host host) {
+        recycles.incrementAndGet();
+        host.destroy();
+    }
+
+    /**
+     * Shut down all idle hosts and reject further executions.
+     * Hosts that are currently executing are shut down when they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Host host;
+        while ((host = idleHosts.pollFirst()) != null) {
+            host.destroy();
+        }
+    }
+
+    /**
+     * @return maximum number of concurrently running hosts
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of warm hosts waiting for work
+     */
+    public int getIdleHosts() {
+        return idleHosts.size();
+    }
+
+    /**
+     * @return number of executions currently holding a host
+     */
+    public int getActiveExecutions() {
+        return size - permits.availablePermits();
+    }
+
+    /**
+     * @return number of callers waiting for a free host
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * @return total number of executions that obtained a host
+     */
+    public long getExecutionCount() {
+        return executions.get();
+    }
+
+    /**
+     * @return number of executions served by an already warm host
+     */
+    public long getReuseCount() {
+        return reuses.get();
+    }
+
+    /**
+     * @return number of host processes started
+     */
+    public long getSpawnCount() {
+        return spawns.get();
+    }
+
+    /**
+     * @return number of host processes shut down after max uses, a crash or a timeout
+     */
+    public long getRecycleCount() {
+        return recycles.get();
+    }
+
+    /**
+     * @return total time callers spent waiting for a free host, in nanoseconds
+     */
+    public long getTotalQueueWaitNanos() {
+        return queueWaitNanos.get();
+    }
+
+    /**
+     * @return number of compiled script executions that sent only the script hash to a warm host
+     */
+    public long getScriptCacheHitCount() {
+        return scriptCacheHits.get();
+    }
+
+    /**
+     * Encode a script for powershell.exe -EncodedCommand (Base64 of UTF-16LE).
+     * @param script the script to encode
+     * @return encoded command
+     */
+    public static String encodePowerShellCommand(String script) {
+        return Base64.getEncoder().encodeToString(script.getBytes(StandardCharsets.UTF_16LE));
+    }
+
+    private static void appendLine(OutputCapture capture, String line) {
+        capture.write(capture.size() == 0 ? line : "\n" + line);
+    }
+
+    /**
+     * A single long-lived host process with its stream readers.
+     */
+    private static final class Host {
+
+        private final Process process;
+        private final OutputStream stdin;
+        private final Set<String> scripts = new HashSet<>();
+        private volatile Response current;
+        private int uses;
+
+        Host(Process process) {
+            this.process = process;
+            this.stdin = process.getOutputStream();
+            startReader(process.getInputStream(), true);
+            startReader(process.getErrorStream(), false);
+        }
+
+        Response send(String executionId, PowerShellScript compiled, String payload, OutputListener listener,
+                      OutputCapture stdout, OutputCapture stderr) throws IOException {
+            String id = executionId.replace("-", "");
+            boolean scriptCached = compiled != null && scripts.contains(compiled.getHash());
+            Response response = new Response(id, listener, stdout, stderr, scriptCached);
+            current = response;
+            String frame;
+            if (compiled == null) {
+                frame = id + " " + base64(payload) + "\n";
+            } else {
+                frame = id + " " + compiled.getHash() + " " + (scriptCached ? "-" : base64(compiled.getText()))
+                    + " " + base64(payload) + "\n";
+            }
+            stdin.write(frame.getBytes(StandardCharsets.UTF_8));
+            stdin.flush();
+            return response;
+        }
+
+        private static String base64(String text) {
+            return Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void startReader(InputStream stream, boolean stdout) {
+            Thread reader = new Thread(() -> pump(stream, stdout),
+                "ps-host-" + process.pid() + (stdout ? "-out" : "-err"));
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void pump(InputStream stream, boolean stdout) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Response response = current;
+                    if (response != null) {
+                        response.accept(line, stdout);
+                    }
+                }
+            } catch (IOException e) {
+                // Stream closed, treated as host death below
+            }
+            Response response = current;
+            if (response != null) {
+                response.hostDied();
+            }
+        }
+
+        void destroy() {
+            current = null;
+            PowerShellRunner.destroyProcessTree(process);
+        }
+    }
+
+    /**
+     * Collects the framed response to one request.
+     */
+    private static final class Response {
+
+        private final String stdoutMarker;
+        private final String stderrMarker;
+        private final OutputCapture stdout;
+        private final OutputCapture stderr;
+        private final CountDownLatch done = new CountDownLatch(2);
+        private final boolean scriptCached;
+        private OutputListener listener;
+        private boolean stdoutDone;
+        private boolean stderrDone;
+        private boolean firstStdoutLine = true;
+        private boolean firstStderrLine = true;
+        private volatile int exitCode = -1;
+        private volatile boolean hostDied;
+
+        Response(String id, OutputListener listener, OutputCapture stdout, OutputCapture stderr,
+                 boolean scriptCached) {
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.stdoutMarker = END_MARKER_PREFIX + id + " ";
+            this.stderrMarker = END_MARKER_PREFIX + id + END_MARKER_SUFFIX;
+            this.listener = listener;
+            this.scriptCached = scriptCached;
+        }
+
+        synchronized void accept(String line, boolean fromStdout) {
+            if (fromStdout) {
+                if (stdoutDone) {
+                    return;
+                }
+                if (line.startsWith(stdoutMarker) && line.endsWith(END_MARKER_SUFFIX)) {
+                    String code = line.substring(stdoutMarker.length(), line.length() - END_MARKER_SUFFIX.length());
+                    try {
+                        exitCode = Integer.parseInt(code.trim());
+                    } catch (NumberFormatException e) {
+                        exitCode = -1;
+                    }
+                    stdoutDone = true;
+                    done.countDown();
+                    return;
+                }
+                String text = firstStdoutLine ? line : "\n" + line;
+                firstStdoutLine = false;
+                stdout.write(text);
+                publish(OutputChunk.stdout(text));
+            } else {
+                if (stderrDone) {
+                    return;
+                }
+                if (line.equals(stderrMarker)) {
+                    stderrDone = true;
+                    done.countDown();
+                    return;
+                }
+                String text = firstStderrLine ? line : "\n" + line;
+                firstStderrLine = false;
+                stderr.write(text);
+                publish(OutputChunk.stderr(text));
+            }
+        }
+
+        private void publish(OutputChunk chunk) {
+            if (listener == null || chunk.getText().isEmpty()) {
+                return;
+            }
+            try {
+                listener.onOutput(chunk);
+            } catch (RuntimeException e) {
+                // A failing listener must not stop the host output from being read
+                listener = null;
+            }
+        }
+
+        synchronized void hostDied() {
+            if (stdoutDone && stderrDone) {
+                return;
+            }
+            hostDied = true;
+            stdoutDone = true;
+            stderrDone = true;
+            done.countDown();
+            done.countDown();
+        }
+
+        boolean await(long timeoutNanos) throws InterruptedException {
+            return done.await(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package com.acme.mcp.core.windows;
 
 import com.acme.mcp.core.tool.ExecuteResult;
-import org.apache.commons.io.IOUtils;
+import com.acme.mcp.core.tool.OutputCapture;
+import com.acme.mcp.core.tool.OutputChunk;
+import com.acme.mcp.core.tool.OutputFormat;
+import com.acme.mcp.core.tool.OutputListener;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -12,95 +22,444 @@ import java.util.concurrent.TimeUnit;
  * Executes PowerShell commands on Windows systems.
  * Uses secure execution policy and no profile for consistent behavior.
  * Supports timeout configuration and dry-run mode for testing.
+ * Commands run either in a new process per call or on a warm {@link PowerShellHostPool}.
+ * Compiled {@link PowerShellScript}s are sent over stdin together with their parameters,
+ * so the command line stays short and constant however large the script is.
  */
 public class PowerShellRunner {
-    
-    private static final String POWERSHELL_CMD = "powershell.exe";
-    private static final String[] POWERSHELL_ARGS = {
+
+    /**
+     * Default command prefix used to start a new PowerShell process; the script is appended as last argument.
+     */
+    public static final List<String> DEFAULT_SHELL_COMMAND = List.of(
+        "powershell.exe",
         "-NoProfile",
         "-ExecutionPolicy", "Bypass",
         "-Command"
-    };
-    
+    );
+
+    /**
+     * Loader started for a {@link PowerShellScript} in a new process. Reads the base64 UTF-8 script
+     * and JSON parameters from the first two stdin lines and splats the parameters onto the script.
+     */
+    static final String SCRIPT_LOADER = String.join("\n",
+        "$script = [Text.Encoding]::UTF8.GetString([Convert]::FromBase64String([Console]::In.ReadLine()))",
+        "$values = [Text.Encoding]::UTF8.GetString([Convert]::FromBase64String([Console]::In.ReadLine())) | ConvertFrom-Json",
+        "$parameters = @{}",
+        "$values.PSObject.Properties | ForEach-Object { $parameters[$_.Name] = $_.Value }",
+        "$global:LASTEXITCODE = 0",
+        "& ([scriptblock]::Create($script)) @parameters",
+        "if ($global:LASTEXITCODE) { exit $global:LASTEXITCODE }"
+    );
+
+    /**
+     * Command used to run a {@link PowerShellScript} in a new process with the default shell command.
+     */
+    public static final List<String> DEFAULT_SCRIPT_COMMAND = List.of(
+        "powershell.exe",
+        "-NoProfile",
+        "-NonInteractive",
+        "-ExecutionPolicy", "Bypass",
+        "-EncodedCommand", PowerShellHostPool.encodePowerShellCommand(SCRIPT_LOADER)
+    );
+
+    private static final long KILL_GRACE_MILLIS = 500;
+
+    /** Interval at which the descendants of a running process are recorded. */
+    private static final long DESCENDANT_POLL_MILLIS = 100;
+
     private final int timeoutSeconds;
     private final boolean dryRun;
-    
+    private final List<String> shellCommand;
+    private final List<String> scriptCommand;
+    private final PowerShellHostPool hostPool;
+    private volatile int captureHeadBytes = OutputCapture.DEFAULT_HEAD_BYTES;
+    private volatile int captureTailBytes = OutputCapture.DEFAULT_TAIL_BYTES;
+    private volatile PowerShellBatcher batcher;
+
     /**
      * Create PowerShellRunner with default settings (120s timeout, no dry-run).
      */
     public PowerShellRunner() {
         this(120, false);
     }
-    
+
     /**
      * Create PowerShellRunner with custom settings.
      * @param timeoutSeconds timeout in seconds for command execution
      * @param dryRun if true, commands are not executed but audited
      */
     public PowerShellRunner(int timeoutSeconds, boolean dryRun) {
+        this(timeoutSeconds, dryRun, DEFAULT_SHELL_COMMAND);
+    }
+
+    /**
+     * Create PowerShellRunner that starts a new process per call using a custom shell command.
+     * @param timeoutSeconds timeout in seconds for command execution
+     * @param dryRun if true, commands are not executed but audited
+     * @param shellCommand command prefix used to start the shell; the script is appended as last argument.
+     *        Compiled scripts append the stdin loader instead, except for the default command which
+     *        uses {@link #DEFAULT_SCRIPT_COMMAND}
+     */
+    public PowerShellRunner(int timeoutSeconds, boolean dryRun, List<String> shellCommand) {
+        if (shellCommand == null || shellCommand.isEmpty()) {
+            throw new IllegalArgumentException("Shell command cannot be null or empty");
+        }
+        this.timeoutSeconds = timeoutSeconds;
+        this.dryRun = dryRun;
+        this.shellCommand = List.copyOf(shellCommand);
+        this.scriptCommand = scriptCommand(this.shellCommand);
+        this.hostPool = null;
+    }
+
+    /**
+     * Create PowerShellRunner that executes commands on warm pooled hosts.
+     * @param timeoutSeconds timeout in seconds for command execution, including time spent waiting for a host
+     * @param dryRun if true, commands are not executed but audited
+     * @param hostPool pool of long-lived PowerShell hosts
+     */
+    public PowerShellRunner(int timeoutSeconds, boolean dryRun, PowerShellHostPool hostPool) {
+        if (hostPool == null) {
+            throw new IllegalArgumentException("Host pool cannot be null");
+        }
         this.timeoutSeconds = timeoutSeconds;
         this.dryRun = dryRun;
+        this.shellCommand = DEFAULT_SHELL_COMMAND;
+        this.scriptCommand = DEFAULT_SCRIPT_COMMAND;
+        this.hostPool = hostPool;
+    }
+
+    private static List<String> scriptCommand(List<String> shellCommand) {
+        if (shellCommand.equals(DEFAULT_SHELL_COMMAND)) {
+            return DEFAULT_SCRIPT_COMMAND;
+        }
+        List<String> command = new ArrayList<>(shellCommand);
+        command.add(SCRIPT_LOADER);
+        return List.copyOf(command);
+    }
+
+    /**
+     * @return timeout in seconds for command execution
+     */
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    /**
+     * @return true if commands are audited but not executed
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * @return host pool used for execution, or null when a new process is started per call
+     */
+    public PowerShellHostPool getHostPool() {
+        return hostPool;
+    }
+
+    /**
+     * Limit how much output of each stream is kept in memory.
+     * Output beyond head plus tail is spilled to a temporary file.
+     * @param headBytes bytes kept from the start of each stream
+     * @param tailBytes bytes kept from the end of each stream
+     */
+    public void setCaptureLimits(int headBytes, int tailBytes) {
+        if (headBytes < 0 || tailBytes < 0) {
+            throw new IllegalArgumentException("Capture limits cannot be negative");
+        }
+        this.captureHeadBytes = headBytes;
+        this.captureTailBytes = tailBytes;
+    }
+
+    /**
+     * Run compiled scripts passed to {@link #executeBatched} that arrive within the window for the
+     * same key as one PowerShell invocation. Each call still gets its own result and output.
+     * @param windowMillis how long the first call waits for more calls, 0 to disable batching
+     * @param maxBatchSize number of calls that starts a batch before the window ends, at least 2
+     */
+    public void setBatching(int windowMillis, int maxBatchSize) {
+        this.batcher = windowMillis == 0 ? null : new PowerShellBatcher(this, windowMillis, maxBatchSize);
+    }
+
+    /**
+     * @return true if {@link #executeBatched} may combine calls
+     */
+    public boolean isBatching() {
+        return batcher != null;
+    }
+
+    /**
+     * @return number of combined invocations run by the current batching configuration
+     */
+    public long getBatchCount() {
+        PowerShellBatcher current = batcher;
+        return current == null ? 0 : current.getBatchCount();
+    }
+
+    /**
+     * @return number of calls that ran as part of a combined invocation with the current batching configuration
+     */
+    public long getBatchedCallCount() {
+        PowerShellBatcher current = batcher;
+        return current == null ? 0 : current.getBatchedCallCount();
+    }
+
+    /**
+     * Execute a compiled script, combined with other calls for the same key when batching is enabled.
+     * Only use this for read-only scripts: a batched call waits up to the batch window before it starts
+     * and shares its PowerShell invocation with other scripts. Behaves like
+     * {@link #execute(PowerShellScript, Map, OutputListener, OutputFormat)} otherwise.
+     * @param batchKey calls with the same key may share an invocation, typically the asset ID
+     * @param script the compiled script
+     * @param parameters value for each script parameter, extra entries are ignored
+     * @param listener receives stdout and stderr chunks of this call as they arrive, may be null
+     * @param format format the script writes to stdout
+     * @return result of this call
+     * @throws IllegalArgumentException if a script parameter has no value
+     */
+    public ExecuteResult executeBatched(String batchKey, PowerShellScript script, Map<String, ?> parameters,
+                                        OutputListener listener, OutputFormat format) {
+        PowerShellBatcher current = batcher;
+        if (current == null || dryRun || batchKey == null) {
+            return execute(script, parameters, listener, format);
+        }
+        return current.execute(batchKey, script, parameters, listener, format);
     }
-    
+
     /**
      * Execute a PowerShell command.
      * @param command the PowerShell command to execute
      * @return execution result with output and exit code
      */
     public ExecuteResult execute(String command) {
+        return execute(command, (OutputListener) null);
+    }
+
+    /**
+     * Execute a PowerShell command, reporting output while it is produced.
+     * @param command the PowerShell command to execute
+     * @param listener receives stdout and stderr chunks as they arrive, may be null
+     * @return execution result with output and exit code
+     */
+    public ExecuteResult execute(String command, OutputListener listener) {
         String executionId = UUID.randomUUID().toString();
-        
+
         // Handle dry-run mode
         if (dryRun) {
+            if (listener != null) {
+                listener.onOutput(OutputChunk.stdout("DRY_RUN"));
+            }
             return new ExecuteResult(executionId, 0, "DRY_RUN", "", ExecuteResult.Status.SUCCESS);
         }
-        
+
+        if (hostPool != null) {
+            return hostPool.execute(command, timeoutSeconds, listener, newCapture(), newCapture());
+        }
+
+        List<String> processCommand = new ArrayList<>(shellCommand);
+        processCommand.add(command);
+        return runProcess(executionId, processCommand, null, listener);
+    }
+
+    /**
+     * Execute a compiled script with named parameters, reporting output while it is produced.
+     * The script and its parameters are sent over stdin (or the host pool protocol) and never
+     * become part of a command line.
+     * @param script the compiled script
+     * @param parameters value for each script parameter, extra entries are ignored
+     * @param listener receives stdout and stderr chunks as they arrive, may be null
+     * @return execution result with output and exit code
+     * @throws IllegalArgumentException if a script parameter has no value
+     */
+    public ExecuteResult execute(PowerShellScript script, Map<String, ?> parameters, OutputListener listener) {
+        return execute(script, parameters, listener, OutputFormat.TEXT);
+    }
+
+    /**
+     * Execute a compiled script that writes the given output format.
+     * Structured stdout is parsed incrementally while it arrives and attached as the result payload.
+     * @param script the compiled script
+     * @param parameters value for each script parameter, extra entries are ignored
+     * @param listener receives stdout and stderr chunks as they arrive, may be null
+     * @param format format the script writes to stdout
+     * @return execution result with output, exit code and, for structured formats, the parsed payload
+     * @throws IllegalArgumentException if a script parameter has no value
+     */
+    public ExecuteResult execute(PowerShellScript script, Map<String, ?> parameters, OutputListener listener,
+                                 OutputFormat format) {
+        if (!format.isStructured() || dryRun) {
+            return run(script, parameters, listener);
+        }
+        JsonOutputParser parser = new JsonOutputParser(listener, format == OutputFormat.NDJSON);
+        ExecuteResult result = run(script, parameters, parser);
+        return result.withPayload(parser.finish());
+    }
+
+    private ExecuteResult run(PowerShellScript script, Map<String, ?> parameters, OutputListener listener) {
+        String encodedParameters = script.encodeParameters(parameters);
+
+        if (dryRun) {
+            if (listener != null) {
+                listener.onOutput(OutputChunk.stdout("DRY_RUN"));
+            }
+            return new ExecuteResult(UUID.randomUUID().toString(), 0, "DRY_RUN", "", ExecuteResult.Status.SUCCESS);
+        }
+
+        if (hostPool != null) {
+            return hostPool.execute(script, encodedParameters, timeoutSeconds, listener, newCapture(), newCapture());
+        }
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        String input = encoder.encodeToString(script.getText().getBytes(StandardCharsets.UTF_8)) + "\n"
+            + encoder.encodeToString(encodedParameters.getBytes(StandardCharsets.UTF_8)) + "\n";
+        return runProcess(UUID.randomUUID().toString(), scriptCommand, input.getBytes(StandardCharsets.UTF_8), listener);
+    }
+
+    private ExecuteResult runProcess(String executionId, List<String> processCommand, byte[] input,
+                                     OutputListener listener) {
+        // One deadline covers spawn, draining both streams and process exit
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        Process process = null;
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder();
-            processBuilder.command(POWERSHELL_CMD, POWERSHELL_ARGS[0], POWERSHELL_ARGS[1], 
-                                 POWERSHELL_ARGS[2], POWERSHELL_ARGS[3], command);
-            
-            Process process = processBuilder.start();
-            
-            // Read output streams
-            String stdout = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
-            String stderr = IOUtils.toString(process.getErrorStream(), StandardCharsets.UTF_8);
-            
-            // Wait for process completion with configurable timeout
-            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-            int exitCode = finished ? process.exitValue() : -1;
-            
-            ExecuteResult.Status status;
+            ProcessBuilder processBuilder = new ProcessBuilder(processCommand);
+
+            process = processBuilder.start();
+
+            // Drain stdout and stderr concurrently so neither pipe can fill up and block the child
+            StreamPump stdout = StreamPump.start(process.getInputStream(), newCapture(), OutputChunk.Type.STDOUT, listener);
+            StreamPump stderr = StreamPump.start(process.getErrorStream(), newCapture(), OutputChunk.Type.STDERR, listener);
+
+            try (OutputStream stdin = process.getOutputStream()) {
+                if (input != null) {
+                    stdin.write(input);
+                }
+            } catch (IOException e) {
+                // The child exited without reading its input; its output and exit code tell why
+            }
+
+            // Orphaned descendants are no longer found from the root once it exits, so they are
+            // recorded while it runs
+            Set<ProcessHandle> descendants = new HashSet<>();
+            boolean exited = waitFor(process, deadline, descendants);
+            long graceNanos = TimeUnit.MILLISECONDS.toNanos(KILL_GRACE_MILLIS);
+            if (exited && !(stdout.await(Math.min(graceNanos, remaining(deadline)))
+                    && stderr.await(Math.min(graceNanos, remaining(deadline))))) {
+                // A descendant that inherited the pipes keeps them open after the root exited
+                destroyDescendants(process, descendants);
+            }
+            boolean finished = exited
+                && stdout.await(remaining(deadline))
+                && stderr.await(remaining(deadline));
+
             if (!finished) {
-                status = ExecuteResult.Status.ERROR;
+                destroyDescendants(process, descendants);
                 process.destroyForcibly();
-            } else if (exitCode == 0) {
-                status = ExecuteResult.Status.SUCCESS;
-            } else {
-                status = ExecuteResult.Status.FAILURE;
+                // Give the pumps a moment to collect what the killed process already wrote
+                if (!stdout.await(graceNanos)) {
+                    stdout.abandon();
+                }
+                if (!stderr.await(graceNanos)) {
+                    stderr.abandon();
+                }
+                OutputCapture stderrCapture = stderr.capture();
+                stderrCapture.write((stderrCapture.size() == 0 ? "" : "\n") + "Execution timed out after " + timeoutSeconds + "s");
+                return new ExecuteResult(executionId, -1, stdout.capture(), stderrCapture, ExecuteResult.Status.TIMEOUT);
             }
-            
-            return new ExecuteResult(executionId, exitCode, stdout, stderr, status);
-            
-        } catch (IOException | InterruptedException e) {
-            return new ExecuteResult(executionId, -1, "", 
+
+            int exitCode = process.exitValue();
+            ExecuteResult.Status status = exitCode == 0 ? ExecuteResult.Status.SUCCESS : ExecuteResult.Status.FAILURE;
+            return new ExecuteResult(executionId, exitCode, stdout.capture(), stderr.capture(), status);
+
+        } catch (IOException e) {
+            return new ExecuteResult(executionId, -1, "",
+                "Execution failed: " + e.getMessage(), ExecuteResult.Status.ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            destroyProcessTree(process);
+            return new ExecuteResult(executionId, -1, "",
                 "Execution failed: " + e.getMessage(), ExecuteResult.Status.ERROR);
         }
     }
-    
+
+    OutputCapture newCapture() {
+        return new OutputCapture(captureHeadBytes, captureTailBytes);
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    /**
+     * Wait for a process to exit, recording its descendants while it runs.
+     * @return true if the process exited before the deadline
+     */
+    private static boolean waitFor(Process process, long deadline, Set<ProcessHandle> descendants)
+            throws InterruptedException {
+        long pollNanos = TimeUnit.MILLISECONDS.toNanos(DESCENDANT_POLL_MILLIS);
+        while (!process.waitFor(Math.min(pollNanos, remaining(deadline)), TimeUnit.NANOSECONDS)) {
+            if (remaining(deadline) == 0) {
+                return false;
+            }
+            process.descendants().forEach(descendants::add);
+        }
+        return true;
+    }
+
+    /**
+     * Kill the recorded descendants of a process and those still found from it.
+     */
+    private static void destroyDescendants(Process process, Set<ProcessHandle> descendants) {
+        process.descendants().forEach(descendants::add);
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /**
+     * Kill a process together with every process it started.
+     * @param process the root process, may be null
+     */
+    static void destroyProcessTree(Process process) {
+        if (process == null) {
+            return;
+        }
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
     /**
      * Execute multiple PowerShell commands sequentially.
      * @param commands array of PowerShell commands
      * @return execution result of the last command
      */
     public ExecuteResult execute(String... commands) {
+        return execute((OutputListener) null, commands);
+    }
+
+    /**
+     * Execute multiple PowerShell commands sequentially, reporting output while it is produced.
+     * @param listener receives stdout and stderr chunks as they arrive, may be null
+     * @param commands array of PowerShell commands
+     * @return execution result of the last command
+     */
+    public ExecuteResult execute(OutputListener listener, String... commands) {
         if (commands == null || commands.length == 0) {
-            return new ExecuteResult(UUID.randomUUID().toString(), -1, "", 
+            return new ExecuteResult(UUID.randomUUID().toString(), -1, "",
                 "No commands provided", ExecuteResult.Status.ERROR);
         }
-        
+
         // Join commands with semicolon separator
         String combinedCommand = String.join(" ; ", commands);
-        return execute(combinedCommand);
+        return execute(combinedCommand, listener);
+    }
+
+    @Override
+    public String toString() {
+        return "PowerShellRunner{" +
+                "timeoutSeconds=" + timeoutSeconds +
+                ", dryRun=" + dryRun +
+                ", pooled=" + (hostPool != null) +
+                ", batching=" + (batcher != null) +
+                '}';
     }
 }
@@ -0,0 +1,155 @@
+package com.acme.mcp.core.windows;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled PowerShell script that takes its inputs as named parameters.
+ * The script text starts with a {@code param(...)} block and never contains argument values;
+ * values are sent next to it as JSON and splatted onto the script block. The text is therefore
+ * byte-identical across calls, which lets warm hosts cache the parsed script block by hash.
+ * <p>
+ * Scripts are immutable and meant to be built once per tool.
+ */
+public final class PowerShellScript {
+
+    private static final Pattern PARAMETER_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /** Automatic variables that cannot be used as parameter names. */
+    private static final Set<String> RESERVED_NAMES = Set.of(
+        "_", "args", "input", "this", "psitem", "true", "false", "null", "host", "error", "pid",
+        "home", "pwd", "matches", "myinvocation", "psboundparameters", "executioncontext",
+        "lastexitcode", "pscmdlet", "foreach", "switch", "event", "sender", "eventargs");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final List<String> parameters;
+    private final String text;
+    private final String hash;
+
+    /**
+     * Create a script from its body and parameter names.
+     * @param parameters parameter names, referenced in the body as {@code $name}
+     * @param body script body, lines separated by newlines
+     * @throws IllegalArgumentException if a parameter name is invalid or reserved
+     */
+    public PowerShellScript(List<String> parameters, String body) {
+        if (body == null) {
+            throw new IllegalArgumentException("Script body cannot be null");
+        }
+        StringBuilder text = new StringBuilder("param(");
+        for (int i = 0; i < parameters.size(); i++) {
+            String parameter = parameters.get(i);
+            if (parameter == null || !PARAMETER_NAME.matcher(parameter).matches()
+                    || RESERVED_NAMES.contains(parameter.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Invalid script parameter name: " + parameter);
+            }
+            text.append(i == 0 ? "$" : ", $").append(parameter);
+        }
+        text.append(")\n").append(body);
+
+        this.parameters = List.copyOf(parameters);
+        this.text = text.toString();
+        this.hash = sha256(this.text);
+    }
+
+    /**
+     * @return unmodifiable list of parameter names
+     */
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return full script text including the param block
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return lowercase hex SHA-256 hash of the script text
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Select the values of this script's parameters.
+     * @param values value for each parameter, extra entries are ignored
+     * @return parameter values in declaration order
+     * @throws IllegalArgumentException if a parameter has no value
+     */
+    public Map<String, Object> parameterValues(Map<String, ?> values) {
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String parameter : parameters) {
+            Object value = values.get(parameter);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for script parameter: " + parameter);
+            }
+            selected.put(parameter, value);
+        }
+        return selected;
+    }
+
+    /**
+     * Encode parameter values as a JSON object for the host to splat.
+     * Integers and booleans keep their type, everything else is sent as a string.
+     * @param values value for each parameter, extra entries are ignored
+     * @return single-line JSON object
+     * @throws IllegalArgumentException if a parameter has no value
+     */
+    public String encodeParameters(Map<String, ?> values) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, Object> entry : parameterValues(values).entrySet()) {
+                Object value = entry.getValue();
+                generator.writeFieldName(entry.getKey());
+                if (value instanceof Integer || value instanceof Long || value instanceof Short
+                        || value instanceof Byte) {
+                    generator.writeNumber(((Number) value).longValue());
+                } else if (value instanceof BigInteger) {
+                    generator.writeNumber((BigInteger) value);
+                } else if (value instanceof Boolean) {
+                    generator.writeBoolean((Boolean) value);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PowerShellScript{" + hash.substring(0, 12) + ", parameters=" + parameters + "}";
+    }
+}
@@ -0,0 +1,130 @@
+package com.acme.mcp.core.windows;
+
+import com.acme.mcp.core.tool.OutputCapture;
+import com.acme.mcp.core.tool.OutputChunk;
+import com.acme.mcp.core.tool.OutputListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains a process output stream on a background thread.
+ * stdout and stderr each get their own pump so a chatty stream can never
+ * fill its pipe and block the child while the other one is being read.
+ * Output is kept in a bounded {@link OutputCapture}; an optional listener
+ * receives the decoded output as it arrives.
+ */
+class StreamPump implements Runnable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService PUMP_THREADS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ps-stream-pump-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final InputStream stream;
+    private final OutputChunk.Type type;
+    private volatile OutputListener listener;
+    private final OutputCapture capture;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean abandoned;
+
+    private StreamPump(InputStream stream, OutputCapture capture, OutputChunk.Type type, OutputListener listener) {
+        this.stream = stream;
+        this.capture = capture;
+        this.type = type;
+        this.listener = listener;
+    }
+
+    /**
+     * Start draining a stream in the background.
+     * @param stream the stream to drain
+     * @param capture receives everything read from the stream
+     * @param type STDOUT or STDERR, used for the chunks passed to the listener
+     * @param listener receives output as it arrives, may be null
+     * @return the running pump
+     */
+    static StreamPump start(InputStream stream, OutputCapture capture, OutputChunk.Type type, OutputListener listener) {
+        StreamPump pump = new StreamPump(stream, capture, type, listener);
+        PUMP_THREADS.execute(pump);
+        return pump;
+    }
+
+    @Override
+    public void run() {
+        byte[] chunk = new byte[BUFFER_SIZE];
+        // Bytes of an incomplete UTF-8 sequence kept at the start of chunk for the next read
+        int carry = 0;
+        try (InputStream in = stream) {
+            int read;
+            while ((read = in.read(chunk, carry, chunk.length - carry)) != -1 && !abandoned) {
+                capture.write(chunk, carry, read);
+                int total = carry + read;
+                int complete = OutputCapture.completeUtf8Length(chunk, total);
+                publish(chunk, complete);
+                carry = total - complete;
+                System.arraycopy(chunk, complete, chunk, 0, carry);
+            }
+        } catch (IOException e) {
+            // Stream closed because the process was killed; keep what was read so far
+        } finally {
+            publish(chunk, carry);
+            finished.countDown();
+        }
+    }
+
+    private void publish(byte[] bytes, int length) {
+        OutputListener current = listener;
+        if (current == null || length == 0) {
+            return;
+        }
+        String text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        try {
+            current.onOutput(type == OutputChunk.Type.STDERR ? OutputChunk.stderr(text) : OutputChunk.stdout(text));
+        } catch (RuntimeException e) {
+            // A failing listener must not stop the pipe from being drained
+            listener = null;
+        }
+    }
+
+    /**
+     * Wait until the stream reaches end of file.
+     * @param timeoutNanos maximum time to wait
+     * @return true if the stream was fully drained
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean await(long timeoutNanos) throws InterruptedException {
+        return finished.await(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop passing output to the capture and the listener and close the stream, for a pump that
+     * did not reach end of file in time. Where closing does not interrupt a blocked read, the pump thread ends when
+     * the last process holding the pipe exits.
+     */
+    void abandon() {
+        abandoned = true;
+        listener = null;
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // Best effort; the pump ends with the pipe
+        }
+    }
+
+    /**
+     * @return capture holding everything read so far
+     */
+    OutputCapture capture() {
+        return capture;
+    }
+}
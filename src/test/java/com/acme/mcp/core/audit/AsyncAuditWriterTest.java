@@ -0,0 +1,221 @@
+package com.acme.mcp.core.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for AsyncAuditWriter batching and overflow policies.
+ */
+class AsyncAuditWriterTest {
+    
+    @Test
+    void testWritesAllEntriesFromManyProducers() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        try (AsyncAuditWriter writer = new AsyncAuditWriter(sink, 64, OverflowPolicy.BLOCK)) {
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 8; p++) {
+                int producer = p;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        writer.publish("test_event", Map.of("producer", producer, "seq", i));
+                    }
+                });
+                producers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : producers) {
+                thread.join();
+            }
+            
+            assertTrue(writer.flush(10, TimeUnit.SECONDS));
+            assertEquals(8000, sink.lines().size());
+            assertEquals(8000, writer.getWrittenCount());
+            assertEquals(0, writer.getDroppedCount());
+            assertTrue(writer.getBatchCount() < 8000, "Entries should be written in batches");
+            assertEquals(0, writer.getPendingCount());
+            assertEquals(0, writer.getLagMillis());
+        }
+        
+        // Each producer's entries keep their publication order
+        int[] lastSeq = {-1, -1, -1, -1, -1, -1, -1, -1};
+        for (String line : sink.lines()) {
+            int producer = Integer.parseInt(line.replaceAll(".*\"producer\":(\\d+).*", "$1"));
+            int seq = Integer.parseInt(line.replaceAll(".*\"seq\":(\\d+).*", "$1"));
+            assertTrue(seq > lastSeq[producer]);
+            lastSeq[producer] = seq;
+        }
+    }
+    
+    @Test
+    void testDropPolicyCountsDroppedEntries() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        sink.block();
+        try (AsyncAuditWriter writer = new AsyncAuditWriter(sink, 4, OverflowPolicy.DROP)) {
+            writer.publish("first", null);
+            assertTrue(sink.awaitWriteStarted());
+            
+            int accepted = 0;
+            for (int i = 0; i < 20; i++) {
+                if (writer.publish("event", Map.of("i", i))) {
+                    accepted++;
+                }
+            }
+            
+            assertEquals(4, accepted);
+            assertEquals(16, writer.getDroppedCount());
+            assertEquals(4, writer.getPendingCount());
+            
+            sink.unblock();
+            assertTrue(writer.flush(10, TimeUnit.SECONDS));
+            assertEquals(5, sink.lines().size());
+        }
+    }
+    
+    @Test
+    void testSpillPolicyWritesOnCallerThread() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        sink.block();
+        try (AsyncAuditWriter writer = new AsyncAuditWriter(sink, 2, OverflowPolicy.SPILL)) {
+            writer.publish("first", null);
+            assertTrue(sink.awaitWriteStarted());
+            writer.publish("queued", null);
+            writer.publish("queued", null);
+            
+            Thread spiller = new Thread(() -> writer.publish("spilled", null));
+            spiller.start();
+            spiller.join(200);
+            
+            // The spilled entry goes straight to the (blocked) sink instead of the full buffer
+            assertEquals(1, writer.getSpilledCount());
+            sink.unblock();
+            spiller.join();
+            assertTrue(writer.flush(10, TimeUnit.SECONDS));
+            assertEquals(4, sink.lines().size());
+        }
+    }
+    
+    @Test
+    void testBlockPolicyWaitsForSpace() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        sink.block();
+        try (AsyncAuditWriter writer = new AsyncAuditWriter(sink, 2, OverflowPolicy.BLOCK)) {
+            writer.publish("first", null);
+            assertTrue(sink.awaitWriteStarted());
+            writer.publish("queued", null);
+            writer.publish("queued", null);
+            
+            Thread producer = new Thread(() -> writer.publish("blocked", null));
+            producer.start();
+            producer.join(200);
+            assertTrue(producer.isAlive(), "Producer should wait while the buffer is full");
+            assertTrue(writer.getLagMillis() >= 0);
+            
+            sink.unblock();
+            producer.join(10_000);
+            assertFalse(producer.isAlive());
+            assertTrue(writer.flush(10, TimeUnit.SECONDS));
+            assertEquals(4, sink.lines().size());
+            assertEquals(1, writer.getBlockedCount());
+        }
+    }
+    
+    @Test
+    void testIdleWriterWaitsForASignal() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        try (AsyncAuditWriter writer = new AsyncAuditWriter(sink)) {
+            writer.publish("first", null);
+            assertTrue(writer.flush(10, TimeUnit.SECONDS));
+            Thread writerThread = sink.writerThread();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (writerThread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            
+            // Parked without a timeout instead of polling
+            assertEquals(Thread.State.WAITING, writerThread.getState());
+            writer.publish("second", null);
+            assertTrue(writer.flush(10, TimeUnit.SECONDS));
+            assertEquals(2, sink.lines().size());
+        }
+    }
+    
+    @Test
+    void testCloseDrainsBufferAndFormatsJson() {
+        CollectingSink sink = new CollectingSink();
+        AsyncAuditWriter writer = new AsyncAuditWriter(sink);
+        for (int i = 0; i < 100; i++) {
+            writer.publish("tool_execution_started", Map.of("tool", "system.clear_temp", "i", i));
+        }
+        writer.close();
+        
+        assertEquals(100, sink.lines().size());
+        assertTrue(sink.lines().get(0).startsWith("{\"event\":\"tool_execution_started\",\"timestamp\":"));
+        assertTrue(sink.flushCount() > 0);
+        
+        // Entries published after close are written directly
+        writer.publish("late", null);
+        assertEquals(101, sink.lines().size());
+    }
+    
+    /**
+     * Sink collecting lines in memory, optionally blocking the writer thread.
+     */
+    static class CollectingSink implements AuditSink {
+        
+        private final List<String> lines = new ArrayList<>();
+        private final CountDownLatch writeStarted = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile Thread writerThread;
+        private int flushes;
+        
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+        
+        void unblock() {
+            gate.countDown();
+        }
+        
+        boolean awaitWriteStarted() throws InterruptedException {
+            return writeStarted.await(10, TimeUnit.SECONDS);
+        }
+        
+        @Override
+        public void write(List<String> batch) {
+            writerThread = Thread.currentThread();
+            writeStarted.countDown();
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                lines.addAll(batch);
+            }
+        }
+        
+        @Override
+        public synchronized void flush() {
+            flushes++;
+        }
+        
+        synchronized List<String> lines() {
+            return new ArrayList<>(lines);
+        }
+        
+        Thread writerThread() {
+            return writerThread;
+        }
+        
+        synchronized int flushCount() {
+            return flushes;
+        }
+    }
+}
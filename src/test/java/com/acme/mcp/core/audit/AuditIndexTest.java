@@ -0,0 +1,159 @@
+package com.acme.mcp.core.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for AuditIndex lookups, range queries and pagination.
+ */
+class AuditIndexTest {
+    
+    private static final long BASE_TIME = 1_700_000_000_000L;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void testCorrelationTimelineAndKeyFilters() {
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            AuditIndex index = new AuditIndex(store);
+            writeExecutions(store, 0, 1000);
+            
+            AuditPage timeline = index.query(AuditQuery.all().correlationId("corr-42"));
+            assertEquals(3, timeline.getRecords().size());
+            assertTrue(timeline.getRecords().get(0).contains("tool_execution_started"));
+            assertTrue(timeline.getRecords().get(2).contains("tool_execution_completed"));
+            assertFalse(timeline.hasMore());
+            
+            AuditPage filtered = index.query(AuditQuery.all().assetId("asset-3").event("tool_execution_completed").limit(1000));
+            // Executions 3, 13, 23, ... 993
+            assertEquals(100, filtered.getRecords().size());
+            assertTrue(filtered.getRecords().stream().allMatch(r -> r.contains("\"assetId\":\"asset-3\"") && r.contains("completed")));
+            
+            assertTrue(index.query(AuditQuery.all().userId("nobody")).getRecords().isEmpty());
+            assertEquals(3000, index.size());
+        }
+    }
+    
+    @Test
+    void testTimeRangeAndPagination() {
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            AuditIndex index = new AuditIndex(store);
+            writeExecutions(store, 0, 2000);
+            
+            // Executions 500..599 are timestamped in [BASE + 500s, BASE + 600s)
+            AuditQuery range = AuditQuery.all().between(BASE_TIME + 500_000, BASE_TIME + 600_000).limit(70);
+            List<String> all = new ArrayList<>();
+            Set<String> unique = new HashSet<>();
+            String cursor = null;
+            int pages = 0;
+            do {
+                AuditPage page = index.query(range.after(cursor));
+                all.addAll(page.getRecords());
+                unique.addAll(page.getRecords());
+                cursor = page.getNextCursor();
+                pages++;
+            } while (cursor != null);
+            
+            assertEquals(300, all.size());
+            assertEquals(300, unique.size());
+            assertEquals(5, pages);
+            assertTrue(all.get(0).contains("\"correlationId\":\"corr-500\""));
+            assertTrue(all.get(299).contains("\"correlationId\":\"corr-599\""));
+            
+            assertThrows(IllegalArgumentException.class, () -> index.query(AuditQuery.all().after("not-a-cursor")));
+        }
+    }
+    
+    @Test
+    void testRebuildAndCompressedSegments() throws Exception {
+        try (SegmentAuditStore store = new SegmentAuditStore(directory, 32 * 1024, 0,
+                SegmentAuditStore.DEFAULT_MAX_TOTAL_BYTES, Duration.ofDays(30))) {
+            writeExecutions(store, 0, 500);
+            assertTrue(store.awaitCompaction(10_000));
+        }
+        
+        try (SegmentAuditStore store = new SegmentAuditStore(directory, 32 * 1024, 0,
+                SegmentAuditStore.DEFAULT_MAX_TOTAL_BYTES, Duration.ofDays(30))) {
+            AuditIndex index = new AuditIndex(store);
+            assertEquals(1500, index.size());
+            writeExecutions(store, 500, 10);
+            
+            assertEquals(3, index.query(AuditQuery.all().correlationId("corr-7")).getRecords().size());
+            assertEquals(3, index.query(AuditQuery.all().correlationId("corr-505")).getRecords().size());
+            
+            List<String> streamed = new ArrayList<>();
+            index.stream(AuditQuery.all().tool("system.list_services").limit(10_000), streamed::add);
+            assertEquals(1530, streamed.size());
+        }
+    }
+    
+    @Test
+    void testRetentionTrimsTheIndex() throws Exception {
+        try (SegmentAuditStore store = new SegmentAuditStore(directory, 8 * 1024, 0, 64 * 1024, Duration.ofDays(30))) {
+            AuditIndex index = new AuditIndex(store);
+            writeExecutions(store, 0, 3000);
+            assertTrue(store.awaitCompaction(10_000));
+            
+            int live = index.size();
+            assertTrue(live < 9000);
+            assertTrue(index.indexedEntries() <= 2 * live + 2 * AuditIndex.TIME_BLOCK,
+                index.indexedEntries() + " entries kept for " + live + " records");
+            assertTrue(index.postingValues("correlationId") <= index.indexedEntries() / 3 + 1);
+            assertTrue(index.query(AuditQuery.all().correlationId("corr-0")).getRecords().isEmpty());
+            assertEquals(3, index.query(AuditQuery.all().correlationId("corr-2999")).getRecords().size());
+            
+            List<String> streamed = new ArrayList<>();
+            index.stream(AuditQuery.all().limit(10_000), streamed::add);
+            assertEquals(live, streamed.size());
+            assertTrue(streamed.get(streamed.size() - 1).contains("\"correlationId\":\"corr-2999\""));
+        }
+    }
+    
+    @Test
+    void testTimelineLookupIsFast() {
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            AuditIndex index = new AuditIndex(store);
+            writeExecutions(store, 0, 30_000);
+            index.query(AuditQuery.all().correlationId("corr-1"));
+            
+            long start = System.nanoTime();
+            AuditPage timeline = index.query(AuditQuery.all().correlationId("corr-29999"));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            
+            assertEquals(3, timeline.getRecords().size());
+            assertTrue(elapsedMillis < 200, "Timeline lookup took " + elapsedMillis + "ms");
+        }
+    }
+    
+    /**
+     * Write started/output/completed entries for a range of executions, ten assets round-robin.
+     */
+    private static void writeExecutions(SegmentAuditStore store, int from, int count) {
+        List<String> batch = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            long time = BASE_TIME + i * 1000L;
+            String common = ",\"tool\":\"system.list_services\",\"userId\":\"user-" + (i % 3)
+                + "\",\"assetId\":\"asset-" + (i % 10) + "\",\"correlationId\":\"corr-" + i + "\"";
+            batch.add("{\"event\":\"tool_execution_started\",\"timestamp\":" + time + common
+                + ",\"commands\":[\"Get-Service\"],\"dryRun\":false}");
+            batch.add("{\"event\":\"tool_execution_output\",\"timestamp\":" + (time + 10) + common + "}");
+            batch.add("{\"event\":\"tool_execution_completed\",\"timestamp\":" + (time + 20) + common
+                + ",\"exitCode\":0,\"success\":true}");
+            if (batch.size() >= 300) {
+                store.write(batch);
+                batch.clear();
+            }
+        }
+        store.write(batch);
+    }
+}
@@ -0,0 +1,190 @@
+package com.acme.mcp.core.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SegmentAuditStore framing, group commit, compaction, retention and recovery.
+ */
+class SegmentAuditStoreTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void testAppendAndReadBackInOrder() {
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            store.write(records(0, 100));
+            store.write(records(100, 100));
+            
+            assertEquals(records(0, 200), readAll(store));
+            assertEquals(200, store.getRecordCount());
+            assertEquals(2, store.getSyncCount(), "Each batch should be committed with one fsync");
+        }
+    }
+    
+    @Test
+    void testSyncIntervalGroupsBatches() {
+        try (SegmentAuditStore store = new SegmentAuditStore(directory, SegmentAuditStore.DEFAULT_SEGMENT_BYTES,
+                60_000, SegmentAuditStore.DEFAULT_MAX_TOTAL_BYTES, SegmentAuditStore.DEFAULT_MAX_AGE)) {
+            for (int i = 0; i < 50; i++) {
+                store.write(records(i * 10, 10));
+            }
+            assertTrue(store.getSyncCount() <= 1);
+            
+            // The writer flushes when it goes idle, which always commits
+            store.flush();
+            assertEquals(records(0, 500), readAll(store));
+            assertTrue(store.getSyncCount() <= 2);
+        }
+    }
+    
+    @Test
+    void testSealedSegmentsAreCompressed() throws Exception {
+        long rawBytes = 0;
+        try (SegmentAuditStore store = new SegmentAuditStore(directory, 16 * 1024, 0,
+                SegmentAuditStore.DEFAULT_MAX_TOTAL_BYTES, SegmentAuditStore.DEFAULT_MAX_AGE)) {
+            for (int i = 0; i < 20; i++) {
+                List<String> batch = records(i * 100, 100);
+                store.write(batch);
+                for (String line : batch) {
+                    rawBytes += line.length();
+                }
+            }
+            assertTrue(store.awaitCompaction(10_000));
+            
+            List<Path> segments = store.listSegments();
+            assertTrue(segments.size() > 2);
+            long compressedCount = segments.stream().filter(p -> p.toString().endsWith(SegmentAuditStore.COMPRESSED_SUFFIX)).count();
+            assertEquals(segments.size() - 1, compressedCount, "All but the active segment should be compressed");
+            
+            long storedBytes = 0;
+            for (Path segment : segments) {
+                storedBytes += Files.size(segment);
+            }
+            assertTrue(storedBytes < rawBytes / 3, "Stored " + storedBytes + " bytes for " + rawBytes + " raw bytes");
+            assertEquals(records(0, 2000), readAll(store));
+        }
+    }
+    
+    @Test
+    void testRetentionDeletesOldestSegments() throws Exception {
+        try (SegmentAuditStore store = new SegmentAuditStore(directory, 8 * 1024, 0, 16 * 1024, Duration.ofDays(30))) {
+            for (int i = 0; i < 50; i++) {
+                store.write(records(i * 100, 100));
+            }
+            assertTrue(store.awaitCompaction(10_000));
+            
+            List<String> remaining = readAll(store);
+            assertTrue(remaining.size() < 5000);
+            assertEquals(records(5000 - remaining.size(), remaining.size()), remaining, "Only the newest records are kept");
+            assertTrue(SegmentAuditStore.segmentId(store.listSegments().get(0)) > 1);
+        }
+    }
+    
+    @Test
+    void testAgeRetentionUsesLastWriteOfCompressedSegment() throws Exception {
+        Path segment;
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            store.write(records(0, 10));
+            segment = store.listSegments().get(0);
+        }
+        // An old segment sealed by a previous run and not yet compressed
+        Path old = segment.resolveSibling(String.format("audit-%020d%s", 0, SegmentAuditStore.SEGMENT_SUFFIX));
+        Files.copy(segment, old);
+        Files.setLastModifiedTime(old, FileTime.from(Instant.now().minus(Duration.ofDays(60))));
+        
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            assertTrue(store.awaitCompaction(10_000));
+            assertEquals(1, store.listSegments().size(), "Compression must not make the old segment young again");
+            assertEquals(records(0, 10), readAll(store));
+        }
+    }
+    
+    @Test
+    void testRecoveryTruncatesTornRecord() throws Exception {
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            store.write(records(0, 10));
+        }
+        Path segment;
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            segment = store.listSegments().get(0);
+        }
+        // Simulate a crash in the middle of writing a frame
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 1, 0, 1, 2, 3}));
+        }
+        
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            assertEquals(records(0, 10), readAll(store));
+            store.write(records(10, 5));
+            assertEquals(records(0, 15), readAll(store));
+        }
+    }
+    
+    @Test
+    void testCorruptRecordEndsSegment() throws Exception {
+        Path segment;
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            store.write(records(0, 10));
+            segment = store.listSegments().get(0);
+        }
+        // Flip a payload byte of the sixth record
+        long offset = 0;
+        for (String line : records(0, 5)) {
+            offset += 8 + line.length();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), offset + 10);
+        }
+        
+        try (SegmentAuditStore store = new SegmentAuditStore(directory)) {
+            assertEquals(records(0, 5), readAll(store));
+        }
+    }
+    
+    @Test
+    void testStoreAsWriterSink() {
+        SegmentAuditStore store = new SegmentAuditStore(directory);
+        AsyncAuditWriter writer = new AsyncAuditWriter(store);
+        for (int i = 0; i < 1000; i++) {
+            writer.publish("tool_execution_started", Map.of("i", i));
+        }
+        writer.close();
+        
+        try (SegmentAuditStore reopened = new SegmentAuditStore(directory)) {
+            List<String> stored = readAll(reopened);
+            assertEquals(1000, stored.size());
+            assertTrue(stored.get(999).contains("\"i\":999"));
+        }
+    }
+    
+    private static List<String> records(int from, int count) {
+        List<String> records = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            records.add("{\"event\":\"tool_execution_completed\",\"timestamp\":" + (1700000000000L + i)
+                + ",\"tool\":\"system.list_services\",\"assetId\":\"asset-" + (i % 10) + "\",\"seq\":" + i + "}");
+        }
+        return records;
+    }
+    
+    private static List<String> readAll(SegmentAuditStore store) {
+        List<String> records = new ArrayList<>();
+        store.read((segmentId, offset, record) -> records.add(record));
+        return records;
+    }
+}
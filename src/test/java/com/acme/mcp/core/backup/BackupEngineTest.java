@@ -0,0 +1,200 @@
+package com.acme.mcp.core.backup;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BackupEngine and BackupManifest.
+ */
+class BackupEngineTest {
+
+    @TempDir
+    Path temp;
+
+    private Path documents;
+    private Path desktop;
+    private Path destination;
+    private BackupEngine engine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        documents = Files.createDirectories(temp.resolve("profile/Documents"));
+        desktop = Files.createDirectories(temp.resolve("profile/Desktop"));
+        destination = temp.resolve("backup");
+        engine = new BackupEngine(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void testFirstRunArchivesEverything() throws IOException {
+        write(documents.resolve("report.txt"), "quarterly report");
+        write(documents.resolve("sub/notes.txt"), "notes");
+        write(desktop.resolve("todo.txt"), "todo");
+
+        BackupReport report = engine.backup(sources(), destination);
+
+        assertEquals(3, report.getFilesScanned());
+        assertEquals(3, report.getFilesChanged());
+        assertEquals(3, report.getVerified());
+        assertEquals(0, report.getFilesUnchanged());
+        assertTrue(report.isComplete());
+        assertEquals(2, report.getArchives());
+
+        BackupManifest manifest = BackupManifest.read(destination.resolve(BackupEngine.MANIFEST_FILE));
+        assertEquals(List.of("Desktop/todo.txt", "Documents/report.txt", "Documents/sub/notes.txt"),
+            new ArrayList<>(manifest.getEntries().keySet()));
+        assertEquals("notes", restore(manifest.get("Documents/sub/notes.txt")));
+    }
+
+    @Test
+    void testSecondRunArchivesOnlyChanges() throws IOException {
+        write(documents.resolve("report.txt"), "quarterly report");
+        write(documents.resolve("old.txt"), "old");
+        write(desktop.resolve("todo.txt"), "todo");
+        engine.backup(sources(), destination);
+
+        write(documents.resolve("report.txt"), "quarterly report, revised");
+        Files.setLastModifiedTime(documents.resolve("report.txt"), FileTime.fromMillis(1_000_000_000_000L));
+        Files.delete(documents.resolve("old.txt"));
+        write(desktop.resolve("new.txt"), "new");
+
+        BackupReport report = engine.backup(sources(), destination);
+
+        assertEquals(3, report.getFilesScanned());
+        assertEquals(2, report.getFilesChanged());
+        assertEquals(1, report.getFilesUnchanged());
+        assertEquals(1, report.getFilesRemoved());
+        assertEquals("quarterly report, revised".length() + "new".length(), report.getBytesArchived());
+
+        BackupManifest manifest = BackupManifest.read(destination.resolve(BackupEngine.MANIFEST_FILE));
+        assertNull(manifest.get("Documents/old.txt"));
+        assertEquals("quarterly report, revised", restore(manifest.get("Documents/report.txt")));
+        assertEquals("todo", restore(manifest.get("Desktop/todo.txt")));
+        assertEquals(1_000_000_000_000L, manifest.get("Documents/report.txt").modifiedMillis());
+    }
+
+    @Test
+    void testUnchangedRunWritesNothingAndKeepsArchivesItDidNotRecord() throws IOException {
+        write(documents.resolve("a.txt"), "a");
+        engine.backup(sources(), destination);
+        Path foreign = Files.write(destination.resolve("backup-stale-0.zip"), new byte[0]);
+
+        BackupReport report = engine.backup(sources(), destination);
+
+        assertEquals(0, report.getFilesChanged());
+        assertEquals(0, report.getArchives());
+        assertEquals(1, report.getFilesUnchanged());
+        assertEquals(2, archives().size());
+        assertTrue(Files.exists(foreign));
+    }
+
+    @Test
+    void testSupersededArchivesArePruned() throws IOException {
+        write(documents.resolve("a.txt"), "a");
+        engine.backup(sources(), destination);
+        List<Path> first = archives();
+        write(documents.resolve("a.txt"), "a, revised");
+
+        engine.backup(sources(), destination);
+
+        List<Path> second = archives();
+        assertEquals(1, second.size());
+        assertFalse(first.contains(second.get(0)));
+    }
+
+    @Test
+    void testMissingArchiveIsRewritten() throws IOException {
+        write(documents.resolve("a.txt"), "a");
+        engine.backup(sources(), destination);
+        for (Path archive : archives()) {
+            Files.delete(archive);
+        }
+
+        BackupReport report = engine.backup(sources(), destination);
+
+        assertEquals(1, report.getFilesChanged());
+        BackupManifest manifest = BackupManifest.read(destination.resolve(BackupEngine.MANIFEST_FILE));
+        assertEquals("a", restore(manifest.get("Documents/a.txt")));
+    }
+
+    @Test
+    void testMissingSourceIsSkipped() throws IOException {
+        BackupReport report = engine.backup(Map.of("Downloads", temp.resolve("profile/Downloads")), destination);
+
+        assertEquals(0, report.getFilesScanned());
+        assertTrue(report.isComplete());
+        assertEquals(0, BackupManifest.read(destination.resolve(BackupEngine.MANIFEST_FILE)).size());
+    }
+
+    @Test
+    void testManifestRoundTrip() throws IOException {
+        BackupManifest manifest = new BackupManifest(List.of(
+            new BackupManifest.Entry("Documents/b.txt", 2, 20, "bb", "backup-1-0.zip"),
+            new BackupManifest.Entry("Documents/a \"quoted\".txt", 1, 10, "aa", "backup-1-1.zip")));
+        Path file = temp.resolve("manifest.json");
+
+        manifest.write(file);
+        BackupManifest read = BackupManifest.read(file);
+
+        assertEquals(manifest.getEntries(), read.getEntries());
+        assertEquals(0, BackupManifest.read(temp.resolve("missing.json")).size());
+        Files.writeString(file, "{\"version\":99,\"entries\":[]}");
+        assertThrows(IOException.class, () -> BackupManifest.read(file));
+    }
+
+    @Test
+    void testPartitionBalancesSizes() {
+        List<BackupEngine.SourceFile> files = new ArrayList<>();
+        for (long size : new long[] {100, 60, 50, 10}) {
+            files.add(new BackupEngine.SourceFile("f" + size, temp, size, 0));
+        }
+
+        List<List<BackupEngine.SourceFile>> parts = BackupEngine.partition(files, 2);
+
+        for (List<BackupEngine.SourceFile> part : parts) {
+            assertEquals(110, part.stream().mapToLong(file -> file.size).sum());
+        }
+    }
+
+    private Map<String, Path> sources() {
+        return Map.of("Documents", documents, "Desktop", desktop);
+    }
+
+    private List<Path> archives() throws IOException {
+        try (Stream<Path> files = Files.list(destination)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".zip")).toList();
+        }
+    }
+
+    private String restore(BackupManifest.Entry entry) throws IOException {
+        try (ZipFile zip = new ZipFile(destination.resolve(entry.archive()).toFile());
+             InputStream in = zip.getInputStream(zip.getEntry(entry.path()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
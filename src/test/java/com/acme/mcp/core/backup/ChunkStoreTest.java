@@ -0,0 +1,203 @@
+package com.acme.mcp.core.backup;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ChunkStore and chunk store backups.
+ */
+class ChunkStoreTest {
+
+    @TempDir
+    Path temp;
+
+    private BackupEngine engine;
+    private ChunkStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        engine = new BackupEngine(2);
+        store = ChunkStore.open(temp.resolve("store"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+        engine.close();
+    }
+
+    @Test
+    void testIdenticalContentIsStoredOnce() throws IOException {
+        byte[] installer = random(600_000, 1);
+        Path alice = profile("alice", installer);
+        Path bob = profile("bob", installer);
+
+        BackupReport first = engine.backup(Map.of("Downloads", alice), store, "asset-1/alice", null);
+        BackupReport second = engine.backup(Map.of("Downloads", bob), store, "asset-2/bob", null);
+
+        assertTrue(first.getChunksWritten() > 0);
+        assertEquals(0, second.getChunksWritten());
+        assertEquals(first.getChunksWritten(), second.getChunksDeduplicated());
+        assertEquals(0, second.getBytesWritten());
+        assertArrayEquals(installer, restore("asset-2/bob", "Downloads/setup.exe"));
+    }
+
+    @Test
+    void testUnchangedFilesAreNotReadAgain() throws IOException {
+        Path alice = profile("alice", random(100_000, 2));
+        engine.backup(Map.of("Downloads", alice), store, "asset-1/alice", null);
+
+        BackupReport report = engine.backup(Map.of("Downloads", alice), store, "asset-1/alice", null);
+
+        assertEquals(1, report.getFilesUnchanged());
+        assertEquals(0, report.getFilesChanged());
+        assertEquals(0, report.getChunksWritten() + report.getChunksDeduplicated());
+    }
+
+    @Test
+    void testReferencesAreCountedAcrossBackups() throws IOException {
+        byte[] installer = random(100_000, 3);
+        engine.backup(Map.of("Downloads", profile("alice", installer)), store, "asset-1/alice", null);
+        engine.backup(Map.of("Downloads", profile("bob", installer)), store, "asset-2/bob", null);
+        String chunk = store.manifest("asset-1/alice").get("Downloads/setup.exe").chunks().get(0);
+
+        assertEquals(2, store.getReferences(chunk));
+        store.delete("asset-1/alice");
+        assertEquals(1, store.getReferences(chunk));
+        store.gc();
+        assertEquals(1, store.getReferences(chunk));
+        assertArrayEquals(installer, restore("asset-2/bob", "Downloads/setup.exe"));
+    }
+
+    @Test
+    void testGcReclaimsUnreferencedChunks() throws IOException {
+        byte[] kept = random(300_000, 4);
+        Path alice = profile("alice", random(300_000, 5));
+        Files.write(alice.resolve("kept.bin"), kept);
+        engine.backup(Map.of("Downloads", alice), store, "asset-1/alice", null);
+        int chunks = store.getChunkCount();
+
+        Files.delete(alice.resolve("setup.exe"));
+        engine.backup(Map.of("Downloads", alice), store, "asset-1/alice", null);
+        long reclaimed = store.gc();
+
+        assertTrue(reclaimed > 0);
+        assertTrue(store.getChunkCount() < chunks);
+        assertArrayEquals(kept, restore("asset-1/alice", "Downloads/kept.bin"));
+    }
+
+    @Test
+    void testIndexSurvivesReopen() throws IOException {
+        byte[] installer = random(200_000, 6);
+        engine.backup(Map.of("Downloads", profile("alice", installer)), store, "asset-1/alice", null);
+        int chunks = store.getChunkCount();
+        store.close();
+
+        store = ChunkStore.open(temp.resolve("store"));
+        BackupReport report = engine.backup(Map.of("Downloads", profile("bob", installer)), store, "asset-2/bob", null);
+
+        assertEquals(chunks, store.getChunkCount());
+        assertEquals(0, report.getChunksWritten());
+        assertArrayEquals(installer, restore("asset-1/alice", "Downloads/setup.exe"));
+    }
+
+    @Test
+    void testCommitsAppendChangesToTheJournal() throws IOException {
+        byte[] installer = random(2_000_000, 7);
+        engine.backup(Map.of("Downloads", profile("alice", installer)), store, "asset-1/alice", null);
+        Path journal = temp.resolve("store").resolve("chunks.jnl");
+        long afterFirst = Files.size(journal);
+
+        // Same content under another name: no new chunks, only reference changes
+        engine.backup(Map.of("Downloads", profile("bob", installer)), store, "asset-2/bob", null);
+        long afterSecond = Files.size(journal);
+        // Unchanged backup: nothing to record
+        engine.backup(Map.of("Downloads", profile("bob", installer)), store, "asset-2/bob", null);
+
+        assertFalse(Files.exists(temp.resolve("store").resolve("chunks.idx")));
+        assertTrue(afterSecond - afterFirst < afterFirst);
+        assertTrue(Files.size(journal) - afterSecond < 64);
+    }
+
+    @Test
+    void testTornJournalBatchIsIgnored() throws IOException {
+        byte[] installer = random(200_000, 8);
+        engine.backup(Map.of("Downloads", profile("alice", installer)), store, "asset-1/alice", null);
+        String chunk = store.manifest("asset-1/alice").get("Downloads/setup.exe").chunks().get(0);
+        int chunks = store.getChunkCount();
+        store.close();
+        Path journal = temp.resolve("store").resolve("chunks.jnl");
+        Files.write(journal, new byte[] {0, 0, 1, 0, 2, 3}, StandardOpenOption.APPEND);
+
+        store = ChunkStore.open(temp.resolve("store"));
+
+        assertEquals(chunks, store.getChunkCount());
+        assertEquals(1, store.getReferences(chunk));
+        assertArrayEquals(installer, restore("asset-1/alice", "Downloads/setup.exe"));
+    }
+
+    @Test
+    void testGcSnapshotsTheIndex() throws IOException {
+        byte[] installer = random(200_000, 9);
+        engine.backup(Map.of("Downloads", profile("alice", installer)), store, "asset-1/alice", null);
+        store.gc();
+        store.close();
+
+        Path root = temp.resolve("store");
+        assertTrue(Files.exists(root.resolve("chunks.idx")));
+        store = ChunkStore.open(root);
+        assertArrayEquals(installer, restore("asset-1/alice", "Downloads/setup.exe"));
+    }
+
+    @Test
+    void testCompressibleChunksAreDeflated() throws IOException {
+        byte[] text = "quarterly report ".repeat(10_000).getBytes();
+        try (ChunkStore.Session session = store.begin()) {
+            ChunkStore.PutResult put = session.put(text, 0, text.length);
+
+            assertTrue(put.bytesWritten() < text.length / 10);
+            assertTrue(session.put(text, 0, text.length).deduplicated());
+        }
+    }
+
+    @Test
+    void testCommitRejectsMissingChunks() {
+        BackupManifest manifest = new BackupManifest(List.of(new BackupManifest.Entry(
+            "Documents/a.txt", 1, 0, "00", null, List.of("00".repeat(32)))));
+
+        try (ChunkStore.Session session = store.begin()) {
+            assertThrows(IOException.class, () -> session.commit("asset-1/alice", manifest));
+        }
+    }
+
+    private Path profile(String user, byte[] installer) throws IOException {
+        Path downloads = Files.createDirectories(temp.resolve(user).resolve("Downloads"));
+        Files.write(downloads.resolve("setup.exe"), installer);
+        return downloads;
+    }
+
+    private byte[] restore(String name, String path) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.restore(name, path, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
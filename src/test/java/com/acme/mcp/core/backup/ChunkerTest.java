@@ -0,0 +1,89 @@
+package com.acme.mcp.core.backup;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Chunker.
+ */
+class ChunkerTest {
+
+    @Test
+    void testChunksCoverStreamWithinBounds() throws IOException {
+        byte[] data = random(1_000_000, 1);
+
+        List<byte[]> chunks = chunks(data, 1024, 4096, 16 * 1024);
+
+        int total = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            byte[] chunk = chunks.get(i);
+            assertTrue(chunk.length <= 16 * 1024);
+            if (i < chunks.size() - 1) {
+                assertTrue(chunk.length >= 1024);
+            }
+            assertArrayEquals(Arrays.copyOfRange(data, total, total + chunk.length), chunk);
+            total += chunk.length;
+        }
+        assertEquals(data.length, total);
+        assertTrue(chunks.size() > 50, "expected content-defined boundaries, got " + chunks.size() + " chunks");
+    }
+
+    @Test
+    void testInsertionOnlyChangesNearbyChunks() throws IOException {
+        byte[] data = random(500_000, 2);
+        byte[] shifted = new byte[data.length + 7];
+        System.arraycopy(data, 0, shifted, 7, data.length);
+
+        Set<String> original = new HashSet<>();
+        for (byte[] chunk : chunks(data, 1024, 4096, 16 * 1024)) {
+            original.add(Arrays.toString(chunk));
+        }
+        List<byte[]> after = chunks(shifted, 1024, 4096, 16 * 1024);
+        int shared = 0;
+        for (byte[] chunk : after) {
+            if (original.contains(Arrays.toString(chunk))) {
+                shared++;
+            }
+        }
+
+        assertTrue(shared >= after.size() - 2, shared + " of " + after.size() + " chunks shared");
+    }
+
+    @Test
+    void testEmptyStreamHasNoChunks() throws IOException {
+        assertTrue(chunks(new byte[0], 1024, 4096, 16 * 1024).isEmpty());
+    }
+
+    @Test
+    void testInvalidSizesAreRejected() {
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> new Chunker(in, 1024, 3000, 16 * 1024));
+        assertThrows(IllegalArgumentException.class, () -> new Chunker(in, 1024, 4096, 512));
+    }
+
+    private static List<byte[]> chunks(byte[] data, int min, int avg, int max) throws IOException {
+        Chunker chunker = new Chunker(new ByteArrayInputStream(data), min, avg, max);
+        List<byte[]> chunks = new ArrayList<>();
+        int length;
+        while ((length = chunker.next()) > 0) {
+            chunks.add(Arrays.copyOfRange(chunker.buffer(), chunker.offset(), chunker.offset() + length));
+        }
+        return chunks;
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,162 @@
+package com.acme.mcp.core.cleanup;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Tests for TempCleaner.
+ */
+class TempCleanerTest {
+
+    @TempDir
+    Path temp;
+
+    private TempCleaner cleaner;
+
+    @BeforeEach
+    void setUp() {
+        cleaner = new TempCleaner(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleaner.close();
+    }
+
+    @Test
+    void testDeletesContentButKeepsRoots() throws IOException {
+        Path user = Files.createDirectories(temp.resolve("user"));
+        Path system = Files.createDirectories(temp.resolve("system"));
+        write(user.resolve("a.tmp"), 10);
+        write(user.resolve("nested/deeper/b.tmp"), 20);
+        write(system.resolve("c.log"), 30);
+
+        CleanupReport report = cleaner.clean(List.of(user, system, temp.resolve("missing")), Duration.ZERO, 0, null);
+
+        assertEquals(3, report.getFilesScanned());
+        assertEquals(3, report.getFilesDeleted());
+        assertEquals(60, report.getBytesDeleted());
+        assertEquals(2, report.getDirectoriesDeleted());
+        assertTrue(Files.isDirectory(user));
+        assertTrue(Files.isDirectory(system));
+        assertEquals(0, count(user) + count(system));
+    }
+
+    @Test
+    void testAgeAndSizeFiltersKeepFiles() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("user"));
+        Path old = write(root.resolve("old.tmp"), 100);
+        Path recent = write(root.resolve("dir/recent.tmp"), 100);
+        Path small = write(root.resolve("small.tmp"), 1);
+        FileTime weekAgo = FileTime.from(Instant.now().minus(Duration.ofDays(7)));
+        Files.setLastModifiedTime(old, weekAgo);
+        Files.setLastModifiedTime(small, weekAgo);
+        Files.setLastModifiedTime(root.resolve("dir"), weekAgo);
+
+        CleanupReport report = cleaner.clean(List.of(root), Duration.ofHours(24), 10, null);
+
+        assertEquals(1, report.getFilesDeleted());
+        assertEquals(2, report.getFilesFiltered());
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(small));
+        assertEquals(0, report.getDirectoriesDeleted());
+    }
+
+    @Test
+    void testKeepFilterKeepsFiles() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("user"));
+        Path spill = write(root.resolve("dir/mcp-output-1.spill"), 10);
+        write(root.resolve("other.tmp"), 10);
+
+        CleanupReport report = cleaner.clean(List.of(root), Duration.ZERO, 0,
+                file -> file.getFileName().toString().endsWith(".spill"), null);
+
+        assertEquals(1, report.getFilesDeleted());
+        assertEquals(1, report.getFilesFiltered());
+        assertTrue(Files.exists(spill));
+        assertEquals(0, report.getDirectoriesDeleted());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testUndeletableFilesAreSkipped() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("user"));
+        Path locked = Files.createDirectories(root.resolve("locked"));
+        write(locked.resolve("in-use.tmp"), 10);
+        write(root.resolve("free.tmp"), 10);
+        Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("r-xr-xr-x"));
+        try {
+            assumeFalse(Files.isWritable(locked), "permissions do not apply to root");
+
+            CleanupReport report = cleaner.clean(List.of(root), Duration.ZERO, 0, null);
+
+            assertEquals(1, report.getFilesDeleted());
+            assertEquals(1, report.getFilesSkipped());
+            assertTrue(Files.exists(locked.resolve("in-use.tmp")));
+        } finally {
+            Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("rwxr-xr-x"));
+        }
+    }
+
+    @Test
+    void testLargeDirectoriesAreSplitAndProgressIsReported() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("user"));
+        int files = TempCleaner.BATCH_SIZE * 4 + 7;
+        for (int i = 0; i < files; i++) {
+            write(root.resolve("f" + i + ".tmp"), 1);
+        }
+        List<CleanupReport> progress = new ArrayList<>();
+
+        CleanupReport report = cleaner.clean(List.of(root), Duration.ZERO, 0, progress::add);
+
+        assertEquals(files, report.getFilesDeleted());
+        assertEquals(2, progress.size());
+        assertTrue(progress.get(1).getFilesScanned() > progress.get(0).getFilesScanned());
+        assertEquals(0, count(root));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testSymbolicLinksAreNotFollowed() throws IOException {
+        Path root = Files.createDirectories(temp.resolve("user"));
+        Path outside = Files.createDirectories(temp.resolve("outside"));
+        Path kept = write(outside.resolve("keep.txt"), 10);
+        Files.createSymbolicLink(root.resolve("link"), outside);
+
+        CleanupReport report = cleaner.clean(List.of(root), Duration.ZERO, 0, null);
+
+        assertEquals(1, report.getFilesDeleted());
+        assertFalse(Files.exists(root.resolve("link"), LinkOption.NOFOLLOW_LINKS));
+        assertTrue(Files.exists(kept));
+    }
+
+    private static Path write(Path file, int size) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, new byte[size]);
+    }
+
+    private static long count(Path dir) throws IOException {
+        try (var entries = Files.list(dir)) {
+            return entries.count();
+        }
+    }
+}
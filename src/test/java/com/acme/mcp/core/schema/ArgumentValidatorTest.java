@@ -0,0 +1,118 @@
+package com.acme.mcp.core.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for schemas compiled into argument validators.
+ */
+class ArgumentValidatorTest {
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private static ArgumentValidator validator() {
+        Map<String, JsonNode> properties = new LinkedHashMap<>();
+        properties.put("name", JsonSchemas.string("Service name"));
+        properties.put("force", JsonSchemas.bool(false));
+        properties.put("timeoutSeconds", JsonSchemas.integer(1, 300, 60));
+        properties.put("mode", JsonSchemas.stringEnum(List.of("fast", "full"), "fast"));
+        properties.put("packages", JsonSchemas.stringArray("Package IDs"));
+        return ArgumentValidator.compile(JsonSchemas.object(properties, List.of("name")));
+    }
+    
+    private static JsonNode json(String text) throws Exception {
+        return OBJECT_MAPPER.readTree(text);
+    }
+    
+    @Test
+    void testValidArgumentsPassUnchanged() throws Exception {
+        JsonNode args = json("{\"name\":\"spooler\",\"force\":true,\"timeoutSeconds\":30,\"mode\":\"full\","
+            + "\"packages\":[\"a\",\"b\"],\"extra\":1}");
+        
+        assertSame(args, validator().validate(args));
+        assertEquals(5, validator().getCheckCount());
+    }
+    
+    @Test
+    void testDefaultsAppliedToCopy() throws Exception {
+        ObjectNode args = (ObjectNode) json("{\"name\":\"spooler\",\"timeoutSeconds\":null}");
+        
+        JsonNode validated = validator().validate(args);
+        
+        assertNotSame(args, validated);
+        assertFalse(validated.get("force").asBoolean());
+        assertEquals(60, validated.get("timeoutSeconds").asInt());
+        assertEquals("fast", validated.get("mode").asText());
+        assertFalse(validated.has("packages"));
+        // The caller's arguments are left alone
+        assertFalse(args.has("force"));
+        assertTrue(args.get("timeoutSeconds").isNull());
+    }
+    
+    @Test
+    void testMissingRequiredField() {
+        ArgumentValidationException e = assertThrows(ArgumentValidationException.class,
+            () -> validator().validate(null));
+        
+        assertEquals("name", e.getField());
+        assertTrue(e.isMissing());
+        assertEquals("Required field missing: name", e.getMessage());
+    }
+    
+    @Test
+    void testInvalidValuesRejected() throws Exception {
+        ArgumentValidator validator = validator();
+        Map<String, String> invalid = Map.of(
+            "{\"name\":5}", "name",
+            "{\"name\":\"a\",\"force\":\"yes\"}", "force",
+            "{\"name\":\"a\",\"timeoutSeconds\":1.5}", "timeoutSeconds",
+            "{\"name\":\"a\",\"timeoutSeconds\":0}", "timeoutSeconds",
+            "{\"name\":\"a\",\"timeoutSeconds\":301}", "timeoutSeconds",
+            "{\"name\":\"a\",\"mode\":\"slow\"}", "mode",
+            "{\"name\":\"a\",\"packages\":\"a\"}", "packages",
+            "{\"name\":\"a\",\"packages\":[\"a\",2]}", "packages");
+        for (Map.Entry<String, String> entry : invalid.entrySet()) {
+            JsonNode args = json(entry.getKey());
+            ArgumentValidationException e = assertThrows(ArgumentValidationException.class,
+                () -> validator.validate(args), entry.getKey());
+            assertEquals(entry.getValue(), e.getField(), entry.getKey());
+            assertFalse(e.isMissing());
+        }
+        assertThrows(ArgumentValidationException.class, () -> validator.validate(json("[1]")));
+    }
+    
+    @Test
+    void testIntegralFloatAccepted() throws Exception {
+        JsonNode args = json("{\"name\":\"a\",\"timeoutSeconds\":30.0}");
+        
+        assertEquals(30, validator().validate(args).get("timeoutSeconds").asInt());
+    }
+    
+    @Test
+    void testSchemaWithoutPropertiesAcceptsAll() throws Exception {
+        assertSame(ArgumentValidator.ACCEPT_ALL, ArgumentValidator.compile(null));
+        assertSame(ArgumentValidator.ACCEPT_ALL, ArgumentValidator.compile(OBJECT_MAPPER.createObjectNode()));
+        
+        JsonNode args = json("{\"anything\":true}");
+        assertSame(args, ArgumentValidator.ACCEPT_ALL.validate(args));
+    }
+    
+    @Test
+    void testInvalidSchemaRejectedAtCompile() {
+        ObjectNode badDefault = JsonSchemas.integer(1, 10, 20);
+        assertThrows(IllegalArgumentException.class,
+            () -> ArgumentValidator.compile(JsonSchemas.object(Map.of("count", badDefault), List.of())));
+        
+        ObjectNode badType = OBJECT_MAPPER.createObjectNode().put("type", "date");
+        assertThrows(IllegalArgumentException.class,
+            () -> ArgumentValidator.compile(JsonSchemas.object(Map.of("when", badType), List.of())));
+    }
+}
@@ -3,7 +3,11 @@ package com.acme.mcp.core.security;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Tests for Allowlist security functionality.
@@ -95,4 +99,194 @@ class AllowlistTest {
         assertFalse(allowlist.isCommandAllowed("get-service"));
         assertFalse(allowlist.isCommandAllowed("GET-SERVICE"));
     }
+    
+    @Test
+    void testEveryPipelineStageIsChecked() {
+        assertFalse(allowlist.isCommandAllowed("Get-Service | Invoke-Expression"));
+        assertFalse(allowlist.isCommandAllowed("Get-Service; Remove-Computer"));
+        assertFalse(allowlist.isCommandAllowed("Get-Process || shutdown /s"));
+        assertFalse(allowlist.isCommandAllowed("Get-Process && format C:"));
+        assertFalse(allowlist.isCommandAllowed("Get-Process & shutdown /s"));
+        assertFalse(allowlist.isCommandAllowed("Get-Service | Where-Object { $_ | Invoke-Expression }"));
+        assertFalse(allowlist.isCommandAllowed("Write-Host (shutdown /s)"));
+        assertFalse(allowlist.isCommandAllowed("Write-Host $(shutdown /s)"));
+        assertFalse(allowlist.isCommandAllowed("Write-Host \"Now: $(shutdown /s)\""));
+        assertFalse(allowlist.isCommandAllowed("Write-Host @(shutdown /s)"));
+        assertFalse(allowlist.isCommandAllowed("$x = shutdown /s"));
+        assertFalse(allowlist.isCommandAllowed("$a[(0)] = shutdown /s"));
+        assertFalse(allowlist.isCommandAllowed("Write-Host @{ Name = (shutdown /s) }"));
+    }
+    
+    @Test
+    void testCallOperatorsAndStaticMembers() {
+        assertTrue(allowlist.isCommandAllowed("& Get-Service"));
+        assertTrue(allowlist.isCommandAllowed("& { Get-Service }"));
+        assertFalse(allowlist.isCommandAllowed("& 'shutdown' /s"));
+        assertFalse(allowlist.isCommandAllowed("& $command"));
+        assertFalse(allowlist.isCommandAllowed(". .\\evil.ps1"));
+        assertFalse(allowlist.isCommandAllowed(".\\evil.ps1"));
+        assertTrue(allowlist.isCommandAllowed("Write-Host ([math]::Round(1.5)) ([System.DateTime]::Now)"));
+        assertFalse(allowlist.isCommandAllowed("Write-Host ([IO.File]::Delete('C:\\boot.ini'))"));
+        assertFalse(allowlist.isCommandAllowed("$t = [IO.File]; $t::Delete('C:\\boot.ini')"));
+    }
+    
+    @Test
+    void testMethodCallsAreChecked() {
+        assertFalse(allowlist.isCommandAllowed(
+            "$ExecutionContext.InvokeCommand.InvokeScript('Stop-Computer -Force')"));
+        assertFalse(allowlist.isCommandAllowed(
+            "$x = $ExecutionContext.InvokeCommand.NewScriptBlock('Stop-Computer'); $x.Invoke()"));
+        assertFalse(allowlist.isCommandAllowed("(Get-WmiObject Win32_OperatingSystem).Win32Shutdown(1)"));
+        assertFalse(allowlist.isCommandAllowed("$p = Get-Process; $p.Kill()"));
+        assertFalse(allowlist.isCommandAllowed("$p = Get-Process; $p.Kill ()"));
+        assertFalse(allowlist.isCommandAllowed("$p = Get-Process; $p.'Kill'()"));
+        assertFalse(allowlist.isCommandAllowed("$p = Get-Process; $m = 'Kill'; $p.$m()"));
+        assertFalse(allowlist.isCommandAllowed("$p = Get-Process; $p.Kill.Invoke()"));
+        assertFalse(allowlist.isCommandAllowed("$p = Get-Process; $p.Start()"));
+        assertFalse(allowlist.isCommandAllowed("$global:ExecutionContext.SessionState"));
+        assertFalse(allowlist.isCommandAllowed("Write-Host ${ExecutionContext}"));
+        // Member access and computing methods stay allowed
+        assertTrue(allowlist.isCommandAllowed("(Get-Service).Count"));
+        assertTrue(allowlist.isCommandAllowed("$p = Get-Process; $p.Name.ToUpper()"));
+        assertTrue(allowlist.isCommandAllowed("Write-Host ([datetime]::UtcNow.AddSeconds(5))"));
+        assertTrue(allowlist.isCommandAllowed("$s = Get-Service Spooler; $s.Refresh()"));
+    }
+    
+    @Test
+    void testStringsAndCommentsAreNotCommands() {
+        assertTrue(allowlist.isCommandAllowed("Write-Host 'shutdown /s; format C:'"));
+        assertTrue(allowlist.isCommandAllowed("Write-Host \"it''s $env:TEMP; format\""));
+        assertTrue(allowlist.isCommandAllowed("Write-Host 'it''s fine; format C:'"));
+        assertTrue(allowlist.isCommandAllowed("Get-Service # | format C:"));
+        assertTrue(allowlist.isCommandAllowed("Get-Service <# ; format C: #> -Name Spooler"));
+        assertTrue(allowlist.isCommandAllowed("netsh interface ip set address name=Ethernet source=dhcp"));
+        assertTrue(allowlist.isCommandAllowed("Get-ChildItem C:\\Temp 2>&1 > C:\\out.txt"));
+        // Typographic quotes close strings in PowerShell too
+        assertFalse(allowlist.isCommandAllowed("Write-Host 'x\u2019; shutdown /s; \u2018'"));
+        // Escaped command names are not unescaped into allowed ones
+        assertFalse(allowlist.isCommandAllowed("Remove-It`em C:\\Temp"));
+    }
+    
+    @Test
+    void testMalformedInputIsRejected() {
+        assertFalse(allowlist.isCommandAllowed("Get-Service }"));
+        assertFalse(allowlist.isCommandAllowed("Get-Service )"));
+        assertFalse(allowlist.isCommandAllowed("Write-Host 'unterminated"));
+        assertFalse(allowlist.isCommandAllowed("Write-Host " + "(".repeat(CommandScanner.MAX_DEPTH + 1)
+            + ")".repeat(CommandScanner.MAX_DEPTH + 1)));
+    }
+    
+    @Test
+    void testFindDisallowedLine() {
+        List<String> script = List.of(
+            "Write-Host '=== SERVICES ===' -ForegroundColor Yellow",
+            "",
+            "# Filter by status",
+            "$services = Get-Service",
+            "if ('Running' -ne 'all') {",
+            "    $services = $services | Where-Object { $_.Status -eq 'Running' }",
+            "}",
+            "$services | ForEach-Object {",
+            "    Write-Host ('Service Name: ' + $_.Name) -ForegroundColor White",
+            "    $info = Get-WmiObject -Class Win32_Service | Where-Object { $_.Name -eq $_.Name }",
+            "}",
+            "$running = ($services | Where-Object { $_.Status -eq 'Running' }).Count",
+            "Write-Host ('Memory: ' + [math]::Round($running / 1MB, 2))"
+        );
+        assertEquals(-1, allowlist.findDisallowedLine(script));
+        
+        assertEquals(2, allowlist.findDisallowedLine(List.of(
+            "Get-Service | ForEach-Object {",
+            "    Write-Host $_.Name",
+            "    $_ | Remove-Service",
+            "}"
+        )));
+        
+        // A string opened on one line hides commands until it is closed
+        assertEquals(2, allowlist.findDisallowedLine(List.of(
+            "Write-Host 'first",
+            "shutdown /s'",
+            "shutdown /s"
+        )));
+        
+        assertEquals(0, allowlist.findDisallowedLine(List.of("Get-Service {")));
+    }
+    
+    @Test
+    void testTemplateVerification() {
+        assertEquals(-1, allowlist.findDisallowedLine(ScriptTemplate.of(
+            "$service = Get-Service -Name {{name}}",
+            "if ($service.Status -ne {{status}}) {",
+            "    Write-Host ('Service: ' + {{name}}) -ForegroundColor Green",
+            "}"
+        )));
+        
+        assertEquals(1, allowlist.findDisallowedLine(ScriptTemplate.of(
+            "Get-Service -Name {{name}}",
+            "Invoke-Expression {{name}}"
+        )));
+        
+        // A placeholder is not expanded in a string, comment or escape
+        assertEquals(0, allowlist.findDisallowedLine(ScriptTemplate.of("Write-Host 'Service: {{name}}'")));
+        assertEquals(0, allowlist.findDisallowedLine(ScriptTemplate.of("Write-Host \"Service: {{name}}\"")));
+        assertEquals(0, allowlist.findDisallowedLine(ScriptTemplate.of("Get-Service # {{name}}")));
+        assertEquals(0, allowlist.findDisallowedLine(ScriptTemplate.of("Get-Service `{{name}}")));
+        assertEquals(1, allowlist.findDisallowedLine(ScriptTemplate.of("Write-Host 'a", "{{name}}'")));
+        
+        // A parameter is a value, never a command
+        assertEquals(0, allowlist.findDisallowedLine(ScriptTemplate.of("& {{name}}")));
+        assertEquals(0, allowlist.findDisallowedLine(ScriptTemplate.of(". {{name}}")));
+        
+        // Starting a service is allowed where the template itself assigned the controller
+        assertEquals(-1, allowlist.findDisallowedLine(ScriptTemplate.of(
+            "$svc = Get-Service -Name {{name}}",
+            "$svc.Start()"
+        )));
+        assertEquals(1, allowlist.findDisallowedLine(ScriptTemplate.of(
+            "$p = Get-Process -Name {{name}}",
+            "$p.Kill()"
+        )));
+    }
+    
+    @Test
+    void testTemplateVerdictIsCached() {
+        ScriptTemplate template = ScriptTemplate.of("Get-Service -Name {{name}}", "shutdown /s");
+        
+        assertEquals(1, allowlist.findDisallowedLine(template));
+        assertEquals(1, new Allowlist().findDisallowedLine(ScriptTemplate.of(template.getLines())));
+        
+        SecurityException error = assertThrows(SecurityException.class, () -> allowlist.verify(template));
+        assertTrue(error.getMessage().contains("shutdown /s"));
+    }
+    
+    @Test
+    void testScanIsAllocationFree() {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemoryEnabled());
+        
+        String line = "$services = Get-Service | Where-Object { $_.Status -eq 'Running' -and $_.Name -like \"*$(Get-Date)*\" }"
+            + " | Select-Object -First 10; Write-Host ([math]::Round(1.5)) # done";
+        long threadId = Thread.currentThread().getId();
+        int iterations = 10_000;
+        for (int i = 0; i < iterations; i++) {
+            assertTrue(allowlist.isCommandAllowed(line));
+        }
+        
+        long start = threads.getThreadAllocatedBytes(threadId);
+        boolean allowed = true;
+        for (int i = 0; i < iterations; i++) {
+            allowed &= allowlist.isCommandAllowed(line);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - start;
+        
+        assertTrue(allowed);
+        assertTrue(allocated / iterations < 8, "Allocated " + allocated / iterations + " bytes per check");
+    }
+    
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads;
+        }
+        return null;
+    }
 }
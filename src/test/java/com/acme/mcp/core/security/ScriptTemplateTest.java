@@ -0,0 +1,64 @@
+package com.acme.mcp.core.security;
+
+import com.acme.mcp.core.windows.PowerShellScript;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ScriptTemplate parsing and compilation.
+ */
+class ScriptTemplateTest {
+    
+    @Test
+    void testParameters() {
+        ScriptTemplate template = ScriptTemplate.of(
+            "Get-Service -Name {{name}} | Select-Object -First {{limit}}",
+            "if ({{verbose}}) { Write-Host ('Service: ' + {{name}}) }",
+            "Get-Date"
+        );
+        
+        assertEquals(List.of("name", "limit", "verbose"), template.getParameters());
+    }
+    
+    @Test
+    void testHash() {
+        ScriptTemplate template = ScriptTemplate.of("Get-Service", "Get-Date");
+        
+        assertEquals(64, template.getHash().length());
+        assertEquals(template.getHash(), ScriptTemplate.of(List.of("Get-Service", "Get-Date")).getHash());
+        assertNotEquals(template.getHash(), ScriptTemplate.of("Get-Service\nGet-Date").getHash());
+        assertNotEquals(template.getHash(), ScriptTemplate.of("Get-Date", "Get-Service").getHash());
+    }
+    
+    @Test
+    void testReservedCharacterRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ScriptTemplate.of("Get-Service "));
+    }
+    
+    @Test
+    void testCompiledScript() {
+        ScriptTemplate template = ScriptTemplate.of(
+            "Get-Service -Name {{name}} | Select-Object -First {{limit}}",
+            "Write-Host ({{name}}+'x') {{name}}s");
+        
+        PowerShellScript script = template.getScript();
+        
+        assertEquals(List.of("name", "limit"), script.getParameters());
+        assertEquals("param($name, $limit)\n"
+            + "Get-Service -Name $name | Select-Object -First $limit\n"
+            + "Write-Host ($name+'x') ${name}s", script.getText());
+        assertSame(script, template.getScript());
+        assertEquals(script.getHash(), ScriptTemplate.of(template.getLines()).getScript().getHash());
+        assertEquals("{\"name\":\"Spooler\",\"limit\":5}", script.encodeParameters(Map.of("limit", 5, "name", "Spooler")));
+    }
+    
+    @Test
+    void testAutomaticVariableRejectedAsParameter() {
+        assertThrows(IllegalArgumentException.class, () -> ScriptTemplate.of("Get-Service -Name {{input}}"));
+        assertThrows(IllegalArgumentException.class, () -> ScriptTemplate.of("Get-Service -Name {{Args}}"));
+    }
+}
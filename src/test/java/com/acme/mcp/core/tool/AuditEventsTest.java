@@ -0,0 +1,180 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AuditSerializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for typed tool audit events and their serialization cost.
+ */
+class AuditEventsTest {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final List<String> COMMANDS = List.of(
+        "Get-Service -Name 'Spooler'", "Restart-Service -Name 'Spooler' -Force");
+    
+    private final ExecutionContext context = new ExecutionContext("testuser", "testasset", "testcorrelation");
+    private final AuditSerializer serializer = new AuditSerializer();
+    
+    @Test
+    void testStartedEventWritesCommandsAsJsonArray() throws Exception {
+        String json = serializer.serialize(
+            new ExecutionStartedEvent("test.tool", context, COMMANDS, true, Map.of("serviceName", "Spooler", "tool", "ignored")), 42L);
+        JsonNode node = MAPPER.readTree(json);
+        
+        assertEquals("tool_execution_started", node.get("event").asText());
+        assertEquals(42L, node.get("timestamp").asLong());
+        assertEquals("test.tool", node.get("tool").asText());
+        assertTrue(node.get("commands").isArray());
+        assertEquals("Get-Service -Name 'Spooler'", node.get("commands").get(0).asText());
+        assertEquals(2, node.get("commandCount").asInt());
+        assertTrue(node.get("dryRun").asBoolean());
+        assertEquals("Spooler", node.get("serviceName").asText());
+    }
+    
+    @Test
+    void testCompletedEventTruncatesPreviewAtCharacterBoundary() throws Exception {
+        // 150 two-byte characters: the 200-byte preview ends exactly after 100 of them
+        String stdout = "ä".repeat(150);
+        ExecuteResult result = new ExecuteResult("exec-1", 0, stdout, "warn", ExecuteResult.Status.SUCCESS);
+        
+        JsonNode node = MAPPER.readTree(serializer.serialize(
+            new ExecutionCompletedEvent("test.tool", context, result, Map.of()), 1L));
+        
+        assertEquals("ä".repeat(100) + "... [TRUNCATED]", node.get("stdoutPreview").asText());
+        assertEquals("warn", node.get("stderrPreview").asText());
+        assertEquals(300, node.get("stdoutLen").asLong());
+        assertEquals("SUCCESS", node.get("status").asText());
+        assertTrue(node.get("success").asBoolean());
+    }
+    
+    @Test
+    void testCompletedEventCopiesResultWhenCreated() throws Exception {
+        OutputCapture stdout = new OutputCapture();
+        stdout.write("first");
+        ExecuteResult result = new ExecuteResult("exec-1", 0, stdout, new OutputCapture(), ExecuteResult.Status.SUCCESS);
+        
+        ExecutionCompletedEvent event = new ExecutionCompletedEvent("test.tool", context, result, Map.of());
+        stdout.write(" and more");
+        result.release();
+        JsonNode node = MAPPER.readTree(serializer.serialize(event, 1L));
+        
+        assertEquals("first", node.get("stdoutPreview").asText());
+        assertEquals(5, node.get("stdoutLen").asLong());
+        assertEquals(5, event.stdoutPreview().length);
+        assertNull(node.get("stderrPreview"));
+    }
+    
+    @Test
+    void testValidationErrorListsProvidedFields() throws Exception {
+        ObjectNode args = MAPPER.createObjectNode().put("timeoutSec", 30).put("force", true);
+        
+        JsonNode node = MAPPER.readTree(serializer.serialize(new ValidationErrorEvent("test.tool", "name", args), 1L));
+        
+        assertEquals("name", node.get("missingField").asText());
+        assertEquals(List.of("timeoutSec", "force"), MAPPER.convertValue(node.get("providedFields"), List.class));
+    }
+    
+    @Test
+    void testAllocationPerExecutionIsLowerThanTreeSerialization() {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemoryEnabled());
+        
+        ExecuteResult result = new ExecuteResult("exec-1", 0, "x".repeat(4096), "", ExecuteResult.Status.SUCCESS);
+        Map<String, Object> extra = Map.of("serviceName", "Spooler", "timeoutSec", 30);
+        int iterations = 20_000;
+        
+        Runnable before = () -> {
+            treeSerialize("tool_execution_started", startedMap(extra));
+            treeSerialize("tool_execution_completed", completedMap(result, extra));
+        };
+        Runnable after = () -> {
+            serializer.serialize(new ExecutionStartedEvent("test.tool", context, COMMANDS, false, extra), 1L);
+            serializer.serialize(new ExecutionCompletedEvent("test.tool", context, result, extra), 1L);
+        };
+        
+        long beforeBytes = allocatedPerRun(threads, before, iterations);
+        long afterBytes = allocatedPerRun(threads, after, iterations);
+        
+        assertTrue(afterBytes < beforeBytes,
+            "Streaming serialization should allocate less (" + afterBytes + " vs " + beforeBytes + ")");
+    }
+    
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads;
+        }
+        return null;
+    }
+    
+    private static long allocatedPerRun(com.sun.management.ThreadMXBean threads, Runnable task, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            task.run(); // warm up
+        }
+        long threadId = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - start) / iterations;
+    }
+    
+    /**
+     * Audit data as built by the map-based runPs: copied into HashMaps, then serialized through an ObjectNode tree.
+     */
+    private Map<String, Object> startedMap(Map<String, Object> extra) {
+        Map<String, Object> data = new HashMap<>(Map.of(
+            "tool", "test.tool", "userId", context.getUserId(), "assetId", context.getAssetId(),
+            "correlationId", context.getCorrelationId(), "commands", COMMANDS,
+            "commandCount", COMMANDS.size(), "dryRun", false));
+        data.putAll(extra);
+        return data;
+    }
+    
+    private Map<String, Object> completedMap(ExecuteResult result, Map<String, Object> extra) {
+        Map<String, Object> data = new HashMap<>(Map.of(
+            "tool", "test.tool", "userId", context.getUserId(), "assetId", context.getAssetId(),
+            "correlationId", context.getCorrelationId(), "executionId", result.getExecutionId(),
+            "exitCode", result.getExitCode(), "status", result.getStatus().toString(),
+            "success", result.isSuccess(), "stdoutLen", result.getStdoutBytes(), "stderrLen", result.getStderrBytes()));
+        data.put("stdoutPreview", result.getStdoutHead(200) + "... [TRUNCATED]");
+        Map<String, Object> combined = new HashMap<>(data);
+        combined.putAll(extra);
+        return combined;
+    }
+    
+    private static String treeSerialize(String event, Map<String, Object> data) {
+        try {
+            ObjectNode entry = MAPPER.createObjectNode();
+            entry.put("event", event);
+            entry.put("timestamp", 1L);
+            for (Map.Entry<String, Object> field : data.entrySet()) {
+                Object value = field.getValue();
+                if (value instanceof String) {
+                    entry.put(field.getKey(), (String) value);
+                } else if (value instanceof Integer) {
+                    entry.put(field.getKey(), (Integer) value);
+                } else if (value instanceof Long) {
+                    entry.put(field.getKey(), (Long) value);
+                } else if (value instanceof Boolean) {
+                    entry.put(field.getKey(), (Boolean) value);
+                } else {
+                    entry.put(field.getKey(), MAPPER.writeValueAsString(value));
+                }
+            }
+            return MAPPER.writeValueAsString(entry);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.tools.SecurityCheckBitlockerTool;
+import com.acme.mcp.core.windows.PowerShellRunner;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for FleetExecutor fan-out and aggregation.
+ */
+class FleetExecutorTest {
+    
+    /**
+     * bash stand-in for powershell.exe that defines the cmdlets used by the BitLocker check.
+     * Compiled scripts arrive base64 encoded on stdin, with the param line dropped before eval.
+     */
+    private static final List<String> STAND_IN_SHELL = List.of("bash", "-c",
+        "Get-BitLockerVolume() { echo 'MountPoint ProtectionStatus'; echo 'C: On'; sleep 0.1; }; "
+            + "Select-Object() { cat; }; "
+            + "if read -r script; then eval \"$(printf '%s' \"$script\" | base64 -d | tail -n +2)\"; else eval \"$1\"; fi",
+        "stand-in");
+    
+    private final JsonNode args = new ObjectMapper().createObjectNode();
+    
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testFanOutAgainstStandInRunner() throws Exception {
+        PowerShellRunner runner = new PowerShellRunner(10, false, STAND_IN_SHELL);
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(new SecurityCheckBitlockerTool(runner, new Allowlist()));
+        List<String> assets = assetIds(40);
+        List<AssetResult> streamed = new CopyOnWriteArrayList<>();
+        
+        try (FleetExecutor executor = new FleetExecutor(registry, 8)) {
+            long start = System.nanoTime();
+            FleetRun run = executor.fanOut("security.check_bitlocker", args, assets, "admin", "sweep-1", streamed::add);
+            FleetSummary summary = run.completion().get(60, TimeUnit.SECONDS);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            
+            assertEquals(40, summary.getTotal());
+            assertEquals(40, summary.getSuccessCount());
+            assertTrue(summary.isDone());
+            assertTrue(summary.getP50Millis() >= 100);
+            assertTrue(summary.getP50Millis() <= summary.getP90Millis());
+            assertTrue(summary.getP90Millis() <= summary.getP99Millis());
+            // 40 assets of at least 2 x 100ms each would take 8s one at a time
+            assertTrue(elapsedMillis < 6000, "Fan-out should run in parallel, took " + elapsedMillis + "ms");
+            assertEquals(Set.copyOf(assets), streamed.stream().map(AssetResult::getAssetId).collect(Collectors.toSet()));
+            assertTrue(streamed.get(0).getResult().getStdout().contains("ProtectionStatus"));
+        }
+    }
+    
+    @Test
+    void testAggregatesOutcomesAndBoundsWidth() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Set<String> seenCorrelations = ConcurrentHashMap.newKeySet();
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(new ScriptedTool("test.scripted", context -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            seenCorrelations.add(context.getCorrelationId());
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            int n = Integer.parseInt(context.getAssetId().substring("asset-".length()));
+            if (n % 10 == 0) {
+                throw new IllegalStateException("unreachable");
+            }
+            ExecuteResult.Status status = n % 5 == 0 ? ExecuteResult.Status.TIMEOUT
+                : n % 3 == 0 ? ExecuteResult.Status.FAILURE : ExecuteResult.Status.SUCCESS;
+            return new ExecuteResult("id", status == ExecuteResult.Status.SUCCESS ? 0 : 1, "", "", status);
+        }));
+        
+        try (FleetExecutor executor = new FleetExecutor(registry, 4)) {
+            FleetSummary summary = executor.fanOut("test.scripted", args, assetIds(100), "admin", "sweep-2", null)
+                .completion().get(30, TimeUnit.SECONDS);
+            
+            assertEquals(100, summary.getCompleted());
+            assertEquals(10, summary.getErrorCount());
+            assertEquals(10, summary.getTimeoutCount());
+            // Multiples of 3 that are not multiples of 5
+            assertEquals(27, summary.getFailureCount());
+            assertEquals(53, summary.getSuccessCount());
+            assertTrue(maxRunning.get() <= 4);
+            assertEquals(Set.of("sweep-2"), seenCorrelations);
+        }
+    }
+    
+    @Test
+    void testCancelStopsRemainingAssets() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(new ScriptedTool("test.blocking", context -> {
+            firstStarted.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ExecuteResult("id", 0, "", "", ExecuteResult.Status.SUCCESS);
+        }));
+        
+        try (FleetExecutor executor = new FleetExecutor(registry, 2)) {
+            FleetRun run = executor.fanOut("test.blocking", args, assetIds(50), "admin", "sweep-3", null);
+            assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+            run.cancel();
+            release.countDown();
+            
+            FleetSummary summary = run.completion().get(10, TimeUnit.SECONDS);
+            
+            assertTrue(run.isCancelled());
+            assertFalse(summary.isDone());
+            assertTrue(summary.getCompleted() <= 2);
+        }
+    }
+    
+    @Test
+    void testErrorIsRecordedAsFailedAsset() throws Exception {
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(new ScriptedTool("test.crashing", context -> {
+            if (context.getAssetId().equals("asset-2")) {
+                throw new ExceptionInInitializerError("broken tool");
+            }
+            return new ExecuteResult("id", 0, "", "", ExecuteResult.Status.SUCCESS);
+        }));
+        List<AssetResult> results = new CopyOnWriteArrayList<>();
+        
+        try (FleetExecutor executor = new FleetExecutor(registry, 1)) {
+            FleetSummary summary = executor.fanOut("test.crashing", args, assetIds(3), "admin", "sweep-5", results::add)
+                .completion().get(10, TimeUnit.SECONDS);
+            
+            // The Error ends the only worker, so the run completes without the last asset
+            assertEquals(2, summary.getCompleted());
+            assertEquals(1, summary.getErrorCount());
+            assertEquals("asset-2", results.get(1).getAssetId());
+            assertTrue(results.get(1).getError().contains("broken tool"), results.get(1).getError());
+        }
+    }
+    
+    @Test
+    void testUnknownToolAndEmptyFleet() throws Exception {
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(new ScriptedTool("test.noop",
+            context -> new ExecuteResult("id", 0, "", "", ExecuteResult.Status.SUCCESS)));
+        
+        try (FleetExecutor executor = new FleetExecutor(registry)) {
+            assertThrows(IllegalArgumentException.class,
+                () -> executor.fanOut("nonexistent", args, assetIds(3), "admin", "sweep-4", null));
+            
+            FleetSummary summary = executor.fanOut("test.noop", args, List.of(), "admin", "sweep-4", null)
+                .completion().get(1, TimeUnit.SECONDS);
+            assertEquals(0, summary.getTotal());
+            assertTrue(summary.isDone());
+        }
+    }
+    
+    private static List<String> assetIds(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ids.add("asset-" + i);
+        }
+        return ids;
+    }
+    
+    /**
+     * Tool whose behaviour per asset is given by a function.
+     */
+    static class ScriptedTool implements Tool {
+        
+        private final String name;
+        private final Function<ExecutionContext, ExecuteResult> behaviour;
+        
+        ScriptedTool(String name, Function<ExecutionContext, ExecuteResult> behaviour) {
+            this.name = name;
+            this.behaviour = behaviour;
+        }
+        
+        @Override
+        public String getName() { return name; }
+        @Override
+        public String getDescription() { return "Scripted test tool"; }
+        @Override
+        public JsonNode getJsonSchema() { return new ObjectMapper().createObjectNode(); }
+        @Override
+        public boolean requiresConfirmation() { return false; }
+        @Override
+        public List<String> getOsSupport() { return List.of("windows"); }
+        
+        @Override
+        public ExecuteResult execute(ExecutionContext context, JsonNode args) {
+            return behaviour.apply(context);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.acme.mcp.core.tool;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for bounded OutputCapture.
+ */
+class OutputCaptureTest {
+    
+    @Test
+    void testSmallOutputStaysInMemory() {
+        OutputCapture capture = new OutputCapture(8, 8);
+        capture.write("hello world");
+        
+        assertFalse(capture.isSpilled());
+        assertEquals(11, capture.size());
+        assertEquals("hello world", capture.text());
+        assertEquals("hello", capture.head(5));
+        assertEquals("world", capture.tail(5));
+        assertEquals("hello world", capture.head(100));
+        assertEquals("hello world", capture.tail(100));
+    }
+    
+    @Test
+    void testLargeOutputSpillsToDisk() throws IOException {
+        OutputCapture capture = new OutputCapture(10, 10);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String line = "line " + i + "\n";
+            expected.append(line);
+            capture.write(line);
+        }
+        
+        assertTrue(capture.isSpilled());
+        assertEquals(expected.length(), capture.size());
+        assertEquals("line 0\nlin", capture.head(100));
+        assertEquals("\nline 999\n", capture.tail(100));
+        try (InputStream in = capture.openStream()) {
+            assertEquals(expected.toString(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        
+        capture.release();
+    }
+
+    @Test
+    void testLiveSpillFilesAreRecognized() throws IOException {
+        List<Path> before = liveSpillFiles();
+        OutputCapture capture = new OutputCapture(10, 10);
+        capture.write("x".repeat(1000));
+        List<Path> live = new ArrayList<>(liveSpillFiles());
+        live.removeAll(before);
+
+        assertEquals(1, live.size());
+        assertTrue(live.get(0).getFileName().toString().endsWith(".spill"));
+
+        capture.release();
+
+        assertFalse(OutputCapture.isLiveSpillFile(live.get(0)));
+        assertFalse(OutputCapture.isLiveSpillFile(Path.of("mcp-output-unknown.spill")));
+    }
+    
+    @Test
+    void testBuffersGrowWithOutput() {
+        OutputCapture capture = new OutputCapture();
+        assertEquals(0, capture.retainedBytes());
+        
+        capture.write("small");
+        assertTrue(capture.retainedBytes() < 1024);
+        
+        StringBuilder expected = new StringBuilder("small");
+        for (int i = 0; i < 20_000; i++) {
+            String line = "line " + i + "\n";
+            capture.write(line);
+            expected.append(line);
+        }
+        assertEquals(OutputCapture.DEFAULT_HEAD_BYTES + OutputCapture.DEFAULT_TAIL_BYTES, capture.retainedBytes());
+        assertEquals(expected.toString(), capture.text());
+        assertTrue(capture.tail(20).endsWith("line 19999\n"));
+        capture.release();
+    }
+    
+    @Test
+    void testTailGrowsBeforeWrapping() {
+        OutputCapture capture = new OutputCapture(0, 1000);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            String chunk = Integer.toString(i % 10);
+            capture.write(chunk);
+            expected.append(chunk);
+        }
+        
+        assertFalse(capture.isSpilled());
+        assertEquals(expected.toString(), capture.tail(1000));
+        assertEquals(expected.toString(), capture.text());
+    }
+    
+    @Test
+    void testHeadAndTailRespectCharacterBoundaries() {
+        OutputCapture capture = new OutputCapture(3, 3);
+        capture.write("ääää");
+        
+        assertEquals("ä", capture.head(3));
+        assertEquals("ä", capture.tail(3));
+        assertEquals("ääää", capture.text());
+    }
+    
+    @Test
+    void testCompleteUtf8Length() {
+        byte[] bytes = "aä".getBytes(StandardCharsets.UTF_8);
+        
+        assertEquals(3, OutputCapture.completeUtf8Length(bytes, 3));
+        assertEquals(1, OutputCapture.completeUtf8Length(bytes, 2));
+        assertEquals(1, OutputCapture.completeUtf8Length(bytes, 1));
+    }
+    
+    @Test
+    void testOfString() {
+        ExecuteResult result = new ExecuteResult("id", 0, "out", null, ExecuteResult.Status.SUCCESS);
+        
+        assertEquals("out", result.getStdout());
+        assertEquals("", result.getStderr());
+        assertEquals(3, result.getStdoutBytes());
+        assertEquals(0, result.getStderrBytes());
+    }
+
+    private static List<Path> liveSpillFiles() throws IOException {
+        try (var files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(OutputCapture::isLiveSpillFile).toList();
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.acme.mcp.core.tool;
 
 import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
 import com.acme.mcp.core.windows.PowerShellRunner;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,6 +78,102 @@ class PowerShellToolBaseTest {
         });
     }
     
+    @Test
+    void testStreamingExecution() throws InterruptedException {
+        JsonNode args = objectMapper.createObjectNode();
+        
+        List<OutputChunk> chunks = collect(tool.executeStreaming(context, args));
+        
+        assertEquals(4, chunks.size());
+        assertEquals(OutputChunk.Type.PHASE, chunks.get(0).getType());
+        assertEquals("started", chunks.get(0).getText());
+        assertEquals(OutputChunk.Type.STDOUT, chunks.get(1).getType());
+        assertEquals("DRY_RUN", chunks.get(1).getText());
+        assertEquals("completed", chunks.get(2).getText());
+        assertEquals(OutputChunk.Type.EXIT, chunks.get(3).getType());
+        assertTrue(chunks.get(3).getResult().isSuccess());
+    }
+    
+    @Test
+    void testStreamingValidationErrorFailsPublisher() throws InterruptedException {
+        PowerShellToolBase failingTool = new TestPowerShellTool(dryRunRunner, allowlist) {
+            @Override
+            public ExecuteResult execute(ExecutionContext context, JsonNode args) {
+                return executeWithValidation(context, args);
+            }
+        };
+        
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        failingTool.executeStreaming(context, objectMapper.createObjectNode()).subscribe(subscriber);
+        
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+    
+    @Test
+    void testTemplateExecution() {
+        TemplateTool templateTool = new TemplateTool(dryRunRunner, allowlist,
+            ScriptTemplate.of("Get-Service -Name {{name}} | Select-Object -First {{limit}}"));
+        
+        ExecuteResult result = templateTool.execute(context, objectMapper.createObjectNode());
+        
+        assertEquals(ExecuteResult.Status.SUCCESS, result.getStatus());
+        assertEquals("DRY_RUN", result.getStdout());
+    }
+    
+    @Test
+    void testRegistrationFailsForDisallowedTemplate() {
+        ToolRegistry registry = new ToolRegistry();
+        TemplateTool badTool = new TemplateTool(dryRunRunner, allowlist,
+            ScriptTemplate.of("Get-Service -Name {{name}}", "Get-Service | Invoke-Expression"));
+        
+        SecurityException error = assertThrows(SecurityException.class, () -> registry.register(badTool));
+        assertTrue(error.getMessage().contains("Invoke-Expression"));
+        assertFalse(registry.contains("template.tool"));
+        
+        registry.register(new TemplateTool(dryRunRunner, allowlist, ScriptTemplate.of("Get-Service -Name {{name}}")));
+        assertTrue(registry.contains("template.tool"));
+    }
+    
+    static List<OutputChunk> collect(Flow.Publisher<OutputChunk> publisher) throws InterruptedException {
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        publisher.subscribe(subscriber);
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS), "Publisher did not complete");
+        assertNull(subscriber.error);
+        return subscriber.chunks;
+    }
+    
+    /**
+     * Subscriber that collects all chunks.
+     */
+    static class CollectingSubscriber implements Flow.Subscriber<OutputChunk> {
+        
+        final List<OutputChunk> chunks = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Throwable error;
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+        
+        @Override
+        public void onNext(OutputChunk item) {
+            chunks.add(item);
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+        
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+    
     /**
      * Test implementation of PowerShellToolBase for unit testing.
      */
@@ -104,4 +205,28 @@ class PowerShellToolBaseTest {
             return mapper.createObjectNode();
         }
     }
+    
+    /**
+     * Tool that runs a single script template.
+     */
+    private static class TemplateTool extends PowerShellToolBase {
+        
+        private final ScriptTemplate script;
+        
+        TemplateTool(PowerShellRunner powerShellRunner, Allowlist allowlist, ScriptTemplate script) {
+            super("template.tool", "Template tool for unit testing", false,
+                  List.of("windows"), new ObjectMapper().createObjectNode(), powerShellRunner, allowlist);
+            this.script = script;
+        }
+        
+        @Override
+        protected List<ScriptTemplate> scriptTemplates() {
+            return List.of(script);
+        }
+        
+        @Override
+        public ExecuteResult execute(ExecutionContext context, JsonNode args) {
+            return runPs(script, Map.of("name", "Spooler", "limit", 5), context, Map.of());
+        }
+    }
 }
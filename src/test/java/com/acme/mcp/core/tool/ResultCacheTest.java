@@ -0,0 +1,305 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.audit.AsyncAuditWriter;
+import com.acme.mcp.core.audit.AuditLogger;
+import com.acme.mcp.core.tool.FleetExecutorTest.ScriptedTool;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ResultCache hits, single flight, invalidation and eviction.
+ */
+class ResultCacheTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final JsonNode args = OBJECT_MAPPER.createObjectNode();
+
+    @Test
+    void testHitsUntilTtlExpires() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ResultCache cache = new ResultCache();
+        cache.setTtl("test.read", Duration.ofMillis(200));
+        Tool tool = cache.wrap(counting("test.read", runs));
+        ExecutionContext context = new ExecutionContext("admin", "PC-1", "c-1");
+
+        ExecuteResult first = tool.execute(context, args);
+        ExecuteResult second = tool.execute(context, args);
+
+        assertEquals(first.getExecutionId(), second.getExecutionId());
+        assertEquals(first.getStdout(), second.getStdout());
+        assertEquals(1, runs.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+
+        Thread.sleep(300);
+        tool.execute(context, args);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void testKeyIncludesAssetFormatAndCanonicalArgs() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ResultCache cache = new ResultCache();
+        cache.setTtl("test.read", Duration.ofMinutes(1));
+        Tool tool = cache.wrap(counting("test.read", runs));
+
+        tool.execute(new ExecutionContext("admin", "PC-1", "c-1"),
+            OBJECT_MAPPER.readTree("{\"a\":1,\"b\":{\"y\":2,\"x\":[1,2]}}"));
+        tool.execute(new ExecutionContext("other", "PC-1", "c-2"),
+            OBJECT_MAPPER.readTree("{\"b\":{\"x\":[1,2],\"y\":2},\"a\":1}"));
+        assertEquals(1, runs.get());
+
+        tool.execute(new ExecutionContext("admin", "PC-2", "c-3"), OBJECT_MAPPER.readTree("{\"a\":1}"));
+        tool.execute(new ExecutionContext("admin", "PC-2", "c-4", OutputFormat.JSON), OBJECT_MAPPER.readTree("{\"a\":1}"));
+        tool.execute(new ExecutionContext("admin", "PC-2", "c-5"), OBJECT_MAPPER.readTree("{\"a\":2}"));
+        assertEquals(4, runs.get());
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    void testConcurrentMissesShareOneExecution() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ResultCache cache = new ResultCache();
+        cache.setTtl("test.slow", Duration.ofMinutes(1));
+        Tool tool = cache.wrap(new ScriptedTool("test.slow", context -> {
+            runs.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ExecuteResult("e", 0, "slow", "", ExecuteResult.Status.SUCCESS);
+        }));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ExecuteResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String correlationId = "c-" + i;
+                futures.add(executor.submit(() -> tool.execute(new ExecutionContext("admin", "PC-1", correlationId), args)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (cache.getSharedCount() < 7 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<ExecuteResult> future : futures) {
+                assertEquals("slow", future.get(10, TimeUnit.SECONDS).getStdout());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, runs.get());
+        assertEquals(7, cache.getSharedCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testMutatingToolInvalidatesItsAsset() {
+        AtomicInteger runs = new AtomicInteger();
+        ResultCache cache = new ResultCache();
+        cache.setTtl("test.read", Duration.ofMinutes(1));
+        Tool read = cache.wrap(counting("test.read", runs));
+        Tool write = cache.wrap(counting("test.write", new AtomicInteger()));
+        ExecutionContext pc1 = new ExecutionContext("admin", "PC-1", "c-1");
+        ExecutionContext pc2 = new ExecutionContext("admin", "PC-2", "c-2");
+
+        read.execute(pc1, args);
+        read.execute(pc2, args);
+        assertEquals(2, cache.size());
+
+        write.execute(pc1, args);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getInvalidationCount());
+
+        read.execute(pc1, args);
+        read.execute(pc2, args);
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void testFailuresAreNotCached() {
+        AtomicInteger runs = new AtomicInteger();
+        ResultCache cache = new ResultCache();
+        cache.setTtl("test.failing", Duration.ofMinutes(1));
+        Tool tool = cache.wrap(new ScriptedTool("test.failing", context -> {
+            runs.incrementAndGet();
+            return new ExecuteResult("e", 1, "", "boom", ExecuteResult.Status.FAILURE);
+        }));
+        ExecutionContext context = new ExecutionContext("admin", "PC-1", "c-1");
+
+        tool.execute(context, args);
+        tool.execute(context, args);
+
+        assertEquals(2, runs.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        ResultCache cache = new ResultCache(2, Long.MAX_VALUE);
+        cache.setTtl("test.read", Duration.ofMinutes(1));
+        AtomicInteger runs = new AtomicInteger();
+        Tool tool = cache.wrap(counting("test.read", runs));
+        ExecutionContext context = new ExecutionContext("admin", "PC-1", "c-1");
+        JsonNode a = OBJECT_MAPPER.createObjectNode().put("k", "a");
+        JsonNode b = OBJECT_MAPPER.createObjectNode().put("k", "b");
+        JsonNode c = OBJECT_MAPPER.createObjectNode().put("k", "c");
+
+        tool.execute(context, a);
+        tool.execute(context, b);
+        tool.execute(context, a);
+        tool.execute(context, c);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        tool.execute(context, a);
+        assertEquals(3, runs.get());
+        tool.execute(context, b);
+        assertEquals(4, runs.get());
+    }
+
+    @Test
+    void testEvictsByWeight() {
+        ResultCache cache = new ResultCache(100, 1_000);
+        cache.setTtl("test.big", Duration.ofMinutes(1));
+        Tool tool = cache.wrap(new ScriptedTool("test.big", context ->
+            new ExecuteResult("e", 0, "x".repeat(300), "", ExecuteResult.Status.SUCCESS)));
+
+        for (int i = 0; i < 5; i++) {
+            tool.execute(new ExecutionContext("admin", "PC-" + i, "c-" + i), args);
+        }
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.getWeight() <= 1_000);
+        assertEquals(4, cache.getEvictionCount());
+    }
+
+    @Test
+    void testWeighsRetainedBuffers() {
+        ResultCache cache = new ResultCache();
+        cache.setTtl("test.read", Duration.ofMinutes(1));
+        Tool tool = cache.wrap(new ScriptedTool("test.read", context -> {
+            // Default limits: the buffers grow past the output size
+            OutputCapture stdout = new OutputCapture();
+            stdout.write("x".repeat(3000));
+            stdout.write("x".repeat(2000));
+            assertTrue(stdout.retainedBytes() > 5000);
+            return new ExecuteResult("e", 0, stdout, new OutputCapture(), ExecuteResult.Status.SUCCESS);
+        }));
+        ExecutionContext context = new ExecutionContext("admin", "PC-1", "c-1");
+
+        tool.execute(context, args);
+        ExecuteResult cached = tool.execute(context, args);
+
+        assertEquals(5000, cached.getRetainedBytes());
+        assertEquals("x".repeat(5000), cached.getStdout());
+        assertTrue(cache.getWeight() < 5000 + 1024, "Weight " + cache.getWeight());
+    }
+
+    @Test
+    void testCallsAnsweredWithoutRunningAreAudited() throws Exception {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        AuditLogger.setWriter(new AsyncAuditWriter(lines::addAll));
+        try {
+            ResultCache cache = new ResultCache();
+            cache.setTtl("test.read", Duration.ofMinutes(1));
+            Tool tool = cache.wrap(counting("test.read", new AtomicInteger()));
+
+            tool.execute(new ExecutionContext("admin", "PC-1", "c-1"), args);
+            tool.execute(new ExecutionContext("helpdesk", "PC-1", "c-2"), args);
+            assertTrue(AuditLogger.flush(5_000));
+
+            List<JsonNode> cached = new ArrayList<>();
+            for (String line : lines) {
+                JsonNode node = OBJECT_MAPPER.readTree(line);
+                if (node.get("event").asText().equals("tool_execution_cached")) {
+                    cached.add(node);
+                }
+            }
+            assertEquals(1, cached.size());
+            assertEquals("helpdesk", cached.get(0).get("userId").asText());
+            assertEquals("c-2", cached.get(0).get("correlationId").asText());
+            assertEquals("cache", cached.get(0).get("source").asText());
+        } finally {
+            AuditLogger.setWriter(null);
+        }
+    }
+
+    @Test
+    void testInvalidationDuringExecutionIsNotCached() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ResultCache cache = new ResultCache();
+        cache.setTtl("test.slow", Duration.ofMinutes(1));
+        Tool read = cache.wrap(new ScriptedTool("test.slow", context -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ExecuteResult("e", 0, "stale", "", ExecuteResult.Status.SUCCESS);
+        }));
+        Tool write = cache.wrap(counting("test.write", new AtomicInteger()));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ExecuteResult> running = executor.submit(() -> read.execute(new ExecutionContext("admin", "PC-1", "c-1"), args));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            write.execute(new ExecutionContext("admin", "PC-1", "c-2"), args);
+            release.countDown();
+            assertEquals("stale", running.get(10, TimeUnit.SECONDS).getStdout());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testInvalidationStateIsDroppedWithTheExecutions() {
+        ResultCache cache = new ResultCache();
+        cache.setTtl("test.read", Duration.ofMinutes(1));
+        Tool read = cache.wrap(counting("test.read", new AtomicInteger()));
+        Tool write = cache.wrap(counting("test.write", new AtomicInteger()));
+
+        for (int i = 0; i < 100; i++) {
+            ExecutionContext context = new ExecutionContext("admin", "PC-" + i, "c-" + i);
+            read.execute(context, args);
+            write.execute(context, args);
+        }
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.trackedAssetCount());
+    }
+
+    @Test
+    void testRejectsNonPositiveTtl() {
+        ResultCache cache = new ResultCache();
+        assertThrows(IllegalArgumentException.class, () -> cache.setTtl("test.read", Duration.ZERO));
+        cache.setTtl("test.read", Duration.ofSeconds(1));
+        assertTrue(cache.isCached("test.read"));
+        cache.setTtl("test.read", null);
+        assertFalse(cache.isCached("test.read"));
+    }
+
+    private static Tool counting(String name, AtomicInteger runs) {
+        return new ScriptedTool(name, context ->
+            new ExecuteResult("e-" + runs.incrementAndGet(), 0, "ok", "", ExecuteResult.Status.SUCCESS));
+    }
+}
@@ -0,0 +1,79 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.tool.FleetExecutorTest.ScriptedTool;
+import com.acme.mcp.core.windows.PowerShellRunner;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ToolDescriptor discovery and lazy instantiation.
+ */
+class ToolDescriptorTest {
+    
+    private final JsonNode args = new ObjectMapper().createObjectNode();
+    
+    @Test
+    void testDiscoversStarterPack() {
+        List<ToolDescriptor> descriptors = ToolDescriptor.discover(getClass().getClassLoader());
+        
+        assertTrue(descriptors.stream().anyMatch(descriptor -> descriptor.getName().equals("system.reset_network")
+            && descriptor.getAliases().contains("system_reset_network")));
+    }
+    
+    @Test
+    void testLazyToolIsCreatedOnFirstExecution() {
+        CountingDescriptor descriptor = new CountingDescriptor();
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(descriptor.lazy(new PowerShellRunner(120, true), new Allowlist()));
+        
+        // Registration, lookups and the catalog only need the descriptor
+        assertTrue(registry.contains("test.alias"));
+        assertEquals("Counting tool", registry.get("test.counting").getDescription());
+        assertTrue(registry.snapshot().getCatalogSize() > 0);
+        assertEquals(0, descriptor.created.get());
+        assertFalse(((LazyTool) registry.get("test.counting")).isInstantiated());
+        
+        ExecutionContext context = new ExecutionContext("admin", "PC-1", "c-1");
+        assertEquals("ran", registry.get("test.counting").execute(context, args).getStdout());
+        assertEquals("ran", registry.get("test.alias").execute(context, args).getStdout());
+        assertEquals(1, descriptor.created.get());
+        assertTrue(((LazyTool) registry.get("test.counting")).isInstantiated());
+    }
+    
+    @Test
+    void testSchemaIsBuiltOnce() {
+        CountingDescriptor descriptor = new CountingDescriptor();
+        
+        assertSame(descriptor.getJsonSchema(), descriptor.getJsonSchema());
+        assertEquals(1, descriptor.schemas.get());
+    }
+    
+    private static final class CountingDescriptor extends ToolDescriptor {
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger schemas = new AtomicInteger();
+        
+        CountingDescriptor() {
+            super("test.counting", "Counting tool", false, List.of("windows"), List.of("test.alias"));
+        }
+        
+        @Override
+        protected JsonNode createJsonSchema() {
+            schemas.incrementAndGet();
+            return new ObjectMapper().createObjectNode();
+        }
+        
+        @Override
+        public Tool create(PowerShellRunner powerShellRunner, Allowlist allowlist) {
+            created.incrementAndGet();
+            return new ScriptedTool("test.counting", context ->
+                new ExecuteResult("e", 0, "ran", "", ExecuteResult.Status.SUCCESS));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.acme.mcp.core.tool;
+
+import com.acme.mcp.core.schema.ArgumentValidationException;
+import com.acme.mcp.core.schema.JsonSchemas;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ToolExecutor bulkheads, queueing and argument validation.
+ */
+class ToolExecutorTest {
+    
+    private ToolRegistry registry;
+    private CountDownLatch release;
+    private ExecutionContext context;
+    private JsonNode args;
+    
+    @BeforeEach
+    void setUp() {
+        registry = new ToolRegistry();
+        release = new CountDownLatch(1);
+        registry.register(new BlockingTool("test.blocking", release));
+        registry.register(new BlockingTool("test.other", release));
+        context = new ExecutionContext("testuser", "testasset", "testcorrelation");
+        args = new ObjectMapper().createObjectNode();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+    
+    @Test
+    void testSubmitCompletesWithResult() throws Exception {
+        release.countDown();
+        try (ToolExecutor executor = new ToolExecutor(registry)) {
+            ExecuteResult result = executor.submit("test.blocking", context, args).get(10, TimeUnit.SECONDS);
+            
+            assertTrue(result.isSuccess());
+            assertEquals("test.blocking", result.getStdout());
+            assertEquals(1, executor.getCompletedCount());
+        }
+    }
+    
+    @Test
+    void testUnknownToolFails() {
+        try (ToolExecutor executor = new ToolExecutor(registry)) {
+            CompletableFuture<ExecuteResult> future = executor.submit("nonexistent", context, args);
+            
+            ExecutionException e = assertThrows(ExecutionException.class, future::get);
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+    
+    @Test
+    void testQueueFullRejectsFast() throws Exception {
+        try (ToolExecutor executor = new ToolExecutor(registry, 1, 1, 10)) {
+            CompletableFuture<ExecuteResult> running = executor.submit("test.blocking", context, args);
+            CompletableFuture<ExecuteResult> queued = executor.submit("test.blocking", context, args);
+            CompletableFuture<ExecuteResult> rejected = executor.submit("test.other", context, args);
+            
+            ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+            assertEquals(1, executor.getRejectedCount());
+            assertEquals(1, executor.getQueueDepth());
+            
+            release.countDown();
+            assertTrue(running.get(10, TimeUnit.SECONDS).isSuccess());
+            assertTrue(queued.get(10, TimeUnit.SECONDS).isSuccess());
+            assertTrue(executor.getMaxQueueWaitMillis() > 0);
+        }
+    }
+    
+    @Test
+    void testPerToolBulkhead() throws Exception {
+        try (ToolExecutor executor = new ToolExecutor(registry, 10, 10, 2)) {
+            List<CompletableFuture<ExecuteResult>> accepted = new ArrayList<>();
+            accepted.add(executor.submit("test.blocking", context, args));
+            accepted.add(executor.submit("test.blocking", context, args));
+            CompletableFuture<ExecuteResult> rejected = executor.submit("test.blocking", context, args);
+            CompletableFuture<ExecuteResult> otherTool = executor.submit("test.other", context, args);
+            
+            ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+            assertEquals(2, executor.getInFlight("test.blocking"));
+            
+            release.countDown();
+            for (CompletableFuture<ExecuteResult> future : accepted) {
+                assertTrue(future.get(10, TimeUnit.SECONDS).isSuccess());
+            }
+            assertTrue(otherTool.get(10, TimeUnit.SECONDS).isSuccess());
+            assertEquals(0, executor.getInFlight("test.blocking"));
+        }
+    }
+    
+    @Test
+    void testToolExceptionCompletesExceptionally() {
+        registry.register(new BlockingTool("test.failing", release) {
+            @Override
+            public ExecuteResult execute(ExecutionContext context, JsonNode args) {
+                throw new IllegalArgumentException("Required field missing: name");
+            }
+        });
+        
+        try (ToolExecutor executor = new ToolExecutor(registry)) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                () -> executor.submit("test.failing", context, args).get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+    
+    @Test
+    void testInvalidArgumentsRejectedBeforeExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        JsonNode schema = JsonSchemas.object(Map.of(
+            "name", JsonSchemas.string("Service name"),
+            "timeoutSeconds", JsonSchemas.integer(1, 300, 60)), List.of("name"));
+        registry.register(new BlockingTool("test.validated", release) {
+            @Override
+            public JsonNode getJsonSchema() { return schema; }
+            
+            @Override
+            public ExecuteResult execute(ExecutionContext context, JsonNode args) {
+                executions.incrementAndGet();
+                return new ExecuteResult("id", 0, args.toString(), "", ExecuteResult.Status.SUCCESS);
+            }
+        });
+        
+        try (ToolExecutor executor = new ToolExecutor(registry, 1, 1, 1)) {
+            ExecutionException missing = assertThrows(ExecutionException.class,
+                () -> executor.submit("test.validated", context, args).get(1, TimeUnit.SECONDS));
+            assertTrue(missing.getCause() instanceof ArgumentValidationException);
+            JsonNode outOfRange = new ObjectMapper().readTree("{\"name\":\"a\",\"timeoutSeconds\":0}");
+            assertThrows(ExecutionException.class,
+                () -> executor.submit("test.validated", context, outOfRange).get(1, TimeUnit.SECONDS));
+            assertEquals(0, executions.get());
+            assertEquals(0, executor.getInFlight("test.validated"));
+            
+            JsonNode valid = new ObjectMapper().readTree("{\"name\":\"a\"}");
+            ExecuteResult result = executor.submit("test.validated", context, valid).get(10, TimeUnit.SECONDS);
+            assertEquals(1, executions.get());
+            assertEquals(60, new ObjectMapper().readTree(result.getStdout()).get("timeoutSeconds").asInt());
+        }
+    }
+    
+    /**
+     * Tool that blocks until released and echoes its name.
+     */
+    static class BlockingTool implements Tool {
+        
+        private final String name;
+        private final CountDownLatch release;
+        
+        BlockingTool(String name, CountDownLatch release) {
+            this.name = name;
+            this.release = release;
+        }
+        
+        @Override
+        public String getName() { return name; }
+        @Override
+        public String getDescription() { return "Blocking test tool"; }
+        @Override
+        public JsonNode getJsonSchema() { return new ObjectMapper().createObjectNode(); }
+        @Override
+        public boolean requiresConfirmation() { return false; }
+        @Override
+        public List<String> getOsSupport() { return List.of("windows"); }
+        
+        @Override
+        public ExecuteResult execute(ExecutionContext context, JsonNode args) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ExecuteResult("id", 0, name, "", ExecuteResult.Status.SUCCESS);
+        }
+    }
+}
@@ -1,9 +1,21 @@
 package com.acme.mcp.core.tool;
 
+import com.acme.mcp.core.tool.FleetExecutorTest.ScriptedTool;
 import com.acme.mcp.core.tools.SystemResetNetworkTool;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -176,4 +188,84 @@ class ToolRegistryTest {
         registry.clear();
         assertEquals(0, registry.size());
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testSnapshotsAreImmutableAndVersioned() {
+        ToolRegistrySnapshot empty = registry.snapshot();
+        SystemResetNetworkTool tool = new SystemResetNetworkTool();
+        registry.register(tool);
+        ToolRegistrySnapshot registered = registry.snapshot();
+        
+        assertEquals(0, empty.size());
+        assertNull(empty.get("system.reset_network"));
+        assertTrue(registered.getVersion() > empty.getVersion());
+        assertSame(tool, registered.getNames().get("system.reset_network"));
+        assertSame(tool, registered.getAliases().get("system_reset_network"));
+        assertSame(registered, registry.snapshot());
+        assertSame(registered.getTools(), registry.list());
+        
+        registry.unregister("system_reset_network");
+        assertTrue(registered.contains("system_reset_network"));
+        assertFalse(registry.contains("system_reset_network"));
+    }
+    
+    @Test
+    void testCatalogIsSerializedOncePerSnapshot() throws Exception {
+        registry.register(new SystemResetNetworkTool());
+        ToolRegistrySnapshot snapshot = registry.snapshot();
+        
+        JsonNode catalog = new ObjectMapper().readTree(snapshot.getCatalogBytes());
+        assertEquals(1, catalog.get("tools").size());
+        JsonNode entry = catalog.get("tools").get(0);
+        assertEquals("system.reset_network", entry.get("name").asText());
+        assertEquals(new SystemResetNetworkTool().getDescription(), entry.get("description").asText());
+        assertEquals(new SystemResetNetworkTool().getJsonSchema(), entry.get("inputSchema"));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeCatalog(out);
+        assertArrayEquals(snapshot.getCatalogBytes(), out.toByteArray());
+        assertEquals(snapshot.getCatalogSize(), out.size());
+        assertTrue(snapshot.catalogMatches(snapshot.getCatalogETag()));
+        assertFalse(snapshot.catalogMatches("\"stale\""));
+        
+        // Removing an alias changes the version but not the catalog
+        registry.unregister("system_reset_network");
+        assertEquals(snapshot.getCatalogETag(), registry.snapshot().getCatalogETag());
+        
+        registry.register(new ScriptedTool("test.other", context -> null));
+        assertNotEquals(snapshot.getCatalogETag(), registry.snapshot().getCatalogETag());
+    }
+    
+    @Test
+    void testConcurrentRegistrationOfSameNameSucceedsOnce() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        registry.register(new SystemResetNetworkTool());
+                        return true;
+                    } catch (IllegalStateException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int registered = 0;
+            for (Future<Boolean> future : futures) {
+                if (future.get(10, TimeUnit.SECONDS)) {
+                    registered++;
+                }
+            }
+            assertEquals(1, registered);
+            assertEquals(1, registry.list().size());
+            assertSame(registry.get("system.reset_network"), registry.get("system_reset_network"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
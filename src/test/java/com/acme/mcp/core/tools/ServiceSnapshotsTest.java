@@ -0,0 +1,144 @@
+package com.acme.mcp.core.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ServiceSnapshots.
+ */
+class ServiceSnapshotsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testFirstCallReturnsFullTable() {
+        ServiceSnapshots snapshots = new ServiceSnapshots(10);
+
+        JsonNode payload = snapshots.update("asset-1", table("Spooler:Running", "BITS:Stopped"), 0);
+
+        assertTrue(payload.get("full").asBoolean());
+        assertTrue(payload.get("version").asLong() > 0);
+        assertEquals(List.of("BITS", "Spooler"), names(payload.get("services")));
+    }
+
+    @Test
+    void testDeltaSinceLatestVersion() {
+        ServiceSnapshots snapshots = new ServiceSnapshots(10);
+        long v1 = snapshots.update("asset-1", table("Spooler:Running", "BITS:Stopped", "W32Time:Running"), 0)
+            .get("version").asLong();
+
+        JsonNode delta = snapshots.update("asset-1", table("Spooler:Stopped", "W32Time:Running", "WinRM:Running"), v1);
+
+        assertFalse(delta.get("full").asBoolean());
+        assertEquals(v1, delta.get("sinceVersion").asLong());
+        assertTrue(delta.get("version").asLong() > v1);
+        assertEquals(List.of("WinRM"), names(delta.get("added")));
+        assertEquals(List.of("Spooler"), names(delta.get("changed")));
+        assertEquals("Stopped", delta.get("changed").get(0).get("status").asText());
+        assertEquals(1, delta.get("removed").size());
+        assertEquals("BITS", delta.get("removed").get(0).asText());
+    }
+
+    @Test
+    void testUnchangedTableKeepsVersionAndReturnsEmptyDelta() {
+        ServiceSnapshots snapshots = new ServiceSnapshots(10);
+        long v1 = snapshots.update("asset-1", table("Spooler:Running"), 0).get("version").asLong();
+
+        JsonNode delta = snapshots.update("asset-1", table("Spooler:Running"), v1);
+
+        assertEquals(v1, delta.get("version").asLong());
+        assertEquals(0, delta.get("added").size());
+        assertEquals(0, delta.get("changed").size());
+        assertEquals(0, delta.get("removed").size());
+    }
+
+    @Test
+    void testDeltaSinceOlderVersionAccumulatesChanges() {
+        ServiceSnapshots snapshots = new ServiceSnapshots(10);
+        long v1 = snapshots.update("asset-1", table("A:Running", "B:Running", "C:Running"), 0).get("version").asLong();
+        long v2 = snapshots.update("asset-1", table("A:Stopped", "B:Running", "C:Running"), v1).get("version").asLong();
+        snapshots.update("asset-1", table("A:Stopped", "B:Running", "D:Running"), v2);
+
+        JsonNode delta = snapshots.update("asset-1", table("A:Stopped", "B:Running", "D:Running"), v1);
+
+        assertFalse(delta.get("full").asBoolean());
+        assertEquals(List.of("D"), names(delta.get("added")));
+        assertEquals(List.of("A"), names(delta.get("changed")));
+        assertEquals("C", delta.get("removed").get(0).asText());
+    }
+
+    @Test
+    void testUnknownVersionReturnsFullTable() {
+        ServiceSnapshots snapshots = new ServiceSnapshots(10);
+        long other = snapshots.update("asset-2", table("A:Running"), 0).get("version").asLong();
+        snapshots.update("asset-1", table("A:Running"), 0);
+
+        // A version of another snapshot predates this one and is never valid for it
+        assertTrue(snapshots.update("asset-1", table("A:Running"), other).get("full").asBoolean());
+        assertTrue(snapshots.update("asset-1", table("A:Running"), Long.MAX_VALUE).get("full").asBoolean());
+    }
+
+    @Test
+    void testVersionOfInterleavedSnapshotReturnsFullTable() {
+        ServiceSnapshots snapshots = new ServiceSnapshots(10);
+        long v1 = snapshots.update("asset-1", table("A:Running"), 0).get("version").asLong();
+        long other = snapshots.update("asset-2", table("A:Running"), 0).get("version").asLong();
+        long v2 = snapshots.update("asset-1", table("A:Stopped"), v1).get("version").asLong();
+        assertTrue(v1 < other && other < v2);
+
+        // Between two versions of asset-1, but issued by asset-2
+        JsonNode payload = snapshots.update("asset-1", table("A:Stopped", "B:Running"), other);
+        assertTrue(payload.get("full").asBoolean());
+        assertEquals(List.of("A", "B"), names(payload.get("services")));
+        assertFalse(snapshots.update("asset-1", table("A:Stopped", "B:Running"), v2).get("full").asBoolean());
+    }
+
+    @Test
+    void testLeastRecentlyUsedSnapshotIsEvicted() {
+        ServiceSnapshots snapshots = new ServiceSnapshots(2);
+        long v1 = snapshots.update("asset-1", table("A:Running"), 0).get("version").asLong();
+        snapshots.update("asset-2", table("A:Running"), 0);
+        snapshots.update("asset-3", table("A:Running"), 0);
+
+        assertEquals(2, snapshots.size());
+        assertTrue(snapshots.update("asset-1", table("A:Running"), v1).get("full").asBoolean());
+    }
+
+    @Test
+    void testDroppedTombstonesLimitDeltas() {
+        ServiceSnapshots snapshots = new ServiceSnapshots(10);
+        String[] services = new String[ServiceSnapshots.MAX_TOMBSTONES + 1];
+        for (int i = 0; i < services.length; i++) {
+            services[i] = "svc" + i + ":Running";
+        }
+        long v1 = snapshots.update("asset-1", table(services), 0).get("version").asLong();
+        long v2 = snapshots.update("asset-1", table("svc0:Running"), v1).get("version").asLong();
+
+        // Dropping the oldest tombstone loses the removals made after v1
+        JsonNode payload = snapshots.update("asset-1", table(), v1);
+        assertTrue(payload.get("full").asBoolean());
+        assertTrue(payload.get("version").asLong() > v2);
+    }
+
+    private ArrayNode table(String... services) {
+        ArrayNode table = mapper.createArrayNode();
+        for (String service : services) {
+            String[] parts = service.split(":");
+            table.addObject().put("name", parts[0]).put("status", parts[1]);
+        }
+        return table;
+    }
+
+    private static List<String> names(JsonNode rows) {
+        List<String> names = new ArrayList<>();
+        rows.forEach(row -> names.add(row.get("name").asText()));
+        return names;
+    }
+}
@@ -0,0 +1,42 @@
+package com.acme.mcp.core.tools;
+
+import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.tool.ExecutionContext;
+import com.acme.mcp.core.tool.ExecuteResult;
+import com.acme.mcp.core.windows.PowerShellRunner;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Tests for SystemClearTempTool.
+ */
+class SystemClearTempToolTest {
+    
+    private final ExecutionContext context = new ExecutionContext("testuser", "testasset", "testcorrelation");
+    private final ObjectNode nativeArgs = new ObjectMapper().createObjectNode().put("engine", "native");
+    
+    @Test
+    void testNativeDryRunNeedsNoTempFolders() {
+        SystemClearTempTool tool = new SystemClearTempTool(new PowerShellRunner(120, true), new Allowlist());
+        
+        ExecuteResult result = tool.execute(context, nativeArgs);
+        
+        assertEquals(ExecuteResult.Status.SUCCESS, result.getStatus());
+        assertEquals("DRY_RUN", result.getStdout());
+    }
+    
+    @Test
+    void testMissingTempFoldersAreAnErrorResult() {
+        assumeFalse(System.getProperty("os.name", "").startsWith("Windows"));
+        SystemClearTempTool tool = new SystemClearTempTool(new PowerShellRunner(120, false), new Allowlist());
+        
+        ExecuteResult result = tool.execute(context, nativeArgs);
+        
+        assertEquals(ExecuteResult.Status.ERROR, result.getStatus());
+        assertTrue(result.getStderr().contains("Windows temp folders"), result.getStderr());
+    }
+}
@@ -0,0 +1,148 @@
+package com.acme.mcp.core.tools;
+
+import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.tool.ExecuteResult;
+import com.acme.mcp.core.tool.ExecutionContext;
+import com.acme.mcp.core.tool.OutputFormat;
+import com.acme.mcp.core.windows.PowerShellRunner;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SystemListServicesTool.
+ */
+class SystemListServicesToolTest {
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+    }
+
+    @Test
+    void testServiceFilter() {
+        assertEquals("", SystemListServicesTool.serviceFilter("", "all"));
+        assertEquals("State = 'Running'", SystemListServicesTool.serviceFilter("", "Running"));
+        assertEquals("(Name LIKE '%spool%' OR DisplayName LIKE '%spool%') AND State = 'Stopped'",
+            SystemListServicesTool.serviceFilter("spool", "Stopped"));
+    }
+
+    @Test
+    void testServiceFilterEscapesValues() {
+        assertEquals("(Name LIKE '%a[%]b[_]c[[]d%' OR DisplayName LIKE '%a[%]b[_]c[[]d%')",
+            SystemListServicesTool.serviceFilter("a%b_c[d", "all"));
+        assertEquals("State = 'x\\' OR Name LIKE \\'%'",
+            SystemListServicesTool.serviceFilter("", "x' OR Name LIKE '%"));
+    }
+
+    @Test
+    void testCursorRoundTrip() {
+        String cursor = SystemListServicesTool.encodeCursor("wuauserv");
+
+        assertFalse(cursor.contains("wuauserv"));
+        assertEquals("wuauserv", SystemListServicesTool.decodeCursor(cursor));
+        assertThrows(IllegalArgumentException.class, () -> SystemListServicesTool.decodeCursor("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> SystemListServicesTool.decodeCursor("d3VhdXNlcnY"));
+    }
+
+    @Test
+    void testInvalidCursorIsRejectedBeforeExecution() {
+        SystemListServicesTool tool = new SystemListServicesTool(new PowerShellRunner(120, true), new Allowlist());
+        ExecutionContext context = new ExecutionContext("testuser", "testasset", "testcorrelation", OutputFormat.JSON);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> tool.execute(context, objectMapper.createObjectNode().put("cursor", "bogus")));
+    }
+
+    @Test
+    void testCursorRequiresStructuredOutput() {
+        SystemListServicesTool tool = new SystemListServicesTool(new PowerShellRunner(120, true), new Allowlist());
+        ExecutionContext context = new ExecutionContext("testuser", "testasset", "testcorrelation");
+        String cursor = SystemListServicesTool.encodeCursor("Appinfo");
+
+        // Text output has no place for the next cursor, so a page after the first could not be followed
+        assertThrows(IllegalArgumentException.class,
+            () -> tool.execute(context, objectMapper.createObjectNode().put("cursor", cursor)));
+    }
+
+    @Test
+    void testPagesUseOrdinalOrder() throws Exception {
+        JsonNode table = objectMapper.readTree(
+            "[{\"name\":\"bits\"},{\"name\":\"_svc\"},{\"name\":\"BITS2\"},{\"name\":\"Appinfo\"}]");
+
+        JsonNode first = SystemListServicesTool.page(table, "", 2);
+        String cursor = first.get("nextCursor").asText();
+        JsonNode second = SystemListServicesTool.page(table, SystemListServicesTool.decodeCursor(cursor), 2);
+
+        // Ordinal order puts upper case before '_' before lower case, whatever the culture
+        assertEquals("Appinfo", first.get("services").get(0).get("name").asText());
+        assertEquals("BITS2", first.get("services").get(1).get("name").asText());
+        assertEquals("_svc", second.get("services").get(0).get("name").asText());
+        assertEquals("bits", second.get("services").get(1).get("name").asText());
+        assertTrue(second.get("nextCursor").isNull());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testStructuredPageCarriesNextCursor() {
+        // sh stands in for PowerShell and prints the table as the structured script would
+        PowerShellRunner runner = new PowerShellRunner(10, false, List.of("sh", "-c",
+            "echo '{\"name\":\"BITS\"}'; echo '{\"name\":\"Appinfo\"}'; echo '{\"name\":\"Spooler\"}'"));
+        SystemListServicesTool tool = new SystemListServicesTool(runner, new Allowlist());
+        ExecutionContext context = new ExecutionContext("testuser", "testasset", "testcorrelation", OutputFormat.JSON);
+
+        ExecuteResult result = tool.execute(context, objectMapper.createObjectNode().put("limit", 2));
+
+        JsonNode page = result.getPayload();
+        assertEquals(2, page.get("services").size());
+        assertEquals("Appinfo", page.get("services").get(0).get("name").asText());
+        assertEquals("BITS", SystemListServicesTool.decodeCursor(page.get("nextCursor").asText()));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testLastPageHasNoCursor() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, List.of("sh", "-c",
+            "echo '{\"name\":\"Appinfo\"}'; echo '{\"name\":\"BITS\"}'"));
+        SystemListServicesTool tool = new SystemListServicesTool(runner, new Allowlist());
+        ExecutionContext context = new ExecutionContext("testuser", "testasset", "testcorrelation", OutputFormat.JSON);
+
+        String cursor = SystemListServicesTool.encodeCursor("Appinfo");
+        ExecuteResult result = tool.execute(context, objectMapper.createObjectNode().put("cursor", cursor));
+
+        assertEquals(1, result.getPayload().get("services").size());
+        assertEquals("BITS", result.getPayload().get("services").get(0).get("name").asText());
+        assertTrue(result.getPayload().get("nextCursor").isNull());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testSinceVersionReturnsDeltaPerAsset() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, List.of("sh", "-c",
+            "echo '{\"name\":\"BITS\",\"status\":\"Running\"}'; echo '{\"name\":\"Spooler\",\"status\":\"Stopped\"}'"));
+        SystemListServicesTool tool = new SystemListServicesTool(runner, new Allowlist());
+        ExecutionContext asset1 = new ExecutionContext("testuser", "asset-1", "testcorrelation", OutputFormat.JSON);
+        ExecutionContext asset2 = new ExecutionContext("testuser", "asset-2", "testcorrelation", OutputFormat.JSON);
+
+        JsonNode first = tool.execute(asset1, objectMapper.createObjectNode().put("sinceVersion", 0)).getPayload();
+        long version = first.get("version").asLong();
+        JsonNode delta = tool.execute(asset1, objectMapper.createObjectNode().put("sinceVersion", version)).getPayload();
+        JsonNode otherAsset = tool.execute(asset2, objectMapper.createObjectNode().put("sinceVersion", version)).getPayload();
+
+        assertTrue(first.get("full").asBoolean());
+        assertEquals(2, first.get("services").size());
+        assertFalse(delta.get("full").asBoolean());
+        assertEquals(version, delta.get("version").asLong());
+        assertEquals(0, delta.get("changed").size());
+        assertTrue(otherAsset.get("full").asBoolean());
+    }
+}
@@ -0,0 +1,172 @@
+package com.acme.mcp.core.tools;
+
+import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.security.ScriptTemplate;
+import com.acme.mcp.core.tool.ExecuteResult;
+import com.acme.mcp.core.tool.ExecutionContext;
+import com.acme.mcp.core.tool.OutputFormat;
+import com.acme.mcp.core.windows.PowerShellRunner;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SystemRestartServiceTool.
+ */
+class SystemRestartServiceToolTest {
+    
+    private SystemRestartServiceTool tool;
+    private ExecutionContext context;
+    private ObjectMapper objectMapper;
+    
+    @BeforeEach
+    void setUp() {
+        tool = new SystemRestartServiceTool(new PowerShellRunner(120, true), new Allowlist());
+        context = new ExecutionContext("testuser", "testasset", "testcorrelation");
+        objectMapper = new ObjectMapper();
+    }
+    
+    @Test
+    void testScriptTemplatesAreAllowed() {
+        assertDoesNotThrow(tool::prepare);
+    }
+    
+    @Test
+    void testExecuteModes() {
+        ObjectNode args = objectMapper.createObjectNode().put("name", "Spooler").put("timeoutSec", 10);
+        
+        assertTrue(tool.execute(context, args).isSuccess());
+        assertTrue(tool.execute(context, args.put("mode", "lean")).isSuccess());
+    }
+    
+    @Test
+    void testRejectsWildcardNames() {
+        assertThrows(IllegalArgumentException.class,
+            () -> tool.execute(context, objectMapper.createObjectNode().put("name", "Win*")));
+        ObjectNode batch = objectMapper.createObjectNode();
+        batch.putArray("names").add("Spooler").add("a\nb");
+        assertThrows(IllegalArgumentException.class, () -> tool.execute(context, batch));
+    }
+    
+    @Test
+    void testBatchReportsLayers() {
+        ObjectNode args = objectMapper.createObjectNode();
+        args.putArray("names").add("Spooler").add("BITS");
+        
+        ExecuteResult result = tool.execute(context, args);
+        
+        // Dependencies are unknown in dry-run mode, so services restart one at a time
+        assertTrue(result.isSuccess());
+        assertEquals(2, result.getPayload().get("layers").size());
+        assertEquals("Spooler", result.getPayload().get("layers").get(0).get("services").get(0).asText());
+    }
+    
+    @Test
+    void testRestartLayersFollowDependencies() {
+        // Spooler depends on RPCSS and HTTP; Fax depends on Spooler; W32Time is independent
+        ArrayNode dependencies = objectMapper.createArrayNode();
+        dependencies.add(service("Fax", "Spooler"));
+        dependencies.add(service("spooler", "RpcSs", "http"));
+        dependencies.add(service("W32Time"));
+        dependencies.add(service("RpcSs", "DcomLaunch"));
+        
+        List<List<String>> layers = SystemRestartServiceTool.restartLayers(
+            List.of("Fax", "Spooler", "W32Time", "RpcSs"), dependencies);
+        
+        assertEquals(List.of(List.of("W32Time", "RpcSs"), List.of("Spooler"), List.of("Fax")), layers);
+    }
+    
+    @Test
+    void testRestartLayersToleratesCycles() {
+        ArrayNode dependencies = objectMapper.createArrayNode();
+        dependencies.add(service("A", "B"));
+        dependencies.add(service("B", "A"));
+        dependencies.add(service("C"));
+        
+        List<List<String>> layers = SystemRestartServiceTool.restartLayers(List.of("A", "B", "C"), dependencies);
+        
+        assertEquals(List.of(List.of("C"), List.of("A", "B")), layers);
+    }
+    
+    @Test
+    void testWaitTimeoutStaysBelowRunnerTimeout() {
+        ScriptedTool scripted = new ScriptedTool(new PowerShellRunner(60, true), phase -> success(null));
+        
+        scripted.execute(context, objectMapper.createObjectNode().put("name", "Spooler").put("timeoutSec", 120));
+        scripted.execute(context, objectMapper.createObjectNode().put("name", "Spooler").put("timeoutSec", 10));
+        
+        assertEquals(45, scripted.calls.get(0).get("timeoutSec"));
+        assertEquals(10, scripted.calls.get(1).get("timeoutSec"));
+    }
+    
+    @Test
+    void testFailedLayerRestartsStoppedServicesInReverseOrder() {
+        ArrayNode dependencies = objectMapper.createArrayNode();
+        dependencies.add(service("Spooler", "RpcSs"));
+        dependencies.add(service("RpcSs"));
+        dependencies.add(service("Fax", "Spooler"));
+        ScriptedTool scripted = new ScriptedTool(new PowerShellRunner(120, true), phase -> switch (phase) {
+            case "dependencies" -> success(dependencies);
+            case "restart" -> new ExecuteResult("e", 1, "", "timed out", ExecuteResult.Status.FAILURE);
+            default -> success(objectMapper.createArrayNode().add(objectMapper.createObjectNode()
+                .put("name", "Spooler").put("running", true)));
+        });
+        ObjectNode args = objectMapper.createObjectNode();
+        args.putArray("names").add("Fax").add("Spooler").add("RpcSs");
+        
+        ExecuteResult result = scripted.execute(context, args);
+        
+        assertFalse(result.isSuccess());
+        assertEquals(List.of("dependencies", "restart", "recover"), scripted.phases);
+        assertEquals("Fax\nSpooler\nRpcSs", scripted.calls.get(2).get("names"));
+        assertEquals(1, result.getPayload().get("layers").size());
+        assertEquals("Spooler", result.getPayload().get("recovered").get(0).get("name").asText());
+    }
+    
+    private static ExecuteResult success(JsonNode payload) {
+        return new ExecuteResult("e", 0, "", "", ExecuteResult.Status.SUCCESS).withPayload(payload);
+    }
+    
+    /**
+     * Tool answering each script by its audit phase instead of running it.
+     */
+    private static class ScriptedTool extends SystemRestartServiceTool {
+        
+        final List<Map<String, ?>> calls = new ArrayList<>();
+        final List<String> phases = new ArrayList<>();
+        private final Function<String, ExecuteResult> answers;
+        
+        ScriptedTool(PowerShellRunner runner, Function<String, ExecuteResult> answers) {
+            super(runner, new Allowlist());
+            this.answers = answers;
+        }
+        
+        @Override
+        protected ExecuteResult runPs(ScriptTemplate template, Map<String, ?> values, OutputFormat format,
+                                      ExecutionContext context, Map<String, Object> auditExtra) {
+            String phase = String.valueOf(auditExtra.getOrDefault("phase", "single"));
+            calls.add(values);
+            phases.add(phase);
+            return answers.apply(phase);
+        }
+    }
+    
+    private JsonNode service(String name, String... dependsOn) {
+        ObjectNode service = objectMapper.createObjectNode().put("name", name);
+        ArrayNode array = service.putArray("dependsOn");
+        for (String dependency : dependsOn) {
+            array.add(dependency);
+        }
+        return service;
+    }
+}
@@ -1,6 +1,14 @@
 package com.acme.mcp.core.tools;
 
+import com.acme.mcp.core.security.Allowlist;
+import com.acme.mcp.core.tool.ExecuteResult;
+import com.acme.mcp.core.tool.ExecutionContext;
+import com.acme.mcp.core.tool.OutputFormat;
+import com.acme.mcp.core.tool.Tool;
+import com.acme.mcp.core.tool.ToolDescriptor;
 import com.acme.mcp.core.tool.ToolRegistry;
+import com.acme.mcp.core.windows.PowerShellRunner;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -95,4 +103,46 @@ class WindowsStarterPackTest {
         assertFalse(teamsTool.requiresConfirmation());
         assertEquals("Repair Microsoft Teams by killing processes and clearing cache", teamsTool.getDescription());
     }
+    
+    @Test
+    void testStructuredOutputMode() {
+        WindowsStarterPack.registerAll(registry, new PowerShellRunner(120, true), new Allowlist());
+        ExecutionContext context = new ExecutionContext("testuser", "testasset", "testcorrelation", OutputFormat.JSON);
+        ObjectMapper mapper = new ObjectMapper();
+        
+        // Every tool has a structured variant whose templates passed verification at registration
+        for (String toolName : WindowsStarterPack.getToolNames()) {
+            var args = mapper.createObjectNode().put("name", "Spooler");
+            ExecuteResult result = registry.get(toolName).execute(context, args);
+            assertTrue(result.isSuccess(), "Structured run should succeed: " + toolName);
+        }
+    }
+    
+    @Test
+    void testDescriptorsMatchTools() {
+        PowerShellRunner runner = new PowerShellRunner(120, true);
+        Allowlist allowlist = new Allowlist();
+        
+        assertEquals(9, WindowsStarterPack.descriptors().size());
+        for (ToolDescriptor descriptor : WindowsStarterPack.descriptors()) {
+            Tool tool = descriptor.create(runner, allowlist);
+            assertEquals(descriptor.getName(), tool.getName());
+            assertEquals(descriptor.getDescription(), tool.getDescription());
+            assertEquals(descriptor.requiresConfirmation(), tool.requiresConfirmation(), descriptor.getName());
+            assertEquals(descriptor.getOsSupport(), tool.getOsSupport());
+            assertEquals(descriptor.getAliases(), tool.aliases());
+            assertEquals(descriptor.getJsonSchema(), tool.getJsonSchema());
+        }
+    }
+    
+    @Test
+    void testLazyRegistrationExecutes() {
+        WindowsStarterPack.registerLazily(registry, new PowerShellRunner(120, true), new Allowlist());
+        ExecutionContext context = new ExecutionContext("testuser", "testasset", "testcorrelation");
+        
+        assertEquals(WindowsStarterPack.getToolNames().length, registry.list().size());
+        assertEquals("system.reset_network", registry.get("system_reset_network").getName());
+        ExecuteResult result = registry.get("security.check_bitlocker").execute(context, new ObjectMapper().createObjectNode());
+        assertEquals("DRY_RUN", result.getStdout());
+    }
 }
@@ -0,0 +1,185 @@
+package com.acme.mcp.core.windows;
+
+import com.acme.mcp.core.tool.ExecuteResult;
+import com.acme.mcp.core.tool.OutputChunk;
+import com.acme.mcp.core.tool.OutputFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for batched script execution using a bash stand-in that answers combined invocations.
+ */
+@DisabledOnOs(OS.WINDOWS)
+class PowerShellBatcherTest {
+
+    private static final PowerShellScript SCRIPT = new PowerShellScript(List.of("tag"), "Write-Output $tag");
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * bash stand-in for powershell.exe reading the script and parameters from stdin like the loader.
+     * Single calls print "single"; combined calls print a marked section per "p" parameter with
+     * "out/err tag" lines, exit code 3 for the tag "fail", and stop the process for the tag "crash".
+     */
+    private PowerShellRunner standInRunner() {
+        Path spawns = tempDir.resolve("spawns");
+        String shell = "read -r script; read -r params; json=$(printf '%s' \"$params\" | base64 -d); "
+            + "echo x >> '" + spawns + "'; "
+            + "marker=$(printf '%s' \"$json\" | sed -n 's/.*\"marker\":\"\\([^\"]*\\)\".*/\\1/p'); "
+            + "if [ -z \"$marker\" ]; then echo single; exit 0; fi; "
+            + "echo noise; "
+            + "i=0; for tag in $(printf '%s' \"$json\" | grep -o 'tag[^a-z0-9]*[a-z0-9]*' | sed 's/.*[^a-z0-9]//'); do "
+            + "echo \"$marker BEGIN $i\"; echo \"$marker $i\" >&2; "
+            + "if [ \"$tag\" = crash ]; then exit 1; fi; "
+            + "echo \"out $tag\"; echo \"err $tag\" >&2; "
+            + "code=0; if [ \"$tag\" = fail ]; then code=3; fi; "
+            + "echo \"$marker END $i $code\"; i=$((i+1)); done";
+        return new PowerShellRunner(10, false, List.of("bash", "-c", shell, "stand-in"));
+    }
+
+    private long spawnCount() throws Exception {
+        Path spawns = tempDir.resolve("spawns");
+        return Files.exists(spawns) ? Files.readAllLines(spawns).size() : 0;
+    }
+
+    @Test
+    void testCallsWithinWindowShareOneInvocation() throws Exception {
+        PowerShellRunner runner = standInRunner();
+        runner.setBatching(500, 8);
+        Map<String, List<OutputChunk>> streamed = new HashMap<>();
+        List<String> tags = List.of("alpha", "beta", "fail");
+        for (String tag : tags) {
+            streamed.put(tag, new CopyOnWriteArrayList<>());
+        }
+
+        Map<String, ExecuteResult> results = runConcurrently(runner, "PC-1", tags, streamed);
+
+        assertEquals(1, spawnCount());
+        assertEquals(1, runner.getBatchCount());
+        assertEquals(3, runner.getBatchedCallCount());
+        for (String tag : List.of("alpha", "beta")) {
+            ExecuteResult result = results.get(tag);
+            assertEquals(ExecuteResult.Status.SUCCESS, result.getStatus());
+            assertEquals("out " + tag + "\n", result.getStdout());
+            assertEquals("err " + tag + "\n", result.getStderr());
+            assertTrue(streamed.get(tag).stream().anyMatch(chunk -> chunk.getText().equals("out " + tag + "\n")));
+        }
+        ExecuteResult failed = results.get("fail");
+        assertEquals(ExecuteResult.Status.FAILURE, failed.getStatus());
+        assertEquals(3, failed.getExitCode());
+        assertEquals("out fail\n", failed.getStdout());
+    }
+
+    @Test
+    void testFullBatchRunsBeforeWindowEnds() throws Exception {
+        PowerShellRunner runner = standInRunner();
+        runner.setBatching(10_000, 2);
+
+        long start = System.nanoTime();
+        Map<String, ExecuteResult> results = runConcurrently(runner, "PC-1", List.of("alpha", "beta"), null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 5_000, "Full batch should not wait for the window, took " + elapsedMillis + "ms");
+        assertEquals("out alpha\n", results.get("alpha").getStdout());
+        assertEquals("out beta\n", results.get("beta").getStdout());
+        assertEquals(1, spawnCount());
+    }
+
+    @Test
+    void testDifferentKeysRunSeparately() throws Exception {
+        PowerShellRunner runner = standInRunner();
+        runner.setBatching(200, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ExecuteResult> first = executor.submit(() ->
+                runner.executeBatched("PC-1", SCRIPT, Map.of("tag", "alpha"), null, OutputFormat.TEXT));
+            Future<ExecuteResult> second = executor.submit(() ->
+                runner.executeBatched("PC-2", SCRIPT, Map.of("tag", "beta"), null, OutputFormat.TEXT));
+
+            assertEquals("single\n", first.get(10, TimeUnit.SECONDS).getStdout());
+            assertEquals("single\n", second.get(10, TimeUnit.SECONDS).getStdout());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, spawnCount());
+        assertEquals(0, runner.getBatchCount());
+    }
+
+    @Test
+    void testCallsCutOffByTheInvocationFail() throws Exception {
+        PowerShellRunner runner = standInRunner();
+        runner.setBatching(500, 2);
+
+        // The stand-in answers in parameter order, which follows script hash order
+        PowerShellScript other = new PowerShellScript(List.of("tag"), "Write-Output \"$tag\"");
+        boolean scriptFirst = SCRIPT.getHash().compareTo(other.getHash()) < 0;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ExecuteResult> alpha = executor.submit(() ->
+                runner.executeBatched("PC-1", scriptFirst ? SCRIPT : other, Map.of("tag", "alpha"), null,
+                    OutputFormat.TEXT));
+            Future<ExecuteResult> crash = executor.submit(() ->
+                runner.executeBatched("PC-1", scriptFirst ? other : SCRIPT, Map.of("tag", "crash"), null,
+                    OutputFormat.TEXT));
+
+            assertEquals(ExecuteResult.Status.SUCCESS, alpha.get(10, TimeUnit.SECONDS).getStatus());
+            ExecuteResult crashed = crash.get(10, TimeUnit.SECONDS);
+            assertEquals(ExecuteResult.Status.FAILURE, crashed.getStatus());
+            assertTrue(crashed.getStderr().contains("before this call completed"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBatchingConfiguration() {
+        PowerShellRunner runner = new PowerShellRunner(10, true);
+        assertFalse(runner.isBatching());
+        assertThrows(IllegalArgumentException.class, () -> runner.setBatching(100, 1));
+
+        runner.setBatching(100, 4);
+        assertTrue(runner.isBatching());
+        // Dry runs are never batched
+        assertEquals("DRY_RUN",
+            runner.executeBatched("PC-1", SCRIPT, Map.of("tag", "a"), null, OutputFormat.TEXT).getStdout());
+
+        runner.setBatching(0, 4);
+        assertFalse(runner.isBatching());
+    }
+
+    private static Map<String, ExecuteResult> runConcurrently(PowerShellRunner runner, String key, List<String> tags,
+                                                              Map<String, List<OutputChunk>> streamed) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tags.size());
+        try {
+            List<Future<ExecuteResult>> futures = new ArrayList<>();
+            for (String tag : tags) {
+                futures.add(executor.submit(() -> runner.executeBatched(key, SCRIPT, Map.of("tag", tag),
+                    streamed == null ? null : streamed.get(tag)::add, OutputFormat.TEXT)));
+            }
+            Map<String, ExecuteResult> results = new HashMap<>();
+            for (int i = 0; i < tags.size(); i++) {
+                results.put(tags.get(i), futures.get(i).get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.acme.mcp.core.windows;
+
+import com.acme.mcp.core.tool.ExecuteResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PowerShellHostPool using a bash stand-in host that speaks the framed protocol.
+ */
+@DisabledOnOs(OS.WINDOWS)
+class PowerShellHostPoolTest {
+
+    /**
+     * Compiled scripts are cached by hash like the real host; the param line is dropped and
+     * the JSON parameters are exposed as $MCP_PARAMETERS.
+     */
+    static final String STAND_IN_HOST_SCRIPT = String.join("\n",
+        "declare -A blocks",
+        "while IFS=' ' read -r id first second third; do",
+        "  if [ -n \"$third\" ]; then",
+        "    if [ \"$second\" != '-' ]; then blocks[$first]=$(printf '%s' \"$second\" | base64 -d | tail -n +2); fi",
+        "    script=${blocks[$first]}",
+        "    export MCP_PARAMETERS=$(printf '%s' \"$third\" | base64 -d)",
+        "  else",
+        "    script=$(printf '%s' \"$first\" | base64 -d)",
+        "  fi",
+        "  (eval \"$script\")",
+        "  code=$?",
+        "  printf '\\n<<<MCP-END %s %s>>>\\n' \"$id\" \"$code\"",
+        "  printf '\\n<<<MCP-END %s>>>\\n' \"$id\" >&2",
+        "done"
+    );
+
+    static final List<String> STAND_IN_HOST_COMMAND = List.of("bash", "-c", STAND_IN_HOST_SCRIPT);
+
+    private PowerShellHostPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new PowerShellHostPool(STAND_IN_HOST_COMMAND, 2, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void testExecuteCapturesOutputAndExitCode() {
+        ExecuteResult result = pool.execute("echo hello; echo oops >&2", 10);
+
+        assertEquals(ExecuteResult.Status.SUCCESS, result.getStatus());
+        assertEquals(0, result.getExitCode());
+        assertEquals("hello\n", result.getStdout());
+        assertEquals("oops\n", result.getStderr());
+    }
+
+    @Test
+    void testNonZeroExitCode() {
+        ExecuteResult result = pool.execute("printf partial; exit 3", 10);
+
+        assertEquals(ExecuteResult.Status.FAILURE, result.getStatus());
+        assertEquals(3, result.getExitCode());
+        assertEquals("partial", result.getStdout());
+    }
+
+    @Test
+    void testHostsAreReusedAndRecycledAfterMaxUses() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pool.execute("echo " + i, 10).isSuccess());
+        }
+
+        // Sequential calls: uses 1-3 on the first host, then a fresh host
+        assertEquals(4, pool.getExecutionCount());
+        assertEquals(2, pool.getSpawnCount());
+        assertEquals(2, pool.getReuseCount());
+        assertEquals(1, pool.getRecycleCount());
+        assertEquals(1, pool.getIdleHosts());
+    }
+
+    @Test
+    void testTimeoutRecyclesHost() {
+        ExecuteResult result = pool.execute("echo started; sleep 30", 1);
+
+        assertEquals(ExecuteResult.Status.TIMEOUT, result.getStatus());
+        assertEquals("started", result.getStdout());
+        assertEquals(1, pool.getRecycleCount());
+        assertEquals(0, pool.getIdleHosts());
+
+        // The pool recovers with a new host
+        assertTrue(pool.execute("echo again", 10).isSuccess());
+        assertEquals(2, pool.getSpawnCount());
+    }
+
+    @Test
+    void testCrashedHostIsReplaced() {
+        ExecuteResult result = pool.execute("kill -9 $$", 10);
+
+        assertEquals(ExecuteResult.Status.ERROR, result.getStatus());
+        assertTrue(result.getStderr().contains("exited unexpectedly"));
+
+        assertTrue(pool.execute("echo recovered", 10).isSuccess());
+        assertEquals(2, pool.getSpawnCount());
+    }
+
+    @Test
+    void testRunnerDelegatesToPool() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, pool);
+
+        ExecuteResult result = runner.execute("echo one", "echo two");
+
+        assertTrue(result.isSuccess());
+        assertEquals("one\ntwo\n", result.getStdout());
+        assertEquals(1, pool.getExecutionCount());
+    }
+
+    @Test
+    void testCompiledScriptIsCachedByHost() {
+        PowerShellScript script = new PowerShellScript(List.of("name"), "printf '%s' \"$MCP_PARAMETERS\"");
+
+        ExecuteResult first = pool.execute(script, Map.of("name", "Spooler"), 10, null);
+        ExecuteResult second = pool.execute(script, Map.of("name", "it's \"quoted\""), 10, null);
+
+        assertTrue(first.isSuccess());
+        assertEquals("{\"name\":\"Spooler\"}", first.getStdout());
+        assertTrue(second.isSuccess());
+        assertEquals("{\"name\":\"it's \\\"quoted\\\"\"}", second.getStdout());
+        // Second run on the same warm host sends only the hash
+        assertEquals(1, pool.getSpawnCount());
+        assertEquals(1, pool.getScriptCacheHitCount());
+    }
+
+    @Test
+    void testFailedCompiledScriptIsSentAgain() {
+        PowerShellScript script = new PowerShellScript(List.of(), "exit 4");
+
+        assertEquals(4, pool.execute(script, Map.of(), 10, null).getExitCode());
+        assertEquals(4, pool.execute(script, Map.of(), 10, null).getExitCode());
+        assertEquals(0, pool.getScriptCacheHitCount());
+    }
+
+    @Test
+    void testClosedPoolRejectsExecution() {
+        pool.close();
+
+        ExecuteResult result = pool.execute("echo hello", 10);
+
+        assertEquals(ExecuteResult.Status.ERROR, result.getStatus());
+    }
+}
@@ -0,0 +1,231 @@
+package com.acme.mcp.core.windows;
+
+import com.acme.mcp.core.tool.ExecuteResult;
+import com.acme.mcp.core.tool.OutputChunk;
+import com.acme.mcp.core.tool.OutputFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PowerShellRunner process execution using sh as a stand-in shell.
+ */
+@DisabledOnOs(OS.WINDOWS)
+class PowerShellRunnerTest {
+
+    private static final List<String> SHELL = List.of("sh", "-c");
+
+    @Test
+    void testDryRun() {
+        PowerShellRunner runner = new PowerShellRunner(120, true);
+
+        ExecuteResult result = runner.execute("Get-Service");
+
+        assertEquals(0, result.getExitCode());
+        assertEquals("DRY_RUN", result.getStdout());
+        assertTrue(runner.isDryRun());
+    }
+
+    @Test
+    void testCapturesOutputAndExitCode() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, SHELL);
+
+        ExecuteResult result = runner.execute("echo out; echo err >&2; exit 2");
+
+        assertEquals(ExecuteResult.Status.FAILURE, result.getStatus());
+        assertEquals(2, result.getExitCode());
+        assertEquals("out\n", result.getStdout());
+        assertEquals("err\n", result.getStderr());
+    }
+
+    @Test
+    void testListenerReceivesOutputWhileRunning() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, SHELL);
+        List<OutputChunk> chunks = new CopyOnWriteArrayList<>();
+        StringBuilder streamedStdout = new StringBuilder();
+
+        ExecuteResult result = runner.execute(chunk -> {
+            chunks.add(chunk);
+            if (chunk.getType() == OutputChunk.Type.STDOUT) {
+                synchronized (streamedStdout) {
+                    streamedStdout.append(chunk.getText());
+                }
+            }
+        }, "echo first", "sleep 0.2", "echo 'zweite Zeile \u00e4\u00f6\u00fc'", "echo warn >&2");
+
+        assertTrue(result.isSuccess());
+        assertTrue(chunks.size() >= 3);
+        synchronized (streamedStdout) {
+            assertEquals(result.getStdout(), streamedStdout.toString());
+        }
+        assertTrue(chunks.stream().anyMatch(c -> c.getType() == OutputChunk.Type.STDERR && c.getText().equals("warn\n")));
+    }
+
+    @Test
+    void testChattyStderrDoesNotDeadlock() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, SHELL);
+
+        // Far more than a pipe buffer on both streams
+        ExecuteResult result = runner.execute(
+            "i=0; while [ $i -lt 20000 ]; do echo 'stderr line' >&2; echo 'stdout line'; i=$((i+1)); done");
+
+        assertTrue(result.isSuccess());
+        assertEquals(20000 * "stdout line\n".length(), result.getStdout().length());
+        assertEquals(20000 * "stderr line\n".length(), result.getStderr().length());
+    }
+
+    @Test
+    void testLargeOutputIsBoundedInMemory() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, SHELL);
+        runner.setCaptureLimits(1024, 1024);
+
+        ExecuteResult result = runner.execute("i=0; while [ $i -lt 10000 ]; do echo \"line $i\"; i=$((i+1)); done");
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getStdoutBytes() > 2048);
+        assertTrue(result.getStdoutHead(10).startsWith("line 0\n"));
+        assertTrue(result.getStdoutTail(10).endsWith("line 9999\n"));
+        assertEquals(result.getStdoutBytes(), result.getStdout().length());
+        result.release();
+    }
+
+    @Test
+    void testTimeoutKillsProcessTreeAndKeepsPartialOutput() {
+        PowerShellRunner runner = new PowerShellRunner(1, false, SHELL);
+
+        long start = System.nanoTime();
+        // The background child keeps the pipes open unless the whole tree is killed
+        ExecuteResult result = runner.execute("echo partial; sleep 30 & wait");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(ExecuteResult.Status.TIMEOUT, result.getStatus());
+        assertEquals(-1, result.getExitCode());
+        assertEquals("partial\n", result.getStdout());
+        assertTrue(result.getStderr().contains("timed out"));
+        assertTrue(elapsedMillis < 5000, "Timeout should be enforced, took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void testDescendantHoldingThePipesIsKilledWhenTheRootExits() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, SHELL);
+
+        long start = System.nanoTime();
+        // The background child inherits stdout and outlives the shell, which exits with 3
+        ExecuteResult result = runner.execute("echo done; sleep 30 & sleep 0.3; exit 3");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(ExecuteResult.Status.FAILURE, result.getStatus());
+        assertEquals(3, result.getExitCode());
+        assertEquals("done\n", result.getStdout());
+        assertTrue(elapsedMillis < 5000, "Orphaned child should be killed, took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void testSpawnFailure() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, List.of("/nonexistent/shell"));
+
+        ExecuteResult result = runner.execute("echo hello");
+
+        assertEquals(ExecuteResult.Status.ERROR, result.getStatus());
+        assertTrue(result.getStderr().startsWith("Execution failed"));
+    }
+
+    @Test
+    void testCompiledScriptIsSentOverStdin() {
+        // cat echoes the stdin payload; the loader is appended as last argument and becomes $0
+        PowerShellRunner runner = new PowerShellRunner(10, false, List.of("sh", "-c", "cat"));
+        PowerShellScript script = new PowerShellScript(List.of("name", "limit"), "Get-Service -Name $name");
+
+        ExecuteResult result = runner.execute(script, Map.of("name", "Spooler", "limit", 5, "unused", true), null);
+
+        assertTrue(result.isSuccess());
+        String[] lines = result.getStdout().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("param($name, $limit)\nGet-Service -Name $name", decode(lines[0]));
+        assertEquals("{\"name\":\"Spooler\",\"limit\":5}", decode(lines[1]));
+    }
+
+    @Test
+    void testCompiledScriptRequiresAllParameters() {
+        PowerShellRunner runner = new PowerShellRunner(10, true);
+        PowerShellScript script = new PowerShellScript(List.of("name"), "Get-Service -Name $name");
+
+        assertThrows(IllegalArgumentException.class, () -> runner.execute(script, Map.of(), null));
+        assertEquals("DRY_RUN", runner.execute(script, Map.of("name", "Spooler"), null).getStdout());
+    }
+
+    @Test
+    void testJsonOutputIsParsedIntoPayload() {
+        PowerShellRunner runner = new PowerShellRunner(10, false,
+            List.of("sh", "-c", "printf '{\"name\":\"Spooler\",'; sleep 0.1; printf '\"running\":true,\"pid\":4242,\"tags\":[1,2.5,null]}'"));
+        PowerShellScript script = new PowerShellScript(List.of(), "Get-Service");
+        List<OutputChunk> chunks = new CopyOnWriteArrayList<>();
+
+        ExecuteResult result = runner.execute(script, Map.of(), chunks::add, OutputFormat.JSON);
+
+        assertTrue(result.isSuccess());
+        JsonNode payload = result.getPayload();
+        assertNotNull(payload);
+        assertEquals("Spooler", payload.get("name").asText());
+        assertTrue(payload.get("running").asBoolean());
+        assertEquals(4242, payload.get("pid").asInt());
+        assertEquals(3, payload.get("tags").size());
+        assertEquals(2.5, payload.get("tags").get(1).asDouble());
+        assertTrue(payload.get("tags").get(2).isNull());
+        // Chunks still reach the caller's listener unchanged
+        assertTrue(chunks.stream().anyMatch(c -> c.getType() == OutputChunk.Type.STDOUT));
+    }
+
+    @Test
+    void testNdjsonOutputIsParsedIntoArray() {
+        PowerShellRunner runner = new PowerShellRunner(10, false,
+            List.of("sh", "-c", "echo '{\"name\":\"a\"}'; echo '{\"name\":\"b\"}'; echo '{\"name\":\"c\"}'"));
+        PowerShellScript script = new PowerShellScript(List.of(), "Get-Service");
+
+        JsonNode payload = runner.execute(script, Map.of(), null, OutputFormat.NDJSON).getPayload();
+
+        assertNotNull(payload);
+        assertTrue(payload.isArray());
+        assertEquals(3, payload.size());
+        assertEquals("c", payload.get(2).get("name").asText());
+    }
+
+    @Test
+    void testInvalidJsonLeavesPayloadEmpty() {
+        PowerShellScript script = new PowerShellScript(List.of(), "Get-Service");
+
+        ExecuteResult text = new PowerShellRunner(10, false, List.of("sh", "-c", "echo 'not json'"))
+            .execute(script, Map.of(), null, OutputFormat.JSON);
+        ExecuteResult truncated = new PowerShellRunner(10, false, List.of("sh", "-c", "printf '{\"name\":'"))
+            .execute(script, Map.of(), null, OutputFormat.JSON);
+        ExecuteResult twoDocuments = new PowerShellRunner(10, false, List.of("sh", "-c", "echo '{}'; echo '{}'"))
+            .execute(script, Map.of(), null, OutputFormat.JSON);
+
+        assertNull(text.getPayload());
+        assertEquals("not json\n", text.getStdout());
+        assertNull(truncated.getPayload());
+        assertNull(twoDocuments.getPayload());
+    }
+
+    @Test
+    void testTextOutputHasNoPayload() {
+        PowerShellRunner runner = new PowerShellRunner(10, false, List.of("sh", "-c", "echo '{}'"));
+        PowerShellScript script = new PowerShellScript(List.of(), "Get-Service");
+
+        assertNull(runner.execute(script, Map.of(), null).getPayload());
+        assertNull(new PowerShellRunner(10, true).execute(script, Map.of(), null, OutputFormat.JSON).getPayload());
+    }
+
+    private static String decode(String base64) {
+        return new String(Base64.getDecoder().decode(base64), StandardCharsets.UTF_8);
+    }
+}